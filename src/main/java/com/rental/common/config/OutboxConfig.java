@@ -0,0 +1,44 @@
+package com.rental.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 领域事件发件箱配置类
+ */
+@ConfigurationProperties(prefix = "outbox")
+@Data
+@Component
+public class OutboxConfig {
+
+    /**
+     * 每次轮询读取的事件数量
+     */
+    private int batchSize = 200;
+
+    /**
+     * 投递通道数量（同一聚合固定落在同一通道，保证按序投递）
+     */
+    private int workerLanes = 4;
+
+    /**
+     * 单个事件的最大投递次数，超过后标记为失败，不再阻塞同一聚合的后续事件
+     */
+    private int maxAttempts = 10;
+
+    /**
+     * 首次重试等待（毫秒），之后每次翻倍
+     */
+    private long initialBackoffMs = 1000;
+
+    /**
+     * 重试等待上限（毫秒）
+     */
+    private long maxBackoffMs = 600000;
+
+    /**
+     * 已投递事件保留天数
+     */
+    private int retentionDays = 7;
+}
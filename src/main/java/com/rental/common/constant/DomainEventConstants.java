@@ -0,0 +1,19 @@
+package com.rental.common.constant;
+
+/**
+ * 领域事件常量定义
+ */
+public class DomainEventConstants {
+
+    // 聚合类型
+    public static final String AGGREGATE_ORDER = "ORDER";
+
+    // 订单收到付款（租金或押金支付成功）
+    public static final String ORDER_PAID = "OrderPaid";
+
+    // 订单已归还
+    public static final String ORDER_RETURNED = "OrderReturned";
+
+    // 退款已完成
+    public static final String REFUND_COMPLETED = "RefundCompleted";
+}
@@ -0,0 +1,116 @@
+package com.rental.common.model;
+
+import com.rental.common.util.JsonUtil;
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 领域事件发件箱
+ *
+ * 事件与引起它的状态变更在同一事务中写入，由分发器异步投递给进程内订阅者。
+ * 同一聚合的事件按 id 顺序投递，前一条未投递成功时后续事件等待。
+ */
+@Entity
+@Table(name = "outbox_events", indexes = {
+    @Index(name = "idx_status_next_attempt", columnList = "status, next_attempt_at, id"),
+    @Index(name = "idx_aggregate_status", columnList = "aggregate_type, aggregate_id, status, id"),
+    @Index(name = "idx_status_delivered_at", columnList = "status, delivered_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "aggregate_type", nullable = false, length = 32)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Long aggregateId;
+
+    @Column(name = "event_type", nullable = false, length = 64)
+    private String eventType;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "JSON", nullable = false)
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxStatus status = OutboxStatus.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "delivered_at")
+    private LocalDateTime deliveredAt;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Map<String, Object> payloadMap;
+
+    /**
+     * 读取事件内容中的数值字段
+     */
+    public Long payloadLong(String key) {
+        Object value = payloadMap().get(key);
+        return value instanceof Number number ? number.longValue() : null;
+    }
+
+    /**
+     * 读取事件内容中的字符串字段
+     */
+    public String payloadString(String key) {
+        Object value = payloadMap().get(key);
+        return value != null ? value.toString() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> payloadMap() {
+        if (payloadMap == null) {
+            Map<String, Object> parsed = JsonUtil.fromJson(payload, HashMap.class);
+            payloadMap = parsed != null ? parsed : new HashMap<>();
+        }
+        return payloadMap;
+    }
+
+    public enum OutboxStatus {
+        PENDING("待投递"),
+        DELIVERED("已投递"),
+        FAILED("投递失败");
+
+        private final String description;
+
+        OutboxStatus(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.rental.common.repository;
+
+import com.rental.common.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // 加锁读取，防止多个实例重复投递同一事件
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM OutboxEvent e WHERE e.id = :id")
+    Optional<OutboxEvent> findByIdForUpdate(@Param("id") Long id);
+
+    // 同一聚合中排在该事件之前、仍待投递的事件数量
+    @Query("SELECT COUNT(e) FROM OutboxEvent e WHERE e.aggregateType = :aggregateType AND e.aggregateId = :aggregateId " +
+           "AND e.status = com.rental.common.model.OutboxEvent.OutboxStatus.PENDING AND e.id < :id")
+    long countPendingBefore(@Param("aggregateType") String aggregateType,
+                            @Param("aggregateId") Long aggregateId,
+                            @Param("id") Long id);
+}
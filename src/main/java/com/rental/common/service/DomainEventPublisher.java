@@ -0,0 +1,57 @@
+package com.rental.common.service;
+
+import com.rental.common.util.JsonUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 领域事件发布服务
+ *
+ * 事件写入发件箱表，必须与引起它的状态变更处于同一事务：业务回滚时事件一并回滚，
+ * 业务提交后事件一定会被分发器投递。
+ */
+@Service
+@RequiredArgsConstructor
+public class DomainEventPublisher {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO outbox_events (aggregate_type, aggregate_id, event_type, payload) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 发布单个事件
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String aggregateType, Long aggregateId, String eventType, Map<String, Object> payload) {
+        jdbcTemplate.update(INSERT_SQL, aggregateType, aggregateId, eventType, JsonUtil.toJson(payload));
+    }
+
+    /**
+     * 批量发布同类型事件，按列表顺序写入
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishAll(String aggregateType, String eventType, List<PendingEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>(events.size());
+        for (PendingEvent event : events) {
+            args.add(new Object[]{aggregateType, event.aggregateId(), eventType, JsonUtil.toJson(event.payload())});
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, args);
+    }
+
+    /**
+     * 待发布的事件
+     */
+    public record PendingEvent(Long aggregateId, Map<String, Object> payload) {
+    }
+}
@@ -0,0 +1,24 @@
+package com.rental.common.service;
+
+import com.rental.common.model.OutboxEvent;
+
+import java.util.Set;
+
+/**
+ * 领域事件订阅者
+ *
+ * 订阅者在分发器的投递事务中执行，抛出异常时整条事件回滚并稍后重新投递给所有订阅者，
+ * 因此处理逻辑需要幂等。
+ */
+public interface DomainEventSubscriber {
+
+    /**
+     * 订阅的事件类型
+     */
+    Set<String> eventTypes();
+
+    /**
+     * 处理事件
+     */
+    void handle(OutboxEvent event);
+}
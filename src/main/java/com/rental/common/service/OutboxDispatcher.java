@@ -0,0 +1,267 @@
+package com.rental.common.service;
+
+import com.rental.common.config.OutboxConfig;
+import com.rental.common.model.OutboxEvent;
+import com.rental.common.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 发件箱事件分发器
+ *
+ * 定时读取到期的待投递事件，按聚合分组后交给固定通道：同一聚合总落在同一个单线程通道，
+ * 按 id 顺序逐条投递，遇到失败即停止，后续事件等前一条重试成功后再投递。每条事件的
+ * 订阅者处理与已投递标记在同一事务中提交；事务失败时整条事件稍后重投，属于至少一次投递。
+ * 待投递数量、最早待投递事件的滞后时间和投递耗时通过 Micrometer 暴露。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OutboxDispatcher {
+
+    private static final String DUE_SQL =
+        "SELECT id, aggregate_type, aggregate_id FROM outbox_events " +
+        "WHERE status = 'PENDING' AND next_attempt_at <= NOW(3) ORDER BY id LIMIT ?";
+
+    // MySQL 按顺序执行 SET，IF 和退避计算中的 attempts 已是加一后的值
+    private static final String FAILURE_SQL =
+        "UPDATE outbox_events SET attempts = attempts + 1, last_error = ?, " +
+        "next_attempt_at = TIMESTAMPADD(MICROSECOND, LEAST(?, ? * POW(2, LEAST(attempts - 1, 20))) * 1000, NOW(3)), " +
+        "status = IF(attempts >= ?, 'FAILED', status) WHERE id = ? AND status = 'PENDING'";
+
+    private static final String STATS_SQL =
+        "SELECT status, COUNT(*) AS cnt, TIMESTAMPDIFF(MICROSECOND, MIN(created_at), NOW(3)) AS lag_us " +
+        "FROM outbox_events WHERE status IN ('PENDING', 'FAILED') GROUP BY status";
+
+    private static final String CLEANUP_SQL =
+        "DELETE FROM outbox_events WHERE status = 'DELIVERED' AND delivered_at < NOW() - INTERVAL ? DAY LIMIT 1000";
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectProvider<DomainEventSubscriber> subscriberProvider;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final OutboxConfig outboxConfig;
+    private final MeterRegistry meterRegistry;
+
+    // 正在某个通道中投递的聚合，避免下次轮询重复分发
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong lagMicros = new AtomicLong();
+
+    private final Map<String, List<DomainEventSubscriber>> subscribersByType = new HashMap<>();
+    private ThreadPoolExecutor[] lanes;
+    private TransactionTemplate transactionTemplate;
+    private Counter deliveredCounter;
+    private Counter retriedCounter;
+    private Timer deliveryLatency;
+
+    @PostConstruct
+    public void init() {
+        subscriberProvider.orderedStream().forEach(subscriber ->
+            subscriber.eventTypes().forEach(type ->
+                subscribersByType.computeIfAbsent(type, key -> new ArrayList<>()).add(subscriber)));
+
+        int laneCount = Math.max(1, outboxConfig.getWorkerLanes());
+        lanes = new ThreadPoolExecutor[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            int laneIndex = i;
+            AtomicInteger threadCount = new AtomicInteger();
+            // 每个聚合同时只有一个任务在队列中，队列长度不超过待投递的聚合数
+            lanes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "outbox-" + laneIndex + "-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        }
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Gauge.builder("outbox.events.pending", pendingCount, AtomicLong::get)
+            .description("待投递的发件箱事件数量").register(meterRegistry);
+        Gauge.builder("outbox.events.failed", failedCount, AtomicLong::get)
+            .description("超过最大投递次数的发件箱事件数量").register(meterRegistry);
+        Gauge.builder("outbox.lag", lagMicros, value -> value.get() / 1_000_000.0)
+            .baseUnit("seconds").description("最早待投递事件的滞后时间").register(meterRegistry);
+        deliveredCounter = Counter.builder("outbox.events.delivered").register(meterRegistry);
+        retriedCounter = Counter.builder("outbox.events.retried").register(meterRegistry);
+        deliveryLatency = Timer.builder("outbox.delivery.latency")
+            .description("事件从写入到投递完成的耗时").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdownLanes() {
+        for (ThreadPoolExecutor lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    /**
+     * 轮询到期事件并按聚合分发到投递通道
+     */
+    @Scheduled(fixedDelayString = "${outbox.poll-interval-ms:1000}")
+    public void poll() {
+        Map<String, List<Long>> byAggregate = new LinkedHashMap<>();
+        try {
+            refreshMetrics();
+            jdbcTemplate.query(DUE_SQL, (RowCallbackHandler) rs -> byAggregate
+                .computeIfAbsent(rs.getString("aggregate_type") + ":" + rs.getLong("aggregate_id"), key -> new ArrayList<>())
+                .add(rs.getLong("id")), Math.max(1, outboxConfig.getBatchSize()));
+        } catch (RuntimeException e) {
+            log.error("读取待投递发件箱事件失败: {}", e.getMessage());
+            return;
+        }
+
+        byAggregate.forEach((aggregateKey, eventIds) -> {
+            if (!inFlight.add(aggregateKey)) {
+                return;
+            }
+            int laneIndex = Math.floorMod(aggregateKey.hashCode(), lanes.length);
+            lanes[laneIndex].execute(() -> {
+                try {
+                    drain(eventIds);
+                } finally {
+                    inFlight.remove(aggregateKey);
+                }
+            });
+        });
+    }
+
+    /**
+     * 定时清理已投递的过期事件
+     */
+    @Scheduled(fixedDelayString = "${outbox.cleanup-interval-ms:3600000}",
+               initialDelayString = "${outbox.cleanup-interval-ms:3600000}")
+    public void cleanup() {
+        try {
+            int total = 0;
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update(CLEANUP_SQL, outboxConfig.getRetentionDays());
+                total += deleted;
+            } while (deleted >= 1000);
+            if (total > 0) {
+                log.info("已清理过期的发件箱事件 {} 条", total);
+            }
+        } catch (RuntimeException e) {
+            log.warn("清理发件箱事件失败: {}", e.getMessage());
+        }
+    }
+
+    private void drain(List<Long> eventIds) {
+        for (Long eventId : eventIds) {
+            if (!deliver(eventId)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 投递单条事件
+     *
+     * @return 已投递或无需投递返回 true；需要等待前序事件或投递失败返回 false
+     */
+    private boolean deliver(Long eventId) {
+        try {
+            OutboxEvent delivered = transactionTemplate.execute(status -> {
+                OutboxEvent event = outboxEventRepository.findByIdForUpdate(eventId).orElse(null);
+                if (event == null || event.getStatus() != OutboxEvent.OutboxStatus.PENDING) {
+                    return null;
+                }
+                // 前序事件在退避等待或正被其他实例投递，当前事件不能越过
+                if (outboxEventRepository.countPendingBefore(event.getAggregateType(), event.getAggregateId(), eventId) > 0) {
+                    throw new OrderingBlockedException();
+                }
+                for (DomainEventSubscriber subscriber : subscribersByType.getOrDefault(event.getEventType(), List.of())) {
+                    subscriber.handle(event);
+                }
+                event.setStatus(OutboxEvent.OutboxStatus.DELIVERED);
+                event.setAttempts(event.getAttempts() + 1);
+                event.setLastError(null);
+                event.setDeliveredAt(LocalDateTime.now());
+                return event;
+            });
+            if (delivered != null) {
+                deliveredCounter.increment();
+                if (delivered.getCreatedAt() != null) {
+                    deliveryLatency.record(Duration.between(delivered.getCreatedAt(), delivered.getDeliveredAt()));
+                }
+            }
+            return true;
+        } catch (OrderingBlockedException e) {
+            return false;
+        } catch (RuntimeException e) {
+            log.error("发件箱事件投递失败，事件ID：{}", eventId, e);
+            retriedCounter.increment();
+            try {
+                jdbcTemplate.update(FAILURE_SQL, truncate(e.getMessage(), 500),
+                    outboxConfig.getMaxBackoffMs(), outboxConfig.getInitialBackoffMs(),
+                    outboxConfig.getMaxAttempts(), eventId);
+            } catch (RuntimeException updateError) {
+                log.error("记录发件箱事件失败次数异常，事件ID：{}: {}", eventId, updateError.getMessage());
+            }
+            return false;
+        }
+    }
+
+    private void refreshMetrics() {
+        long[] pending = {0, 0};
+        long[] failed = {0};
+        jdbcTemplate.query(STATS_SQL, (RowCallbackHandler) rs -> {
+            if ("PENDING".equals(rs.getString("status"))) {
+                pending[0] = rs.getLong("cnt");
+                pending[1] = Math.max(0, rs.getLong("lag_us"));
+            } else {
+                failed[0] = rs.getLong("cnt");
+            }
+        });
+        pendingCount.set(pending[0]);
+        lagMicros.set(pending[1]);
+        failedCount.set(failed[0]);
+    }
+
+    private String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength);
+    }
+
+    /**
+     * 同一聚合存在未投递的前序事件，回滚当前事务并停止该聚合本轮投递
+     */
+    private static final class OrderingBlockedException extends RuntimeException {
+
+        OrderingBlockedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.rental.file.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量文件操作结果DTO（逐个文件ID报告结果）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileBatchOperationResultDTO {
+    
+    /**
+     * 操作类型
+     */
+    private String operation;
+    
+    /**
+     * 请求的文件数（去重后）
+     */
+    private Integer totalCount;
+    
+    /**
+     * 成功数量
+     */
+    private Integer successCount;
+    
+    /**
+     * 失败数量
+     */
+    private Integer failureCount;
+    
+    /**
+     * 每个文件ID的处理结果
+     */
+    private List<ItemResult> results;
+    
+    /**
+     * 单个文件的处理结果
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemResult {
+        
+        /**
+         * 文件ID
+         */
+        private Long fileId;
+        
+        /**
+         * 是否成功
+         */
+        private Boolean success;
+        
+        /**
+         * 结果状态（SUCCESS, NOT_FOUND, DELETED, PERMISSION_DENIED）
+         */
+        private String status;
+        
+        /**
+         * 结果说明
+         */
+        private String message;
+    }
+}
@@ -0,0 +1,78 @@
+package com.rental.file.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量上传响应DTO（逐个文件报告成功或失败）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileBatchUploadResponse {
+
+    /**
+     * 提交的文件总数
+     */
+    private Integer totalCount;
+
+    /**
+     * 上传成功数量
+     */
+    private Integer successCount;
+
+    /**
+     * 上传失败数量
+     */
+    private Integer failureCount;
+
+    /**
+     * 每个文件的上传结果（与提交顺序一致）
+     */
+    private List<FileResult> results;
+
+    /**
+     * 单个文件的上传结果
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FileResult {
+
+        /**
+         * 文件在请求中的下标
+         */
+        private Integer index;
+
+        /**
+         * 原始文件名
+         */
+        private String originalName;
+
+        /**
+         * 是否上传成功
+         */
+        private Boolean success;
+
+        /**
+         * 是否命中已存在的相同文件（去重）
+         */
+        private Boolean duplicate;
+
+        /**
+         * 上传成功时的文件信息
+         */
+        private FileUploadResponse file;
+
+        /**
+         * 上传失败时的错误信息
+         */
+        private String errorMessage;
+    }
+}
@@ -0,0 +1,73 @@
+package com.rental.file.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件存储清理报告DTO
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileCleanupReportDTO {
+    
+    /**
+     * 扫描的物理文件数
+     */
+    private Long scannedFiles;
+    
+    /**
+     * 比对的数据库记录数
+     */
+    private Long scannedRecords;
+    
+    /**
+     * 删除的孤儿文件数（磁盘存在但无数据库记录）
+     */
+    private Long orphanFilesDeleted;
+    
+    /**
+     * 删除的过期文件数（逻辑删除已超过保留期）
+     */
+    private Long expiredFilesDeleted;
+    
+    /**
+     * 清除的过期记录数
+     */
+    private Long expiredRecordsPurged;
+    
+    /**
+     * 标记为无效的记录数（数据库有记录但物理文件不存在）
+     */
+    private Long invalidRecordsMarked;
+    
+    /**
+     * 回收的磁盘空间（字节）
+     */
+    private Long reclaimedBytes;
+    
+    /**
+     * 回收空间的友好显示
+     */
+    private String reclaimedBytesDisplay;
+    
+    /**
+     * 是否在业务时段内限速执行
+     */
+    private Boolean throttled;
+    
+    /**
+     * 开始时间
+     */
+    private LocalDateTime startedAt;
+    
+    /**
+     * 耗时（毫秒）
+     */
+    private Long durationMs;
+}
@@ -101,6 +101,11 @@ public class FileInfoDTO {
      */
     private Integer downloadCount;
     
+    /**
+     * 预览次数
+     */
+    private Integer previewCount;
+    
     /**
      * 是否为图片文件
      */
@@ -31,4 +31,24 @@ public class FileConfig {
      * 是否启用文件哈希检查（去重）
      */
     private boolean enableHashCheck = true;
+    
+    /**
+     * 批量上传并发处理线程数
+     */
+    private int batchUploadThreads = 4;
+    
+    /**
+     * 批量上传单个请求的最长等待时间（秒）
+     */
+    private long batchUploadTimeoutSeconds = 120;
+    
+    /**
+     * 下载/预览计数写回数据库的间隔（毫秒）
+     */
+    private long counterFlushIntervalMs = 10000;
+    
+    /**
+     * 热门文件排行保留的数量（Top-K）
+     */
+    private int popularRankingSize = 100;
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.rental.file.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 文件存储垃圾回收配置类
+ */
+@ConfigurationProperties(prefix = "file.gc")
+@Data
+@Component
+public class FileStorageGcConfig {
+    
+    /**
+     * 是否启用定时回收
+     */
+    private boolean enabled = true;
+    
+    /**
+     * 已逻辑删除文件的保留天数，超过后删除物理文件和记录
+     */
+    private int softDeleteRetentionDays = 30;
+    
+    /**
+     * 孤儿文件（磁盘存在但无数据库记录）的宽限时间（小时），避免误删正在上传的文件
+     */
+    private int orphanGraceHours = 24;
+    
+    /**
+     * 并行扫描存储目录的线程数
+     */
+    private int walkThreads = 4;
+    
+    /**
+     * 业务时段开始（小时，包含）
+     */
+    private int businessHoursStart = 8;
+    
+    /**
+     * 业务时段结束（小时，不包含）
+     */
+    private int businessHoursEnd = 22;
+    
+    /**
+     * 业务时段内每秒允许的磁盘操作数（扫描和删除），0 表示不限制
+     */
+    private int businessHoursOpsPerSecond = 200;
+    
+    /**
+     * 非业务时段内每秒允许的磁盘操作数，0 表示不限制
+     */
+    private int offHoursOpsPerSecond = 0;
+    
+    /**
+     * 批量更新/删除数据库记录的分片大小
+     */
+    private int batchSize = 500;
+}
@@ -1,6 +1,7 @@
 package com.rental.file.controller;
 
 import com.rental.common.response.ApiResponse;
+import com.rental.file.DTO.FileBatchUploadResponse;
 import com.rental.file.DTO.FileUploadResponse;
 import com.rental.file.service.FileService;
 import com.rental.security.userdetails.CustomUserDetails;
@@ -77,6 +78,35 @@ public class FileController {
         }
     }
     
+    @PostMapping("/upload/batch")
+    @PreAuthorize("hasAuthority('FILE_UPLOAD')")
+    @Operation(
+        summary = "并发批量上传",
+        description = "并发处理多个文件，逐个文件返回成功或失败结果，单个文件失败不影响其他文件"
+    )
+    public ApiResponse<FileBatchUploadResponse> batchUploadFiles(
+            @Parameter(description = "上传的文件列表", required = true)
+            @RequestParam("files") MultipartFile[] files,
+            
+            @Parameter(description = "文件分类ID")
+            @RequestParam(value = "categoryId", required = false) Long categoryId,
+            
+            @Parameter(description = "关联实体类型（ITEM/USER/CONTRACT等）")
+            @RequestParam(value = "entityType", required = false) String entityType,
+            
+            @Parameter(description = "关联实体ID")
+            @RequestParam(value = "entityId", required = false) Long entityId,
+            
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+        
+        FileBatchUploadResponse response = fileService.batchUploadFiles(
+            files, categoryId, entityType, entityId, userDetails.getUserId());
+        
+        log.info("用户 {} 批量上传 {} 个文件，成功 {} 个", 
+            userDetails.getUsername(), files.length, response.getSuccessCount());
+        return ApiResponse.success("批量上传完成", response);
+    }
+    
     @PostMapping("/upload/single")
     @PreAuthorize("hasAuthority('FILE_UPLOAD')")
     @Operation(
@@ -3,6 +3,8 @@ package com.rental.file.controller;
 import com.rental.common.response.ApiResponse;
 import com.rental.common.response.PageResponse;
 import com.rental.file.DTO.FileBatchOperationRequest;
+import com.rental.file.DTO.FileBatchOperationResultDTO;
+import com.rental.file.DTO.FileCleanupReportDTO;
 import com.rental.file.DTO.FileInfoDTO;
 import com.rental.file.DTO.FileSearchRequest;
 import com.rental.file.service.FileService;
@@ -115,20 +117,20 @@ public class FileManagementController {
     @PreAuthorize("hasAuthority('FILE_MANAGE')")
     @Operation(
         summary = "批量文件操作",
-        description = "支持批量删除、移动、更新访问级别等操作"
+        description = "支持批量删除、移动、更新访问级别、更新关联等操作，返回每个文件的处理结果"
     )
-    public ApiResponse<Void> batchOperateFiles(
+    public ApiResponse<FileBatchOperationResultDTO> batchOperateFiles(
             @Parameter(description = "批量操作请求", required = true)
             @Valid @RequestBody FileBatchOperationRequest request,
             
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         
-        fileService.batchOperateFiles(request, userDetails.getUserId());
+        FileBatchOperationResultDTO result = fileService.batchOperateFiles(request, userDetails.getUserId());
 
-        log.info("用户 {} 执行批量操作: {} 对 {} 个文件", 
-            userDetails.getUsername(), request.getOperation(), request.getFileIds().size());
+        log.info("用户 {} 执行批量操作: {} 对 {} 个文件，成功 {} 个", 
+            userDetails.getUsername(), request.getOperation(), request.getFileIds().size(), result.getSuccessCount());
         
-        return ApiResponse.success();
+        return ApiResponse.success("批量操作完成", result);
     }
     
     @DeleteMapping("/batch")
@@ -257,15 +259,16 @@ public class FileManagementController {
     @PreAuthorize("hasAuthority('FILE_VIEW_ALL')")
     @Operation(
         summary = "清理无效文件",
-        description = "清理数据库中存在但物理文件不存在的记录（管理员功能）"
+        description = "回收文件存储：删除孤儿文件和超过保留期的已删除文件，标记物理文件不存在的记录（管理员功能）"
     )
-    public ApiResponse<Integer> cleanupInvalidFiles(
+    public ApiResponse<FileCleanupReportDTO> cleanupInvalidFiles(
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         
-        int cleanedCount = fileService.cleanupInvalidFiles();
+        FileCleanupReportDTO report = fileService.cleanupInvalidFiles();
         
-        log.info("管理员 {} 执行文件清理，清理了 {} 个无效记录", userDetails.getUsername(), cleanedCount);
-        return ApiResponse.success("清理完成", cleanedCount);
+        log.info("管理员 {} 执行文件清理，标记了 {} 个无效记录，回收 {}", userDetails.getUsername(),
+            report.getInvalidRecordsMarked(), report.getReclaimedBytesDisplay());
+        return ApiResponse.success("清理完成", report);
     }
     
     @GetMapping("/count")
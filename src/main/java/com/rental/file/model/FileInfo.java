@@ -90,6 +90,9 @@ public class FileInfo {
     @Column(name = "download_count")
     private Integer downloadCount = 0;
 
+    @Column(name = "preview_count")
+    private Integer previewCount = 0;
+
     @Column(name = "is_active")
     private Boolean isActive = true;
 
@@ -1,18 +1,22 @@
 package com.rental.file.repository;
 
+import com.rental.file.model.FileCategory;
 import com.rental.file.model.FileInfo;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * 文件信息数据访问接口
@@ -82,6 +86,14 @@ public interface FileInfoRepository extends JpaRepository<FileInfo, Long>, JpaSp
     @Query("UPDATE FileInfo fi SET fi.downloadCount = fi.downloadCount + 1 WHERE fi.id = :id")
     void incrementDownloadCount(@Param("id") Long id);
     
+    /**
+     * 查询指定文件的当前下载次数
+     * @param ids 文件ID列表
+     * @return [文件ID, 下载次数] 列表（仅有效文件）
+     */
+    @Query("SELECT fi.id, fi.downloadCount FROM FileInfo fi WHERE fi.isActive = true AND fi.id IN :ids")
+    List<Object[]> findDownloadCountsByIds(@Param("ids") List<Long> ids);
+    
     /**
      * 查找指定时间范围内的文件
      * @param startTime 开始时间
@@ -151,6 +163,56 @@ public interface FileInfoRepository extends JpaRepository<FileInfo, Long>, JpaSp
     @Query("UPDATE FileInfo fi SET fi.isActive = false WHERE fi.id IN :ids")
     void softDeleteByIds(@Param("ids") List<Long> ids);
     
+    /**
+     * 按文件路径（二进制排序，与 Java 字符串顺序一致）流式读取所有记录，用于与磁盘目录做有序比对
+     * @return [id, file_path, is_active, updated_at] 流，需在事务内消费并关闭
+     */
+    @Query(value = "SELECT id, file_path, is_active, updated_at, created_at FROM file_info " +
+                   "ORDER BY file_path COLLATE utf8mb4_bin, id", nativeQuery = true)
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "-2147483648"))
+    Stream<Object[]> streamStorageIndexOrderByFilePath();
+    
+    /**
+     * 批量加载文件及其上传者（一次查询，用于批量操作的权限检查）
+     * @param ids 文件ID列表
+     * @return 文件信息列表
+     */
+    @Query("SELECT fi FROM FileInfo fi JOIN FETCH fi.uploader WHERE fi.id IN :ids")
+    List<FileInfo> findAllWithUploaderByIdIn(@Param("ids") List<Long> ids);
+    
+    /**
+     * 批量更新访问级别
+     * @param ids 文件ID列表
+     * @param accessLevel 新的访问级别
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query("UPDATE FileInfo fi SET fi.accessLevel = :accessLevel WHERE fi.id IN :ids")
+    int updateAccessLevelByIds(@Param("ids") List<Long> ids, @Param("accessLevel") String accessLevel);
+    
+    /**
+     * 批量移动到新分类
+     * @param ids 文件ID列表
+     * @param category 新分类
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query("UPDATE FileInfo fi SET fi.category = :category WHERE fi.id IN :ids")
+    int updateCategoryByIds(@Param("ids") List<Long> ids, @Param("category") FileCategory category);
+    
+    /**
+     * 批量更新关联实体
+     * @param ids 文件ID列表
+     * @param entityType 关联实体类型
+     * @param entityId 关联实体ID
+     * @return 更新的行数
+     */
+    @Modifying
+    @Query("UPDATE FileInfo fi SET fi.relatedEntityType = :entityType, fi.relatedEntityId = :entityId WHERE fi.id IN :ids")
+    int updateRelationByIds(@Param("ids") List<Long> ids,
+                            @Param("entityType") String entityType,
+                            @Param("entityId") Long entityId);
+    
     /**
      * 统计指定分类下的活跃文件数量
      */
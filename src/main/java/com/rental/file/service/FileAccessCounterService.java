@@ -0,0 +1,230 @@
+package com.rental.file.service;
+
+import com.rental.file.config.FileConfig;
+import com.rental.file.model.FileInfo;
+import com.rental.file.repository.FileInfoRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 文件访问计数服务
+ *
+ * 下载和预览次数先累加在内存中的分段计数器（每个文件一个 LongAdder），
+ * 由定时任务合并为一次批量 UPDATE 写回 file_info，避免热门文件的单行锁竞争。
+ * 热门文件排行由增量维护的 Top-K 结构提供，不再每次排序整张表。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class FileAccessCounterService {
+
+    private static final String FLUSH_SQL =
+        "UPDATE file_info SET download_count = download_count + ?, preview_count = preview_count + ? WHERE id = ?";
+
+    private static final Comparator<RankEntry> RANK_ORDER =
+        Comparator.comparingLong(RankEntry::count).thenComparingLong(RankEntry::fileId);
+
+    private final FileInfoRepository fileRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final FileConfig fileConfig;
+    private final PlatformTransactionManager transactionManager;
+
+    private final ConcurrentHashMap<Long, LongAdder> pendingDownloads = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, LongAdder> pendingPreviews = new ConcurrentHashMap<>();
+
+    // Top-K 排行：有序集合按 (次数, ID) 升序，first() 即为当前门槛
+    private final TreeSet<RankEntry> ranking = new TreeSet<>(RANK_ORDER);
+    private final Map<Long, RankEntry> rankingIndex = new HashMap<>();
+    private volatile List<Long> rankingSnapshot = List.of();
+    private volatile boolean rankingIncomplete = true;
+
+    /**
+     * 记录一次下载
+     */
+    public void recordDownload(Long fileId) {
+        add(pendingDownloads, fileId, 1);
+    }
+
+    /**
+     * 记录一次预览
+     */
+    public void recordPreview(Long fileId) {
+        add(pendingPreviews, fileId, 1);
+    }
+
+    /**
+     * 获取热门文件ID（按下载次数降序）
+     *
+     * @param limit 返回数量
+     * @return 文件ID列表；排行尚未加载或请求数量超过排行容量时返回 null，由调用方回退到数据库查询
+     */
+    public List<Long> getPopularFileIds(int limit) {
+        if (rankingIncomplete || limit > fileConfig.getPopularRankingSize()) {
+            return null;
+        }
+        List<Long> snapshot = rankingSnapshot;
+        return snapshot.size() > limit ? snapshot.subList(0, limit) : snapshot;
+    }
+
+    /**
+     * 文件被删除时移出排行
+     */
+    public void evict(Long fileId) {
+        pendingDownloads.remove(fileId);
+        pendingPreviews.remove(fileId);
+        synchronized (ranking) {
+            RankEntry entry = rankingIndex.remove(fileId);
+            if (entry != null) {
+                ranking.remove(entry);
+                // 空出的位置需要从数据库补齐
+                rankingIncomplete = true;
+                publishRanking();
+            }
+        }
+    }
+
+    /**
+     * 定时将累积的计数批量写回数据库
+     */
+    @Scheduled(fixedDelayString = "${file.upload.counter-flush-interval-ms:10000}")
+    public void flush() {
+        // 按文件ID排序，保证并发刷写时的加锁顺序一致
+        Map<Long, long[]> deltas = new TreeMap<>();
+        drain(pendingDownloads, deltas, 0);
+        drain(pendingPreviews, deltas, 1);
+
+        if (!deltas.isEmpty()) {
+            List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+            deltas.forEach((fileId, delta) -> batchArgs.add(new Object[]{delta[0], delta[1], fileId}));
+            try {
+                // 整批在一个事务中提交，失败时全部回滚，重新累加的计数不会重复写入
+                new TransactionTemplate(transactionManager)
+                    .executeWithoutResult(status -> jdbcTemplate.batchUpdate(FLUSH_SQL, batchArgs));
+            } catch (RuntimeException e) {
+                log.error("文件访问计数写回失败，保留到下次重试: {}", e.getMessage());
+                deltas.forEach((fileId, delta) -> {
+                    add(pendingDownloads, fileId, delta[0]);
+                    add(pendingPreviews, fileId, delta[1]);
+                });
+                return;
+            }
+            log.debug("写回 {} 个文件的访问计数", deltas.size());
+        }
+
+        if (rankingIncomplete) {
+            reloadRanking();
+        } else {
+            List<Long> downloaded = deltas.entrySet().stream()
+                .filter(e -> e.getValue()[0] > 0)
+                .map(Map.Entry::getKey)
+                .toList();
+            if (!downloaded.isEmpty()) {
+                offerToRanking(fileRepository.findDownloadCountsByIds(downloaded));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * 在 compute 内累加，与 drain 移除空闲计数器互斥：移除前的累加会被移除后的再次取值带走，
+     * 移除后的累加落到新建的计数器上，不会加到已移出的计数器而丢失
+     */
+    private static void add(ConcurrentHashMap<Long, LongAdder> pending, Long fileId, long count) {
+        pending.compute(fileId, (id, adder) -> {
+            LongAdder target = adder != null ? adder : new LongAdder();
+            target.add(count);
+            return target;
+        });
+    }
+
+    private void drain(ConcurrentHashMap<Long, LongAdder> pending, Map<Long, long[]> deltas, int slot) {
+        pending.forEach((fileId, adder) -> {
+            // sumThenReset 逐个 cell 原子地取值并清零，并发的累加不会丢失
+            long count = adder.sumThenReset();
+            if (count == 0 && pending.remove(fileId, adder)) {
+                // 上个周期以来没有访问的文件移出，避免计数表随访问过的文件无限增长；
+                // 累加与移除在同一个桶锁下串行，移除前刚累加到旧计数器上的次数并入本次写回
+                count = adder.sumThenReset();
+            }
+            if (count > 0) {
+                deltas.computeIfAbsent(fileId, id -> new long[2])[slot] += count;
+            }
+        });
+    }
+
+    /**
+     * 用新的下载次数更新 Top-K 排行。下载次数只增不减，
+     * 因此只需比较更新后的次数与当前门槛即可保持排行准确。
+     */
+    private void offerToRanking(List<Object[]> counts) {
+        int capacity = fileConfig.getPopularRankingSize();
+        synchronized (ranking) {
+            for (Object[] row : counts) {
+                Long fileId = (Long) row[0];
+                long count = ((Number) row[1]).longValue();
+                RankEntry existing = rankingIndex.get(fileId);
+                if (existing != null) {
+                    ranking.remove(existing);
+                } else if (ranking.size() >= capacity) {
+                    RankEntry threshold = ranking.first();
+                    if (RANK_ORDER.compare(new RankEntry(fileId, count), threshold) <= 0) {
+                        continue;
+                    }
+                    ranking.pollFirst();
+                    rankingIndex.remove(threshold.fileId());
+                }
+                RankEntry entry = new RankEntry(fileId, count);
+                ranking.add(entry);
+                rankingIndex.put(fileId, entry);
+            }
+            publishRanking();
+        }
+    }
+
+    private void reloadRanking() {
+        List<FileInfo> top = fileRepository.findTopDownloadedFiles(fileConfig.getPopularRankingSize());
+        synchronized (ranking) {
+            ranking.clear();
+            rankingIndex.clear();
+            for (FileInfo file : top) {
+                RankEntry entry = new RankEntry(file.getId(),
+                    file.getDownloadCount() != null ? file.getDownloadCount() : 0);
+                ranking.add(entry);
+                rankingIndex.put(entry.fileId(), entry);
+            }
+            rankingIncomplete = false;
+            publishRanking();
+        }
+    }
+
+    private void publishRanking() {
+        List<Long> snapshot = new ArrayList<>(ranking.size());
+        for (RankEntry entry : ranking.descendingSet()) {
+            snapshot.add(entry.fileId());
+        }
+        rankingSnapshot = List.copyOf(snapshot);
+    }
+
+    private record RankEntry(long fileId, long count) {
+    }
+}
@@ -26,6 +26,19 @@ public interface FileService {
     List<FileUploadResponse> uploadFiles(MultipartFile[] files, Long categoryId, 
                                         String entityType, Long entityId, Long uploaderId);
     
+    /**
+     * 并发批量上传文件，逐个文件报告结果（单个文件失败不影响其他文件）
+     * 
+     * @param files 文件数组
+     * @param categoryId 分类ID
+     * @param entityType 关联实体类型
+     * @param entityId 关联实体ID
+     * @param uploaderId 上传者ID
+     * @return 批量上传结果
+     */
+    FileBatchUploadResponse batchUploadFiles(MultipartFile[] files, Long categoryId,
+                                             String entityType, Long entityId, Long uploaderId);
+    
     /**
      * 单文件上传
      * 
@@ -121,12 +134,13 @@ public interface FileService {
     void moveFileToCategory(Long fileId, Long newCategoryId, Long currentUserId);
     
     /**
-     * 批量操作文件
+     * 批量操作文件（一次加载、内存中检查权限、按批次执行集合更新）
      * 
      * @param request 批量操作请求
      * @param currentUserId 当前用户ID
+     * @return 每个文件ID的处理结果
      */
-    void batchOperateFiles(FileBatchOperationRequest request, Long currentUserId);
+    FileBatchOperationResultDTO batchOperateFiles(FileBatchOperationRequest request, Long currentUserId);
     
     /**
      * 获取用户的文件统计信息
@@ -145,11 +159,12 @@ public interface FileService {
     List<FileInfoDTO> getPopularFiles(int limit);
     
     /**
-     * 清理无效文件（物理文件不存在但数据库有记录）
+     * 回收文件存储：删除孤儿文件和超过保留期的已删除文件，
+     * 并将物理文件不存在的记录标记为无效
      * 
-     * @return 清理的文件数量
+     * @return 清理报告
      */
-    int cleanupInvalidFiles();
+    FileCleanupReportDTO cleanupInvalidFiles();
 }
 
  
\ No newline at end of file
@@ -0,0 +1,497 @@
+package com.rental.file.service;
+
+import com.rental.common.exception.BusinessException;
+import com.rental.file.DTO.FileCleanupReportDTO;
+import com.rental.file.config.FileConfig;
+import com.rental.file.config.FileStorageGcConfig;
+import com.rental.file.repository.FileInfoRepository;
+import com.rental.file.util.FileUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 文件存储垃圾回收
+ *
+ * 按路径顺序流式扫描存储目录，与 file_info 按路径有序流式比对（归并），处理三类情况：
+ * 1. 磁盘存在但无记录的孤儿文件：超过宽限期后删除；
+ * 2. 逻辑删除且超过保留期的文件：删除物理文件并清除记录；
+ * 3. 有效记录但物理文件不存在：标记为无效。
+ * 业务时段内按配置限速，避免占满磁盘 I/O。
+ */
+@Service
+@Slf4j
+public class FileStorageGarbageCollector {
+
+    // 每个顶层子目录预读缓冲的条目数
+    private static final int WALK_BUFFER_SIZE = 1024;
+
+    // 预读任务结束标记
+    private static final DiskEntry WALK_END = new DiskEntry(null, null, 0, null);
+
+    private final FileInfoRepository fileRepository;
+    private final FileConfig fileConfig;
+    private final FileStorageGcConfig gcConfig;
+    private final FileAccessCounterService accessCounterService;
+    private final TransactionTemplate streamTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    public FileStorageGarbageCollector(FileInfoRepository fileRepository, FileConfig fileConfig,
+                                       FileStorageGcConfig gcConfig, FileAccessCounterService accessCounterService,
+                                       PlatformTransactionManager transactionManager) {
+        this.fileRepository = fileRepository;
+        this.fileConfig = fileConfig;
+        this.gcConfig = gcConfig;
+        this.accessCounterService = accessCounterService;
+        this.streamTransaction = new TransactionTemplate(transactionManager);
+        this.streamTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Scheduled(cron = "${file.gc.cron:0 30 3 * * ?}")
+    public void scheduledCollect() {
+        if (!gcConfig.isEnabled()) {
+            return;
+        }
+        try {
+            collect();
+        } catch (BusinessException e) {
+            log.warn("跳过定时文件回收: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 执行一次完整的存储回收
+     *
+     * @return 回收报告
+     */
+    public FileCleanupReportDTO collect() {
+        if (!running.compareAndSet(false, true)) {
+            throw new BusinessException("文件清理任务正在执行中");
+        }
+        try {
+            return doCollect();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private FileCleanupReportDTO doCollect() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long startNanos = System.nanoTime();
+
+        Path root = Paths.get(fileConfig.getBasePath()).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            // 存储目录不可用时不做任何处理，避免把所有记录误判为无效
+            throw new BusinessException("文件存储目录不存在: " + root);
+        }
+
+        Throttle throttle = new Throttle(gcConfig);
+        GcRun run = new GcRun(root, throttle, gcConfig, startedAt);
+
+        // 1. 按相对路径顺序流式扫描存储目录，与同样按路径排序流式读取的数据库记录归并比对，两侧都不整体加载
+        streamTransaction.executeWithoutResult(status -> {
+            try (StorageWalk disk = new StorageWalk(root, throttle);
+                 Stream<Object[]> rows = fileRepository.streamStorageIndexOrderByFilePath()) {
+                reconcile(disk, rows.map(StorageRow::of).iterator(), run);
+                run.scannedFiles = disk.count();
+            }
+        });
+
+        // 2. 分批应用数据库变更
+        applyInBatches(run.invalidIds, fileRepository::softDeleteByIds);
+        applyInBatches(run.purgeIds, fileRepository::deleteAllByIdInBatch);
+        run.purgeIds.forEach(accessCounterService::evict);
+        run.invalidIds.forEach(accessCounterService::evict);
+
+        FileCleanupReportDTO report = FileCleanupReportDTO.builder()
+            .scannedFiles(run.scannedFiles)
+            .scannedRecords(run.scannedRecords)
+            .orphanFilesDeleted(run.orphanFilesDeleted)
+            .expiredFilesDeleted(run.expiredFilesDeleted)
+            .expiredRecordsPurged((long) run.purgeIds.size())
+            .invalidRecordsMarked((long) run.invalidIds.size())
+            .reclaimedBytes(run.reclaimedBytes)
+            .reclaimedBytesDisplay(FileUtil.formatFileSize(run.reclaimedBytes))
+            .throttled(throttle.isThrottledAtStart())
+            .startedAt(startedAt)
+            .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos))
+            .build();
+
+        log.info("文件存储回收完成: 扫描文件 {}，比对记录 {}，删除孤儿文件 {}，删除过期文件 {}，标记无效记录 {}，回收 {}",
+            report.getScannedFiles(), report.getScannedRecords(), report.getOrphanFilesDeleted(),
+            report.getExpiredFilesDeleted(), report.getInvalidRecordsMarked(), report.getReclaimedBytesDisplay());
+        return report;
+    }
+
+    /**
+     * 归并比对：两侧均按路径升序，逐一推进
+     */
+    private void reconcile(Iterator<DiskEntry> disk, Iterator<StorageRow> rows, GcRun run) {
+        DiskEntry d = disk.hasNext() ? disk.next() : null;
+        StorageRow r = rows.hasNext() ? rows.next() : null;
+        String lastMatchedPath = null;
+
+        while (d != null || r != null) {
+            int cmp = d == null ? 1 : r == null ? -1 : d.path().compareTo(r.path());
+            if (cmp < 0) {
+                handleOrphan(d, run);
+                d = disk.hasNext() ? disk.next() : null;
+            } else if (cmp > 0) {
+                run.scannedRecords++;
+                // 多条记录指向同一物理文件时，物理文件已在上一条比对中处理
+                if (!r.path().equals(lastMatchedPath)) {
+                    handleMissingFile(r, run);
+                }
+                r = rows.hasNext() ? rows.next() : null;
+            } else {
+                run.scannedRecords++;
+                handleMatched(d, r, run);
+                lastMatchedPath = r.path();
+                d = disk.hasNext() ? disk.next() : null;
+                r = rows.hasNext() ? rows.next() : null;
+            }
+        }
+    }
+
+    private void handleOrphan(DiskEntry entry, GcRun run) {
+        if (entry.lastModified().isAfter(run.orphanCutoff)) {
+            return;
+        }
+        if (deleteBlob(entry, run.throttle)) {
+            run.orphanFilesDeleted++;
+            run.reclaimedBytes += entry.size();
+        }
+    }
+
+    private void handleMissingFile(StorageRow row, GcRun run) {
+        if (row.active()) {
+            // 扫描开始后才上传的文件不在磁盘快照中，只处理开始前创建的记录，并在标记前再确认一次文件确实不存在
+            if (row.createdBefore(run.startedAt) && !Files.exists(run.root.resolve(row.path()))) {
+                run.invalidIds.add(row.id());
+            }
+        } else if (row.isExpired(run.retentionCutoff)) {
+            run.purgeIds.add(row.id());
+        }
+    }
+
+    private void handleMatched(DiskEntry entry, StorageRow row, GcRun run) {
+        if (row.active() || !row.isExpired(run.retentionCutoff)) {
+            return;
+        }
+        if (deleteBlob(entry, run.throttle)) {
+            run.expiredFilesDeleted++;
+            run.reclaimedBytes += entry.size();
+            run.purgeIds.add(row.id());
+        }
+    }
+
+    private boolean deleteBlob(DiskEntry entry, Throttle throttle) {
+        throttle.acquire();
+        try {
+            return Files.deleteIfExists(entry.absolutePath());
+        } catch (IOException e) {
+            log.warn("删除物理文件失败: {}", entry.absolutePath(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 按相对路径升序流式遍历存储目录。每个目录只列出当前一层并排序，子目录以“名称/”参与排序，
+     * 深度优先展开的顺序即与整条相对路径的字符串顺序一致；顶层子目录交给 walkThreads 个线程预读，
+     * 每个子目录最多缓冲 WALK_BUFFER_SIZE 个条目，内存占用与文件总数无关。
+     */
+    private final class StorageWalk implements Iterator<DiskEntry>, AutoCloseable {
+        private final Path root;
+        private final Throttle throttle;
+        private final ExecutorService walkers;
+        // 顶层条目按顺序排列：文件直接是 DiskEntry，子目录是对应的预读任务
+        private final List<Object> sources = new ArrayList<>();
+        private int sourceIndex;
+        private DiskEntry nextEntry;
+        private long count;
+
+        StorageWalk(Path root, Throttle throttle) {
+            this.root = root;
+            this.throttle = throttle;
+            this.walkers = Executors.newFixedThreadPool(Math.max(1, gcConfig.getWalkThreads()));
+            List<Child> children;
+            try {
+                children = listSorted(root);
+            } catch (IOException e) {
+                walkers.shutdownNow();
+                throw new BusinessException("扫描文件存储目录失败: " + e.getMessage(), e);
+            }
+            // 线程池按提交顺序执行，消费方等待的子目录总是已在执行，不会因缓冲区满而互相等待
+            for (Child child : children) {
+                if (child.attrs().isDirectory()) {
+                    SubtreeWalk subtree = new SubtreeWalk(child.path());
+                    walkers.execute(subtree);
+                    sources.add(subtree);
+                } else if (child.attrs().isRegularFile()) {
+                    sources.add(DiskEntry.of(root, child.path(), child.attrs()));
+                }
+            }
+        }
+
+        long count() {
+            return count;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (nextEntry == null) {
+                nextEntry = advance();
+            }
+            return nextEntry != null;
+        }
+
+        @Override
+        public DiskEntry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            DiskEntry entry = nextEntry;
+            nextEntry = null;
+            count++;
+            return entry;
+        }
+
+        @Override
+        public void close() {
+            // 中途退出时中断仍在写缓冲区的预读任务
+            walkers.shutdownNow();
+        }
+
+        private DiskEntry advance() {
+            while (sourceIndex < sources.size()) {
+                Object source = sources.get(sourceIndex);
+                if (source instanceof DiskEntry entry) {
+                    sourceIndex++;
+                    return entry;
+                }
+                SubtreeWalk subtree = (SubtreeWalk) source;
+                DiskEntry entry;
+                try {
+                    entry = subtree.buffer.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new BusinessException("扫描文件存储目录被中断", e);
+                }
+                if (entry != WALK_END) {
+                    return entry;
+                }
+                if (subtree.failure != null) {
+                    throw new BusinessException("扫描文件存储目录失败: " + subtree.failure.getMessage(), subtree.failure);
+                }
+                sourceIndex++;
+            }
+            return null;
+        }
+
+        private final class SubtreeWalk implements Runnable {
+            private final Path directory;
+            private final BlockingQueue<DiskEntry> buffer = new ArrayBlockingQueue<>(WALK_BUFFER_SIZE);
+            private volatile Exception failure;
+
+            SubtreeWalk(Path directory) {
+                this.directory = directory;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    try {
+                        walk(directory);
+                    } catch (IOException | RuntimeException e) {
+                        failure = e;
+                    }
+                    buffer.put(WALK_END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            private void walk(Path dir) throws IOException, InterruptedException {
+                List<Child> children;
+                try {
+                    children = listSorted(dir);
+                } catch (IOException e) {
+                    log.warn("无法访问目录: {} ({})", dir, e.getMessage());
+                    return;
+                }
+                for (Child child : children) {
+                    if (child.attrs().isDirectory()) {
+                        walk(child.path());
+                    } else if (child.attrs().isRegularFile()) {
+                        throttle.acquire();
+                        buffer.put(DiskEntry.of(root, child.path(), child.attrs()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 列出目录的直接子项并按排序键升序排列，符号链接不跟随（与 Files.walkFileTree 默认行为一致）
+     */
+    private static List<Child> listSorted(Path dir) throws IOException {
+        List<Child> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path path : stream) {
+                try {
+                    children.add(Child.of(path,
+                        Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)));
+                } catch (IOException e) {
+                    log.warn("无法访问文件: {} ({})", path, e.getMessage());
+                }
+            }
+        }
+        children.sort(Comparator.comparing(Child::sortKey));
+        return children;
+    }
+
+    private record Child(Path path, BasicFileAttributes attrs, String sortKey) {
+        static Child of(Path path, BasicFileAttributes attrs) {
+            String name = path.getFileName().toString();
+            return new Child(path, attrs, attrs.isDirectory() ? name + "/" : name);
+        }
+    }
+
+    private void applyInBatches(List<Long> ids, Consumer<List<Long>> action) {
+        int batchSize = Math.max(1, gcConfig.getBatchSize());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + batchSize));
+            writeTransaction.executeWithoutResult(status -> action.accept(chunk));
+        }
+    }
+
+    /**
+     * 单次回收过程中的累计状态
+     */
+    private static final class GcRun {
+        private final Path root;
+        private final LocalDateTime startedAt;
+        private final Throttle throttle;
+        private final LocalDateTime retentionCutoff;
+        private final Instant orphanCutoff;
+        private final List<Long> invalidIds = new ArrayList<>();
+        private final List<Long> purgeIds = new ArrayList<>();
+        private long scannedFiles;
+        private long scannedRecords;
+        private long orphanFilesDeleted;
+        private long expiredFilesDeleted;
+        private long reclaimedBytes;
+
+        GcRun(Path root, Throttle throttle, FileStorageGcConfig config, LocalDateTime startedAt) {
+            this.root = root;
+            this.startedAt = startedAt;
+            this.throttle = throttle;
+            this.retentionCutoff = startedAt.minusDays(Math.max(0, config.getSoftDeleteRetentionDays()));
+            this.orphanCutoff = startedAt.minusHours(Math.max(0, config.getOrphanGraceHours()))
+                .atZone(ZoneId.systemDefault()).toInstant();
+        }
+    }
+
+    /**
+     * 磁盘操作限速：业务时段与非业务时段使用不同的每秒操作数
+     */
+    private static final class Throttle {
+        private final FileStorageGcConfig config;
+        private final boolean throttledAtStart;
+        private long nextPermitNanos = System.nanoTime();
+
+        Throttle(FileStorageGcConfig config) {
+            this.config = config;
+            this.throttledAtStart = currentRate() > 0;
+        }
+
+        boolean isThrottledAtStart() {
+            return throttledAtStart;
+        }
+
+        synchronized void acquire() {
+            int rate = currentRate();
+            if (rate <= 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            long waitNanos = nextPermitNanos - now;
+            nextPermitNanos = Math.max(now, nextPermitNanos) + TimeUnit.SECONDS.toNanos(1) / rate;
+            if (waitNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private int currentRate() {
+            int hour = LocalTime.now().getHour();
+            boolean businessHours = hour >= config.getBusinessHoursStart() && hour < config.getBusinessHoursEnd();
+            return businessHours ? config.getBusinessHoursOpsPerSecond() : config.getOffHoursOpsPerSecond();
+        }
+    }
+
+    private record DiskEntry(String path, Path absolutePath, long size, Instant lastModified) {
+        static DiskEntry of(Path root, Path file, BasicFileAttributes attrs) {
+            // 与 file_info.file_path 保持一致：相对存储根目录，使用 / 分隔
+            String relative = root.relativize(file.toAbsolutePath().normalize()).toString().replace('\\', '/');
+            return new DiskEntry(relative, file, attrs.size(), attrs.lastModifiedTime().toInstant());
+        }
+    }
+
+    private record StorageRow(Long id, String path, boolean active, LocalDateTime updatedAt, LocalDateTime createdAt) {
+        static StorageRow of(Object[] row) {
+            Object activeValue = row[2];
+            boolean active = activeValue instanceof Boolean b ? b
+                : activeValue instanceof Number n && n.intValue() != 0;
+            return new StorageRow(((Number) row[0]).longValue(), (String) row[1], active,
+                toLocalDateTime(row[3]), toLocalDateTime(row[4]));
+        }
+
+        private static LocalDateTime toLocalDateTime(Object value) {
+            return value instanceof Timestamp ts ? ts.toLocalDateTime() : (LocalDateTime) value;
+        }
+
+        boolean isExpired(LocalDateTime cutoff) {
+            return updatedAt != null && updatedAt.isBefore(cutoff);
+        }
+
+        boolean createdBefore(LocalDateTime time) {
+            return createdAt != null && createdAt.isBefore(time);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.rental.file.repository.FileCategoryRepository;
 import com.rental.file.repository.FileInfoRepository;
 import com.rental.file.service.FileCategoryService;
 import com.rental.file.util.FileUtil;
+import com.rental.file.util.FileValidationUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -93,6 +94,7 @@ public class FileCategoryServiceImpl implements FileCategoryService {
         existingCategory.setSortOrder(categoryDTO.getSortOrder() != null ? categoryDTO.getSortOrder() : 0);
         
         FileCategory updatedCategory = categoryRepository.save(existingCategory);
+        FileValidationUtil.invalidateRules(id);
         log.info("更新文件分类: {} ({})", updatedCategory.getName(), updatedCategory.getCode());
         
         return convertToDTO(updatedCategory);
@@ -111,6 +113,7 @@ public class FileCategoryServiceImpl implements FileCategoryService {
         
         category.setIsActive(false);
         categoryRepository.save(category);
+        FileValidationUtil.invalidateRules(id);
         
         log.info("删除文件分类: {} ({})", category.getName(), category.getCode());
     }
@@ -122,6 +125,7 @@ public class FileCategoryServiceImpl implements FileCategoryService {
         
         category.setIsActive(isActive);
         categoryRepository.save(category);
+        FileValidationUtil.invalidateRules(id);
         
         log.info("{}文件分类: {} ({})", isActive ? "启用" : "禁用", category.getName(), category.getCode());
     }
@@ -9,19 +9,31 @@ import com.rental.file.model.FileCategory;
 import com.rental.file.model.FileInfo;
 import com.rental.file.repository.FileCategoryRepository;
 import com.rental.file.repository.FileInfoRepository;
+import com.rental.file.service.FileAccessCounterService;
 import com.rental.file.service.FileService;
+import com.rental.file.service.FileStorageGarbageCollector;
 import com.rental.file.util.FileUtil;
 import com.rental.file.util.FileValidationUtil;
 import com.rental.user.model.User;
 import com.rental.user.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
@@ -29,10 +41,30 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -48,6 +80,56 @@ public class FileServiceImpl implements FileService {
     private final FileCategoryRepository categoryRepository;
     private final UserRepository userRepository;
     private final FileConfig fileConfig;
+    private final PlatformTransactionManager transactionManager;
+    private final FileAccessCounterService accessCounterService;
+    private final FileStorageGarbageCollector storageGarbageCollector;
+    private final JdbcTemplate jdbcTemplate;
+    
+    private static final String INSERT_FILE_SQL =
+        "INSERT INTO file_info (original_name, stored_name, file_path, file_size, content_type, file_extension, " +
+        "file_hash, category_id, uploader_id, related_entity_type, related_entity_id, access_level, " +
+        "download_count, preview_count, is_active, created_at, updated_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    /**
+     * 批量操作中单条 IN 语句包含的最大文件数
+     */
+    private static final int BULK_CHUNK_SIZE = 500;
+    
+    /**
+     * 批量上传的并发处理线程池（有界队列，满载时由调用线程执行以形成背压）
+     */
+    private ExecutorService batchUploadExecutor;
+    private TransactionTemplate batchWriteTransaction;
+    private TransactionTemplate singleFileTransaction;
+    private TransactionTemplate readOnlyTransaction;
+    
+    @PostConstruct
+    void initBatchUpload() {
+        int threads = Math.max(1, fileConfig.getBatchUploadThreads());
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(threads * 16),
+            runnable -> {
+                Thread thread = new Thread(runnable, "file-upload-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        this.batchUploadExecutor = executor;
+        
+        this.batchWriteTransaction = new TransactionTemplate(transactionManager);
+        this.singleFileTransaction = new TransactionTemplate(transactionManager);
+        this.singleFileTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+    
+    @PreDestroy
+    void shutdownBatchUpload() {
+        batchUploadExecutor.shutdown();
+    }
     
     @Override
     public List<FileUploadResponse> uploadFiles(MultipartFile[] files, Long categoryId, 
@@ -109,6 +191,69 @@ public class FileServiceImpl implements FileService {
         }
     }
     
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public FileBatchUploadResponse batchUploadFiles(MultipartFile[] files, Long categoryId,
+                                                    String entityType, Long entityId, Long uploaderId) {
+        
+        FileValidationUtil.validateBatchUpload(files, 10, 100 * 1024 * 1024);
+        
+        // 分类和上传者在整个批次中只查询一次
+        FileCategory category = null;
+        if (categoryId != null) {
+            category = categoryRepository.findById(categoryId)
+                .orElseThrow(() -> new ResourceNotFoundException("文件分类不存在: " + categoryId));
+        }
+        User uploader = userRepository.findById(uploaderId)
+            .orElseThrow(() -> new ResourceNotFoundException("用户不存在: " + uploaderId));
+        
+        // 1. 并发处理：校验、哈希、Tika检测和写磁盘互不阻塞
+        List<CompletableFuture<PreparedUpload>> futures = new ArrayList<>(files.length);
+        for (int i = 0; i < files.length; i++) {
+            int index = i;
+            MultipartFile file = files[i];
+            FileCategory fileCategory = category;
+            // 等待方超时取消的是 result，任务本身仍会执行完；结果晚于取消到达时删除已写入的文件
+            CompletableFuture<PreparedUpload> result = new CompletableFuture<>();
+            CompletableFuture.supplyAsync(
+                () -> result.isDone() ? null : prepareUpload(index, file, fileCategory, entityType, entityId, uploader),
+                batchUploadExecutor)
+                .whenComplete((upload, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error);
+                    } else if (upload != null && !result.complete(upload)) {
+                        discardLateUpload(upload);
+                    }
+                });
+            futures.add(result);
+        }
+        
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(fileConfig.getBatchUploadTimeoutSeconds());
+        List<PreparedUpload> prepared = new ArrayList<>(files.length);
+        for (int i = 0; i < files.length; i++) {
+            prepared.add(awaitPreparedUpload(futures.get(i), i, files[i], deadline));
+        }
+        
+        // 2. 成功处理的文件合并为一次批量写入
+        persistPreparedUploads(prepared);
+        
+        List<FileBatchUploadResponse.FileResult> results = prepared.stream()
+            .map(PreparedUpload::toResult)
+            .collect(Collectors.toList());
+        int successCount = (int) results.stream().filter(FileBatchUploadResponse.FileResult::getSuccess).count();
+        
+        log.info("批量上传完成: 共 {} 个文件，成功 {} 个，失败 {} 个",
+            files.length, successCount, files.length - successCount);
+        
+        return FileBatchUploadResponse.builder()
+            .totalCount(files.length)
+            .successCount(successCount)
+            .failureCount(files.length - successCount)
+            .results(results)
+            .build();
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public Resource downloadFile(Long fileId, Long currentUserId) {
@@ -123,8 +268,8 @@ public class FileServiceImpl implements FileService {
             throw new ResourceNotFoundException("文件不存在");
         }
         
-        // 增加下载计数
-        fileRepository.incrementDownloadCount(fileId);
+        // 增加下载计数（内存累积，定时批量写回）
+        accessCounterService.recordDownload(fileId);
         
         log.info("用户 {} 下载文件: {} ({})", currentUserId, fileInfo.getOriginalName(), fileId);
         return new FileSystemResource(physicalFile);
@@ -147,6 +292,7 @@ public class FileServiceImpl implements FileService {
             throw new ResourceNotFoundException("文件不存在");
         }
         
+        accessCounterService.recordPreview(fileId);
         return new FileSystemResource(physicalFile);
     }
     
@@ -186,18 +332,27 @@ public class FileServiceImpl implements FileService {
         
         // 执行逻辑删除
         fileRepository.softDeleteById(fileId);
+        accessCounterService.evict(fileId);
         
-        // 可选：删除物理文件（这里先不删除，保留数据）
-        // deletePhysicalFile(fileInfo);
+        // 物理文件保留到超过保留期后由存储回收任务删除
         
         log.info("用户 {} 删除文件: {} ({})", currentUserId, fileInfo.getOriginalName(), fileId);
     }
     
     @Override
     public void deleteFiles(List<Long> fileIds, Long currentUserId) {
-        for (Long fileId : fileIds) {
-            deleteFile(fileId, currentUserId);
-        }
+        FileBatchOperationRequest request = new FileBatchOperationRequest();
+        request.setFileIds(fileIds);
+        request.setOperation(FileBatchOperationRequest.OperationType.DELETE.name());
+        
+        // 保持全部成功或全部失败的语义：有任一文件失败时回滚整个批次
+        FileBatchOperationResultDTO result = batchOperateFiles(request, currentUserId);
+        result.getResults().stream()
+            .filter(item -> !item.getSuccess())
+            .findFirst()
+            .ifPresent(item -> {
+                throw new BusinessException("文件 " + item.getFileId() + " 删除失败: " + item.getMessage());
+            });
     }
     
     @Override
@@ -246,21 +401,74 @@ public class FileServiceImpl implements FileService {
     }
     
     @Override
-    public void batchOperateFiles(FileBatchOperationRequest request, Long currentUserId) {
-        switch (request.getOperation().toUpperCase()) {
-            case "DELETE" -> deleteFiles(request.getFileIds(), currentUserId);
-            case "UPDATE_ACCESS_LEVEL" -> {
-                for (Long fileId : request.getFileIds()) {
-                    updateAccessLevel(fileId, request.getNewAccessLevel(), currentUserId);
+    public FileBatchOperationResultDTO batchOperateFiles(FileBatchOperationRequest request, Long currentUserId) {
+        FileBatchOperationRequest.OperationType operation = parseOperationType(request.getOperation());
+        
+        // 操作参数只校验/查询一次
+        FileCategory targetCategory = null;
+        switch (operation) {
+            case UPDATE_ACCESS_LEVEL -> {
+                if (!Arrays.asList("PUBLIC", "PRIVATE").contains(request.getNewAccessLevel())) {
+                    throw new BusinessException("无效的访问级别: " + request.getNewAccessLevel());
                 }
             }
-            case "MOVE" -> {
-                for (Long fileId : request.getFileIds()) {
-                    moveFileToCategory(fileId, request.getTargetCategoryId(), currentUserId);
+            case MOVE -> {
+                if (request.getTargetCategoryId() == null) {
+                    throw new BusinessException("目标分类ID不能为空");
                 }
+                targetCategory = categoryRepository.findById(request.getTargetCategoryId())
+                    .orElseThrow(() -> new ResourceNotFoundException("文件分类不存在: " + request.getTargetCategoryId()));
             }
-            default -> throw new BusinessException("不支持的批量操作类型: " + request.getOperation());
+            default -> { }
         }
+        
+        List<Long> fileIds = new ArrayList<>(new LinkedHashSet<>(request.getFileIds()));
+        Map<Long, FileBatchOperationResultDTO.ItemResult> results = new LinkedHashMap<>();
+        
+        for (int from = 0; from < fileIds.size(); from += BULK_CHUNK_SIZE) {
+            List<Long> chunk = fileIds.subList(from, Math.min(fileIds.size(), from + BULK_CHUNK_SIZE));
+            
+            // 1. 一次查询加载本批次所有文件及上传者
+            Map<Long, FileInfo> filesById = fileRepository.findAllWithUploaderByIdIn(chunk).stream()
+                .collect(Collectors.toMap(FileInfo::getId, file -> file));
+            
+            // 2. 在内存中检查存在性和权限
+            List<Long> permitted = new ArrayList<>(chunk.size());
+            for (Long fileId : chunk) {
+                FileInfo fileInfo = filesById.get(fileId);
+                if (fileInfo == null) {
+                    results.put(fileId, itemResult(fileId, "NOT_FOUND", "文件不存在"));
+                } else if (!Boolean.TRUE.equals(fileInfo.getIsActive())) {
+                    results.put(fileId, itemResult(fileId, "DELETED", "文件已被删除"));
+                } else if (!hasFileAccessPermission(fileInfo, currentUserId)) {
+                    results.put(fileId, itemResult(fileId, "PERMISSION_DENIED", "没有访问权限"));
+                } else {
+                    permitted.add(fileId);
+                    results.put(fileId, itemResult(fileId, "SUCCESS", operation.getDescription() + "成功"));
+                }
+            }
+            
+            // 3. 本批次一条集合更新语句
+            if (!permitted.isEmpty()) {
+                applyBulkOperation(operation, permitted, request, targetCategory);
+            }
+        }
+        
+        List<FileBatchOperationResultDTO.ItemResult> items = fileIds.stream()
+            .map(results::get)
+            .collect(Collectors.toList());
+        int successCount = (int) items.stream().filter(FileBatchOperationResultDTO.ItemResult::getSuccess).count();
+        
+        log.info("用户 {} 批量{}文件: 共 {} 个，成功 {} 个", currentUserId, operation.getDescription(),
+            items.size(), successCount);
+        
+        return FileBatchOperationResultDTO.builder()
+            .operation(operation.name())
+            .totalCount(items.size())
+            .successCount(successCount)
+            .failureCount(items.size() - successCount)
+            .results(items)
+            .build();
     }
     
     @Override
@@ -280,20 +488,241 @@ public class FileServiceImpl implements FileService {
     @Override
     @Transactional(readOnly = true)
     public List<FileInfoDTO> getPopularFiles(int limit) {
-        List<FileInfo> popularFiles = fileRepository.findTopDownloadedFiles(limit);
-        return popularFiles.stream()
+        List<Long> popularIds = accessCounterService.getPopularFileIds(limit);
+        if (popularIds == null) {
+            return fileRepository.findTopDownloadedFiles(limit).stream()
+                .map(this::convertToFileInfoDTO)
+                .collect(Collectors.toList());
+        }
+        
+        // 按排行顺序返回，排行刷新前被删除的文件直接跳过
+        Map<Long, FileInfo> filesById = fileRepository.findAllById(popularIds).stream()
+            .filter(FileInfo::getIsActive)
+            .collect(Collectors.toMap(FileInfo::getId, file -> file));
+        return popularIds.stream()
+            .map(filesById::get)
+            .filter(Objects::nonNull)
             .map(this::convertToFileInfoDTO)
             .collect(Collectors.toList());
     }
     
     @Override
-    public int cleanupInvalidFiles() {
-        // 实现清理逻辑
-        return 0;
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public FileCleanupReportDTO cleanupInvalidFiles() {
+        return storageGarbageCollector.collect();
     }
     
     // === 私有辅助方法 ===
     
+    /**
+     * 批量上传中单个文件的处理：校验、计算哈希、去重检查并写入磁盘，
+     * 数据库记录留待批量写入。异常不向外抛出，而是记录为该文件的失败结果。
+     */
+    private PreparedUpload prepareUpload(int index, MultipartFile file, FileCategory category,
+                                         String entityType, Long entityId, User uploader) {
+        try {
+            FileValidationUtil.validateFile(file, category);
+            
+            String fileHash = null;
+            if (fileConfig.isEnableHashCheck()) {
+                fileHash = FileUtil.calculateMD5(file);
+                String hash = fileHash;
+                FileUploadResponse existing = readOnlyTransaction.execute(status ->
+                    fileRepository.findByFileHash(hash).map(this::buildFileUploadResponse).orElse(null));
+                if (existing != null) {
+                    log.info("发现重复文件，返回现有文件: {}", existing.getId());
+                    return PreparedUpload.duplicate(index, file.getOriginalFilename(), existing);
+                }
+            }
+            
+            String categoryCode = category != null ? category.getCode() : "DOCUMENT";
+            String storagePath = FileUtil.generateStoragePath(categoryCode);
+            String storedName = FileUtil.generateStoredName(file.getOriginalFilename());
+            File savedFile = saveFileToDisk(file, storagePath, storedName);
+            
+            FileInfo fileInfo = buildFileInfo(file, storagePath + storedName, storedName,
+                fileHash, category, entityType, entityId, uploader);
+            return PreparedUpload.stored(index, file.getOriginalFilename(), fileInfo, savedFile);
+            
+        } catch (BusinessException e) {
+            return PreparedUpload.failed(index, file.getOriginalFilename(), e.getMessage());
+        } catch (Exception e) {
+            log.error("文件上传失败: {}", e.getMessage(), e);
+            return PreparedUpload.failed(index, file.getOriginalFilename(), "文件上传失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 等待单个文件处理完成，超时或异常时记录为失败
+     */
+    private PreparedUpload awaitPreparedUpload(CompletableFuture<PreparedUpload> future, int index,
+                                               MultipartFile file, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return PreparedUpload.failed(index, file.getOriginalFilename(), "文件处理超时");
+        } catch (ExecutionException e) {
+            return PreparedUpload.failed(index, file.getOriginalFilename(),
+                "文件上传失败: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return PreparedUpload.failed(index, file.getOriginalFilename(), "文件上传被中断");
+        }
+    }
+    
+    /**
+     * 超时后才处理完成的文件不会再写入数据库，删除其已写入磁盘的文件
+     */
+    private void discardLateUpload(PreparedUpload upload) {
+        if (upload.storedFile != null) {
+            log.warn("文件处理超时后才完成，删除已写入的文件: {}", upload.originalName);
+            deletePhysicalFileQuietly(upload.storedFile);
+        }
+    }
+    
+    /**
+     * 将已写入磁盘的文件信息合并为一次批量写入；批量写入失败时退化为
+     * 每个文件独立事务写入，避免一个文件的失败回滚其他文件的记录。
+     */
+    private void persistPreparedUploads(List<PreparedUpload> prepared) {
+        // 同一批次内内容相同的文件只保存一份，其余复用第一份的记录
+        Map<String, PreparedUpload> firstByHash = new HashMap<>();
+        List<PreparedUpload> toPersist = new ArrayList<>();
+        for (PreparedUpload upload : prepared) {
+            if (upload.fileInfo == null) {
+                continue;
+            }
+            String hash = upload.fileInfo.getFileHash();
+            PreparedUpload first = hash != null ? firstByHash.putIfAbsent(hash, upload) : null;
+            if (first != null) {
+                deletePhysicalFileQuietly(upload.storedFile);
+                first.followers.add(upload);
+            } else {
+                toPersist.add(upload);
+            }
+        }
+        if (toPersist.isEmpty()) {
+            return;
+        }
+        
+        try {
+            List<FileInfo> entities = toPersist.stream().map(upload -> upload.fileInfo).collect(Collectors.toList());
+            batchWriteTransaction.executeWithoutResult(status -> insertFileInfos(entities));
+            for (PreparedUpload upload : toPersist) {
+                upload.markSaved(buildFileUploadResponse(upload.fileInfo));
+            }
+        } catch (RuntimeException e) {
+            log.warn("批量写入文件信息失败，改为逐个文件独立写入: {}", e.getMessage());
+            for (PreparedUpload upload : toPersist) {
+                try {
+                    upload.fileInfo.setId(null);
+                    upload.fileInfo.setCreatedAt(null);
+                    upload.fileInfo.setUpdatedAt(null);
+                    FileInfo saved = singleFileTransaction.execute(status -> fileRepository.save(upload.fileInfo));
+                    upload.markSaved(buildFileUploadResponse(saved));
+                } catch (RuntimeException ex) {
+                    log.error("保存文件信息失败: {}", upload.originalName, ex);
+                    deletePhysicalFileQuietly(upload.storedFile);
+                    upload.markFailed("保存文件信息失败: " + ex.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * 以一条 JDBC 批量语句插入文件信息并回填自增ID和时间戳
+     * （IDENTITY 主键的实体 Hibernate 不做 JDBC 批量插入）
+     */
+    private void insertFileInfos(List<FileInfo> entities) {
+        LocalDateTime now = LocalDateTime.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+            connection -> connection.prepareStatement(INSERT_FILE_SQL, Statement.RETURN_GENERATED_KEYS),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    FileInfo fileInfo = entities.get(i);
+                    ps.setString(1, fileInfo.getOriginalName());
+                    ps.setString(2, fileInfo.getStoredName());
+                    ps.setString(3, fileInfo.getFilePath());
+                    ps.setLong(4, fileInfo.getFileSize());
+                    ps.setString(5, fileInfo.getContentType());
+                    ps.setString(6, fileInfo.getFileExtension());
+                    ps.setString(7, fileInfo.getFileHash());
+                    ps.setObject(8, fileInfo.getCategory() != null ? fileInfo.getCategory().getId() : null, Types.BIGINT);
+                    ps.setLong(9, fileInfo.getUploader().getId());
+                    ps.setString(10, fileInfo.getRelatedEntityType());
+                    ps.setObject(11, fileInfo.getRelatedEntityId(), Types.BIGINT);
+                    ps.setString(12, fileInfo.getAccessLevel());
+                    ps.setObject(13, fileInfo.getDownloadCount(), Types.INTEGER);
+                    ps.setObject(14, fileInfo.getPreviewCount(), Types.INTEGER);
+                    ps.setObject(15, fileInfo.getIsActive(), Types.BOOLEAN);
+                    ps.setTimestamp(16, Timestamp.valueOf(now));
+                    ps.setTimestamp(17, Timestamp.valueOf(now));
+                }
+                
+                @Override
+                public int getBatchSize() {
+                    return entities.size();
+                }
+            },
+            keyHolder);
+        
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != entities.size()) {
+            throw new IllegalStateException("批量插入返回的主键数量不匹配: " + keys.size() + "/" + entities.size());
+        }
+        for (int i = 0; i < entities.size(); i++) {
+            FileInfo fileInfo = entities.get(i);
+            fileInfo.setId(((Number) keys.get(i).values().iterator().next()).longValue());
+            fileInfo.setCreatedAt(now);
+            fileInfo.setUpdatedAt(now);
+        }
+    }
+    
+    private FileBatchOperationRequest.OperationType parseOperationType(String operation) {
+        try {
+            return FileBatchOperationRequest.OperationType.valueOf(operation.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("不支持的批量操作类型: " + operation);
+        }
+    }
+    
+    /**
+     * 对已通过权限检查的文件执行一条集合更新
+     */
+    private void applyBulkOperation(FileBatchOperationRequest.OperationType operation, List<Long> fileIds,
+                                    FileBatchOperationRequest request, FileCategory targetCategory) {
+        switch (operation) {
+            case DELETE -> {
+                fileRepository.softDeleteByIds(fileIds);
+                fileIds.forEach(accessCounterService::evict);
+            }
+            case UPDATE_ACCESS_LEVEL -> fileRepository.updateAccessLevelByIds(fileIds, request.getNewAccessLevel());
+            case MOVE -> fileRepository.updateCategoryByIds(fileIds, targetCategory);
+            case UPDATE_RELATION -> fileRepository.updateRelationByIds(fileIds,
+                request.getNewRelatedEntityType(), request.getNewRelatedEntityId());
+        }
+    }
+    
+    private FileBatchOperationResultDTO.ItemResult itemResult(Long fileId, String status, String message) {
+        return FileBatchOperationResultDTO.ItemResult.builder()
+            .fileId(fileId)
+            .success("SUCCESS".equals(status))
+            .status(status)
+            .message(message)
+            .build();
+    }
+    
+    private void deletePhysicalFileQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            log.warn("删除物理文件失败: {}", file.getAbsolutePath(), e);
+        }
+    }
+    
     /**
      * 保存文件到磁盘
      */
@@ -321,6 +750,16 @@ public class FileServiceImpl implements FileService {
         User uploader = userRepository.findById(uploaderId)
             .orElseThrow(() -> new ResourceNotFoundException("用户不存在: " + uploaderId));
         
+        return fileRepository.save(buildFileInfo(file, fullPath, storedName, fileHash,
+            category, entityType, entityId, uploader));
+    }
+    
+    /**
+     * 构建文件信息实体（不保存）
+     */
+    private FileInfo buildFileInfo(MultipartFile file, String fullPath, String storedName,
+                                   String fileHash, FileCategory category, String entityType,
+                                   Long entityId, User uploader) {
         FileInfo fileInfo = new FileInfo();
         fileInfo.setOriginalName(file.getOriginalFilename());
         fileInfo.setStoredName(storedName);
@@ -336,8 +775,7 @@ public class FileServiceImpl implements FileService {
         fileInfo.setAccessLevel("PRIVATE");
         fileInfo.setIsActive(true);
         fileInfo.setDownloadCount(0);
-        
-        return fileRepository.save(fileInfo);
+        return fileInfo;
     }
     
     /**
@@ -428,6 +866,7 @@ public class FileServiceImpl implements FileService {
             .relatedEntityId(fileInfo.getRelatedEntityId())
             .accessLevel(fileInfo.getAccessLevel())
             .downloadCount(fileInfo.getDownloadCount())
+            .previewCount(fileInfo.getPreviewCount())
             .isImageFile(fileInfo.isImageFile())
             .isDocumentFile(fileInfo.isDocumentFile())
             .downloadUrl(FileUtil.generateDownloadUrl(fileInfo.getId()))
@@ -436,5 +875,68 @@ public class FileServiceImpl implements FileService {
             .updatedAt(fileInfo.getUpdatedAt())
             .build();
     }
+    
+    /**
+     * 批量上传中单个文件的中间处理结果
+     */
+    private static final class PreparedUpload {
+        private final int index;
+        private final String originalName;
+        private final FileInfo fileInfo;
+        private final File storedFile;
+        private final List<PreparedUpload> followers = new ArrayList<>();
+        private boolean duplicate;
+        private FileUploadResponse response;
+        private String errorMessage;
+        
+        private PreparedUpload(int index, String originalName, FileInfo fileInfo, File storedFile) {
+            this.index = index;
+            this.originalName = originalName;
+            this.fileInfo = fileInfo;
+            this.storedFile = storedFile;
+        }
+        
+        static PreparedUpload stored(int index, String originalName, FileInfo fileInfo, File storedFile) {
+            return new PreparedUpload(index, originalName, fileInfo, storedFile);
+        }
+        
+        static PreparedUpload duplicate(int index, String originalName, FileUploadResponse existing) {
+            PreparedUpload upload = new PreparedUpload(index, originalName, null, null);
+            upload.duplicate = true;
+            upload.response = existing;
+            return upload;
+        }
+        
+        static PreparedUpload failed(int index, String originalName, String errorMessage) {
+            PreparedUpload upload = new PreparedUpload(index, originalName, null, null);
+            upload.errorMessage = errorMessage;
+            return upload;
+        }
+        
+        void markSaved(FileUploadResponse saved) {
+            this.response = saved;
+            for (PreparedUpload follower : followers) {
+                follower.duplicate = true;
+                follower.response = saved;
+            }
+        }
+        
+        void markFailed(String message) {
+            this.errorMessage = message;
+            for (PreparedUpload follower : followers) {
+                follower.errorMessage = message;
+            }
+        }
+        
+        FileBatchUploadResponse.FileResult toResult() {
+            return FileBatchUploadResponse.FileResult.builder()
+                .index(index)
+                .originalName(originalName)
+                .success(response != null)
+                .duplicate(duplicate)
+                .file(response)
+                .errorMessage(response != null ? null : errorMessage)
+                .build();
+        }
+    }
 }
-
@@ -0,0 +1,58 @@
+package com.rental.file.util;
+
+import org.apache.tika.Tika;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 文件类型检测器
+ *
+ * 全局共享一个 Tika 实例；先用文件头魔数前缀树识别常见格式，无法确定时再调用 Tika 完整检测。
+ */
+public final class FileTypeDetector {
+
+    /**
+     * 读取的文件头大小（同时用于魔数匹配和可执行文件特征检查）
+     */
+    public static final int HEADER_SIZE = 1024;
+
+    private static final Tika TIKA = new Tika();
+
+    private static final MagicNumberMatcher MAGIC_NUMBERS = MagicNumberMatcher.defaults();
+
+    private FileTypeDetector() {
+    }
+
+    /**
+     * 读取文件头
+     *
+     * @param file 文件
+     * @return 文件头字节（长度不超过 HEADER_SIZE）
+     * @throws IOException IO异常
+     */
+    public static byte[] readHeader(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return in.readNBytes(HEADER_SIZE);
+        }
+    }
+
+    /**
+     * 检测文件的真实MIME类型
+     *
+     * @param header 已读取的文件头字节
+     * @param file 文件（仅在魔数无法确定时交给 Tika 读取）
+     * @return MIME类型
+     * @throws IOException IO异常
+     */
+    public static String detect(byte[] header, MultipartFile file) throws IOException {
+        String mimeType = MAGIC_NUMBERS.match(header, header.length);
+        if (mimeType != null) {
+            return mimeType;
+        }
+        try (InputStream in = file.getInputStream()) {
+            return TIKA.detect(in, file.getOriginalFilename());
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.rental.file.util;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.tika.Tika;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -19,8 +18,6 @@ import java.util.UUID;
 @Slf4j
 public class FileUtil {
     
-    private static final Tika tika = new Tika();
-    
     /**
      * 生成唯一的存储文件名
      * 格式：日期_时间戳_UUID.扩展名
@@ -97,7 +94,7 @@ public class FileUtil {
      * @throws IOException IO异常
      */
     public static String detectContentType(MultipartFile file) throws IOException {
-        return tika.detect(file.getInputStream(), file.getOriginalFilename());
+        return FileTypeDetector.detect(FileTypeDetector.readHeader(file), file);
     }
     
     /**
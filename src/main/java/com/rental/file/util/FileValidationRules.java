@@ -0,0 +1,162 @@
+package com.rental.file.util;
+
+import com.rental.file.model.FileCategory;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 编译后的文件验证规则
+ *
+ * 每个文件分类编译一次：允许的扩展名和 MIME 类型预先解析为哈希集合，
+ * 上传校验时不再重复拆分分类配置的扩展名字符串。
+ */
+public final class FileValidationRules {
+
+    /**
+     * 未指定分类时的默认大小限制（20MB）
+     */
+    public static final long DEFAULT_MAX_FILE_SIZE = 20 * 1024 * 1024;
+
+    // 常见扩展名与MIME类型映射
+    private static final Map<String, Set<String>> MIME_TYPES_BY_EXTENSION = Map.of(
+        "jpg", Set.of("image/jpeg", "image/jpg"),
+        "jpeg", Set.of("image/jpeg", "image/jpg"),
+        "png", Set.of("image/png"),
+        "gif", Set.of("image/gif"),
+        "pdf", Set.of("application/pdf"),
+        "doc", Set.of("application/msword"),
+        "docx", Set.of(
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "application/vnd.ms-word.document.macroenabled.12"
+        ),
+        "xls", Set.of("application/vnd.ms-excel"),
+        "xlsx", Set.of(
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "application/vnd.ms-excel.sheet.macroenabled.12"
+        ),
+        "txt", Set.of("text/plain")
+    );
+
+    private static final Set<String> LOOSE_IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "bmp", "webp");
+    private static final Set<String> LOOSE_DOCUMENT_EXTENSIONS = Set.of("pdf", "doc", "docx", "xls", "xlsx", "ppt", "pptx");
+    private static final Set<String> LOOSE_TEXT_EXTENSIONS = Set.of("txt", "csv");
+
+    private final Long categoryId;
+    private final LocalDateTime categoryVersion;
+    private final boolean restricted;
+    private final Set<String> allowedExtensions;
+    private final Set<String> allowedMimeTypes;
+    private final long maxFileSize;
+    private final String allowedExtensionsDisplay;
+
+    private FileValidationRules(Long categoryId, LocalDateTime categoryVersion, boolean restricted,
+                                Set<String> allowedExtensions, Set<String> allowedMimeTypes,
+                                long maxFileSize, String allowedExtensionsDisplay) {
+        this.categoryId = categoryId;
+        this.categoryVersion = categoryVersion;
+        this.restricted = restricted;
+        this.allowedExtensions = allowedExtensions;
+        this.allowedMimeTypes = allowedMimeTypes;
+        this.maxFileSize = maxFileSize;
+        this.allowedExtensionsDisplay = allowedExtensionsDisplay;
+    }
+
+    /**
+     * 未指定分类时的规则：不限制扩展名，使用默认大小限制
+     */
+    public static FileValidationRules defaults() {
+        return new FileValidationRules(null, null, false, Collections.emptySet(), Collections.emptySet(),
+            DEFAULT_MAX_FILE_SIZE, null);
+    }
+
+    /**
+     * 编译分类的验证规则
+     *
+     * @param category 文件分类
+     * @return 编译后的规则
+     */
+    public static FileValidationRules compile(FileCategory category) {
+        Set<String> extensions = new HashSet<>();
+        Set<String> mimeTypes = new HashSet<>();
+        for (String ext : category.getAllowedExtensionsArray()) {
+            String normalized = ext.trim().toLowerCase();
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            extensions.add(normalized);
+            mimeTypes.addAll(MIME_TYPES_BY_EXTENSION.getOrDefault(normalized, Set.of()));
+        }
+        long maxFileSize = category.getMaxFileSize() != null ? category.getMaxFileSize() : DEFAULT_MAX_FILE_SIZE;
+        return new FileValidationRules(category.getId(), category.getUpdatedAt(), true,
+            Set.copyOf(extensions), Set.copyOf(mimeTypes), maxFileSize, category.getAllowedExtensions());
+    }
+
+    /**
+     * 判断规则是否由分类的当前版本编译而来
+     */
+    public boolean isCompiledFrom(FileCategory category) {
+        return Objects.equals(categoryId, category.getId())
+            && Objects.equals(categoryVersion, category.getUpdatedAt());
+    }
+
+    /**
+     * 检查扩展名是否被分类允许
+     */
+    public boolean isExtensionAllowed(String extension) {
+        return !restricted || allowedExtensions.contains(extension.toLowerCase());
+    }
+
+    /**
+     * 检查检测到的MIME类型是否与扩展名匹配
+     */
+    public boolean isMimeTypeValid(String extension, String mimeType) {
+        if (mimeType == null || extension == null) {
+            return false;
+        }
+        String ext = extension.toLowerCase();
+        String mime = mimeType.toLowerCase();
+        Set<String> validMimeTypes = MIME_TYPES_BY_EXTENSION.get(ext);
+        if (validMimeTypes == null) {
+            return isLooseMimeTypeMatch(mime, ext);
+        }
+        // 分类允许的扩展名都有预定义MIME类型时，先用分类级集合快速排除
+        if (restricted && !allowedMimeTypes.contains(mime)) {
+            return false;
+        }
+        return validMimeTypes.contains(mime);
+    }
+
+    public long getMaxFileSize() {
+        return maxFileSize;
+    }
+
+    public String getAllowedExtensionsDisplay() {
+        return allowedExtensionsDisplay;
+    }
+
+    /**
+     * 宽松的MIME类型匹配（用于未预定义的扩展名）
+     */
+    private static boolean isLooseMimeTypeMatch(String mimeType, String extension) {
+        if (LOOSE_IMAGE_EXTENSIONS.contains(extension)) {
+            return mimeType.startsWith("image/");
+        }
+        if (LOOSE_DOCUMENT_EXTENSIONS.contains(extension)) {
+            return mimeType.equals("application/pdf") ||
+                   mimeType.contains("word") ||
+                   mimeType.contains("excel") ||
+                   mimeType.contains("powerpoint") ||
+                   mimeType.contains("spreadsheet") ||
+                   mimeType.contains("presentation");
+        }
+        if (LOOSE_TEXT_EXTENSIONS.contains(extension)) {
+            return mimeType.startsWith("text/");
+        }
+        return true; // 对于其他类型，采用宽松策略
+    }
+}
@@ -5,14 +5,13 @@ import com.rental.file.model.FileCategory;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.tika.Tika;
 import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 文件验证工具类
@@ -21,33 +20,16 @@ import java.util.Map;
 @Slf4j
 public class FileValidationUtil {
     
-    private static final Tika tika = new Tika();
-    
-    // 常见MIME类型映射
-    private static final Map<String, List<String>> MIME_TYPE_MAP = Map.of(
-        "jpg", List.of("image/jpeg", "image/jpg"),
-        "jpeg", List.of("image/jpeg", "image/jpg"),
-        "png", List.of("image/png"),
-        "gif", List.of("image/gif"),
-        "pdf", List.of("application/pdf"),
-        "doc", List.of("application/msword"),
-        "docx", List.of(
-            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
-            "application/vnd.ms-word.document.macroenabled.12"
-        ),
-        "xls", List.of("application/vnd.ms-excel"),
-        "xlsx", List.of(
-            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
-            "application/vnd.ms-excel.sheet.macroenabled.12"
-        ),
-        "txt", List.of("text/plain")
-    );
-    
     // 危险文件扩展名
-    private static final String[] DANGEROUS_EXTENSIONS = {
+    private static final Set<String> DANGEROUS_EXTENSIONS = Set.of(
         "exe", "bat", "cmd", "com", "pif", "scr", "vbs", "js", "jar",
         "jsp", "php", "asp", "aspx", "sh", "bash", "ps1", "msi"
-    };
+    );
+    
+    private static final FileValidationRules DEFAULT_RULES = FileValidationRules.defaults();
+    
+    // 按分类ID缓存的编译规则，分类更新时失效
+    private static final ConcurrentHashMap<Long, FileValidationRules> RULES_CACHE = new ConcurrentHashMap<>();
     
     /**
      * 验证上传文件
@@ -73,13 +55,15 @@ public class FileValidationUtil {
             throw new BusinessException("文件名包含不安全字符: " + originalFilename);
         }
         
+        FileValidationRules rules = getRules(category);
+        
         // 3. 检查文件大小
         long fileSize = file.getSize();
         if (fileSize <= 0) {
             throw new BusinessException("文件大小无效");
         }
         
-        long maxSize = category != null ? category.getMaxFileSize() : 20 * 1024 * 1024; // 默认20MB
+        long maxSize = rules.getMaxFileSize();
         if (fileSize > maxSize) {
             throw new BusinessException(
                 String.format("文件大小超过限制，当前: %s，限制: %s",
@@ -98,30 +82,64 @@ public class FileValidationUtil {
             throw new BusinessException("不允许上传此类型的文件: " + extension);
         }
         
-        if (category != null && !category.isExtensionAllowed(extension)) {
+        if (!rules.isExtensionAllowed(extension)) {
             throw new BusinessException(
                 String.format("文件类型不被此分类允许，当前类型: %s，允许类型: %s",
-                    extension, category.getAllowedExtensions())
+                    extension, rules.getAllowedExtensionsDisplay())
             );
         }
         
-        // 5. 检查真实文件类型
-        String detectedContentType = tika.detect(file.getInputStream(), originalFilename);
-        if (!isValidMimeType(detectedContentType, extension)) {
+        // 5. 检查真实文件类型（文件头只读取一次，魔数可识别的格式不再调用 Tika）
+        byte[] header = FileTypeDetector.readHeader(file);
+        String detectedContentType = FileTypeDetector.detect(header, file);
+        if (!rules.isMimeTypeValid(extension, detectedContentType)) {
             throw new BusinessException(
                 String.format("文件类型验证失败，文件扩展名: %s，检测到的类型: %s",
                     extension, detectedContentType)
             );
         }
         
-        // 6. 安全检查
-        if (!isSecureFile(file)) {
+        // 6. 安全检查（文件名和扩展名已在上面检查过）
+        if (containsExecutableSignature(header)) {
             throw new BusinessException("检测到不安全的文件内容");
         }
         
         log.debug("文件验证通过: {} ({})", originalFilename, FileUtils.byteCountToDisplaySize(fileSize));
     }
     
+    /**
+     * 获取分类的编译验证规则（带缓存）
+     * 
+     * @param category 文件分类（可为null）
+     * @return 验证规则
+     */
+    public static FileValidationRules getRules(FileCategory category) {
+        if (category == null) {
+            return DEFAULT_RULES;
+        }
+        if (category.getId() == null) {
+            return FileValidationRules.compile(category);
+        }
+        FileValidationRules rules = RULES_CACHE.get(category.getId());
+        // 版本不一致说明分类已在其他地方被修改，重新编译
+        if (rules == null || !rules.isCompiledFrom(category)) {
+            rules = FileValidationRules.compile(category);
+            RULES_CACHE.put(category.getId(), rules);
+        }
+        return rules;
+    }
+    
+    /**
+     * 使分类的缓存规则失效
+     * 
+     * @param categoryId 分类ID
+     */
+    public static void invalidateRules(Long categoryId) {
+        if (categoryId != null) {
+            RULES_CACHE.remove(categoryId);
+        }
+    }
+    
     /**
      * 检查扩展名是否在允许列表中
      * 
@@ -149,49 +167,7 @@ public class FileValidationUtil {
      * @return 是否匹配
      */
     public static boolean isValidMimeType(String mimeType, String extension) {
-        if (mimeType == null || extension == null) {
-            return false;
-        }
-        
-        // 获取该扩展名对应的有效MIME类型列表
-        List<String> validMimeTypes = MIME_TYPE_MAP.get(extension.toLowerCase());
-        if (validMimeTypes == null) {
-            // 如果没有预定义的MIME类型，进行宽松检查
-            return isLooseMimeTypeMatch(mimeType, extension);
-        }
-        
-        return validMimeTypes.contains(mimeType.toLowerCase());
-    }
-    
-    /**
-     * 宽松的MIME类型匹配（用于未预定义的扩展名）
-     * 
-     * @param mimeType MIME类型
-     * @param extension 扩展名
-     * @return 是否匹配
-     */
-    private static boolean isLooseMimeTypeMatch(String mimeType, String extension) {
-        // 图片类型检查
-        if (Arrays.asList("jpg", "jpeg", "png", "gif", "bmp", "webp").contains(extension.toLowerCase())) {
-            return mimeType.startsWith("image/");
-        }
-        
-        // 文档类型检查
-        if (Arrays.asList("pdf", "doc", "docx", "xls", "xlsx", "ppt", "pptx").contains(extension.toLowerCase())) {
-            return mimeType.equals("application/pdf") ||
-                   mimeType.contains("word") ||
-                   mimeType.contains("excel") ||
-                   mimeType.contains("powerpoint") ||
-                   mimeType.contains("spreadsheet") ||
-                   mimeType.contains("presentation");
-        }
-        
-        // 文本类型检查
-        if (Arrays.asList("txt", "csv").contains(extension.toLowerCase())) {
-            return mimeType.startsWith("text/");
-        }
-        
-        return true; // 对于其他类型，采用宽松策略
+        return DEFAULT_RULES.isMimeTypeValid(extension, mimeType);
     }
     
     /**
@@ -205,51 +181,7 @@ public class FileValidationUtil {
             return false;
         }
         
-        return Arrays.stream(DANGEROUS_EXTENSIONS)
-            .anyMatch(dangerous -> dangerous.equalsIgnoreCase(extension));
-    }
-    
-    /**
-     * 检查文件是否安全
-     * 
-     * @param file 文件
-     * @return 是否安全
-     */
-    public static boolean isSecureFile(MultipartFile file) {
-        try {
-            String filename = file.getOriginalFilename();
-            if (filename == null) {
-                return false;
-            }
-            
-            // 检查文件名安全性
-            if (!FileUtil.isSafeFilename(filename)) {
-                return false;
-            }
-            
-            // 检查扩展名安全性
-            String extension = FileUtil.getFileExtension(filename);
-            if (isDangerousExtension(extension)) {
-                return false;
-            }
-            
-            // 检查文件内容（简单的字节检查）
-            byte[] header = new byte[Math.min(1024, (int) file.getSize())];
-            int bytesRead = file.getInputStream().read(header);
-            
-            if (bytesRead > 0) {
-                // 检查是否包含可执行文件的特征字节
-                if (containsExecutableSignature(header)) {
-                    return false;
-                }
-            }
-            
-            return true;
-            
-        } catch (IOException e) {
-            log.error("文件安全检查失败: {}", e.getMessage());
-            return false;
-        }
+        return DANGEROUS_EXTENSIONS.contains(extension.toLowerCase());
     }
     
     /**
@@ -0,0 +1,68 @@
+package com.rental.file.util;
+
+/**
+ * 文件头魔数匹配器
+ *
+ * 以文件开头字节构建前缀树（trie），对签名唯一、无歧义的常见格式直接给出 MIME 类型，
+ * 其余格式（如 ZIP 容器的 docx/xlsx、OLE2 容器的 doc/xls、纯文本）返回 null，交由 Tika 检测。
+ */
+public final class MagicNumberMatcher {
+
+    private final Node root = new Node();
+
+    /**
+     * 默认签名集合（与 Tika 对相同文件的检测结果保持一致）
+     */
+    public static MagicNumberMatcher defaults() {
+        MagicNumberMatcher matcher = new MagicNumberMatcher();
+        matcher.register("image/jpeg", 0xFF, 0xD8, 0xFF);
+        matcher.register("image/png", 0x89, 0x50, 0x4E, 0x47, 0x0D, 0x0A, 0x1A, 0x0A);
+        matcher.register("image/gif", 0x47, 0x49, 0x46, 0x38, 0x37, 0x61);   // GIF87a
+        matcher.register("image/gif", 0x47, 0x49, 0x46, 0x38, 0x39, 0x61);   // GIF89a
+        matcher.register("application/pdf", 0x25, 0x50, 0x44, 0x46, 0x2D);   // %PDF-
+        return matcher;
+    }
+
+    /**
+     * 注册一个签名
+     *
+     * @param mimeType 匹配后返回的 MIME 类型
+     * @param signature 文件开头的字节序列
+     */
+    public void register(String mimeType, int... signature) {
+        Node node = root;
+        for (int b : signature) {
+            int index = b & 0xFF;
+            if (node.children[index] == null) {
+                node.children[index] = new Node();
+            }
+            node = node.children[index];
+        }
+        node.mimeType = mimeType;
+    }
+
+    /**
+     * 按最长前缀匹配文件头
+     *
+     * @param header 文件开头的字节
+     * @param length 有效字节数
+     * @return 匹配到的 MIME 类型，未匹配返回 null
+     */
+    public String match(byte[] header, int length) {
+        Node node = root;
+        String matched = null;
+        int limit = Math.min(length, header.length);
+        for (int i = 0; i < limit && node != null; i++) {
+            node = node.children[header[i] & 0xFF];
+            if (node != null && node.mimeType != null) {
+                matched = node.mimeType;
+            }
+        }
+        return matched;
+    }
+
+    private static final class Node {
+        private final Node[] children = new Node[256];
+        private String mimeType;
+    }
+}
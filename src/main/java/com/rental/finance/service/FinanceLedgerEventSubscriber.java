@@ -0,0 +1,67 @@
+package com.rental.finance.service;
+
+import com.rental.common.constant.DomainEventConstants;
+import com.rental.common.model.OutboxEvent;
+import com.rental.common.service.DomainEventSubscriber;
+import com.rental.finance.model.FinanceRecord;
+import com.rental.finance.repository.FinanceRecordRepository;
+import com.rental.payment.model.Payment;
+import com.rental.payment.repository.PaymentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+
+/**
+ * 财务流水事件订阅者
+ *
+ * 订单收款记收入，退款完成记退款。同一支付已有同类型流水时跳过，重复投递不会重复记账。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class FinanceLedgerEventSubscriber implements DomainEventSubscriber {
+
+    private final FinanceRecordService financeRecordService;
+    private final FinanceRecordRepository financeRecordRepository;
+    private final PaymentRepository paymentRepository;
+
+    @Override
+    public Set<String> eventTypes() {
+        return Set.of(DomainEventConstants.ORDER_PAID, DomainEventConstants.REFUND_COMPLETED);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        if (DomainEventConstants.ORDER_PAID.equals(event.getEventType())) {
+            record(event.payloadLong("paymentId"), FinanceRecord.FinanceType.INCOME, "收入");
+        } else {
+            record(event.payloadLong("refundId"), FinanceRecord.FinanceType.REFUND, "退款");
+        }
+    }
+
+    private void record(Long paymentId, FinanceRecord.FinanceType type, String suffix) {
+        Payment payment = paymentId != null ? paymentRepository.findById(paymentId).orElse(null) : null;
+        if (payment == null) {
+            log.warn("财务记账跳过，支付记录不存在，支付ID：{}", paymentId);
+            return;
+        }
+        boolean recorded = financeRecordRepository.findByPaymentId(paymentId).stream()
+            .anyMatch(record -> record.getType() == type);
+        if (recorded) {
+            return;
+        }
+
+        // 退款按原支付类型分类，如“租金退款”“押金退款”
+        Payment.PaymentType categoryType = payment.getPaymentType();
+        if (categoryType == Payment.PaymentType.REFUND && payment.getOriginalPaymentId() != null) {
+            categoryType = paymentRepository.findById(payment.getOriginalPaymentId())
+                .map(Payment::getPaymentType).orElse(categoryType);
+        }
+        String description = type == FinanceRecord.FinanceType.REFUND
+            ? "退款单号：" + payment.getPaymentNo() + "，原因：" + payment.getRefundReason()
+            : "支付单号：" + payment.getPaymentNo();
+        financeRecordService.createRecordForPayment(payment, type, categoryType.getDescription() + suffix, description);
+    }
+}
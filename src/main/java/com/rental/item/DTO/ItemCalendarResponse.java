@@ -0,0 +1,31 @@
+package com.rental.item.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemCalendarResponse {
+
+    private Long itemId;
+    private LocalDate from;
+    private LocalDate to;
+    private boolean rentable; // 物品当前是否可租（可用且已审核），不可租时日期空闲也不能下单
+    private List<BookedRange> bookedRanges; // 已被占用的日期段，按开始日期升序
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BookedRange {
+        private LocalDate start;
+        private LocalDate end; // 包含当天
+    }
+}
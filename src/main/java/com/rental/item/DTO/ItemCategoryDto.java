@@ -28,4 +28,5 @@ public class ItemCategoryDto {
     private boolean isRoot;
     private boolean hasChildren;
     private int itemCount; // 该分类下的物品数量
+    private int totalItemCount; // 该分类及所有后代分类下的物品数量
 }
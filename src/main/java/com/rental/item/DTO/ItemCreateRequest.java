@@ -1,6 +1,7 @@
 package com.rental.item.DTO;
 
 import com.rental.item.model.Item;
+import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -36,6 +37,14 @@ public class ItemCreateRequest {
 
     private String location;
 
+    @DecimalMin(value = "-90", message = "纬度必须在-90到90之间")
+    @DecimalMax(value = "90", message = "纬度必须在-90到90之间")
+    private BigDecimal latitude;
+
+    @DecimalMin(value = "-180", message = "经度必须在-180到180之间")
+    @DecimalMax(value = "180", message = "经度必须在-180到180之间")
+    private BigDecimal longitude;
+
     private List<String> images; // 修改为List<String>类型，直接接收图片URL数组
 
     private Item.ItemSpecification specifications;
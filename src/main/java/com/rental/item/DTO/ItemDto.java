@@ -27,6 +27,8 @@ public class ItemDto {
     private BigDecimal deposit;
     private Item.ItemStatus status;
     private String location;
+    private BigDecimal latitude;
+    private BigDecimal longitude;
     private String images; // 改为字符串类型
     private Item.ItemSpecification specifications;
     private Item.ApprovalStatus approvalStatus;
@@ -36,10 +38,13 @@ public class ItemDto {
     private LocalDateTime approvedAt;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private BigDecimal averageRating;
+    private Integer ratingCount;
 
     // 扩展信息
     private boolean available;
     private boolean canBeRented;
+    private Double distanceKm; // 距查询位置的距离，仅附近搜索返回
 
     // 辅助方法：获取图片列表
     public List<String> getImageList() {
@@ -0,0 +1,30 @@
+package com.rental.item.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemFacetResponse {
+
+    private Page<ItemDto> items;
+    private Map<String, List<FacetValue>> facets; // 分面名 -> 取值计数，索引未就绪时为空
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetValue {
+        private String value; // 筛选时回传的取值
+        private String label; // 展示名称
+        private long count;
+    }
+}
@@ -0,0 +1,31 @@
+package com.rental.item.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemImportReport {
+
+    private long totalRows;
+    private long importedCount;
+    private long failedCount;
+    private boolean errorsTruncated; // 错误行超过上限时为 true，errors 只包含前面的部分
+    private List<RowError> errors = new ArrayList<>();
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line; // 文件中的行号（从1开始，CSV 表头为第1行）
+        private String message;
+    }
+}
@@ -22,6 +22,8 @@ public class ItemSearchRequest {
     private BigDecimal minPrice;
     private BigDecimal maxPrice;
     private String location;
+    private String keyword; // 全文检索关键词，匹配名称、品牌、型号、描述等字段
+    private BigDecimal minRating; // 最低平均评分
     private String sortBy = "createdAt"; // 排序字段
     private String sortDir = "desc"; // 排序方向
     private int page = 0;
@@ -0,0 +1,40 @@
+package com.rental.item.DTO;
+
+import com.rental.item.model.Item;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.domain.Page;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OwnerDashboardResponse {
+
+    private int windowDays; // 租用天数和利用率的统计窗口（截至昨天）
+    private OwnerDashboardSummary summary;
+    private Page<ItemPerformance> items;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemPerformance {
+        private Long itemId;
+        private String name;
+        private Item.ItemStatus status;
+        private Item.ApprovalStatus approvalStatus;
+        private BigDecimal pricePerDay;
+        private long currentBookings;
+        private long upcomingBookings;
+        private long bookedDays;
+        private BigDecimal utilizationRate;
+        private BigDecimal revenue;
+        private BigDecimal averageRating;
+        private long ratingCount;
+    }
+}
@@ -0,0 +1,30 @@
+package com.rental.item.DTO;
+
+import com.rental.item.model.Item;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OwnerDashboardSummary {
+
+    private Long ownerId;
+    private String ownerUsername;
+    private long totalItems;
+    private Map<Item.ItemStatus, Long> itemCountByStatus = new EnumMap<>(Item.ItemStatus.class);
+    private long currentBookings;  // 进行中的租赁（使用中，或已确认/已支付且今天在租期内）
+    private long upcomingBookings; // 已确认/已支付且尚未开始的租赁
+    private long bookedDays;       // 统计窗口内被租用的物品天数
+    private BigDecimal utilizationRate; // 统计窗口内租用天数 / (可出租物品数 * 窗口天数)
+    private BigDecimal revenue;    // 已支付、使用中和已归还订单的物品租金合计
+    private BigDecimal averageRating;
+    private long ratingCount;
+}
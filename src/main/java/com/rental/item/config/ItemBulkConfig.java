@@ -0,0 +1,29 @@
+package com.rental.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 物品批量导入导出配置类
+ */
+@ConfigurationProperties(prefix = "item.bulk")
+@Data
+@Component
+public class ItemBulkConfig {
+
+    /**
+     * 导入时每批校验并写入的行数，每批一个事务
+     */
+    private int batchSize = 500;
+
+    /**
+     * 导入时并行校验的线程数
+     */
+    private int validationThreads = 4;
+
+    /**
+     * 导入报告中最多返回的错误行数，超出部分只计数
+     */
+    private int maxReportedErrors = 1000;
+}
@@ -0,0 +1,24 @@
+package com.rental.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 物品可租日历配置类
+ */
+@ConfigurationProperties(prefix = "item.calendar")
+@Data
+@Component
+public class ItemCalendarConfig {
+
+    /**
+     * 是否启用内存日历，关闭时日历和按日期筛选直接查询订单
+     */
+    private boolean enabled = true;
+
+    /**
+     * 日历覆盖的天数（从今天起），超出范围的日期不可查询
+     */
+    private int horizonDays = 180;
+}
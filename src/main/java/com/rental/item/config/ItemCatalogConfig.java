@@ -0,0 +1,24 @@
+package com.rental.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 可租赁物品目录快照配置类
+ */
+@ConfigurationProperties(prefix = "item.catalog")
+@Data
+@Component
+public class ItemCatalogConfig {
+
+    /**
+     * 是否启用内存快照，关闭时可租赁物品列表直接查询数据库
+     */
+    private boolean enabled = true;
+
+    /**
+     * 重建快照时每批读取的物品数量
+     */
+    private int loadBatchSize = 5000;
+}
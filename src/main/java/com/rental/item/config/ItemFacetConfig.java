@@ -0,0 +1,40 @@
+package com.rental.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 物品分面统计配置类
+ */
+@ConfigurationProperties(prefix = "item.facets")
+@Data
+@Component
+public class ItemFacetConfig {
+
+    /**
+     * 是否启用分面位图索引，关闭时分面接口只返回数据库查询结果、不带计数
+     */
+    private boolean enabled = true;
+
+    /**
+     * 日租金分档边界（升序），n 个边界划分 n+1 档
+     */
+    private List<BigDecimal> priceBounds = new ArrayList<>(List.of(
+        new BigDecimal("50"), new BigDecimal("100"), new BigDecimal("200"),
+        new BigDecimal("500"), new BigDecimal("1000")));
+
+    /**
+     * 位置分面最多返回的取值个数，按物品数从多到少
+     */
+    private int maxLocationValues = 20;
+
+    /**
+     * 重建索引时每批读取的物品数量
+     */
+    private int loadBatchSize = 5000;
+}
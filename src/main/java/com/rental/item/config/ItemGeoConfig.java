@@ -0,0 +1,39 @@
+package com.rental.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 附近物品搜索配置类
+ */
+@ConfigurationProperties(prefix = "item.geo")
+@Data
+@Component
+public class ItemGeoConfig {
+
+    /**
+     * 是否启用内存网格索引，关闭时按经纬度范围查询数据库
+     */
+    private boolean enabled = true;
+
+    /**
+     * 网格边长（度），0.05 度约 5.5 公里，应与常用搜索半径同一量级
+     */
+    private double cellSizeDegrees = 0.05;
+
+    /**
+     * 未指定半径时的默认搜索半径（公里）
+     */
+    private double defaultRadiusKm = 5;
+
+    /**
+     * 允许的最大搜索半径（公里），限制单次查询扫描的网格数
+     */
+    private double maxRadiusKm = 50;
+
+    /**
+     * 重建索引时每批读取的物品数量
+     */
+    private int loadBatchSize = 5000;
+}
@@ -0,0 +1,59 @@
+package com.rental.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 相似物品推荐配置类
+ */
+@ConfigurationProperties(prefix = "item.recommendation")
+@Data
+@Component
+public class ItemRecommendationConfig {
+
+    /**
+     * 是否启用内存推荐索引，关闭时相似物品按同分类查询数据库
+     */
+    private boolean enabled = true;
+
+    /**
+     * 每个物品保存的相似物品数，也是接口单次返回数量的上限
+     */
+    private int topK = 20;
+
+    /**
+     * 构建索引的并行线程数
+     */
+    private int parallelism = 4;
+
+    /**
+     * 单个订单参与共现统计的物品数上限，超出部分忽略，避免大订单产生过多物品对
+     */
+    private int maxBasketSize = 50;
+
+    /**
+     * 同分类、同品牌、同所有者的物品各取多少个作为候选（按评价数优先）
+     */
+    private int contentCandidates = 200;
+
+    /**
+     * 共现相似度（余弦）权重
+     */
+    private double coOccurrenceWeight = 0.6;
+
+    /**
+     * 同分类权重
+     */
+    private double categoryWeight = 0.25;
+
+    /**
+     * 同品牌权重
+     */
+    private double brandWeight = 0.1;
+
+    /**
+     * 同所有者权重
+     */
+    private double ownerWeight = 0.05;
+}
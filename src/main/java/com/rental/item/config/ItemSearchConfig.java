@@ -0,0 +1,44 @@
+package com.rental.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 物品全文检索配置类
+ */
+@ConfigurationProperties(prefix = "item.search")
+@Data
+@Component
+public class ItemSearchConfig {
+
+    /**
+     * 是否启用内存倒排索引，关闭时搜索回退到数据库模糊查询
+     */
+    private boolean enabled = true;
+
+    /**
+     * 重建索引时的分词线程数
+     */
+    private int rebuildThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 重建索引时每批读取的物品数量
+     */
+    private int loadBatchSize = 2000;
+
+    /**
+     * BM25 词频饱和参数
+     */
+    private double k1 = 1.2;
+
+    /**
+     * BM25 文档长度归一化参数
+     */
+    private double b = 0.75;
+
+    /**
+     * 已删除文档占比超过该值时后台重建索引，回收倒排表空间
+     */
+    private double compactionRatio = 0.3;
+}
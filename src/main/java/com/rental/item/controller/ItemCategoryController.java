@@ -155,6 +155,26 @@ public class ItemCategoryController {
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    @GetMapping("/{id}/descendants")
+    @Operation(summary = "获取后代分类", description = "获取指定分类下所有层级的后代分类，按层级由近到远")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "获取成功")
+    public ResponseEntity<ApiResponse<List<ItemCategoryDto>>> getDescendants(
+            @Parameter(description = "分类ID", example = "1") @PathVariable Long id) {
+
+        List<ItemCategoryDto> result = categoryService.getDescendants(id);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @GetMapping("/{id}/ancestors")
+    @Operation(summary = "获取祖先分类", description = "获取指定分类的所有祖先分类，从根分类到直接父分类")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "获取成功")
+    public ResponseEntity<ApiResponse<List<ItemCategoryDto>>> getAncestors(
+            @Parameter(description = "分类ID", example = "5") @PathVariable Long id) {
+
+        List<ItemCategoryDto> result = categoryService.getAncestors(id);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
     @GetMapping("/tree")
     @Operation(summary = "获取分类树", description = "获取完整的分类树形结构")
     @io.swagger.v3.oas.annotations.responses.ApiResponse(
@@ -244,12 +264,14 @@ public class ItemCategoryController {
     @GetMapping("/{id}/item-count")
     @Operation(
         summary = "获取分类物品数量",
-        description = "获取指定分类下的物品数量"
+        description = "获取指定分类下的物品数量，可包含所有后代分类"
     )
     @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "获取成功")
     @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "分类不存在")
-    public ResponseEntity<ApiResponse<Long>> getItemCountByCategory(@PathVariable Long id) {
-        long count = categoryService.getItemCountByCategory(id);
+    public ResponseEntity<ApiResponse<Long>> getItemCountByCategory(
+            @PathVariable Long id,
+            @Parameter(description = "是否包含后代分类") @RequestParam(defaultValue = "false") boolean includeDescendants) {
+        long count = categoryService.getItemCountByCategory(id, includeDescendants);
         return ResponseEntity.ok(ApiResponse.success(count));
     }
 
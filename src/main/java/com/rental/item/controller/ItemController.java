@@ -3,7 +3,10 @@ package com.rental.item.controller;
 import com.rental.common.response.ApiResponse;
 import com.rental.item.DTO.*;
 import com.rental.item.model.Item;
+import com.rental.item.service.AvailableItemCatalog;
+import com.rental.item.service.ItemBulkService;
 import com.rental.item.service.ItemService;
+import com.rental.item.service.OwnerDashboardService;
 import com.rental.security.userdetails.CustomUserDetails;
 import com.rental.user.DTO.UserDTO;
 import com.rental.user.service.UserService;
@@ -20,12 +23,21 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -37,6 +49,9 @@ public class ItemController {
 
     private final ItemService itemService;
     private final UserService userService;
+    private final AvailableItemCatalog availableItemCatalog;
+    private final ItemBulkService itemBulkService;
+    private final OwnerDashboardService ownerDashboardService;
 
     @PostMapping
     @PreAuthorize("hasAuthority('ITEM_CREATE')")
@@ -164,14 +179,22 @@ public class ItemController {
             @Parameter(description = "最低价格") @RequestParam(required = false) java.math.BigDecimal minPrice,
             @Parameter(description = "最高价格") @RequestParam(required = false) java.math.BigDecimal maxPrice,
             @Parameter(description = "位置") @RequestParam(required = false) String location,
-            @Parameter(description = "排序字段") @RequestParam(defaultValue = "createdAt") String sortBy,
+            @Parameter(description = "关键词") @RequestParam(required = false) String keyword,
+            @Parameter(description = "最低平均评分") @RequestParam(required = false) java.math.BigDecimal minRating,
+            @Parameter(description = "排序字段，关键词搜索时默认按相关度") @RequestParam(required = false) String sortBy,
             @Parameter(description = "排序方向") @RequestParam(defaultValue = "desc") String sortDir,
             @Parameter(description = "页码") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size) {
 
-        Sort sort = Sort.by(sortDir.equalsIgnoreCase("desc") ?
-                Sort.Direction.DESC : Sort.Direction.ASC, sortBy);
-        Pageable pageable = PageRequest.of(page, size, sort);
+        boolean keywordSearch = StringUtils.hasText(keyword) || StringUtils.hasText(name);
+        Pageable pageable;
+        if (sortBy == null && keywordSearch) {
+            pageable = PageRequest.of(page, size);
+        } else {
+            Sort sort = Sort.by(sortDir.equalsIgnoreCase("desc") ?
+                    Sort.Direction.DESC : Sort.Direction.ASC, sortBy != null ? sortBy : "createdAt");
+            pageable = PageRequest.of(page, size, sort);
+        }
 
         ItemSearchRequest request = new ItemSearchRequest();
         request.setName(name);
@@ -182,27 +205,141 @@ public class ItemController {
         request.setMinPrice(minPrice);
         request.setMaxPrice(maxPrice);
         request.setLocation(location);
+        request.setKeyword(keyword);
+        request.setMinRating(minRating);
 
         Page<ItemDto> result = itemService.searchItems(request, pageable);
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    @GetMapping("/facets")
+    @Operation(summary = "分面浏览物品", description = "按分类、状态、价格档和位置筛选已审核物品，同时返回各分面取值的物品数")
+    public ResponseEntity<ApiResponse<ItemFacetResponse>> getFacetedItems(
+            @Parameter(description = "分类ID") @RequestParam(required = false) Long categoryId,
+            @Parameter(description = "物品状态") @RequestParam(required = false) Item.ItemStatus status,
+            @Parameter(description = "价格档，取值见 price 分面") @RequestParam(required = false) String priceRange,
+            @Parameter(description = "位置，取值见 location 分面") @RequestParam(required = false) String location,
+            @Parameter(description = "页码") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size) {
+
+        ItemFacetResponse result = itemService.getFacetedItems(categoryId, status, priceRange, location,
+                PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id")));
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @GetMapping("/nearby")
+    @Operation(summary = "附近物品", description = "按距离由近到远返回指定半径内的可租赁物品，可同时按分类和价格筛选")
+    public ResponseEntity<ApiResponse<Page<ItemDto>>> getNearbyItems(
+            @Parameter(description = "纬度", required = true) @RequestParam double lat,
+            @Parameter(description = "经度", required = true) @RequestParam double lng,
+            @Parameter(description = "搜索半径（公里），默认取配置值") @RequestParam(required = false) Double radiusKm,
+            @Parameter(description = "分类ID，包含子分类") @RequestParam(required = false) Long categoryId,
+            @Parameter(description = "最低价格") @RequestParam(required = false) java.math.BigDecimal minPrice,
+            @Parameter(description = "最高价格") @RequestParam(required = false) java.math.BigDecimal maxPrice,
+            @Parameter(description = "页码") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size) {
+
+        Page<ItemDto> result = itemService.getNearbyItems(lat, lng, radiusKm, categoryId, minPrice, maxPrice,
+                PageRequest.of(page, size));
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
     @GetMapping("/available")
     @Operation(summary = "获取可租赁物品", description = "获取所有可租赁的物品列表")
     public ResponseEntity<ApiResponse<Page<ItemDto>>> getAvailableItems(
             @Parameter(description = "页码") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size,
             @Parameter(description = "排序字段") @RequestParam(defaultValue = "createdAt") String sortBy,
-            @Parameter(description = "排序方向") @RequestParam(defaultValue = "desc") String sortDir) {
+            @Parameter(description = "排序方向") @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
         Sort sort = Sort.by(sortDir.equalsIgnoreCase("desc") ?
                 Sort.Direction.DESC : Sort.Direction.ASC, sortBy);
         Pageable pageable = PageRequest.of(page, size, sort);
 
+        // 优先从内存快照切片，快照版本作为 ETag
+        AvailableItemCatalog.CatalogPage cached = availableItemCatalog.page(pageable);
+        if (cached != null) {
+            String etag = "\"" + cached.version() + "\"";
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok().eTag(etag).body(ApiResponse.success(cached.items()));
+        }
+
         Page<ItemDto> result = itemService.getAvailableItems(pageable);
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    @GetMapping("/available-between")
+    @Operation(summary = "指定日期可租物品", description = "获取在开始日期到结束日期（含）之间整段未被订单占用的可租赁物品")
+    public ResponseEntity<ApiResponse<Page<ItemDto>>> getItemsAvailableBetween(
+            @Parameter(description = "开始日期", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "结束日期", required = true) @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @Parameter(description = "页码") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "排序字段") @RequestParam(defaultValue = "createdAt") String sortBy,
+            @Parameter(description = "排序方向") @RequestParam(defaultValue = "desc") String sortDir) {
+
+        Sort sort = Sort.by(sortDir.equalsIgnoreCase("desc") ?
+                Sort.Direction.DESC : Sort.Direction.ASC, sortBy);
+        Page<ItemDto> result = itemService.getItemsAvailableBetween(from, to, PageRequest.of(page, size, sort));
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @GetMapping("/{id}/similar")
+    @Operation(summary = "相似物品", description = "获取与物品经常一起租用或同分类、同品牌、同所有者的可租赁物品，按相似度排序")
+    public ResponseEntity<ApiResponse<List<ItemDto>>> getSimilarItems(
+            @Parameter(description = "物品ID", required = true) @PathVariable Long id,
+            @Parameter(description = "返回数量") @RequestParam(defaultValue = "10") int limit) {
+
+        List<ItemDto> result = itemService.getSimilarItems(id, limit);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @GetMapping("/{id}/calendar")
+    @Operation(summary = "物品可租日历", description = "获取物品在日期范围内已被占用的日期段，默认从今天起30天")
+    public ResponseEntity<ApiResponse<ItemCalendarResponse>> getItemCalendar(
+            @Parameter(description = "物品ID", required = true) @PathVariable Long id,
+            @Parameter(description = "开始日期，默认今天") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "结束日期，默认开始日期后30天") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        LocalDate start = from != null ? from : LocalDate.now();
+        LocalDate end = to != null ? to : start.plusDays(30);
+        ItemCalendarResponse result = itemService.getItemCalendar(id, start, end);
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @PostMapping("/import")
+    @PreAuthorize("hasAuthority('ITEM_CREATE')")
+    @Operation(summary = "批量导入物品", description = "上传 CSV（首行为表头）或 NDJSON 文件批量创建物品，物品所有者为当前用户，导入后待审核")
+    public ResponseEntity<ApiResponse<ItemImportReport>> importItems(
+            @Parameter(description = "导入文件", required = true) @RequestParam("file") MultipartFile file,
+            @Parameter(description = "文件格式 csv/ndjson，默认按文件扩展名判断") @RequestParam(required = false) String format,
+            @AuthenticationPrincipal CustomUserDetails userDetails) throws IOException {
+
+        ItemBulkService.Format importFormat = ItemBulkService.Format.of(format, file.getOriginalFilename());
+        try (InputStream input = file.getInputStream()) {
+            ItemImportReport report = itemBulkService.importItems(input, importFormat, userDetails.getUserId());
+            return ResponseEntity.ok(ApiResponse.success("物品导入完成", report));
+        }
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasAuthority('ITEM_AUDIT')")
+    @Operation(summary = "导出物品", description = "以 CSV 或 NDJSON 格式流式导出全部物品")
+    public ResponseEntity<StreamingResponseBody> exportItems(
+            @Parameter(description = "文件格式 csv/ndjson") @RequestParam(defaultValue = "csv") String format) {
+
+        ItemBulkService.Format exportFormat = ItemBulkService.Format.of(format, null);
+        StreamingResponseBody body = output -> itemBulkService.exportItems(exportFormat, output);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("items." + exportFormat.getExtension()).build().toString())
+                .body(body);
+    }
+
     @GetMapping("/my-items")
     @PreAuthorize("hasAuthority('ITEM_VIEW')")
     @Operation(summary = "获取我的物品", description = "获取当前用户的所有物品")
@@ -213,6 +350,32 @@ public class ItemController {
         return ResponseEntity.ok(ApiResponse.success(result));
     }
 
+    @GetMapping("/dashboard")
+    @PreAuthorize("hasAuthority('ITEM_VIEW')")
+    @Operation(summary = "我的物品看板", description = "当前用户物品的状态分布、进行中和即将开始的租赁、利用率、收入和评分，物品明细分页返回")
+    public ResponseEntity<ApiResponse<OwnerDashboardResponse>> getMyDashboard(
+            @Parameter(description = "利用率统计天数（截至昨天）") @RequestParam(defaultValue = "30") int days,
+            @Parameter(description = "页码") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size,
+            @AuthenticationPrincipal CustomUserDetails userDetails) {
+
+        OwnerDashboardResponse result = ownerDashboardService.getDashboard(userDetails.getUserId(), days,
+                PageRequest.of(page, size));
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
+    @GetMapping("/dashboard/owners")
+    @PreAuthorize("hasAuthority('ITEM_AUDIT')")
+    @Operation(summary = "物品所有者看板", description = "按所有者分页返回看板汇总指标")
+    public ResponseEntity<ApiResponse<Page<OwnerDashboardSummary>>> getOwnerDashboards(
+            @Parameter(description = "利用率统计天数（截至昨天）") @RequestParam(defaultValue = "30") int days,
+            @Parameter(description = "页码") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "每页大小") @RequestParam(defaultValue = "20") int size) {
+
+        Page<OwnerDashboardSummary> result = ownerDashboardService.getOwnerSummaries(days, PageRequest.of(page, size));
+        return ResponseEntity.ok(ApiResponse.success(result));
+    }
+
     @GetMapping("/owner/{ownerId}")
     @PreAuthorize("hasAuthority('ITEM_VIEW')")
     @Operation(summary = "获取指定用户的物品", description = "获取指定用户的所有物品")
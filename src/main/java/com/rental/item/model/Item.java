@@ -22,7 +22,9 @@ import java.time.LocalDateTime;
     @Index(name = "idx_category_id", columnList = "category_id"),
     @Index(name = "idx_status", columnList = "status"),
     @Index(name = "idx_price", columnList = "price_per_day"),
-    @Index(name = "idx_owner_id", columnList = "owner_id")
+    @Index(name = "idx_owner_id", columnList = "owner_id"),
+    @Index(name = "idx_average_rating", columnList = "average_rating"),
+    @Index(name = "idx_lat_lng", columnList = "latitude, longitude")
 })
 @Getter
 @Setter
@@ -67,6 +69,13 @@ public class Item {
     @Column(length = 255)
     private String location;
 
+    // 经纬度（WGS84），用于附近物品搜索
+    @Column(precision = 9, scale = 6)
+    private BigDecimal latitude;
+
+    @Column(precision = 9, scale = 6)
+    private BigDecimal longitude;
+
     // 将图片存储为逗号分隔的字符串，避免JSON字段兼容性问题
     @Column(columnDefinition = "TEXT")
     private String images;
@@ -110,6 +119,13 @@ public class Item {
     @Column(name = "approved_at")
     private LocalDateTime approvedAt;
 
+    // 评分汇总由 ItemRatingAggregator 用单条 UPDATE 维护，实体保存时不写回，避免覆盖并发更新
+    @Column(name = "average_rating", precision = 3, scale = 2, insertable = false, updatable = false)
+    private BigDecimal averageRating;
+
+    @Column(name = "rating_count", insertable = false, updatable = false)
+    private Integer ratingCount;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,45 @@
+package com.rental.item.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+
+/**
+ * 物品分类闭包关系，每对祖先-后代一行（含自身，depth 为 0），由 CategoryHierarchyService 维护
+ */
+@Entity
+@Table(name = "item_category_closure", indexes = {
+    @Index(name = "idx_descendant_depth", columnList = "descendant_id, depth"),
+    @Index(name = "idx_ancestor_depth", columnList = "ancestor_id, depth")
+})
+@IdClass(ItemCategoryClosure.ClosureId.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItemCategoryClosure {
+
+    @Id
+    @Column(name = "ancestor_id")
+    private Long ancestorId;
+
+    @Id
+    @Column(name = "descendant_id")
+    private Long descendantId;
+
+    @Column(nullable = false)
+    private Integer depth;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ClosureId implements Serializable {
+        private Long ancestorId;
+        private Long descendantId;
+    }
+}
@@ -30,12 +30,27 @@ public interface ItemCategoryRepository extends JpaRepository<ItemCategory, Long
     // 根据父分类查找所有子分类
     List<ItemCategory> findByParent(ItemCategory parent);
 
-    // 查询指定分类的所有子分类（递归查询）
-    @Query("SELECT c FROM ItemCategory c WHERE c.parent.id = :parentId OR c.id IN " +
-           "(SELECT c2.id FROM ItemCategory c2 WHERE c2.parent.id IN " +
-           "(SELECT c3.id FROM ItemCategory c3 WHERE c3.parent.id = :parentId))")
+    // 查询指定分类的所有后代分类（任意层级，按层级由近到远）
+    @Query("SELECT c FROM ItemCategory c, ItemCategoryClosure t " +
+           "WHERE t.descendantId = c.id AND t.ancestorId = :parentId AND t.depth > 0 " +
+           "ORDER BY t.depth, c.sortOrder")
     List<ItemCategory> findAllSubCategories(@Param("parentId") Long parentId);
 
+    // 查询指定分类的所有祖先分类（从根分类到直接父分类）
+    @Query("SELECT c FROM ItemCategory c, ItemCategoryClosure t " +
+           "WHERE t.ancestorId = c.id AND t.descendantId = :categoryId AND t.depth > 0 " +
+           "ORDER BY t.depth DESC")
+    List<ItemCategory> findAncestors(@Param("categoryId") Long categoryId);
+
+    // 查询分类及其所有后代分类的ID
+    @Query("SELECT t.descendantId FROM ItemCategoryClosure t WHERE t.ancestorId = :categoryId")
+    List<Long> findSubtreeIds(@Param("categoryId") Long categoryId);
+
+    // 判断 ancestorId 是否为 descendantId 的祖先（含自身）
+    @Query("SELECT CASE WHEN COUNT(t) > 0 THEN true ELSE false END FROM ItemCategoryClosure t " +
+           "WHERE t.ancestorId = :ancestorId AND t.descendantId = :descendantId")
+    boolean isAncestorOf(@Param("ancestorId") Long ancestorId, @Param("descendantId") Long descendantId);
+
     // 查询分类树（包含所有层级）
     @Query("SELECT c FROM ItemCategory c ORDER BY " +
            "CASE WHEN c.parent IS NULL THEN c.sortOrder " +
@@ -46,6 +61,29 @@ public interface ItemCategoryRepository extends JpaRepository<ItemCategory, Long
     @Query("SELECT COUNT(i) FROM Item i WHERE i.category.id = :categoryId")
     long countItemsByCategoryId(@Param("categoryId") Long categoryId);
 
+    // 统计分类及其后代分类下的物品数量
+    @Query("SELECT COUNT(i) FROM Item i, ItemCategoryClosure t " +
+           "WHERE i.category.id = t.descendantId AND t.ancestorId = :categoryId")
+    long countItemsInSubtree(@Param("categoryId") Long categoryId);
+
+    // 按分类统计直接归属的物品数量：[分类ID, 数量]
+    @Query("SELECT i.category.id, COUNT(i) FROM Item i WHERE i.category IS NOT NULL GROUP BY i.category.id")
+    List<Object[]> countItemsPerCategory();
+
+    // 按分类统计含后代分类的物品数量：[分类ID, 数量]
+    @Query("SELECT t.ancestorId, COUNT(i) FROM ItemCategoryClosure t, Item i " +
+           "WHERE i.category.id = t.descendantId GROUP BY t.ancestorId")
+    List<Object[]> countItemsPerSubtree();
+
+    // 按分类统计直接子分类数量：[分类ID, 数量]
+    @Query("SELECT t.ancestorId, COUNT(t) FROM ItemCategoryClosure t WHERE t.depth = 1 GROUP BY t.ancestorId")
+    List<Object[]> countChildrenPerCategory();
+
+    // 直接子分类数与直接归属物品数之和，为 0 时分类可删除
+    @Query(value = "SELECT (SELECT COUNT(*) FROM item_category_closure WHERE ancestor_id = :categoryId AND depth = 1) + " +
+                   "(SELECT COUNT(*) FROM items WHERE category_id = :categoryId)", nativeQuery = true)
+    long countChildrenAndItems(@Param("categoryId") Long categoryId);
+
     // 查询有物品的分类
     @Query("SELECT DISTINCT c FROM ItemCategory c INNER JOIN c.items i")
     List<ItemCategory> findCategoriesWithItems();
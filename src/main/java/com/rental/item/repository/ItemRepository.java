@@ -1,16 +1,22 @@
 package com.rental.item.repository;
 
 import com.rental.item.model.Item;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ItemRepository extends JpaRepository<Item, Long> {
@@ -21,6 +27,11 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
     // 根据分类查询物品
     List<Item> findByCategoryId(Long categoryId);
 
+    // 根据分类查询物品，包含所有后代分类
+    @Query("SELECT i FROM Item i WHERE i.category.id IN " +
+           "(SELECT t.descendantId FROM ItemCategoryClosure t WHERE t.ancestorId = :categoryId)")
+    List<Item> findByCategoryIncludingDescendants(@Param("categoryId") Long categoryId);
+
     // 根据所有者查询物品
     List<Item> findByOwnerId(Long ownerId);
 
@@ -35,6 +46,40 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
     @Query("SELECT i FROM Item i WHERE i.status = 'AVAILABLE' AND i.approvalStatus = 'APPROVED'")
     Page<Item> findAvailableItems(Pageable pageable);
 
+    // 经纬度矩形范围内的可租赁物品，附近搜索在网格索引未就绪时使用
+    @Query("SELECT i FROM Item i WHERE i.status = 'AVAILABLE' AND i.approvalStatus = 'APPROVED' AND " +
+           "i.latitude BETWEEN :minLatitude AND :maxLatitude AND " +
+           "i.longitude BETWEEN :minLongitude AND :maxLongitude AND " +
+           "(:categoryId IS NULL OR i.category.id IN " +
+           "(SELECT t.descendantId FROM ItemCategoryClosure t WHERE t.ancestorId = :categoryId)) AND " +
+           "(:minPrice IS NULL OR i.pricePerDay >= :minPrice) AND " +
+           "(:maxPrice IS NULL OR i.pricePerDay <= :maxPrice)")
+    List<Item> findAvailableWithinBounds(
+        @Param("minLatitude") BigDecimal minLatitude,
+        @Param("maxLatitude") BigDecimal maxLatitude,
+        @Param("minLongitude") BigDecimal minLongitude,
+        @Param("maxLongitude") BigDecimal maxLongitude,
+        @Param("categoryId") Long categoryId,
+        @Param("minPrice") BigDecimal minPrice,
+        @Param("maxPrice") BigDecimal maxPrice
+    );
+
+    // 日期范围内没有有效订单占用的可租赁物品，可租日历未覆盖该范围时使用
+    @Query("SELECT i FROM Item i WHERE i.status = 'AVAILABLE' AND i.approvalStatus = 'APPROVED' AND NOT EXISTS (" +
+           "SELECT oi.id FROM OrderItem oi JOIN oi.order o WHERE oi.item = i " +
+           "AND o.status IN ('CONFIRMED', 'PAID', 'IN_USE') " +
+           "AND o.startDate <= :endDate AND o.endDate >= :startDate)")
+    Page<Item> findAvailableBetween(@Param("startDate") LocalDate startDate,
+                                    @Param("endDate") LocalDate endDate,
+                                    Pageable pageable);
+
+    // 同分类（含后代分类）的其他可租赁物品，评价数多的优先，推荐索引未覆盖该物品时使用
+    @Query("SELECT i FROM Item i WHERE i.status = 'AVAILABLE' AND i.approvalStatus = 'APPROVED' AND " +
+           "i.category.id IN :categoryIds AND i.id <> :excludeId ORDER BY i.ratingCount DESC, i.id DESC")
+    List<Item> findAvailableInCategory(@Param("categoryIds") Collection<Long> categoryIds,
+                                       @Param("excludeId") Long excludeId,
+                                       Pageable pageable);
+
     // 根据名称模糊查询
     Page<Item> findByNameContainingIgnoreCase(String name, Pageable pageable);
 
@@ -47,13 +92,15 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
     // 复合查询
     @Query("SELECT i FROM Item i WHERE " +
            "(:name IS NULL OR LOWER(i.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
-           "(:categoryId IS NULL OR i.category.id = :categoryId) AND " +
+           "(:categoryId IS NULL OR i.category.id IN " +
+           "(SELECT t.descendantId FROM ItemCategoryClosure t WHERE t.ancestorId = :categoryId)) AND " +
            "(:status IS NULL OR i.status = :status) AND " +
            "(:approvalStatus IS NULL OR i.approvalStatus = :approvalStatus) AND " +
            "(:ownerId IS NULL OR i.owner.id = :ownerId) AND " +
            "(:minPrice IS NULL OR i.pricePerDay >= :minPrice) AND " +
            "(:maxPrice IS NULL OR i.pricePerDay <= :maxPrice) AND " +
-           "(:location IS NULL OR LOWER(i.location) LIKE LOWER(CONCAT('%', :location, '%')))")
+           "(:location IS NULL OR LOWER(i.location) LIKE LOWER(CONCAT('%', :location, '%'))) AND " +
+           "(:minRating IS NULL OR i.averageRating >= :minRating)")
     Page<Item> findBySearchCriteria(
         @Param("name") String name,
         @Param("categoryId") Long categoryId,
@@ -63,6 +110,7 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
         @Param("minPrice") BigDecimal minPrice,
         @Param("maxPrice") BigDecimal maxPrice,
         @Param("location") String location,
+        @Param("minRating") BigDecimal minRating,
         Pageable pageable
     );
 
@@ -75,4 +123,12 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
     // 查询待审核的物品
     @Query("SELECT i FROM Item i WHERE i.approvalStatus = 'PENDING' ORDER BY i.createdAt ASC")
     Page<Item> findPendingApprovalItems(Pageable pageable);
-}
\ No newline at end of file
+
+    // 按ID顺序流式读取全部物品，用于导出；MySQL 驱动在 fetchSize 为 Integer.MIN_VALUE 时逐行读取结果集
+    @Query("SELECT i FROM Item i LEFT JOIN FETCH i.category ORDER BY i.id")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Item> streamAllForExport();
+}
@@ -0,0 +1,400 @@
+package com.rental.item.service;
+
+import com.rental.item.DTO.ItemDto;
+import com.rental.item.config.ItemCatalogConfig;
+import com.rental.item.model.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongPredicate;
+
+/**
+ * 可租赁物品目录快照
+ *
+ * 把上架且审核通过的物品（含分类名、所有者和审核人用户名）读成不可变的摘要数组，
+ * 按创建时间、日租金和ID各保存一份排好序的副本。列表接口只在当前快照上按下标切片，
+ * 不查询数据库。物品变更在事务提交后以写时复制方式生成新快照并递增版本号，读者始终
+ * 看到完整一致的某个版本；版本号作为 ETag 供客户端缓存。分类改名等不经物品变更的
+ * 修改由定时全量重建兜底。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AvailableItemCatalog {
+
+    private static final String LOAD_SQL =
+        "SELECT i.id, i.name, i.description, i.price_per_day, i.deposit, i.status, i.location, i.latitude, i.longitude, i.images, " +
+        "i.brand, i.model, i.color, i.size, i.weight, i.material, i.item_condition, i.features, " +
+        "i.approval_status, i.approval_comment, i.approved_at, i.created_at, i.updated_at, " +
+        "i.average_rating, i.rating_count, " +
+        "i.category_id, c.name AS category_name, i.owner_id, o.username AS owner_username, " +
+        "i.approved_by, a.username AS approved_by_username " +
+        "FROM items i " +
+        "LEFT JOIN item_categories c ON c.id = i.category_id " +
+        "LEFT JOIN users o ON o.id = i.owner_id " +
+        "LEFT JOIN users a ON a.id = i.approved_by " +
+        "WHERE i.status = 'AVAILABLE' AND i.approval_status = 'APPROVED' AND i.id > ? " +
+        "ORDER BY i.id LIMIT ?";
+
+    private static final Comparator<ItemSummary> BY_ID = Comparator.comparingLong(ItemSummary::id);
+    private static final Comparator<ItemSummary> BY_CREATED_AT = Comparator
+        .comparing(ItemSummary::createdAt, Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(BY_ID);
+    private static final Comparator<ItemSummary> BY_PRICE = Comparator
+        .comparing(ItemSummary::pricePerDay, Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(BY_ID);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ItemCatalogConfig catalogConfig;
+
+    // 区分进程重启前后的版本号
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    // 变更值为空表示下架
+    private final IncrementalIndexSupport<ItemSummary> incremental = new IncrementalIndexSupport<>();
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (catalogConfig.isEnabled()) {
+            Thread thread = new Thread(this::rebuild, "item-catalog-rebuild");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * 定时全量重建，同步分类名、用户名等不经物品变更的修改
+     */
+    @Scheduled(fixedDelayString = "${item.catalog.refresh-interval-ms:600000}",
+               initialDelayString = "${item.catalog.refresh-interval-ms:600000}")
+    public void scheduledRebuild() {
+        if (catalogConfig.isEnabled()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 按排序和分页切片
+     *
+     * @return 快照未就绪或排序字段不受支持时返回 null，调用方回退到数据库查询
+     */
+    public CatalogPage page(Pageable pageable) {
+        return page(pageable, null);
+    }
+
+    /**
+     * 按排序和分页切片，只保留满足条件的物品；条件在快照上逐个判断，总数为满足条件的物品数
+     *
+     * @param filter 按物品ID判断是否保留，为 null 时不过滤
+     * @return 快照未就绪或排序字段不受支持时返回 null，调用方回退到数据库查询
+     */
+    public CatalogPage page(Pageable pageable, LongPredicate filter) {
+        Snapshot current = snapshot;
+        if (current == null || !catalogConfig.isEnabled()) {
+            return null;
+        }
+        ItemSummary[] sorted = current.byId;
+        boolean descending = false;
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(null);
+        if (order != null) {
+            switch (order.getProperty()) {
+                case "createdAt" -> sorted = current.byCreatedAt;
+                case "pricePerDay" -> sorted = current.byPrice;
+                case "id" -> sorted = current.byId;
+                default -> {
+                    return null;
+                }
+            }
+            descending = order.isDescending();
+        }
+
+        int length = sorted.length;
+        if (filter == null) {
+            long offset = Math.min(pageable.getOffset(), length);
+            int end = (int) Math.min(length, offset + pageable.getPageSize());
+            List<ItemDto> content = new ArrayList<>(end - (int) offset);
+            for (int i = (int) offset; i < end; i++) {
+                content.add((descending ? sorted[length - 1 - i] : sorted[i]).toDto());
+            }
+            return new CatalogPage(epoch + "-" + current.version, new PageImpl<>(content, pageable, length));
+        }
+
+        List<ItemDto> content = new ArrayList<>(pageable.getPageSize());
+        long matched = 0;
+        for (int i = 0; i < length; i++) {
+            ItemSummary item = descending ? sorted[length - 1 - i] : sorted[i];
+            if (!filter.test(item.id())) {
+                continue;
+            }
+            if (matched >= pageable.getOffset() && content.size() < pageable.getPageSize()) {
+                content.add(item.toDto());
+            }
+            matched++;
+        }
+        return new CatalogPage(epoch + "-" + current.version, new PageImpl<>(content, pageable, matched));
+    }
+
+    /**
+     * 按给定顺序取快照中的物品，不在快照中（已不可租）的物品跳过
+     *
+     * @return 快照未就绪时返回 null，调用方回退到数据库查询
+     */
+    public List<ItemDto> lookup(List<Long> itemIds) {
+        Snapshot current = snapshot;
+        if (current == null || !catalogConfig.isEnabled()) {
+            return null;
+        }
+        List<ItemDto> items = new ArrayList<>(itemIds.size());
+        for (Long itemId : itemIds) {
+            int index = Arrays.binarySearch(current.byId, ItemSummary.key(itemId), BY_ID);
+            if (index >= 0) {
+                items.add(current.byId[index].toDto());
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 事务提交后按物品最新状态加入或移出快照，需在事务内调用以读取分类和用户信息
+     */
+    public void updateAfterCommit(Item item) {
+        if (item.getId() == null || (!catalogConfig.isEnabled())) {
+            return;
+        }
+        Optional<ItemSummary> change = item.isAvailable() ? Optional.of(ItemSummary.from(item)) : Optional.empty();
+        Long itemId = item.getId();
+        IncrementalIndexSupport.afterCommit(() -> apply(itemId, change));
+    }
+
+    public void removeAfterCommit(Long itemId) {
+        if (catalogConfig.isEnabled()) {
+            IncrementalIndexSupport.afterCommit(() -> apply(itemId, Optional.empty()));
+        }
+    }
+
+    public void rebuild() {
+        incremental.rebuild(() -> {
+            long begin = System.currentTimeMillis();
+            try {
+                List<ItemSummary> items = new ArrayList<>();
+                int batchSize = Math.max(1, catalogConfig.getLoadBatchSize());
+                long lastId = 0;
+                while (true) {
+                    List<ItemSummary> batch = jdbcTemplate.query(LOAD_SQL, (rs, rowNum) -> ItemSummary.from(rs), lastId, batchSize);
+                    items.addAll(batch);
+                    if (batch.size() < batchSize) {
+                        break;
+                    }
+                    lastId = batch.get(batch.size() - 1).id();
+                }
+                synchronized (writeLock) {
+                    Map<Long, ItemSummary> byId = new LinkedHashMap<>();
+                    items.forEach(item -> byId.put(item.id(), item));
+                    incremental.replay((itemId, change) -> {
+                        byId.remove(itemId);
+                        change.ifPresent(item -> byId.put(itemId, item));
+                    });
+                    Snapshot previous = snapshot;
+                    Snapshot rebuilt = Snapshot.of(byId.values().toArray(new ItemSummary[0]),
+                        previous != null ? previous.version + 1 : 1);
+                    // 内容没有变化时保留原版本，客户端缓存继续有效
+                    if (previous == null || !Arrays.equals(previous.byId, rebuilt.byId)) {
+                        snapshot = rebuilt;
+                    }
+                }
+                log.info("可租赁物品目录快照重建完成，物品：{}，耗时：{}ms", items.size(), System.currentTimeMillis() - begin);
+            } catch (RuntimeException e) {
+                log.error("可租赁物品目录快照重建失败", e);
+            }
+        });
+    }
+
+    private void apply(Long itemId, Optional<ItemSummary> change) {
+        incremental.record(itemId, change);
+        synchronized (writeLock) {
+            Snapshot current = snapshot;
+            if (current != null) {
+                Snapshot patched = current.patch(itemId, change.orElse(null));
+                if (patched != current) {
+                    snapshot = patched;
+                }
+            }
+        }
+    }
+
+    /**
+     * 快照切片结果，version 用作 ETag
+     */
+    public record CatalogPage(String version, Page<ItemDto> items) {
+    }
+
+    /**
+     * 不可变快照：同一组物品按三种顺序排列的数组
+     */
+    private record Snapshot(long version, ItemSummary[] byId, ItemSummary[] byCreatedAt, ItemSummary[] byPrice) {
+
+        static Snapshot of(ItemSummary[] items, long version) {
+            ItemSummary[] byId = items.clone();
+            Arrays.sort(byId, BY_ID);
+            ItemSummary[] byCreatedAt = items.clone();
+            Arrays.sort(byCreatedAt, BY_CREATED_AT);
+            ItemSummary[] byPrice = items.clone();
+            Arrays.sort(byPrice, BY_PRICE);
+            return new Snapshot(version, byId, byCreatedAt, byPrice);
+        }
+
+        /**
+         * 复制出移除旧记录、插入新记录后的快照；没有变化时返回自身
+         */
+        Snapshot patch(long itemId, ItemSummary replacement) {
+            int index = Arrays.binarySearch(byId, ItemSummary.key(itemId), BY_ID);
+            if (index < 0 && replacement == null) {
+                return this;
+            }
+            ItemSummary existing = index >= 0 ? byId[index] : null;
+            return new Snapshot(version + 1,
+                replace(byId, existing, replacement, BY_ID),
+                replace(byCreatedAt, existing, replacement, BY_CREATED_AT),
+                replace(byPrice, existing, replacement, BY_PRICE));
+        }
+
+        private static ItemSummary[] replace(ItemSummary[] sorted, ItemSummary existing, ItemSummary replacement,
+                                             Comparator<ItemSummary> comparator) {
+            int removeAt = existing != null ? Arrays.binarySearch(sorted, existing, comparator) : -1;
+            int length = sorted.length - (removeAt >= 0 ? 1 : 0) + (replacement != null ? 1 : 0);
+            ItemSummary[] result = new ItemSummary[length];
+            int target = 0;
+            boolean inserted = replacement == null;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == removeAt) {
+                    continue;
+                }
+                if (!inserted && comparator.compare(replacement, sorted[i]) < 0) {
+                    result[target++] = replacement;
+                    inserted = true;
+                }
+                result[target++] = sorted[i];
+            }
+            if (!inserted) {
+                result[target] = replacement;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 列表展示所需的物品摘要
+     */
+    private record ItemSummary(long id, String name, String description, BigDecimal pricePerDay, BigDecimal deposit,
+                               Item.ItemStatus status, String location, BigDecimal latitude, BigDecimal longitude,
+                               String images,
+                               String brand, String model, String color, String size, String weight,
+                               String material, String condition, String features,
+                               Item.ApprovalStatus approvalStatus, String approvalComment, LocalDateTime approvedAt,
+                               LocalDateTime createdAt, LocalDateTime updatedAt,
+                               BigDecimal averageRating, Integer ratingCount,
+                               Long categoryId, String categoryName, Long ownerId, String ownerUsername,
+                               Long approvedById, String approvedByUsername) {
+
+        /**
+         * 只用于按ID二分查找的占位记录
+         */
+        static ItemSummary key(long id) {
+            return new ItemSummary(id, null, null, null, null, null, null, null, null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, null);
+        }
+
+        static ItemSummary from(Item item) {
+            Item.ItemSpecification spec = item.getSpecifications();
+            return new ItemSummary(item.getId(), item.getName(), item.getDescription(), item.getPricePerDay(),
+                item.getDeposit(), item.getStatus(), item.getLocation(), item.getLatitude(), item.getLongitude(),
+                item.getImages(),
+                spec.getBrand(), spec.getModel(), spec.getColor(), spec.getSize(), spec.getWeight(),
+                spec.getMaterial(), spec.getCondition(), spec.getFeatures(),
+                item.getApprovalStatus(), item.getApprovalComment(), item.getApprovedAt(),
+                item.getCreatedAt(), item.getUpdatedAt(),
+                item.getAverageRating(), item.getRatingCount(),
+                item.getCategory() != null ? item.getCategory().getId() : null,
+                item.getCategory() != null ? item.getCategory().getName() : null,
+                item.getOwner() != null ? item.getOwner().getId() : null,
+                item.getOwner() != null ? item.getOwner().getUsername() : null,
+                item.getApprovedBy() != null ? item.getApprovedBy().getId() : null,
+                item.getApprovedBy() != null ? item.getApprovedBy().getUsername() : null);
+        }
+
+        static ItemSummary from(ResultSet rs) throws SQLException {
+            return new ItemSummary(rs.getLong("id"), rs.getString("name"), rs.getString("description"),
+                rs.getBigDecimal("price_per_day"), rs.getBigDecimal("deposit"),
+                Item.ItemStatus.valueOf(rs.getString("status")), rs.getString("location"),
+                rs.getBigDecimal("latitude"), rs.getBigDecimal("longitude"), rs.getString("images"),
+                rs.getString("brand"), rs.getString("model"), rs.getString("color"), rs.getString("size"),
+                rs.getString("weight"), rs.getString("material"), rs.getString("item_condition"),
+                rs.getString("features"),
+                Item.ApprovalStatus.valueOf(rs.getString("approval_status")), rs.getString("approval_comment"),
+                toLocalDateTime(rs.getTimestamp("approved_at")),
+                toLocalDateTime(rs.getTimestamp("created_at")), toLocalDateTime(rs.getTimestamp("updated_at")),
+                rs.getBigDecimal("average_rating"), rs.getObject("rating_count", Integer.class),
+                rs.getObject("category_id", Long.class), rs.getString("category_name"),
+                rs.getObject("owner_id", Long.class), rs.getString("owner_username"),
+                rs.getObject("approved_by", Long.class), rs.getString("approved_by_username"));
+        }
+
+        private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+            return timestamp != null ? timestamp.toLocalDateTime() : null;
+        }
+
+        /**
+         * 每次返回新的 DTO，调用方修改不影响快照
+         */
+        ItemDto toDto() {
+            ItemDto dto = new ItemDto();
+            dto.setId(id);
+            dto.setName(name);
+            dto.setDescription(description);
+            dto.setPricePerDay(pricePerDay);
+            dto.setDeposit(deposit);
+            dto.setStatus(status);
+            dto.setLocation(location);
+            dto.setLatitude(latitude);
+            dto.setLongitude(longitude);
+            dto.setImages(images);
+            dto.setSpecifications(new Item.ItemSpecification(brand, model, color, size, weight, material, condition, features));
+            dto.setApprovalStatus(approvalStatus);
+            dto.setApprovalComment(approvalComment);
+            dto.setApprovedAt(approvedAt);
+            dto.setCreatedAt(createdAt);
+            dto.setUpdatedAt(updatedAt);
+            dto.setAverageRating(averageRating);
+            dto.setRatingCount(ratingCount);
+            dto.setAvailable(true);
+            dto.setCanBeRented(true);
+            dto.setCategoryId(categoryId);
+            dto.setCategoryName(categoryName);
+            dto.setOwnerId(ownerId);
+            dto.setOwnerUsername(ownerUsername);
+            dto.setApprovedById(approvedById);
+            dto.setApprovedByUsername(approvedByUsername);
+            return dto;
+        }
+    }
+}
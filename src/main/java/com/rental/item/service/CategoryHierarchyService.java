@@ -0,0 +1,144 @@
+package com.rental.item.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 物品分类闭包表维护
+ *
+ * item_category_closure 为每个分类保存它与所有祖先（含自身）的关系，后代、祖先、子树统计
+ * 和环检测都变成一次按索引的查询。新建分类时复制父分类的祖先行；移动分类时先删除子树与
+ * 原祖先之间的关系，再把新父分类的祖先与子树做笛卡尔积插入；删除分类由外键级联清理。
+ * 启动时若闭包表与分类表不一致（例如初始化数据只写了 parent_id），按 parent_id 全量重建。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CategoryHierarchyService {
+
+    private static final String INSERT_SELF_SQL =
+        "INSERT INTO item_category_closure (ancestor_id, descendant_id, depth) VALUES (?, ?, 0)";
+
+    private static final String INSERT_ANCESTORS_SQL =
+        "INSERT INTO item_category_closure (ancestor_id, descendant_id, depth) " +
+        "SELECT ancestor_id, ?, depth + 1 FROM item_category_closure WHERE descendant_id = ?";
+
+    // 派生表包一层，绕开 MySQL 不允许在 DELETE 子查询中直接读取目标表的限制
+    private static final String DETACH_SUBTREE_SQL =
+        "DELETE FROM item_category_closure " +
+        "WHERE descendant_id IN (SELECT descendant_id FROM " +
+        "(SELECT descendant_id FROM item_category_closure WHERE ancestor_id = ?) subtree) " +
+        "AND ancestor_id IN (SELECT ancestor_id FROM " +
+        "(SELECT ancestor_id FROM item_category_closure WHERE descendant_id = ? AND depth > 0) ancestors)";
+
+    private static final String ATTACH_SUBTREE_SQL =
+        "INSERT INTO item_category_closure (ancestor_id, descendant_id, depth) " +
+        "SELECT p.ancestor_id, s.descendant_id, p.depth + s.depth + 1 " +
+        "FROM item_category_closure p CROSS JOIN item_category_closure s " +
+        "WHERE p.descendant_id = ? AND s.ancestor_id = ?";
+
+    private static final String CONSISTENCY_SQL =
+        "SELECT (SELECT COUNT(*) FROM item_categories) - " +
+        "(SELECT COUNT(*) FROM item_category_closure WHERE depth = 0)";
+
+    private static final String SUBTREE_IDS_SQL =
+        "SELECT descendant_id FROM item_category_closure WHERE ancestor_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfInconsistent() {
+        try {
+            Long missing = jdbcTemplate.queryForObject(CONSISTENCY_SQL, Long.class);
+            if (missing != null && missing != 0) {
+                rebuild();
+            }
+        } catch (RuntimeException e) {
+            log.error("检查物品分类闭包表失败", e);
+        }
+    }
+
+    /**
+     * 分类及其所有后代分类的ID（含自身）
+     */
+    public List<Long> subtreeIds(Long categoryId) {
+        List<Long> ids = jdbcTemplate.queryForList(SUBTREE_IDS_SQL, Long.class, categoryId);
+        // 闭包表尚未重建时至少匹配分类自身
+        if (!ids.contains(categoryId)) {
+            ids.add(categoryId);
+        }
+        return ids;
+    }
+
+    /**
+     * 新建分类后写入闭包关系，需在创建分类的事务内调用
+     *
+     * @param parentId 父分类ID，根分类为 null
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void attach(Long categoryId, Long parentId) {
+        jdbcTemplate.update(INSERT_SELF_SQL, categoryId, categoryId);
+        if (parentId != null) {
+            jdbcTemplate.update(INSERT_ANCESTORS_SQL, categoryId, parentId);
+        }
+    }
+
+    /**
+     * 把分类连同子树移动到新父分类下，需在修改分类的事务内调用；调用方负责先做环检测
+     *
+     * @param newParentId 新父分类ID，移为根分类时为 null
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void move(Long categoryId, Long newParentId) {
+        jdbcTemplate.update(DETACH_SUBTREE_SQL, categoryId, categoryId);
+        if (newParentId != null) {
+            jdbcTemplate.update(ATTACH_SUBTREE_SQL, newParentId, categoryId);
+        }
+    }
+
+    /**
+     * 按 parent_id 全量重建闭包表
+     */
+    public void rebuild() {
+        Map<Long, Long> parents = new HashMap<>();
+        jdbcTemplate.query("SELECT id, parent_id FROM item_categories", (RowCallbackHandler) rs -> {
+            long parentId = rs.getLong("parent_id");
+            parents.put(rs.getLong("id"), rs.wasNull() ? null : parentId);
+        });
+
+        List<Object[]> rows = new ArrayList<>();
+        parents.keySet().forEach(categoryId -> {
+            Set<Long> visited = new HashSet<>();
+            Long ancestor = categoryId;
+            int depth = 0;
+            // 历史数据中若存在环，遇到重复节点即停止
+            while (ancestor != null && visited.add(ancestor)) {
+                rows.add(new Object[] {ancestor, categoryId, depth++});
+                ancestor = parents.get(ancestor);
+            }
+        });
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM item_category_closure");
+            jdbcTemplate.batchUpdate("INSERT INTO item_category_closure (ancestor_id, descendant_id, depth) VALUES (?, ?, ?)", rows);
+        });
+        log.info("物品分类闭包表已重建，分类：{}，关系：{}", parents.size(), rows.size());
+    }
+}
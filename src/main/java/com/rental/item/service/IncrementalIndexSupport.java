@@ -0,0 +1,90 @@
+package com.rental.item.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * 内存物品索引的增量维护
+ *
+ * 索引启动时从数据库全量重建，之后由物品变更在事务提交后增量更新；未就绪时查询返回 null，
+ * 调用方回退到数据库查询。重建读取数据库期间提交的变更除作用于当前索引外还记入变更日志，
+ * 新索引发布前按发生顺序重放，避免被重建读到的旧数据覆盖。
+ *
+ * @param <V> 物品快照类型，变更值为空表示移出索引
+ */
+final class IncrementalIndexSupport<V> {
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // 重建期间发生的变更，同一物品只保留最后一次
+    private final Map<Long, Optional<V>> changedDuringRebuild = new LinkedHashMap<>();
+
+    boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    /**
+     * 执行一次全量重建，已有重建在进行时直接返回
+     *
+     * @param task 读取数据库构建新索引，并在发布新索引的写锁内调用 {@link #replay}
+     * @return 本次是否执行了重建
+     */
+    boolean rebuild(Runnable task) {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            task.run();
+        } finally {
+            // 重建失败时丢弃变更日志，当前索引已直接应用过这些变更
+            synchronized (changedDuringRebuild) {
+                changedDuringRebuild.clear();
+                rebuilding.set(false);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把重建期间的变更重放到新索引并结束记录；须与变更的应用持有同一把写锁，且在同一临界区内发布新索引
+     */
+    void replay(BiConsumer<Long, Optional<V>> target) {
+        synchronized (changedDuringRebuild) {
+            changedDuringRebuild.forEach(target);
+            changedDuringRebuild.clear();
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * 重建进行中时记录变更，调用方随后再把变更应用到当前索引
+     */
+    void record(Long itemId, Optional<V> change) {
+        synchronized (changedDuringRebuild) {
+            if (rebuilding.get()) {
+                changedDuringRebuild.put(itemId, change);
+            }
+        }
+    }
+
+    /**
+     * 事务提交后执行，回滚的修改不会进入索引；没有事务时立即执行
+     */
+    static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
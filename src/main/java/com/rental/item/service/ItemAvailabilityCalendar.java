@@ -0,0 +1,335 @@
+package com.rental.item.service;
+
+import com.rental.item.config.ItemCalendarConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 物品可租日历
+ *
+ * 为每个有有效订单（已确认、已支付、使用中）的物品保存一个按天的位图（long[]），
+ * 第 i 位表示日历起点后第 i 天已被占用，覆盖从今天起 horizonDays 天；没有订单的物品不占内存。
+ * 订单状态变化时在事务提交后按订单涉及的物品重新读取其有效订单并整体替换位图，读者拿到的
+ * 数组不会再被修改。使用中但已逾期的订单视为占用到今天。每天凌晨全量重建，日历起点随之前移。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ItemAvailabilityCalendar {
+
+    // 参数依次为：日历起点、日历终点
+    private static final String ACTIVE_BOOKINGS_SQL =
+        "SELECT oi.item_id, o.status, o.start_date, o.end_date FROM order_items oi " +
+        "JOIN orders o ON o.id = oi.order_id " +
+        "WHERE o.status IN ('CONFIRMED', 'PAID', 'IN_USE') " +
+        "AND (o.end_date >= ? OR o.status = 'IN_USE') AND o.start_date <= ?";
+
+    private static final String ITEM_BOOKINGS_SQL = ACTIVE_BOOKINGS_SQL + " AND oi.item_id IN (%s)";
+
+    // 日历比 horizonDays 多覆盖几天，每日重建延迟时仍能回答完整范围
+    private static final int SLACK_DAYS = 7;
+
+    // 刷新锁分段数，需为 2 的幂
+    private static final int REFRESH_LOCK_STRIPES = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ItemCalendarConfig calendarConfig;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    // 重建期间刷新过的物品，新日历生效后再刷新一次
+    private final Set<Long> refreshedDuringRebuild = new LinkedHashSet<>();
+    private volatile State state;
+    // 同一物品的刷新串行执行（读取与写回都在锁内），先提交的刷新不会覆盖后提交的结果
+    private final ReentrantLock[] refreshLocks = newRefreshLocks();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (calendarConfig.isEnabled()) {
+            Thread thread = new Thread(this::rebuild, "item-calendar-rebuild");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * 每天凌晨重建，把日历起点移到当天
+     */
+    @Scheduled(cron = "${item.calendar.rebuild-cron:0 5 0 * * ?}")
+    public void scheduledRebuild() {
+        if (calendarConfig.isEnabled()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 日历是否已加载且覆盖给定日期范围，不覆盖时调用方回退到数据库查询
+     */
+    public boolean covers(LocalDate from, LocalDate to) {
+        return covers(state, from, to);
+    }
+
+    /**
+     * 事务提交后重新计算这些物品的日历，订单状态变化时调用
+     */
+    public void refreshAfterCommit(Collection<Long> itemIds) {
+        if (!calendarConfig.isEnabled() || itemIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(new LinkedHashSet<>(itemIds));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refresh(ids);
+                }
+            });
+        } else {
+            refresh(ids);
+        }
+    }
+
+    /**
+     * 物品在日期范围内被占用的日期段，按开始日期升序；日历不覆盖该范围时查询数据库
+     */
+    public List<DateRange> bookedRanges(Long itemId, LocalDate from, LocalDate to) {
+        long[] bitmap;
+        long baseDay;
+        State current = state;
+        if (covers(current, from, to)) {
+            bitmap = current.booked().get(itemId);
+            baseDay = current.baseDay();
+        } else {
+            baseDay = from.toEpochDay();
+            bitmap = load(List.of(itemId), baseDay, (int) (to.toEpochDay() - baseDay + 1)).get(itemId);
+        }
+        if (bitmap == null) {
+            return List.of();
+        }
+
+        List<DateRange> ranges = new ArrayList<>();
+        int end = (int) (to.toEpochDay() - baseDay);
+        int day = (int) (from.toEpochDay() - baseDay);
+        while (day <= end) {
+            if (!isSet(bitmap, day)) {
+                day++;
+                continue;
+            }
+            int rangeStart = day;
+            while (day + 1 <= end && isSet(bitmap, day + 1)) {
+                day++;
+            }
+            ranges.add(new DateRange(LocalDate.ofEpochDay(baseDay + rangeStart), LocalDate.ofEpochDay(baseDay + day)));
+            day++;
+        }
+        return ranges;
+    }
+
+    /**
+     * 物品在日期范围内是否整段空闲，调用方应先用 covers 确认范围已覆盖；
+     * 期间恰好发生每日重建导致不再覆盖时按数据库判断
+     */
+    public boolean isFree(long itemId, LocalDate from, LocalDate to) {
+        State current = state;
+        if (!covers(current, from, to)) {
+            return bookedRanges(itemId, from, to).isEmpty();
+        }
+        long[] bitmap = current.booked().get(itemId);
+        return bitmap == null || !anySet(bitmap,
+            (int) (from.toEpochDay() - current.baseDay()), (int) (to.toEpochDay() - current.baseDay()));
+    }
+
+    /**
+     * 从数据库全量重建日历
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        Set<Long> refreshAgain = Set.of();
+        try {
+            long baseDay = LocalDate.now().toEpochDay();
+            int days = Math.max(1, calendarConfig.getHorizonDays()) + SLACK_DAYS;
+            State rebuilt = new State(baseDay, days, new ConcurrentHashMap<>(load(null, baseDay, days)));
+            synchronized (refreshedDuringRebuild) {
+                state = rebuilt;
+                refreshAgain = new LinkedHashSet<>(refreshedDuringRebuild);
+                refreshedDuringRebuild.clear();
+                rebuilding.set(false);
+            }
+            log.info("物品可租日历重建完成，有占用的物品：{}，覆盖：{} 至 {}，耗时：{}ms", rebuilt.booked().size(),
+                LocalDate.ofEpochDay(baseDay), LocalDate.ofEpochDay(baseDay + days - 1), System.currentTimeMillis() - begin);
+        } catch (RuntimeException e) {
+            log.error("物品可租日历重建失败，日历查询将回退到数据库", e);
+        } finally {
+            synchronized (refreshedDuringRebuild) {
+                refreshedDuringRebuild.clear();
+                rebuilding.set(false);
+            }
+        }
+        if (!refreshAgain.isEmpty()) {
+            refresh(refreshAgain);
+        }
+    }
+
+    private void refresh(Collection<Long> itemIds) {
+        synchronized (refreshedDuringRebuild) {
+            if (rebuilding.get()) {
+                refreshedDuringRebuild.addAll(itemIds);
+            }
+        }
+        State current = state;
+        if (current == null) {
+            return;
+        }
+        // 按分段序号升序加锁，多个物品的刷新之间不会死锁
+        Set<Integer> stripes = new TreeSet<>();
+        itemIds.forEach(itemId -> stripes.add(Long.hashCode(itemId) & (REFRESH_LOCK_STRIPES - 1)));
+        List<ReentrantLock> locked = new ArrayList<>(stripes.size());
+        try {
+            for (int stripe : stripes) {
+                refreshLocks[stripe].lock();
+                locked.add(refreshLocks[stripe]);
+            }
+            Map<Long, long[]> loaded = load(itemIds, current.baseDay(), current.days());
+            for (Long itemId : itemIds) {
+                long[] bitmap = loaded.get(itemId);
+                if (bitmap != null) {
+                    current.booked().put(itemId, bitmap);
+                } else {
+                    current.booked().remove(itemId);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("刷新物品可租日历失败，物品：{}", itemIds, e);
+        } finally {
+            locked.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    private static ReentrantLock[] newRefreshLocks() {
+        ReentrantLock[] locks = new ReentrantLock[REFRESH_LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
+    /**
+     * 读取有效订单生成位图
+     *
+     * @param itemIds 为 null 时读取全部物品
+     */
+    private Map<Long, long[]> load(Collection<Long> itemIds, long baseDay, int days) {
+        List<Object> params = new ArrayList<>();
+        params.add(Date.valueOf(LocalDate.ofEpochDay(baseDay)));
+        params.add(Date.valueOf(LocalDate.ofEpochDay(baseDay + days - 1)));
+        String sql = ACTIVE_BOOKINGS_SQL;
+        if (itemIds != null) {
+            sql = String.format(ITEM_BOOKINGS_SQL, String.join(",", Collections.nCopies(itemIds.size(), "?")));
+            params.addAll(itemIds);
+        }
+
+        long today = LocalDate.now().toEpochDay();
+        int words = (days + 63) >>> 6;
+        Map<Long, long[]> bitmaps = new HashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            long start = rs.getDate("start_date").toLocalDate().toEpochDay();
+            long end = rs.getDate("end_date").toLocalDate().toEpochDay();
+            if ("IN_USE".equals(rs.getString("status"))) {
+                end = Math.max(end, today);
+            }
+            int from = (int) Math.max(0, start - baseDay);
+            int to = (int) Math.min(days - 1, end - baseDay);
+            if (from <= to) {
+                setRange(bitmaps.computeIfAbsent(rs.getLong("item_id"), id -> new long[words]), from, to);
+            }
+        }, params.toArray());
+        return bitmaps;
+    }
+
+    private boolean covers(State current, LocalDate from, LocalDate to) {
+        return calendarConfig.isEnabled() && current != null
+            && from.toEpochDay() >= current.baseDay() && to.toEpochDay() < current.baseDay() + current.days();
+    }
+
+    private static boolean isSet(long[] bitmap, int day) {
+        return (bitmap[day >>> 6] & (1L << day)) != 0;
+    }
+
+    /**
+     * 置位 [from, to]，两端都包含
+     */
+    private static void setRange(long[] bitmap, int from, int to) {
+        int firstWord = from >>> 6;
+        int lastWord = to >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (firstWord == lastWord) {
+            bitmap[firstWord] |= firstMask & lastMask;
+            return;
+        }
+        bitmap[firstWord] |= firstMask;
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            bitmap[i] = -1L;
+        }
+        bitmap[lastWord] |= lastMask;
+    }
+
+    /**
+     * [from, to] 内是否有置位，两端都包含
+     */
+    private static boolean anySet(long[] bitmap, int from, int to) {
+        int firstWord = from >>> 6;
+        int lastWord = to >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (firstWord == lastWord) {
+            return (bitmap[firstWord] & firstMask & lastMask) != 0;
+        }
+        if ((bitmap[firstWord] & firstMask) != 0) {
+            return true;
+        }
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            if (bitmap[i] != 0) {
+                return true;
+            }
+        }
+        return (bitmap[lastWord] & lastMask) != 0;
+    }
+
+    /**
+     * 日期段，两端都包含
+     */
+    public record DateRange(LocalDate start, LocalDate end) {
+    }
+
+    /**
+     * 日历：起点（epoch day）、覆盖天数和各物品的占用位图
+     */
+    private record State(long baseDay, int days, ConcurrentHashMap<Long, long[]> booked) {
+    }
+}
@@ -0,0 +1,755 @@
+package com.rental.item.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rental.common.exception.BusinessException;
+import com.rental.common.exception.ResourceNotFoundException;
+import com.rental.item.DTO.ItemImportReport;
+import com.rental.item.config.ItemBulkConfig;
+import com.rental.item.model.Item;
+import com.rental.item.repository.ItemRepository;
+import com.rental.user.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 物品批量导入导出
+ *
+ * 导入按行流式解析 CSV（首行为表头）或 NDJSON（每行一个 JSON 对象），每攒满一批先在线程池中
+ * 并行校验，再用一次 JDBC 批量插入写入，内存占用只与批大小有关。分类按名称或ID解析，名称到ID
+ * 的映射每次导入前加载一次。整批插入失败时回退为逐行插入，以便把数据库错误定位到具体行。
+ * 导入的物品与单条创建一致，均为待审核状态；写入完成后在后台重建全文检索索引。
+ *
+ * 导出在只读事务中通过前向游标逐行读取物品，边读边写到响应流并把实体从持久化上下文中移除。
+ * 导出的列是导入列的超集，导出文件可直接再导入（只读列如 id、状态、评分会被忽略）。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ItemBulkService {
+
+    /**
+     * 导入导出使用的列，CSV 表头与 NDJSON 字段名相同
+     */
+    private static final List<String> EXPORT_COLUMNS = List.of(
+        "id", "name", "description", "category_id", "category", "owner_id", "price_per_day", "deposit",
+        "status", "approval_status", "location", "latitude", "longitude", "images", "brand", "model", "color", "size", "weight",
+        "material", "item_condition", "features", "average_rating", "rating_count", "created_at");
+
+    private static final String INSERT_SQL =
+        "INSERT INTO items (name, description, category_id, owner_id, price_per_day, deposit, status, approval_status, " +
+        "location, latitude, longitude, images, brand, model, color, size, weight, material, item_condition, features, " +
+        "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, 'PENDING', 'PENDING', ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final BigDecimal MAX_AMOUNT = new BigDecimal("99999999.99");
+
+    // 同名分类不止一个时的占位，提示改用 category_id
+    private static final Long AMBIGUOUS_CATEGORY = -1L;
+
+    // 每个校验任务至少处理的行数，行数太少时直接在调用线程校验
+    private static final int MIN_VALIDATION_SLICE = 64;
+
+    // CSV 单个字段与单条记录的字符数上限，缺少结束引号时避免把文件剩余内容读进同一个字段
+    private static final int MAX_CSV_FIELD_LENGTH = 65_535;
+    private static final int MAX_CSV_RECORD_LENGTH = 1 << 20;
+
+    // 小数按 BigDecimal 读取，避免金额经过 double 转换
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemBulkConfig bulkConfig;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private ExecutorService validationExecutor;
+    private TransactionTemplate batchTransaction;
+
+    public enum Format {
+        CSV("csv", new MediaType("text", "csv", StandardCharsets.UTF_8)),
+        NDJSON("ndjson", new MediaType("application", "x-ndjson", StandardCharsets.UTF_8));
+
+        private final String extension;
+        private final MediaType mediaType;
+
+        Format(String extension, MediaType mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public MediaType getMediaType() {
+            return mediaType;
+        }
+
+        /**
+         * 解析格式，未指定时按文件扩展名判断，默认 CSV
+         */
+        public static Format of(String format, String filename) {
+            String value = format;
+            if ((value == null || value.isBlank()) && filename != null && filename.contains(".")) {
+                value = filename.substring(filename.lastIndexOf('.') + 1);
+            }
+            if (value == null || value.isBlank()) {
+                return CSV;
+            }
+            return switch (value.trim().toLowerCase(Locale.ROOT)) {
+                case "csv" -> CSV;
+                case "ndjson", "jsonl" -> NDJSON;
+                default -> throw new BusinessException("不支持的文件格式: " + value);
+            };
+        }
+    }
+
+    @PostConstruct
+    void initValidationExecutor() {
+        int threads = Math.max(1, bulkConfig.getValidationThreads());
+        AtomicInteger threadIndex = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(threads * 4),
+            runnable -> {
+                Thread thread = new Thread(runnable, "item-import-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        this.validationExecutor = executor;
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    void shutdownValidationExecutor() {
+        validationExecutor.shutdown();
+    }
+
+    /**
+     * 导入物品，所有者为当前用户
+     *
+     * @param input  文件内容，UTF-8 编码
+     * @param format 文件格式
+     * @return 导入报告，包含失败行的行号和原因
+     */
+    public ItemImportReport importItems(InputStream input, Format format, Long ownerId) {
+        if (!userRepository.existsById(ownerId)) {
+            throw new ResourceNotFoundException("用户不存在");
+        }
+        long begin = System.currentTimeMillis();
+        ImportContext context = new ImportContext(ownerId, loadCategories(), new ItemImportReport());
+        int batchSize = Math.max(1, bulkConfig.getBatchSize());
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+        try (RowReader rows = format == Format.CSV ? new CsvRowReader(reader) : new NdjsonRowReader(reader)) {
+            List<RawRow> chunk = new ArrayList<>(batchSize);
+            RawRow row;
+            while ((row = rows.next()) != null) {
+                chunk.add(row);
+                if (chunk.size() == batchSize) {
+                    importChunk(chunk, context);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, context);
+            }
+        } catch (IOException e) {
+            throw new BusinessException("读取导入文件失败: " + e.getMessage(), e);
+        }
+
+        ItemImportReport report = context.report();
+        if (report.getImportedCount() > 0) {
+            itemSearchIndex.rebuildInBackground();
+        }
+        log.info("批量导入物品完成，所有者ID：{}，总行数：{}，成功：{}，失败：{}，耗时：{}ms", ownerId,
+            report.getTotalRows(), report.getImportedCount(), report.getFailedCount(),
+            System.currentTimeMillis() - begin);
+        return report;
+    }
+
+    /**
+     * 导出全部物品到输出流，调用方负责关闭输出流
+     *
+     * @return 导出的物品数
+     */
+    @Transactional(readOnly = true)
+    public long exportItems(Format format, OutputStream output) throws IOException {
+        long begin = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        if (format == Format.CSV) {
+            writeCsvRecord(writer, EXPORT_COLUMNS);
+        }
+        long count = 0;
+        try (Stream<Item> items = itemRepository.streamAllForExport()) {
+            Iterator<Item> iterator = items.iterator();
+            while (iterator.hasNext()) {
+                Item item = iterator.next();
+                List<Object> values = exportValues(item);
+                if (format == Format.CSV) {
+                    writeCsvRecord(writer, values);
+                } else {
+                    Map<String, Object> json = new LinkedHashMap<>();
+                    for (int i = 0; i < EXPORT_COLUMNS.size(); i++) {
+                        json.put(EXPORT_COLUMNS.get(i), values.get(i));
+                    }
+                    writer.write(MAPPER.writeValueAsString(json));
+                    writer.write('\n');
+                }
+                // 逐行移出持久化上下文，导出期间内存不随物品数增长
+                entityManager.detach(item);
+                count++;
+            }
+        }
+        writer.flush();
+        log.info("导出物品完成，格式：{}，物品：{}，耗时：{}ms", format, count, System.currentTimeMillis() - begin);
+        return count;
+    }
+
+    private void importChunk(List<RawRow> chunk, ImportContext context) {
+        List<ValidatedRow> validated = validate(chunk, context);
+        List<ValidatedRow> valid = new ArrayList<>(validated.size());
+        for (ValidatedRow row : validated) {
+            if (row.error() != null) {
+                addError(context.report(), row.line(), row.error());
+            } else {
+                valid.add(row);
+            }
+        }
+        context.report().setTotalRows(context.report().getTotalRows() + chunk.size());
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batch = valid.stream().map(ValidatedRow::params).toList();
+        try {
+            batchTransaction.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_SQL, batch));
+            context.report().setImportedCount(context.report().getImportedCount() + valid.size());
+        } catch (DataAccessException e) {
+            // 整批已回滚，逐行重试以找出出错的行，其余行照常写入
+            log.warn("批量插入物品失败，改为逐行插入定位错误: {}", e.getMostSpecificCause().getMessage());
+            for (ValidatedRow row : valid) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, row.params());
+                    context.report().setImportedCount(context.report().getImportedCount() + 1);
+                } catch (DataAccessException rowError) {
+                    addError(context.report(), row.line(), "写入失败: " + rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 把一批行切成若干段并行校验，结果保持原顺序
+     */
+    private List<ValidatedRow> validate(List<RawRow> chunk, ImportContext context) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int slices = Math.min(Math.max(1, bulkConfig.getValidationThreads()),
+            Math.max(1, chunk.size() / MIN_VALIDATION_SLICE));
+        if (slices == 1) {
+            return chunk.stream().map(row -> validateRow(row, context, now)).toList();
+        }
+
+        int sliceSize = (chunk.size() + slices - 1) / slices;
+        List<Future<List<ValidatedRow>>> futures = new ArrayList<>(slices);
+        for (int from = 0; from < chunk.size(); from += sliceSize) {
+            List<RawRow> slice = chunk.subList(from, Math.min(chunk.size(), from + sliceSize));
+            futures.add(validationExecutor.submit(
+                () -> slice.stream().map(row -> validateRow(row, context, now)).toList()));
+        }
+        List<ValidatedRow> validated = new ArrayList<>(chunk.size());
+        try {
+            for (Future<List<ValidatedRow>> future : futures) {
+                validated.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new BusinessException("导入被中断");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("校验导入数据失败", e.getCause());
+        }
+        return validated;
+    }
+
+    private ValidatedRow validateRow(RawRow row, ImportContext context, Timestamp now) {
+        if (row.error() != null) {
+            return ValidatedRow.failed(row.line(), row.error());
+        }
+        Map<String, String> values = row.values();
+
+        String name = trimToNull(values.get("name"));
+        if (name == null) {
+            return ValidatedRow.failed(row.line(), "物品名称不能为空");
+        }
+        if (name.length() > 200) {
+            return ValidatedRow.failed(row.line(), "物品名称长度不能超过200");
+        }
+
+        String priceValue = trimToNull(values.get("price_per_day"));
+        if (priceValue == null) {
+            return ValidatedRow.failed(row.line(), "每日租金不能为空");
+        }
+        BigDecimal pricePerDay = parseAmount(priceValue);
+        if (pricePerDay == null) {
+            return ValidatedRow.failed(row.line(), "每日租金格式错误: " + priceValue);
+        }
+        if (pricePerDay.compareTo(new BigDecimal("0.01")) < 0) {
+            return ValidatedRow.failed(row.line(), "每日租金必须大于0");
+        }
+
+        BigDecimal deposit = BigDecimal.ZERO;
+        String depositValue = trimToNull(values.get("deposit"));
+        if (depositValue != null) {
+            deposit = parseAmount(depositValue);
+            if (deposit == null) {
+                return ValidatedRow.failed(row.line(), "押金格式错误: " + depositValue);
+            }
+            if (deposit.signum() < 0) {
+                return ValidatedRow.failed(row.line(), "押金不能为负数");
+            }
+        }
+
+        Long categoryId = null;
+        String categoryIdValue = trimToNull(values.get("category_id"));
+        String categoryName = trimToNull(values.get("category"));
+        if (categoryIdValue != null) {
+            try {
+                categoryId = Long.valueOf(categoryIdValue);
+            } catch (NumberFormatException e) {
+                return ValidatedRow.failed(row.line(), "分类ID格式错误: " + categoryIdValue);
+            }
+            if (!context.categories().ids().contains(categoryId)) {
+                return ValidatedRow.failed(row.line(), "分类不存在: " + categoryIdValue);
+            }
+        } else if (categoryName != null) {
+            categoryId = context.categories().byName().get(categoryName.toLowerCase(Locale.ROOT));
+            if (categoryId == null) {
+                return ValidatedRow.failed(row.line(), "分类不存在: " + categoryName);
+            }
+            if (AMBIGUOUS_CATEGORY.equals(categoryId)) {
+                return ValidatedRow.failed(row.line(), "存在多个名为 " + categoryName + " 的分类，请使用 category_id");
+            }
+        }
+
+        BigDecimal[] coordinates = new BigDecimal[2];
+        String coordinateError = parseCoordinates(values, coordinates);
+        if (coordinateError != null) {
+            return ValidatedRow.failed(row.line(), coordinateError);
+        }
+
+        String location = trimToNull(values.get("location"));
+        String brand = trimToNull(values.get("brand"));
+        String model = trimToNull(values.get("model"));
+        String color = trimToNull(values.get("color"));
+        String size = trimToNull(values.get("size"));
+        String weight = trimToNull(values.get("weight"));
+        String material = trimToNull(values.get("material"));
+        String itemCondition = trimToNull(values.get("item_condition"));
+        String lengthError = firstLengthError(
+            "location", location, 255, "brand", brand, 100, "model", model, 100, "color", color, 50,
+            "size", size, 100, "weight", weight, 50, "material", material, 100,
+            "item_condition", itemCondition, 100);
+        if (lengthError != null) {
+            return ValidatedRow.failed(row.line(), lengthError);
+        }
+
+        return new ValidatedRow(row.line(), new Object[] {
+            name, trimToNull(values.get("description")), categoryId, context.ownerId(), pricePerDay, deposit,
+            location, coordinates[0], coordinates[1], trimToNull(values.get("images")),
+            brand, model, color, size, weight, material, itemCondition, trimToNull(values.get("features")), now, now
+        }, null);
+    }
+
+    private CategoryLookup loadCategories() {
+        Map<String, Long> byName = new HashMap<>();
+        Set<Long> ids = new HashSet<>();
+        jdbcTemplate.query("SELECT id, name FROM item_categories", (RowCallbackHandler) rs -> {
+            long id = rs.getLong("id");
+            ids.add(id);
+            byName.merge(rs.getString("name").trim().toLowerCase(Locale.ROOT), id, (first, second) -> AMBIGUOUS_CATEGORY);
+        });
+        return new CategoryLookup(Map.copyOf(byName), Set.copyOf(ids));
+    }
+
+    private void addError(ItemImportReport report, long line, String message) {
+        report.setFailedCount(report.getFailedCount() + 1);
+        if (report.getErrors().size() < bulkConfig.getMaxReportedErrors()) {
+            report.getErrors().add(new ItemImportReport.RowError(line, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private static List<Object> exportValues(Item item) {
+        List<Object> values = new ArrayList<>(EXPORT_COLUMNS.size());
+        values.add(item.getId());
+        values.add(item.getName());
+        values.add(item.getDescription());
+        values.add(item.getCategory() != null ? item.getCategory().getId() : null);
+        values.add(item.getCategory() != null ? item.getCategory().getName() : null);
+        // 所有者是延迟加载代理，取ID不会触发查询
+        values.add(item.getOwner() != null ? item.getOwner().getId() : null);
+        values.add(item.getPricePerDay());
+        values.add(item.getDeposit());
+        values.add(item.getStatus() != null ? item.getStatus().name() : null);
+        values.add(item.getApprovalStatus() != null ? item.getApprovalStatus().name() : null);
+        values.add(item.getLocation());
+        values.add(item.getLatitude());
+        values.add(item.getLongitude());
+        values.add(item.getImages());
+        values.add(item.getBrand());
+        values.add(item.getModel());
+        values.add(item.getColor());
+        values.add(item.getSize());
+        values.add(item.getWeight());
+        values.add(item.getMaterial());
+        values.add(item.getItemCondition());
+        values.add(item.getFeatures());
+        values.add(item.getAverageRating());
+        values.add(item.getRatingCount());
+        values.add(item.getCreatedAt() != null ? item.getCreatedAt().toString() : null);
+        return values;
+    }
+
+    private static void writeCsvRecord(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+            if (!(value instanceof Number) && !text.isEmpty() && "=+-@\t\r".indexOf(text.charAt(0)) >= 0) {
+                // 防止表格软件把文本当作公式执行（CSV 注入），数值列保持原样以便重新导入
+                text = "'" + text;
+            }
+            if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(text.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(text);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * 解析经纬度到 coordinates[0]（纬度）和 coordinates[1]（经度），两者需同时提供
+     *
+     * @return 错误信息，无错误时返回 null
+     */
+    private static String parseCoordinates(Map<String, String> values, BigDecimal[] coordinates) {
+        String latitude = trimToNull(values.get("latitude"));
+        String longitude = trimToNull(values.get("longitude"));
+        if (latitude == null && longitude == null) {
+            return null;
+        }
+        if (latitude == null || longitude == null) {
+            return "纬度和经度需同时提供";
+        }
+        try {
+            coordinates[0] = new BigDecimal(latitude).setScale(6, RoundingMode.HALF_UP);
+            coordinates[1] = new BigDecimal(longitude).setScale(6, RoundingMode.HALF_UP);
+        } catch (NumberFormatException e) {
+            return "经纬度格式错误: " + latitude + ", " + longitude;
+        }
+        if (coordinates[0].abs().compareTo(BigDecimal.valueOf(90)) > 0
+            || coordinates[1].abs().compareTo(BigDecimal.valueOf(180)) > 0) {
+            return "经纬度超出范围: " + latitude + ", " + longitude;
+        }
+        return null;
+    }
+
+    private static BigDecimal parseAmount(String value) {
+        try {
+            BigDecimal amount = new BigDecimal(value);
+            return amount.scale() > 2 || amount.compareTo(MAX_AMOUNT) > 0 ? null : amount;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 按 (列名, 值, 最大长度) 三元组依次检查长度，返回第一个超长列的错误信息
+     */
+    private static String firstLengthError(Object... checks) {
+        for (int i = 0; i < checks.length; i += 3) {
+            String value = (String) checks[i + 1];
+            int maxLength = (Integer) checks[i + 2];
+            if (value != null && value.length() > maxLength) {
+                return checks[i] + " 长度不能超过" + maxLength;
+            }
+        }
+        return null;
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    private record ImportContext(Long ownerId, CategoryLookup categories, ItemImportReport report) {
+    }
+
+    private record CategoryLookup(Map<String, Long> byName, Set<Long> ids) {
+    }
+
+    /**
+     * 解析出的一行，error 非空表示该行无法解析
+     */
+    private record RawRow(long line, Map<String, String> values, String error) {
+    }
+
+    private record ValidatedRow(long line, Object[] params, String error) {
+
+        static ValidatedRow failed(long line, String error) {
+            return new ValidatedRow(line, null, error);
+        }
+    }
+
+    private interface RowReader extends Closeable {
+
+        /**
+         * 读取下一行，跳过空行，文件结束时返回 null
+         */
+        RawRow next() throws IOException;
+    }
+
+    /**
+     * CSV 读取，支持双引号包裹的字段（字段内可含逗号、换行，"" 表示一个双引号）
+     */
+    private static final class CsvRowReader implements RowReader {
+
+        private final BufferedReader reader;
+        private final List<String> header;
+        private long line = 1;
+        private boolean oversized;
+
+        CsvRowReader(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            List<String> columns = readRecord();
+            if (columns == null) {
+                throw new BusinessException("导入文件为空");
+            }
+            if (oversized) {
+                throw new BusinessException("CSV 表头过长");
+            }
+            this.header = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                // 去掉 Excel 导出时带的 UTF-8 BOM
+                header.add(column.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+            }
+            if (!header.contains("name") || !header.contains("price_per_day")) {
+                throw new BusinessException("CSV 表头缺少必需列: name, price_per_day");
+            }
+        }
+
+        @Override
+        public RawRow next() throws IOException {
+            while (true) {
+                long recordLine = line;
+                List<String> fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+                if (oversized) {
+                    return new RawRow(recordLine, null,
+                        "记录过长（单个字段最多 " + MAX_CSV_FIELD_LENGTH + " 个字符），请检查引号是否成对");
+                }
+                if (fields.stream().allMatch(String::isBlank)) {
+                    continue;
+                }
+                Map<String, String> values = new HashMap<>();
+                for (int i = 0; i < Math.min(fields.size(), header.size()); i++) {
+                    values.put(header.get(i), fields.get(i));
+                }
+                return new RawRow(recordLine, values, null);
+            }
+        }
+
+        /**
+         * 读取一条记录；超过长度上限时置 oversized，丢弃已读内容并跳到下一个换行
+         */
+        private List<String> readRecord() throws IOException {
+            oversized = false;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean read = false;
+            int length = 0;
+            int c;
+            while ((c = reader.read()) != -1) {
+                read = true;
+                if (++length > MAX_CSV_RECORD_LENGTH || field.length() > MAX_CSV_FIELD_LENGTH) {
+                    oversized = true;
+                    // 超长多因缺少结束引号，按普通换行切分，后续行仍能作为新记录解析
+                    while (c != -1 && c != '\n') {
+                        c = reader.read();
+                    }
+                    if (c == '\n') {
+                        line++;
+                    }
+                    return List.of();
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            if (next != -1) {
+                                reader.reset();
+                            }
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    line++;
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+            }
+            if (!read) {
+                return null;
+            }
+            if (field.length() > MAX_CSV_FIELD_LENGTH) {
+                oversized = true;
+                return List.of();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * NDJSON 读取，每行一个 JSON 对象，数组类型的 images 按逗号拼接
+     */
+    private static final class NdjsonRowReader implements RowReader {
+
+        private final BufferedReader reader;
+        private long line;
+
+        NdjsonRowReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public RawRow next() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.isBlank()) {
+                    continue;
+                }
+                JsonNode node;
+                try {
+                    node = MAPPER.readTree(text);
+                } catch (JsonProcessingException e) {
+                    return new RawRow(line, null, "JSON 格式错误: " + e.getOriginalMessage());
+                }
+                if (!node.isObject()) {
+                    return new RawRow(line, null, "每行必须是一个 JSON 对象");
+                }
+                Map<String, String> values = new HashMap<>();
+                node.properties().forEach(entry -> {
+                    JsonNode value = entry.getValue();
+                    String key = entry.getKey().trim().toLowerCase(Locale.ROOT);
+                    if (value.isNull()) {
+                        return;
+                    }
+                    if (value.isArray()) {
+                        List<String> elements = new ArrayList<>();
+                        value.forEach(element -> elements.add(element.asText()));
+                        values.put(key, String.join(",", elements));
+                    } else {
+                        values.put(key, value.asText());
+                    }
+                });
+                return new RawRow(line, values, null);
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
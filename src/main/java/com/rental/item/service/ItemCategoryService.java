@@ -18,6 +18,8 @@ public interface ItemCategoryService {
     List<ItemCategoryDto> getAllCategories();
     List<ItemCategoryDto> getRootCategories();
     List<ItemCategoryDto> getSubCategories(Long parentId);
+    List<ItemCategoryDto> getDescendants(Long id);
+    List<ItemCategoryDto> getAncestors(Long id);
     List<ItemCategoryDto> getCategoryTree();
     List<ItemCategoryDto> getCategoriesWithItems();
 
@@ -25,6 +27,7 @@ public interface ItemCategoryService {
     void updateCategorySort(Long id, Integer sortOrder);
     boolean canDeleteCategory(Long id);
     long getItemCountByCategory(Long categoryId);
+    long getItemCountByCategory(Long categoryId, boolean includeDescendants);
 
     // 验证方法
     boolean isCategoryNameExists(String name);
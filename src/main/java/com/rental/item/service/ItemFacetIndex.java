@@ -0,0 +1,356 @@
+package com.rental.item.service;
+
+import com.rental.common.util.RoaringBitmap;
+import com.rental.item.config.ItemFacetConfig;
+import com.rental.item.model.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 物品分面索引
+ *
+ * 只收录审核通过的物品。分类、状态、价格档和位置的每个取值对应一个物品ID压缩位图，
+ * 查询时先求各筛选条件位图的交集得到结果集，再对每个分面用"其余条件的交集"与该分面
+ * 各取值位图求交集基数，一次调用同时得到结果页和全部分面计数。物品修改在事务提交后
+ * 增量更新位图；启动时分批读取重建，重建期间的变更在切换后重放。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ItemFacetIndex {
+
+    public static final String CATEGORY = "category";
+    public static final String STATUS = "status";
+    public static final String PRICE = "price";
+    public static final String LOCATION = "location";
+
+    private static final String[] DIMENSIONS = {CATEGORY, STATUS, PRICE, LOCATION};
+
+    private static final String LOAD_SQL =
+        "SELECT id, category_id, status, price_per_day, location FROM items " +
+        "WHERE approval_status = 'APPROVED' AND id > ? ORDER BY id LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ItemFacetConfig facetConfig;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IncrementalIndexSupport<FacetItem> incremental = new IncrementalIndexSupport<>();
+    private volatile FacetState state;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (facetConfig.isEnabled()) {
+            Thread thread = new Thread(this::rebuild, "item-facet-rebuild");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public boolean isReady() {
+        return facetConfig.isEnabled() && state != null;
+    }
+
+    /**
+     * 事务提交后更新物品的分面取值，未审核通过的物品移出索引
+     */
+    public void indexAfterCommit(Item item) {
+        if (item.getId() == null || !facetConfig.isEnabled()) {
+            return;
+        }
+        Optional<FacetItem> change = item.getApprovalStatus() == Item.ApprovalStatus.APPROVED
+            ? Optional.of(FacetItem.from(item)) : Optional.empty();
+        Long itemId = item.getId();
+        IncrementalIndexSupport.afterCommit(() -> apply(itemId, change));
+    }
+
+    public void removeAfterCommit(Long itemId) {
+        if (facetConfig.isEnabled()) {
+            IncrementalIndexSupport.afterCommit(() -> apply(itemId, Optional.empty()));
+        }
+    }
+
+    /**
+     * 分面查询
+     *
+     * @param filters 分面名 -> 选中的取值，同一分面的多个取值取并集（如分类子树），未选中的分面不参与过滤
+     * @return 结果物品ID按ID倒序（即创建先后）分页；索引未就绪时返回 null
+     */
+    public FacetResult search(Map<String, ? extends Collection<String>> filters, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            FacetState current = state;
+            if (current == null) {
+                return null;
+            }
+            return current.search(filters, offset, limit, Math.max(1, facetConfig.getMaxLocationValues()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 价格档的上下限，下限含、上限不含；未知档位返回 null
+     */
+    public BigDecimal[] priceRange(String bucket) {
+        List<BigDecimal> bounds = facetConfig.getPriceBounds();
+        for (int i = 0; i <= bounds.size(); i++) {
+            if (priceLabel(bounds, i).equals(bucket)) {
+                return new BigDecimal[] {i > 0 ? bounds.get(i - 1) : null, i < bounds.size() ? bounds.get(i) : null};
+            }
+        }
+        return null;
+    }
+
+    public void rebuild() {
+        incremental.rebuild(() -> {
+            long begin = System.currentTimeMillis();
+            try {
+                FacetState rebuilt = new FacetState(facetConfig.getPriceBounds());
+                int batchSize = Math.max(1, facetConfig.getLoadBatchSize());
+                long lastId = 0;
+                while (true) {
+                    List<FacetItem> batch = jdbcTemplate.query(LOAD_SQL, (rs, rowNum) -> {
+                        long categoryId = rs.getLong("category_id");
+                        boolean noCategory = rs.wasNull();
+                        String status = rs.getString("status");
+                        return new FacetItem(rs.getLong("id"), noCategory ? null : categoryId,
+                            status != null ? Item.ItemStatus.valueOf(status) : null,
+                            rs.getBigDecimal("price_per_day"), rs.getString("location"));
+                    }, lastId, batchSize);
+                    batch.forEach(rebuilt::add);
+                    if (batch.size() < batchSize) {
+                        break;
+                    }
+                    lastId = batch.get(batch.size() - 1).itemId();
+                }
+                lock.writeLock().lock();
+                try {
+                    incremental.replay((itemId, change) -> {
+                        rebuilt.remove(itemId);
+                        change.ifPresent(rebuilt::add);
+                    });
+                    state = rebuilt;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                log.info("物品分面索引重建完成，物品：{}，耗时：{}ms",
+                    rebuilt.all.cardinality(), System.currentTimeMillis() - begin);
+            } catch (RuntimeException e) {
+                log.error("物品分面索引重建失败", e);
+            }
+        });
+    }
+
+    private void apply(Long itemId, Optional<FacetItem> change) {
+        incremental.record(itemId, change);
+        lock.writeLock().lock();
+        try {
+            FacetState current = state;
+            if (current != null) {
+                current.remove(itemId);
+                change.ifPresent(current::add);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static String priceLabel(List<BigDecimal> bounds, int bucket) {
+        if (bounds.isEmpty()) {
+            return "0+";
+        }
+        if (bucket == 0) {
+            return "0-" + bounds.get(0).toPlainString();
+        }
+        if (bucket == bounds.size()) {
+            return bounds.get(bucket - 1).toPlainString() + "+";
+        }
+        return bounds.get(bucket - 1).toPlainString() + "-" + bounds.get(bucket).toPlainString();
+    }
+
+    /**
+     * 分面计数
+     */
+    public record FacetCount(String value, long count) {
+    }
+
+    /**
+     * 分面查询结果
+     */
+    public record FacetResult(List<Long> itemIds, long total, Map<String, List<FacetCount>> facets) {
+    }
+
+    /**
+     * 分面所需的物品字段快照
+     */
+    private record FacetItem(long itemId, Long categoryId, Item.ItemStatus status,
+                             BigDecimal pricePerDay, String location) {
+
+        static FacetItem from(Item item) {
+            return new FacetItem(item.getId(), item.getCategory() != null ? item.getCategory().getId() : null,
+                item.getStatus(), item.getPricePerDay(), item.getLocation());
+        }
+    }
+
+    /**
+     * 位图数据，读写由外层读写锁保护
+     */
+    private static final class FacetState {
+
+        final List<BigDecimal> priceBounds;
+        final RoaringBitmap all = new RoaringBitmap();
+        // 分面名 -> 取值 -> 物品ID位图
+        final Map<String, Map<String, RoaringBitmap>> bitmaps = new HashMap<>();
+        // 物品ID -> 各分面取值，更新时据此从旧位图中移除
+        final Map<Integer, String[]> values = new HashMap<>();
+
+        FacetState(List<BigDecimal> priceBounds) {
+            this.priceBounds = List.copyOf(priceBounds);
+            bitmaps.put(CATEGORY, new HashMap<>());
+            bitmaps.put(LOCATION, new HashMap<>());
+            // 状态和价格档按固定顺序展示
+            Map<String, RoaringBitmap> statuses = new LinkedHashMap<>();
+            for (Item.ItemStatus status : Item.ItemStatus.values()) {
+                statuses.put(status.name(), new RoaringBitmap());
+            }
+            bitmaps.put(STATUS, statuses);
+            Map<String, RoaringBitmap> prices = new LinkedHashMap<>();
+            for (int i = 0; i <= this.priceBounds.size(); i++) {
+                prices.put(priceLabel(this.priceBounds, i), new RoaringBitmap());
+            }
+            bitmaps.put(PRICE, prices);
+        }
+
+        void add(FacetItem item) {
+            if (item.itemId() > Integer.MAX_VALUE) {
+                return;
+            }
+            int id = (int) item.itemId();
+            String location = item.location() != null ? item.location().trim() : "";
+            String[] itemValues = {
+                item.categoryId() != null ? String.valueOf(item.categoryId()) : null,
+                item.status() != null ? item.status().name() : null,
+                item.pricePerDay() != null ? priceLabel(priceBounds, bucketOf(item.pricePerDay())) : null,
+                location.isEmpty() ? null : location
+            };
+            for (int d = 0; d < DIMENSIONS.length; d++) {
+                if (itemValues[d] != null) {
+                    bitmaps.get(DIMENSIONS[d]).computeIfAbsent(itemValues[d], key -> new RoaringBitmap()).add(id);
+                }
+            }
+            all.add(id);
+            values.put(id, itemValues);
+        }
+
+        void remove(long itemId) {
+            if (itemId > Integer.MAX_VALUE) {
+                return;
+            }
+            int id = (int) itemId;
+            String[] itemValues = values.remove(id);
+            if (itemValues == null) {
+                return;
+            }
+            for (int d = 0; d < DIMENSIONS.length; d++) {
+                if (itemValues[d] == null) {
+                    continue;
+                }
+                Map<String, RoaringBitmap> byValue = bitmaps.get(DIMENSIONS[d]);
+                RoaringBitmap bitmap = byValue.get(itemValues[d]);
+                bitmap.remove(id);
+                // 固定顺序的分面保留空位图，其余取值清空后移除
+                if (bitmap.isEmpty() && (CATEGORY.equals(DIMENSIONS[d]) || LOCATION.equals(DIMENSIONS[d]))) {
+                    byValue.remove(itemValues[d]);
+                }
+            }
+            all.remove(id);
+        }
+
+        FacetResult search(Map<String, ? extends Collection<String>> filters, int offset, int limit, int maxLocationValues) {
+            RoaringBitmap[] selected = new RoaringBitmap[DIMENSIONS.length];
+            for (int d = 0; d < DIMENSIONS.length; d++) {
+                Collection<String> values = filters.get(DIMENSIONS[d]);
+                if (values != null) {
+                    selected[d] = union(bitmaps.get(DIMENSIONS[d]), values);
+                }
+            }
+
+            Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
+            for (int d = 0; d < DIMENSIONS.length; d++) {
+                // 分面自身的选中值不参与本分面计数，便于切换同一分面的其他取值
+                RoaringBitmap base = intersect(selected, d);
+                List<FacetCount> counts = new ArrayList<>();
+                bitmaps.get(DIMENSIONS[d]).forEach((value, bitmap) -> {
+                    int count = base != null ? bitmap.andCardinality(base) : bitmap.cardinality();
+                    if (count > 0) {
+                        counts.add(new FacetCount(value, count));
+                    }
+                });
+                if (CATEGORY.equals(DIMENSIONS[d]) || LOCATION.equals(DIMENSIONS[d])) {
+                    counts.sort(Comparator.comparingLong(FacetCount::count).reversed().thenComparing(FacetCount::value));
+                }
+                facets.put(DIMENSIONS[d], LOCATION.equals(DIMENSIONS[d]) && counts.size() > maxLocationValues
+                    ? new ArrayList<>(counts.subList(0, maxLocationValues)) : counts);
+            }
+
+            RoaringBitmap matched = intersect(selected, -1);
+            int[] ids = (matched != null ? matched : all).toArray();
+            List<Long> page = new ArrayList<>();
+            for (int i = ids.length - 1 - offset; i >= 0 && page.size() < limit; i--) {
+                page.add((long) ids[i]);
+            }
+            return new FacetResult(page, ids.length, facets);
+        }
+
+        /**
+         * 同一分面多个取值的位图并集，只选一个取值时直接返回该位图
+         */
+        private RoaringBitmap union(Map<String, RoaringBitmap> byValue, Collection<String> values) {
+            RoaringBitmap result = null;
+            for (String value : values) {
+                RoaringBitmap bitmap = byValue.get(value);
+                if (bitmap != null) {
+                    result = result == null ? bitmap : result.or(bitmap);
+                }
+            }
+            return result != null ? result : new RoaringBitmap();
+        }
+
+        /**
+         * 除 skip 外所有选中条件的交集，没有条件时返回 null
+         */
+        private RoaringBitmap intersect(RoaringBitmap[] selected, int skip) {
+            RoaringBitmap result = null;
+            for (int d = 0; d < selected.length; d++) {
+                if (d == skip || selected[d] == null) {
+                    continue;
+                }
+                result = result == null ? selected[d] : result.and(selected[d]);
+            }
+            return result;
+        }
+
+        private int bucketOf(BigDecimal price) {
+            int bucket = 0;
+            while (bucket < priceBounds.size() && price.compareTo(priceBounds.get(bucket)) >= 0) {
+                bucket++;
+            }
+            return bucket;
+        }
+    }
+}
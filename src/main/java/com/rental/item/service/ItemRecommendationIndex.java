@@ -0,0 +1,605 @@
+package com.rental.item.service;
+
+import com.rental.item.config.ItemRecommendationConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 相似物品推荐索引
+ *
+ * 离线全量构建：同一订单（已确认、已支付、使用中、已归还）中的物品视为一起租用，用 fork/join
+ * 并行统计物品对的共现次数并按余弦归一化，再与同分类、同品牌、同所有者的内容相似度加权，
+ * 为每个物品保留得分最高的 topK 个可租物品。结果保存为按物品ID排序的数组加 CSR 形式的邻居数组，
+ * 查询只做一次二分查找。启动时和每天凌晨重建；两次重建之间下架的物品由调用方在读取时过滤，
+ * 新建的物品在下次重建前不在索引中。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ItemRecommendationIndex {
+
+    private static final String ITEMS_SQL =
+        "SELECT id, category_id, owner_id, brand, status, approval_status, rating_count FROM items ORDER BY id";
+
+    private static final String BASKETS_SQL =
+        "SELECT oi.order_id, oi.item_id FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+        "WHERE o.status IN ('CONFIRMED', 'PAID', 'IN_USE', 'RETURNED') ORDER BY oi.order_id";
+
+    // 共现统计叶子任务处理的订单数
+    private static final int BASKETS_PER_TASK = 4096;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ItemRecommendationConfig recommendationConfig;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private ForkJoinPool pool;
+    private volatile Neighbors neighbors;
+
+    @PostConstruct
+    void initPool() {
+        pool = new ForkJoinPool(Math.max(1, recommendationConfig.getParallelism()));
+    }
+
+    @PreDestroy
+    void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (recommendationConfig.isEnabled()) {
+            Thread thread = new Thread(this::rebuild, "item-recommendation-rebuild");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * 每天凌晨重建，纳入新订单和新物品
+     */
+    @Scheduled(cron = "${item.recommendation.rebuild-cron:0 20 4 * * ?}")
+    public void scheduledRebuild() {
+        if (recommendationConfig.isEnabled()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 物品的相似物品，按得分降序
+     *
+     * @return 索引未就绪或物品不在索引中（上次重建后新建）时返回 null，调用方回退到数据库查询
+     */
+    public List<SimilarItem> similar(long itemId, int limit) {
+        Neighbors current = neighbors;
+        if (!recommendationConfig.isEnabled() || current == null) {
+            return null;
+        }
+        int index = Arrays.binarySearch(current.itemIds(), itemId);
+        if (index < 0) {
+            return null;
+        }
+        int from = current.offsets()[index];
+        int to = Math.min(current.offsets()[index + 1], from + Math.max(0, limit));
+        List<SimilarItem> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(new SimilarItem(current.neighborIds()[i], current.scores()[i]));
+        }
+        return result;
+    }
+
+    /**
+     * 从数据库全量重建索引
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        try {
+            ItemTable items = loadItems();
+            Baskets baskets = loadBaskets(items);
+            PairCounts pairs = pool.invoke(new CountPairsTask(baskets, 0, baskets.count()));
+            CoOccurrence coOccurrence = CoOccurrence.of(pairs, items.size(), baskets.itemBasketCounts());
+
+            int topK = Math.max(1, recommendationConfig.getTopK());
+            int contentCandidates = Math.max(0, recommendationConfig.getContentCandidates());
+            Groups groups = new Groups(
+                groupMembers(items.categories(), items, contentCandidates),
+                groupMembers(items.brands(), items, contentCandidates),
+                groupMembers(items.owners(), items, contentCandidates));
+
+            // 按线程数切分物品区间，每个叶子任务复用一份与物品数等长的临时数组
+            int chunkSize = Math.max(1024, items.size() / (pool.getParallelism() * 4) + 1);
+            List<TopKTask> tasks = new ArrayList<>();
+            for (int from = 0; from < items.size(); from += chunkSize) {
+                tasks.add(new TopKTask(items, coOccurrence, groups, recommendationConfig, topK,
+                    from, Math.min(items.size(), from + chunkSize)));
+            }
+            pool.submit(() -> ForkJoinTask.invokeAll(tasks)).join();
+
+            neighbors = Neighbors.of(items.ids(), tasks);
+            log.info("相似物品推荐索引重建完成，物品：{}，订单：{}，物品对：{}，耗时：{}ms", items.size(), baskets.count(),
+                pairs.size(), System.currentTimeMillis() - begin);
+        } catch (RuntimeException e) {
+            log.error("相似物品推荐索引重建失败，相似物品将回退到数据库查询", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private ItemTable loadItems() {
+        List<Long> ids = new ArrayList<>();
+        IntList categories = new IntList();
+        IntList owners = new IntList();
+        IntList brands = new IntList();
+        IntList ratingCounts = new IntList();
+        List<Boolean> rentable = new ArrayList<>();
+        Map<Long, Integer> categoryCodes = new HashMap<>();
+        Map<Long, Integer> ownerCodes = new HashMap<>();
+        Map<String, Integer> brandCodes = new HashMap<>();
+        jdbcTemplate.query(ITEMS_SQL, (RowCallbackHandler) rs -> {
+            ids.add(rs.getLong("id"));
+            long categoryId = rs.getLong("category_id");
+            categories.add(rs.wasNull() ? -1 : categoryCodes.computeIfAbsent(categoryId, key -> categoryCodes.size()));
+            long ownerId = rs.getLong("owner_id");
+            owners.add(rs.wasNull() ? -1 : ownerCodes.computeIfAbsent(ownerId, key -> ownerCodes.size()));
+            String brand = rs.getString("brand");
+            brands.add(StringUtils.hasText(brand)
+                ? brandCodes.computeIfAbsent(brand.trim().toLowerCase(Locale.ROOT), key -> brandCodes.size()) : -1);
+            ratingCounts.add(rs.getInt("rating_count"));
+            rentable.add("AVAILABLE".equals(rs.getString("status")) && "APPROVED".equals(rs.getString("approval_status")));
+        });
+
+        int size = ids.size();
+        long[] itemIds = new long[size];
+        boolean[] rentableFlags = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            itemIds[i] = ids.get(i);
+            rentableFlags[i] = rentable.get(i);
+        }
+        return new ItemTable(itemIds, categories.toArray(), owners.toArray(), brands.toArray(),
+            ratingCounts.toArray(), rentableFlags);
+    }
+
+    /**
+     * 按订单读取物品，转换为物品下标；每个订单内去重并截断到 maxBasketSize
+     */
+    private Baskets loadBaskets(ItemTable items) {
+        int maxBasketSize = Math.max(2, recommendationConfig.getMaxBasketSize());
+        int[] itemBasketCounts = new int[items.size()];
+        IntList offsets = new IntList();
+        IntList members = new IntList();
+        IntList current = new IntList();
+        long[] currentOrderId = {-1};
+        Runnable flush = () -> {
+            int[] basket = current.toArray();
+            current.clear();
+            Arrays.sort(basket);
+            int distinct = 0;
+            for (int i = 0; i < basket.length && distinct < maxBasketSize; i++) {
+                if (i == 0 || basket[i] != basket[i - 1]) {
+                    basket[distinct++] = basket[i];
+                }
+            }
+            for (int i = 0; i < distinct; i++) {
+                itemBasketCounts[basket[i]]++;
+            }
+            if (distinct >= 2) {
+                offsets.add(members.size());
+                for (int i = 0; i < distinct; i++) {
+                    members.add(basket[i]);
+                }
+            }
+        };
+        jdbcTemplate.query(BASKETS_SQL, (RowCallbackHandler) rs -> {
+            long orderId = rs.getLong("order_id");
+            if (orderId != currentOrderId[0]) {
+                flush.run();
+                currentOrderId[0] = orderId;
+            }
+            int index = Arrays.binarySearch(items.ids(), rs.getLong("item_id"));
+            if (index >= 0) {
+                current.add(index);
+            }
+        });
+        flush.run();
+        offsets.add(members.size());
+        return new Baskets(offsets.toArray(), members.toArray(), itemBasketCounts);
+    }
+
+    /**
+     * 每组的可租物品，按评价数降序、物品ID降序，每组最多 limit 个
+     */
+    private static int[][] groupMembers(int[] codes, ItemTable items, int limit) {
+        int groupCount = 0;
+        for (int code : codes) {
+            groupCount = Math.max(groupCount, code + 1);
+        }
+        Integer[] order = new Integer[items.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingInt(i -> items.ratingCounts()[i]).reversed()
+            .thenComparing(Comparator.reverseOrder()));
+
+        IntList[] lists = new IntList[groupCount];
+        for (int index : order) {
+            int code = codes[index];
+            if (code < 0 || !items.rentable()[index]) {
+                continue;
+            }
+            if (lists[code] == null) {
+                lists[code] = new IntList();
+            }
+            if (lists[code].size() < limit) {
+                lists[code].add(index);
+            }
+        }
+        int[][] groups = new int[groupCount][];
+        for (int code = 0; code < groupCount; code++) {
+            groups[code] = lists[code] != null ? lists[code].toArray() : new int[0];
+        }
+        return groups;
+    }
+
+    /**
+     * 相似物品及得分
+     */
+    public record SimilarItem(long itemId, float score) {
+    }
+
+    /**
+     * 全部物品，下标按物品ID升序；分类、所有者、品牌为组编号，-1 表示缺失
+     */
+    private record ItemTable(long[] ids, int[] categories, int[] owners, int[] brands, int[] ratingCounts,
+                             boolean[] rentable) {
+
+        int size() {
+            return ids.length;
+        }
+    }
+
+    /**
+     * 至少包含两个物品的订单：第 b 个订单的物品下标为 members[offsets[b]..offsets[b+1])；
+     * itemBasketCounts 为每个物品出现的订单数（含单物品订单）
+     */
+    private record Baskets(int[] offsets, int[] members, int[] itemBasketCounts) {
+
+        int count() {
+            return offsets.length - 1;
+        }
+    }
+
+    /**
+     * 物品对共现次数，键为 (较小下标 << 32) | 较大下标，按键升序
+     */
+    record PairCounts(long[] keys, int[] counts, int size) {
+
+        static PairCounts merge(PairCounts left, PairCounts right) {
+            long[] keys = new long[left.size + right.size];
+            int[] counts = new int[keys.length];
+            int i = 0;
+            int j = 0;
+            int size = 0;
+            while (i < left.size || j < right.size) {
+                if (j >= right.size || (i < left.size && left.keys[i] < right.keys[j])) {
+                    keys[size] = left.keys[i];
+                    counts[size++] = left.counts[i++];
+                } else if (i >= left.size || right.keys[j] < left.keys[i]) {
+                    keys[size] = right.keys[j];
+                    counts[size++] = right.counts[j++];
+                } else {
+                    keys[size] = left.keys[i];
+                    counts[size++] = left.counts[i++] + right.counts[j++];
+                }
+            }
+            return new PairCounts(keys, counts, size);
+        }
+    }
+
+    /**
+     * 统计一段订单内的物品对，过大时二分后分别统计再归并
+     */
+    private static final class CountPairsTask extends RecursiveTask<PairCounts> {
+
+        private final Baskets baskets;
+        private final int from;
+        private final int to;
+
+        CountPairsTask(Baskets baskets, int from, int to) {
+            this.baskets = baskets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PairCounts compute() {
+            if (to - from <= BASKETS_PER_TASK) {
+                return count();
+            }
+            int mid = (from + to) >>> 1;
+            CountPairsTask left = new CountPairsTask(baskets, from, mid);
+            left.fork();
+            PairCounts right = new CountPairsTask(baskets, mid, to).compute();
+            return PairCounts.merge(left.join(), right);
+        }
+
+        private PairCounts count() {
+            int[] offsets = baskets.offsets();
+            int[] members = baskets.members();
+            int pairCount = 0;
+            for (int b = from; b < to; b++) {
+                int size = offsets[b + 1] - offsets[b];
+                pairCount += size * (size - 1) / 2;
+            }
+            long[] keys = new long[pairCount];
+            int next = 0;
+            for (int b = from; b < to; b++) {
+                for (int i = offsets[b]; i < offsets[b + 1]; i++) {
+                    for (int j = i + 1; j < offsets[b + 1]; j++) {
+                        keys[next++] = ((long) members[i] << 32) | members[j];
+                    }
+                }
+            }
+            Arrays.sort(keys);
+
+            int[] counts = new int[keys.length];
+            int size = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (size > 0 && keys[size - 1] == keys[i]) {
+                    counts[size - 1]++;
+                } else {
+                    keys[size] = keys[i];
+                    counts[size++] = 1;
+                }
+            }
+            return new PairCounts(keys, counts, size);
+        }
+    }
+
+    /**
+     * 每个物品的共现物品及余弦相似度，物品 i 的数据位于 [offsets[i], offsets[i+1])
+     */
+    private record CoOccurrence(int[] offsets, int[] partners, float[] similarities) {
+
+        static CoOccurrence of(PairCounts pairs, int itemCount, int[] itemBasketCounts) {
+            int[] offsets = new int[itemCount + 1];
+            for (int p = 0; p < pairs.size(); p++) {
+                offsets[(int) (pairs.keys()[p] >>> 32) + 1]++;
+                offsets[(int) pairs.keys()[p] + 1]++;
+            }
+            for (int i = 0; i < itemCount; i++) {
+                offsets[i + 1] += offsets[i];
+            }
+            int[] next = Arrays.copyOf(offsets, itemCount);
+            int[] partners = new int[offsets[itemCount]];
+            float[] similarities = new float[partners.length];
+            for (int p = 0; p < pairs.size(); p++) {
+                int a = (int) (pairs.keys()[p] >>> 32);
+                int b = (int) pairs.keys()[p];
+                float similarity = (float) (pairs.counts()[p]
+                    / Math.sqrt((double) itemBasketCounts[a] * itemBasketCounts[b]));
+                partners[next[a]] = b;
+                similarities[next[a]++] = similarity;
+                partners[next[b]] = a;
+                similarities[next[b]++] = similarity;
+            }
+            return new CoOccurrence(offsets, partners, similarities);
+        }
+    }
+
+    /**
+     * 同分类、同品牌、同所有者的候选物品，按组编号索引
+     */
+    private record Groups(int[][] categories, int[][] brands, int[][] owners) {
+    }
+
+    /**
+     * 为一段物品计算 topK 相似物品，结果按物品顺序紧凑存放
+     */
+    static final class TopKTask extends RecursiveAction {
+
+        private final ItemTable items;
+        private final CoOccurrence coOccurrence;
+        private final Groups groups;
+        private final ItemRecommendationConfig config;
+        private final int topK;
+        private final int from;
+        private final int to;
+
+        // 结果：第 i 个物品（相对 from）的邻居位于 [offsets[i], offsets[i+1])
+        private int[] offsets;
+        private int[] neighbors;
+        private float[] scores;
+
+        TopKTask(ItemTable items, CoOccurrence coOccurrence, Groups groups, ItemRecommendationConfig config,
+                 int topK, int from, int to) {
+            this.items = items;
+            this.coOccurrence = coOccurrence;
+            this.groups = groups;
+            this.config = config;
+            this.topK = topK;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            float[] coScores = new float[items.size()];
+            boolean[] seen = new boolean[items.size()];
+            IntList candidates = new IntList();
+            int[] topIndexes = new int[topK];
+            float[] topScores = new float[topK];
+            IntList resultNeighbors = new IntList();
+            float[] resultScores = new float[16];
+            offsets = new int[to - from + 1];
+
+            for (int item = from; item < to; item++) {
+                for (int p = coOccurrence.offsets()[item]; p < coOccurrence.offsets()[item + 1]; p++) {
+                    int partner = coOccurrence.partners()[p];
+                    coScores[partner] = coOccurrence.similarities()[p];
+                    addCandidate(partner, seen, candidates);
+                }
+                addGroup(groups.categories(), items.categories()[item], seen, candidates);
+                addGroup(groups.brands(), items.brands()[item], seen, candidates);
+                addGroup(groups.owners(), items.owners()[item], seen, candidates);
+
+                int size = 0;
+                for (int c = 0; c < candidates.size(); c++) {
+                    int candidate = candidates.get(c);
+                    if (candidate != item && items.rentable()[candidate]) {
+                        size = offer(topIndexes, topScores, size, candidate, score(item, candidate, coScores[candidate]));
+                    }
+                    coScores[candidate] = 0;
+                    seen[candidate] = false;
+                }
+                candidates.clear();
+
+                if (resultNeighbors.size() + size > resultScores.length) {
+                    resultScores = Arrays.copyOf(resultScores, Math.max(resultScores.length * 2, resultNeighbors.size() + size));
+                }
+                System.arraycopy(topScores, 0, resultScores, resultNeighbors.size(), size);
+                for (int k = 0; k < size; k++) {
+                    resultNeighbors.add(topIndexes[k]);
+                }
+                offsets[item - from + 1] = resultNeighbors.size();
+            }
+
+            neighbors = resultNeighbors.toArray();
+            scores = Arrays.copyOf(resultScores, neighbors.length);
+        }
+
+        private float score(int item, int candidate, float coScore) {
+            double score = config.getCoOccurrenceWeight() * coScore;
+            if (sameGroup(items.categories(), item, candidate)) {
+                score += config.getCategoryWeight();
+            }
+            if (sameGroup(items.brands(), item, candidate)) {
+                score += config.getBrandWeight();
+            }
+            if (sameGroup(items.owners(), item, candidate)) {
+                score += config.getOwnerWeight();
+            }
+            return (float) score;
+        }
+
+        private static boolean sameGroup(int[] codes, int a, int b) {
+            return codes[a] >= 0 && codes[a] == codes[b];
+        }
+
+        private static void addGroup(int[][] members, int code, boolean[] seen, IntList candidates) {
+            if (code >= 0) {
+                for (int member : members[code]) {
+                    addCandidate(member, seen, candidates);
+                }
+            }
+        }
+
+        private static void addCandidate(int candidate, boolean[] seen, IntList candidates) {
+            if (!seen[candidate]) {
+                seen[candidate] = true;
+                candidates.add(candidate);
+            }
+        }
+
+        /**
+         * 插入按得分降序的定长缓冲区，返回新的元素数
+         */
+        static int offer(int[] indexes, float[] scores, int size, int candidate, float score) {
+            if (score <= 0 || (size == indexes.length && score <= scores[size - 1])) {
+                return size;
+            }
+            int position = Math.min(size, indexes.length - 1);
+            while (position > 0 && scores[position - 1] < score) {
+                indexes[position] = indexes[position - 1];
+                scores[position] = scores[position - 1];
+                position--;
+            }
+            indexes[position] = candidate;
+            scores[position] = score;
+            return Math.min(size + 1, indexes.length);
+        }
+    }
+
+    /**
+     * 不可变索引：物品 itemIds[i] 的相似物品位于 [offsets[i], offsets[i+1])，按得分降序
+     */
+    private record Neighbors(long[] itemIds, int[] offsets, long[] neighborIds, float[] scores) {
+
+        static Neighbors of(long[] itemIds, List<TopKTask> tasks) {
+            int total = 0;
+            for (TopKTask task : tasks) {
+                total += task.neighbors.length;
+            }
+            int[] offsets = new int[itemIds.length + 1];
+            long[] neighborIds = new long[total];
+            float[] scores = new float[total];
+            int base = 0;
+            for (TopKTask task : tasks) {
+                for (int i = 0; i < task.to - task.from; i++) {
+                    offsets[task.from + i + 1] = base + task.offsets[i + 1];
+                }
+                for (int i = 0; i < task.neighbors.length; i++) {
+                    neighborIds[base + i] = itemIds[task.neighbors[i]];
+                }
+                System.arraycopy(task.scores, 0, scores, base, task.scores.length);
+                base += task.neighbors.length;
+            }
+            return new Neighbors(itemIds, offsets, neighborIds, scores);
+        }
+    }
+
+    /**
+     * 可增长的 int 数组
+     */
+    private static final class IntList {
+
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,669 @@
+package com.rental.item.service;
+
+import com.rental.item.config.ItemSearchConfig;
+import com.rental.item.model.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * 物品全文检索索引
+ *
+ * 名称、品牌、型号、描述、特性和位置分词后建立内存倒排索引，按 BM25 打分。每个词的倒排表
+ * 是按文档号递增的 (文档号差值, 词频) 变长整数编码字节数组。物品新增或修改时分配新的文档号
+ * 追加到倒排表末尾，旧文档只做删除标记；删除标记过多时后台重建。启动时分批读取全部物品，
+ * 多线程分词并按词并行合并倒排表，重建期间的增量变更在切换后重放。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ItemSearchIndex {
+
+    private static final String LOAD_SQL =
+        "SELECT id, name, description, brand, model, features, location, category_id, owner_id, " +
+        "status, approval_status, price_per_day, created_at FROM items WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int SPEC_WEIGHT = 2;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ItemSearchConfig searchConfig;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IncrementalIndexSupport<IndexedItem> incremental = new IncrementalIndexSupport<>();
+    // 重建进行中又收到重建请求时置位，当前重建可能已读过数据，结束后再重建一次
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private volatile IndexState state;
+
+    /**
+     * 启动后重建索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuildInBackground();
+    }
+
+    /**
+     * 在后台线程中全量重建，已有重建在进行时忽略；批量写入等绕过逐条维护的场景在写入完成后调用
+     */
+    public void rebuildInBackground() {
+        if (!searchConfig.isEnabled()) {
+            return;
+        }
+        if (incremental.isRebuilding()) {
+            rebuildRequested.set(true);
+            return;
+        }
+        Thread thread = new Thread(this::rebuild, "item-search-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isReady() {
+        return searchConfig.isEnabled() && state != null;
+    }
+
+    /**
+     * 事务提交后更新物品索引，回滚的修改不会进入索引
+     */
+    public void indexAfterCommit(Item item) {
+        if (searchConfig.isEnabled()) {
+            IndexedItem indexed = IndexedItem.from(item);
+            IncrementalIndexSupport.afterCommit(() -> upsert(indexed));
+        }
+    }
+
+    /**
+     * 事务提交后从索引中删除物品
+     */
+    public void removeAfterCommit(Long itemId) {
+        if (searchConfig.isEnabled()) {
+            IncrementalIndexSupport.afterCommit(() -> remove(itemId));
+        }
+    }
+
+    /**
+     * 全文检索
+     *
+     * @param query  关键词
+     * @param filter 物品属性过滤条件
+     * @param sort   排序方式
+     * @return 关键词没有可检索的词时返回 null
+     */
+    public SearchResult search(String query, SearchFilter filter, SortMode sort, int offset, int limit) {
+        List<String> tokens = ItemTokenizer.tokenize(query);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            IndexState current = state;
+            if (current == null) {
+                return null;
+            }
+            return current.search(tokens, filter, sort, offset, limit,
+                (float) searchConfig.getK1(), (float) searchConfig.getB());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从数据库全量重建索引
+     */
+    public void rebuild() {
+        boolean rebuilt = incremental.rebuild(() -> {
+            long begin = System.currentTimeMillis();
+            try {
+                List<IndexedItem> items = loadAll();
+                IndexState built = IndexState.build(items, Math.max(1, searchConfig.getRebuildThreads()));
+                lock.writeLock().lock();
+                try {
+                    incremental.replay((itemId, change) -> {
+                        built.remove(itemId);
+                        change.ifPresent(built::add);
+                    });
+                    state = built;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                log.info("物品检索索引重建完成，物品：{}，词项：{}，耗时：{}ms",
+                    built.liveDocs, built.terms.size(), System.currentTimeMillis() - begin);
+            } catch (RuntimeException e) {
+                log.error("物品检索索引重建失败，搜索将回退到数据库查询", e);
+            }
+        });
+        if (rebuilt && rebuildRequested.getAndSet(false)) {
+            rebuildInBackground();
+        }
+    }
+
+    private void upsert(IndexedItem item) {
+        apply(item.itemId(), Optional.of(item));
+    }
+
+    private void remove(Long itemId) {
+        apply(itemId, Optional.empty());
+    }
+
+    private void apply(Long itemId, Optional<IndexedItem> change) {
+        incremental.record(itemId, change);
+        boolean compact;
+        lock.writeLock().lock();
+        try {
+            IndexState current = state;
+            if (current == null) {
+                return;
+            }
+            current.remove(itemId);
+            change.ifPresent(current::add);
+            compact = current.docs.size() > 1000
+                && current.deadDocs > current.docs.size() * searchConfig.getCompactionRatio();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (compact && !incremental.isRebuilding()) {
+            rebuildInBackground();
+        }
+    }
+
+    private List<IndexedItem> loadAll() {
+        int batchSize = Math.max(1, searchConfig.getLoadBatchSize());
+        List<IndexedItem> items = new ArrayList<>();
+        long lastId = 0;
+        while (true) {
+            List<IndexedItem> batch = jdbcTemplate.query(LOAD_SQL, (rs, rowNum) -> {
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                long categoryId = rs.getLong("category_id");
+                boolean noCategory = rs.wasNull();
+                String status = rs.getString("status");
+                String approvalStatus = rs.getString("approval_status");
+                return new IndexedItem(
+                    rs.getLong("id"),
+                    rs.getString("name"),
+                    rs.getString("description"),
+                    rs.getString("brand"),
+                    rs.getString("model"),
+                    rs.getString("features"),
+                    rs.getString("location"),
+                    noCategory ? null : categoryId,
+                    rs.getLong("owner_id"),
+                    status != null ? Item.ItemStatus.valueOf(status) : Item.ItemStatus.PENDING,
+                    approvalStatus != null ? Item.ApprovalStatus.valueOf(approvalStatus) : Item.ApprovalStatus.PENDING,
+                    rs.getBigDecimal("price_per_day"),
+                    createdAt != null ? createdAt.toLocalDateTime() : null);
+            }, lastId, batchSize);
+            items.addAll(batch);
+            if (batch.size() < batchSize) {
+                return items;
+            }
+            lastId = batch.get(batch.size() - 1).itemId();
+        }
+    }
+
+    /**
+     * 排序方式
+     */
+    public enum SortMode {
+        RELEVANCE, CREATED_DESC, CREATED_ASC, PRICE_ASC, PRICE_DESC
+    }
+
+    /**
+     * 属性过滤条件，字段为空表示不过滤；categoryIds 为所选分类及其后代分类
+     */
+    public record SearchFilter(Set<Long> categoryIds, Item.ItemStatus status, Item.ApprovalStatus approvalStatus,
+                               Long ownerId, BigDecimal minPrice, BigDecimal maxPrice, String location) {
+    }
+
+    /**
+     * 检索结果：当前页物品ID（按排序）和命中总数
+     */
+    public record SearchResult(List<Long> itemIds, long total) {
+    }
+
+    /**
+     * 建索引所需的物品字段快照
+     */
+    public record IndexedItem(long itemId, String name, String description, String brand, String model,
+                              String features, String location, Long categoryId, long ownerId,
+                              Item.ItemStatus status, Item.ApprovalStatus approvalStatus,
+                              BigDecimal pricePerDay, LocalDateTime createdAt) {
+
+        static IndexedItem from(Item item) {
+            return new IndexedItem(item.getId(), item.getName(), item.getDescription(), item.getBrand(),
+                item.getModel(), item.getFeatures(), item.getLocation(),
+                item.getCategory() != null ? item.getCategory().getId() : null,
+                item.getOwner() != null ? item.getOwner().getId() : 0L,
+                item.getStatus(), item.getApprovalStatus(), item.getPricePerDay(),
+                item.getCreatedAt() != null ? item.getCreatedAt() : LocalDateTime.now());
+        }
+
+        /**
+         * 分词并按字段权重累计词频
+         */
+        Map<String, Integer> termFrequencies() {
+            Map<String, Integer> frequencies = new HashMap<>();
+            addField(frequencies, name, NAME_WEIGHT);
+            addField(frequencies, brand, SPEC_WEIGHT);
+            addField(frequencies, model, SPEC_WEIGHT);
+            addField(frequencies, description, 1);
+            addField(frequencies, features, 1);
+            addField(frequencies, location, 1);
+            return frequencies;
+        }
+
+        private static void addField(Map<String, Integer> frequencies, String text, int weight) {
+            for (String token : ItemTokenizer.tokenize(text)) {
+                frequencies.merge(token, weight, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * 文档属性，用于过滤、排序和 BM25 长度归一化
+     */
+    private static final class DocMeta {
+
+        final long itemId;
+        final Long categoryId;
+        final long ownerId;
+        final Item.ItemStatus status;
+        final Item.ApprovalStatus approvalStatus;
+        final long priceCents;
+        final long createdAtMillis;
+        final String location;
+        final int length;
+        final Postings[] terms;
+        boolean deleted;
+
+        DocMeta(IndexedItem item, int length, Postings[] terms) {
+            this.itemId = item.itemId();
+            this.categoryId = item.categoryId();
+            this.ownerId = item.ownerId();
+            this.status = item.status();
+            this.approvalStatus = item.approvalStatus();
+            this.priceCents = item.pricePerDay() != null ? item.pricePerDay().movePointRight(2).longValue() : 0L;
+            this.createdAtMillis = item.createdAt() != null
+                ? item.createdAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+            this.location = item.location() != null ? item.location().toLowerCase() : null;
+            this.length = length;
+            this.terms = terms;
+        }
+
+        boolean matches(SearchFilter filter) {
+            if (filter == null) {
+                return true;
+            }
+            return (filter.categoryIds() == null || (categoryId != null && filter.categoryIds().contains(categoryId)))
+                && (filter.status() == null || filter.status() == status)
+                && (filter.approvalStatus() == null || filter.approvalStatus() == approvalStatus)
+                && (filter.ownerId() == null || filter.ownerId() == ownerId)
+                && (filter.minPrice() == null || priceCents >= filter.minPrice().movePointRight(2).longValue())
+                && (filter.maxPrice() == null || priceCents <= filter.maxPrice().movePointRight(2).longValue())
+                && (filter.location() == null || filter.location().isBlank()
+                    || (location != null && location.contains(filter.location().toLowerCase())));
+        }
+    }
+
+    /**
+     * 倒排表：按文档号递增的 (文档号差值, 词频) 变长整数编码
+     */
+    static final class Postings {
+
+        byte[] data = new byte[8];
+        int size;
+        int lastDoc = -1;
+        // 未删除文档的数量，用于 IDF
+        int liveDocs;
+
+        void add(int doc, int frequency) {
+            ensureCapacity(10);
+            writeVarInt(doc - lastDoc);
+            writeVarInt(frequency);
+            lastDoc = doc;
+            liveDocs++;
+        }
+
+        void forEach(PostingConsumer consumer) {
+            int position = 0;
+            int doc = -1;
+            while (position < size) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                int frequency = 0;
+                shift = 0;
+                do {
+                    b = data[position++];
+                    frequency |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                doc += delta;
+                consumer.accept(doc, frequency);
+            }
+        }
+
+        void trim() {
+            if (data.length > size) {
+                data = Arrays.copyOf(data, size);
+            }
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface PostingConsumer {
+        void accept(int doc, int frequency);
+    }
+
+    /**
+     * 索引数据，读写由外层读写锁保护
+     */
+    private static final class IndexState {
+
+        final TreeMap<String, Postings> terms = new TreeMap<>();
+        final List<DocMeta> docs = new ArrayList<>();
+        final Map<Long, Integer> docByItem = new HashMap<>();
+        long totalLength;
+        int liveDocs;
+        int deadDocs;
+
+        /**
+         * 并行构建：按文档区间分块分词，再按词并行把各块的倒排数据顺序拼接
+         */
+        static IndexState build(List<IndexedItem> items, int threads) {
+            IndexState index = new IndexState();
+            int chunkCount = Math.max(1, Math.min(threads, (items.size() + 999) / 1000));
+            int chunkSize = (items.size() + chunkCount - 1) / Math.max(1, chunkCount);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<Chunk>> chunkFutures = new ArrayList<>(chunkCount);
+                for (int c = 0; c < chunkCount; c++) {
+                    int from = c * chunkSize;
+                    int to = Math.min(items.size(), from + chunkSize);
+                    chunkFutures.add(executor.submit(() -> Chunk.analyze(items, from, to)));
+                }
+                List<Chunk> chunks = new ArrayList<>(chunkCount);
+                for (Future<Chunk> future : chunkFutures) {
+                    chunks.add(future.get());
+                }
+
+                Map<String, Postings> merged = new HashMap<>();
+                for (Chunk chunk : chunks) {
+                    chunk.postings.keySet().forEach(term -> merged.putIfAbsent(term, new Postings()));
+                }
+                List<String> allTerms = new ArrayList<>(merged.keySet());
+                int termSlice = (allTerms.size() + threads - 1) / threads;
+                List<Future<?>> mergeFutures = new ArrayList<>(threads);
+                for (int t = 0; t < threads; t++) {
+                    int from = t * termSlice;
+                    int to = Math.min(allTerms.size(), from + termSlice);
+                    mergeFutures.add(executor.submit(() -> {
+                        for (int i = from; i < to; i++) {
+                            String term = allTerms.get(i);
+                            Postings postings = merged.get(term);
+                            for (Chunk chunk : chunks) {
+                                int[] pairs = chunk.postings.get(term);
+                                if (pairs == null) {
+                                    continue;
+                                }
+                                int pairCount = pairs[0];
+                                for (int p = 0; p < pairCount; p++) {
+                                    postings.add(pairs[1 + p * 2], pairs[2 + p * 2]);
+                                }
+                            }
+                            postings.trim();
+                        }
+                    }));
+                }
+                for (Future<?> future : mergeFutures) {
+                    future.get();
+                }
+                index.terms.putAll(merged);
+
+                for (Chunk chunk : chunks) {
+                    for (int i = 0; i < chunk.items.size(); i++) {
+                        String[] docTerms = chunk.docTerms.get(i);
+                        Postings[] refs = new Postings[docTerms.length];
+                        for (int t = 0; t < docTerms.length; t++) {
+                            refs[t] = merged.get(docTerms[t]);
+                        }
+                        index.append(new DocMeta(chunk.items.get(i), chunk.lengths[i], refs));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("索引重建被中断", e);
+            } catch (java.util.concurrent.ExecutionException e) {
+                throw new IllegalStateException("索引重建失败", e.getCause());
+            } finally {
+                executor.shutdown();
+            }
+            return index;
+        }
+
+        void add(IndexedItem item) {
+            Map<String, Integer> frequencies = item.termFrequencies();
+            int doc = docs.size();
+            int length = 0;
+            Postings[] refs = new Postings[frequencies.size()];
+            int t = 0;
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                Postings postings = terms.computeIfAbsent(entry.getKey(), key -> new Postings());
+                postings.add(doc, entry.getValue());
+                refs[t++] = postings;
+                length += entry.getValue();
+            }
+            append(new DocMeta(item, length, refs));
+        }
+
+        void remove(long itemId) {
+            Integer doc = docByItem.remove(itemId);
+            if (doc == null) {
+                return;
+            }
+            DocMeta meta = docs.get(doc);
+            meta.deleted = true;
+            for (Postings postings : meta.terms) {
+                postings.liveDocs--;
+            }
+            totalLength -= meta.length;
+            liveDocs--;
+            deadDocs++;
+        }
+
+        private void append(DocMeta meta) {
+            docByItem.put(meta.itemId, docs.size());
+            docs.add(meta);
+            totalLength += meta.length;
+            liveDocs++;
+        }
+
+        SearchResult search(List<String> tokens, SearchFilter filter, SortMode sort, int offset, int limit,
+                            float k1, float b) {
+            // 每个查询词展开为一组倒排表（前缀或单字匹配），组内为或、组间为与
+            List<List<Postings>> groups = new ArrayList<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                List<Postings> group = expand(tokens.get(i), i == tokens.size() - 1);
+                if (group.isEmpty()) {
+                    return new SearchResult(Collections.emptyList(), 0);
+                }
+                groups.add(group);
+            }
+            groups.sort(Comparator.comparingInt(group -> group.stream().mapToInt(p -> p.liveDocs).sum()));
+
+            int docCount = docs.size();
+            float[] scores = new float[docCount];
+            int[] matchedGroups = new int[docCount];
+            float averageLength = liveDocs > 0 ? (float) totalLength / liveDocs : 1f;
+            for (int g = 0; g < groups.size(); g++) {
+                int groupIndex = g;
+                for (Postings postings : groups.get(g)) {
+                    float idf = (float) Math.log(1 + (liveDocs - postings.liveDocs + 0.5) / (postings.liveDocs + 0.5));
+                    postings.forEach((doc, frequency) -> {
+                        // 只有命中了前面所有组的文档才继续累计
+                        if (matchedGroups[doc] < groupIndex || matchedGroups[doc] > groupIndex + 1) {
+                            return;
+                        }
+                        DocMeta meta = docs.get(doc);
+                        if (meta.deleted) {
+                            return;
+                        }
+                        float norm = k1 * (1 - b + b * meta.length / averageLength);
+                        scores[doc] += idf * frequency * (k1 + 1) / (frequency + norm);
+                        matchedGroups[doc] = groupIndex + 1;
+                    });
+                }
+            }
+
+            int required = groups.size();
+            IntPredicate accepted = doc -> matchedGroups[doc] == required && docs.get(doc).matches(filter);
+            List<Integer> hits = new ArrayList<>();
+            for (Postings postings : groups.get(groups.size() - 1)) {
+                postings.forEach((doc, frequency) -> {
+                    if (accepted.test(doc)) {
+                        hits.add(doc);
+                        // 同组多个倒排表可能包含同一文档，只收集一次
+                        matchedGroups[doc] = -1;
+                    }
+                });
+            }
+
+            hits.sort(comparator(sort, scores));
+            int from = Math.min(offset, hits.size());
+            int to = Math.min(hits.size(), from + limit);
+            List<Long> itemIds = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                itemIds.add(docs.get(hits.get(i)).itemId);
+            }
+            return new SearchResult(itemIds, hits.size());
+        }
+
+        private Comparator<Integer> comparator(SortMode sort, float[] scores) {
+            Comparator<Integer> byScore = (x, y) -> Float.compare(scores[y], scores[x]);
+            Comparator<Integer> byNewest = (x, y) -> Long.compare(docs.get(y).itemId, docs.get(x).itemId);
+            return switch (sort) {
+                case CREATED_DESC -> Comparator.<Integer>comparingLong(doc -> -docs.get(doc).createdAtMillis).thenComparing(byScore);
+                case CREATED_ASC -> Comparator.<Integer>comparingLong(doc -> docs.get(doc).createdAtMillis).thenComparing(byScore);
+                case PRICE_ASC -> Comparator.<Integer>comparingLong(doc -> docs.get(doc).priceCents).thenComparing(byScore);
+                case PRICE_DESC -> Comparator.<Integer>comparingLong(doc -> -docs.get(doc).priceCents).thenComparing(byScore);
+                default -> byScore.thenComparing(byNewest);
+            };
+        }
+
+        /**
+         * 查询词展开：最后一个字母数字词按前缀匹配；单个中文字匹配包含它的二字组
+         */
+        private List<Postings> expand(String token, boolean last) {
+            List<Postings> group = new ArrayList<>();
+            if (ItemTokenizer.isWordToken(token)) {
+                if (last) {
+                    NavigableMap<String, Postings> prefixed = terms.subMap(token, true, token + Character.MAX_VALUE, false);
+                    group.addAll(prefixed.values());
+                } else {
+                    Postings postings = terms.get(token);
+                    if (postings != null) {
+                        group.add(postings);
+                    }
+                }
+            } else if (token.codePointCount(0, token.length()) == 1) {
+                for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                    if (entry.getKey().contains(token) && !ItemTokenizer.isWordToken(entry.getKey())) {
+                        group.add(entry.getValue());
+                    }
+                }
+            } else {
+                Postings postings = terms.get(token);
+                if (postings != null) {
+                    group.add(postings);
+                }
+            }
+            group.removeIf(postings -> postings.liveDocs <= 0);
+            return group;
+        }
+    }
+
+    /**
+     * 一段连续文档的分词结果，倒排数据为 [对数, 文档号, 词频, 文档号, 词频, ...]
+     */
+    private static final class Chunk {
+
+        final List<IndexedItem> items;
+        final Map<String, int[]> postings = new HashMap<>();
+        final List<String[]> docTerms = new ArrayList<>();
+        final int[] lengths;
+
+        private Chunk(List<IndexedItem> items) {
+            this.items = items;
+            this.lengths = new int[items.size()];
+        }
+
+        static Chunk analyze(List<IndexedItem> all, int from, int to) {
+            Chunk chunk = new Chunk(all.subList(from, to));
+            for (int i = from; i < to; i++) {
+                Map<String, Integer> frequencies = all.get(i).termFrequencies();
+                String[] docTerms = new String[frequencies.size()];
+                int t = 0;
+                int length = 0;
+                for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                    int[] pairs = chunk.postings.computeIfAbsent(entry.getKey(), key -> new int[9]);
+                    if (1 + pairs[0] * 2 + 2 > pairs.length) {
+                        pairs = Arrays.copyOf(pairs, pairs.length * 2 + 1);
+                        chunk.postings.put(entry.getKey(), pairs);
+                    }
+                    pairs[1 + pairs[0] * 2] = i;
+                    pairs[2 + pairs[0] * 2] = entry.getValue();
+                    pairs[0]++;
+                    docTerms[t++] = entry.getKey();
+                    length += entry.getValue();
+                }
+                chunk.docTerms.add(docTerms);
+                chunk.lengths[i - from] = length;
+            }
+            return chunk;
+        }
+    }
+}
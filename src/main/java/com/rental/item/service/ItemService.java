@@ -5,6 +5,8 @@ import com.rental.item.model.Item;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface ItemService {
@@ -20,6 +22,13 @@ public interface ItemService {
     Page<ItemDto> getAvailableItems(Pageable pageable);
     List<ItemDto> getItemsByOwner(Long ownerId);
     List<ItemDto> getItemsByCategory(Long categoryId);
+    ItemFacetResponse getFacetedItems(Long categoryId, Item.ItemStatus status, String priceRange,
+                                      String location, Pageable pageable);
+    Page<ItemDto> getNearbyItems(double latitude, double longitude, Double radiusKm, Long categoryId,
+                                 BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
+    Page<ItemDto> getItemsAvailableBetween(LocalDate from, LocalDate to, Pageable pageable);
+    ItemCalendarResponse getItemCalendar(Long id, LocalDate from, LocalDate to);
+    List<ItemDto> getSimilarItems(Long id, int limit);
 
     // 管理操作
     ItemDto approveItem(Long id, ItemApprovalRequest request, Long approverId);
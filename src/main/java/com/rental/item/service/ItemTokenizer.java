@@ -0,0 +1,85 @@
+package com.rental.item.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 物品文本分词器
+ *
+ * 先做 NFKC 归一化（全角转半角）并转小写，然后按字符类别切分：中日韩文字连续片段切成
+ * 相邻二字组（单字片段保留单字），字母数字连续片段作为一个词，其他字符作为分隔符。
+ * 索引和查询使用同一分词规则，中文查询的全部二字组都命中时等价于原来的子串匹配。
+ */
+public final class ItemTokenizer {
+
+    private ItemTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase();
+
+        StringBuilder word = new StringBuilder();
+        int previousCjk = -1;
+        boolean cjkRunSingle = false;
+        for (int i = 0; i < normalized.length(); ) {
+            int codePoint = normalized.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (isCjk(codePoint)) {
+                flushWord(word, tokens);
+                if (previousCjk >= 0) {
+                    tokens.add(new StringBuilder(4).appendCodePoint(previousCjk).appendCodePoint(codePoint).toString());
+                    cjkRunSingle = false;
+                } else {
+                    cjkRunSingle = true;
+                }
+                previousCjk = codePoint;
+            } else {
+                flushSingle(previousCjk, cjkRunSingle, tokens);
+                previousCjk = -1;
+                cjkRunSingle = false;
+                if (Character.isLetterOrDigit(codePoint)) {
+                    word.appendCodePoint(codePoint);
+                } else {
+                    flushWord(word, tokens);
+                }
+            }
+        }
+        flushSingle(previousCjk, cjkRunSingle, tokens);
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    /**
+     * 词是否由字母数字组成，查询的最后一个此类词按前缀匹配
+     */
+    public static boolean isWordToken(String token) {
+        return !token.isEmpty() && !isCjk(token.codePointAt(0));
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static void flushSingle(int cjk, boolean single, List<String> tokens) {
+        if (cjk >= 0 && single) {
+            tokens.add(new String(Character.toChars(cjk)));
+        }
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.rental.item.service;
+
+import com.rental.item.config.ItemGeoConfig;
+import com.rental.item.model.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 可租赁物品的经纬度网格索引
+ *
+ * 把地球按固定边长（度）划分为网格，每个网格保存落在其中的上架且审核通过、带经纬度的物品。
+ * 半径查询先把圆换算成经纬度外接矩形，只扫描与矩形相交的网格，再按球面距离精确过滤，
+ * 分类和价格条件在同一遍扫描中判断；结果用大小为 offset + limit 的大顶堆保留最近的若干个，
+ * 总数单独计数。经度按列取模，跨越 180 度经线的查询同样只扫描附近网格。
+ * 物品变更在事务提交后更新索引，启动时全量重建。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class NearbyItemIndex {
+
+    private static final String LOAD_SQL =
+        "SELECT id, latitude, longitude, category_id, price_per_day FROM items " +
+        "WHERE status = 'AVAILABLE' AND approval_status = 'APPROVED' " +
+        "AND latitude IS NOT NULL AND longitude IS NOT NULL AND id > ? ORDER BY id LIMIT ?";
+
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ItemGeoConfig geoConfig;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IncrementalIndexSupport<GeoEntry> incremental = new IncrementalIndexSupport<>();
+    private volatile Grid grid;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (geoConfig.isEnabled()) {
+            Thread thread = new Thread(this::rebuild, "item-geo-rebuild");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public boolean isReady() {
+        return geoConfig.isEnabled() && grid != null;
+    }
+
+    /**
+     * 事务提交后按物品最新状态加入或移出索引
+     */
+    public void updateAfterCommit(Item item) {
+        if (item.getId() == null || !geoConfig.isEnabled()) {
+            return;
+        }
+        Optional<GeoEntry> change = item.isAvailable() && item.getLatitude() != null && item.getLongitude() != null
+            ? Optional.of(new GeoEntry(item.getId(), item.getLatitude().doubleValue(), item.getLongitude().doubleValue(),
+                item.getCategory() != null ? item.getCategory().getId() : null, item.getPricePerDay()))
+            : Optional.empty();
+        Long itemId = item.getId();
+        IncrementalIndexSupport.afterCommit(() -> apply(itemId, change));
+    }
+
+    public void removeAfterCommit(Long itemId) {
+        if (geoConfig.isEnabled()) {
+            IncrementalIndexSupport.afterCommit(() -> apply(itemId, Optional.empty()));
+        }
+    }
+
+    /**
+     * 查询半径内的物品，按距离由近到远排列
+     *
+     * @param radiusKm 搜索半径（公里）
+     * @param filter   分类和价格条件
+     * @return 索引未就绪时返回 null
+     */
+    public NearbyResult search(double latitude, double longitude, double radiusKm, NearbyFilter filter,
+                               int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            Grid current = grid;
+            if (current == null || !geoConfig.isEnabled()) {
+                return null;
+            }
+            return current.search(latitude, longitude, radiusKm, filter, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从数据库全量重建索引
+     */
+    public void rebuild() {
+        incremental.rebuild(() -> {
+            long begin = System.currentTimeMillis();
+            try {
+                Grid rebuilt = new Grid(geoConfig.getCellSizeDegrees());
+                int batchSize = Math.max(1, geoConfig.getLoadBatchSize());
+                long lastId = 0;
+                while (true) {
+                    List<GeoEntry> batch = jdbcTemplate.query(LOAD_SQL, (rs, rowNum) -> new GeoEntry(rs.getLong("id"),
+                        rs.getDouble("latitude"), rs.getDouble("longitude"),
+                        rs.getObject("category_id", Long.class), rs.getBigDecimal("price_per_day")), lastId, batchSize);
+                    batch.forEach(rebuilt::put);
+                    if (batch.size() < batchSize) {
+                        break;
+                    }
+                    lastId = batch.get(batch.size() - 1).itemId();
+                }
+                lock.writeLock().lock();
+                try {
+                    incremental.replay((itemId, change) -> {
+                        rebuilt.remove(itemId);
+                        change.ifPresent(rebuilt::put);
+                    });
+                    grid = rebuilt;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                log.info("附近物品网格索引重建完成，物品：{}，网格：{}，耗时：{}ms",
+                    rebuilt.byId.size(), rebuilt.cells.size(), System.currentTimeMillis() - begin);
+            } catch (RuntimeException e) {
+                log.error("附近物品网格索引重建失败，附近搜索将回退到数据库查询", e);
+            }
+        });
+    }
+
+    /**
+     * 两点间球面距离（公里），haversine 公式
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLat = Math.toRadians(latitude2 - latitude1);
+        double dLng = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+            + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+            * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * 半径对应的纬度跨度（度）
+     */
+    public static double latitudeSpan(double radiusKm) {
+        return radiusKm / KM_PER_DEGREE;
+    }
+
+    /**
+     * 半径在给定纬度处对应的经度跨度（度），靠近极点时返回 180 表示覆盖全部经度
+     */
+    public static double longitudeSpan(double latitude, double radiusKm) {
+        double cos = Math.cos(Math.toRadians(latitude));
+        double span = cos < 1e-6 ? 180 : radiusKm / (KM_PER_DEGREE * cos);
+        return Math.min(180, span);
+    }
+
+    private void apply(Long itemId, Optional<GeoEntry> change) {
+        incremental.record(itemId, change);
+        lock.writeLock().lock();
+        try {
+            Grid current = grid;
+            if (current != null) {
+                current.remove(itemId);
+                change.ifPresent(current::put);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询条件，字段为空表示不限
+     *
+     * @param categoryIds 分类及其全部后代分类
+     */
+    public record NearbyFilter(Set<Long> categoryIds, BigDecimal minPrice, BigDecimal maxPrice) {
+
+        boolean matches(GeoEntry entry) {
+            if (categoryIds != null && (entry.categoryId() == null || !categoryIds.contains(entry.categoryId()))) {
+                return false;
+            }
+            if (minPrice != null && (entry.pricePerDay() == null || entry.pricePerDay().compareTo(minPrice) < 0)) {
+                return false;
+            }
+            return maxPrice == null || (entry.pricePerDay() != null && entry.pricePerDay().compareTo(maxPrice) <= 0);
+        }
+    }
+
+    public record NearbyHit(Long itemId, double distanceKm) {
+    }
+
+    /**
+     * 当前页的物品（按距离升序）和半径内的总数
+     */
+    public record NearbyResult(List<NearbyHit> hits, long total) {
+    }
+
+    private record GeoEntry(long itemId, double latitude, double longitude, Long categoryId, BigDecimal pricePerDay) {
+    }
+
+    /**
+     * 网格：行号按纬度、列号按经度计算，键为 行号 * 列数 + 列号
+     */
+    private static final class Grid {
+
+        private final double cellSize;
+        private final int rows;
+        private final int columns;
+        private final Map<Long, List<GeoEntry>> cells = new HashMap<>();
+        private final Map<Long, GeoEntry> byId = new HashMap<>();
+
+        Grid(double cellSize) {
+            this.cellSize = cellSize > 0 ? cellSize : 0.05;
+            this.rows = (int) Math.ceil(180 / this.cellSize);
+            this.columns = (int) Math.ceil(360 / this.cellSize);
+        }
+
+        void put(GeoEntry entry) {
+            byId.put(entry.itemId(), entry);
+            cells.computeIfAbsent(cellKey(entry.latitude(), entry.longitude()), key -> new ArrayList<>()).add(entry);
+        }
+
+        void remove(long itemId) {
+            GeoEntry entry = byId.remove(itemId);
+            if (entry == null) {
+                return;
+            }
+            long key = cellKey(entry.latitude(), entry.longitude());
+            List<GeoEntry> cell = cells.get(key);
+            if (cell != null) {
+                cell.removeIf(candidate -> candidate.itemId() == itemId);
+                if (cell.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+
+        NearbyResult search(double latitude, double longitude, double radiusKm, NearbyFilter filter,
+                            int offset, int limit) {
+            int keep = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+            // 大顶堆，堆顶是当前保留结果中最远的一个
+            Comparator<NearbyHit> nearestFirst = Comparator.comparingDouble(NearbyHit::distanceKm)
+                .thenComparing(NearbyHit::itemId);
+            PriorityQueue<NearbyHit> nearest = new PriorityQueue<>(Math.max(1, Math.min(keep, 1024)), nearestFirst.reversed());
+            long total = 0;
+
+            double latSpan = latitudeSpan(radiusKm);
+            int fromRow = row(Math.max(-90, latitude - latSpan));
+            int toRow = row(Math.min(90, latitude + latSpan));
+            // 取外接矩形中离赤道最远一侧的纬度计算经度跨度，保证覆盖整个圆
+            double widestLatitude = Math.min(90, Math.abs(latitude) + latSpan);
+            double lngSpan = longitudeSpan(widestLatitude, radiusKm);
+            int fromColumn = (int) Math.floor((longitude - lngSpan + 180) / cellSize);
+            int toColumn = (int) Math.floor((longitude + lngSpan + 180) / cellSize);
+            if (toColumn - fromColumn + 1 >= columns) {
+                fromColumn = 0;
+                toColumn = columns - 1;
+            }
+
+            for (int r = fromRow; r <= toRow; r++) {
+                for (int c = fromColumn; c <= toColumn; c++) {
+                    List<GeoEntry> cell = cells.get((long) r * columns + Math.floorMod(c, columns));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (GeoEntry entry : cell) {
+                        double distance = distanceKm(latitude, longitude, entry.latitude(), entry.longitude());
+                        if (distance > radiusKm || !filter.matches(entry)) {
+                            continue;
+                        }
+                        total++;
+                        if (keep == 0) {
+                            continue;
+                        }
+                        NearbyHit hit = new NearbyHit(entry.itemId(), distance);
+                        if (nearest.size() < keep) {
+                            nearest.add(hit);
+                        } else if (nearestFirst.compare(hit, nearest.peek()) < 0) {
+                            nearest.poll();
+                            nearest.add(hit);
+                        }
+                    }
+                }
+            }
+
+            List<NearbyHit> sorted = new ArrayList<>(nearest);
+            sorted.sort(nearestFirst);
+            List<NearbyHit> page = offset < sorted.size() ? sorted.subList(offset, sorted.size()) : List.of();
+            return new NearbyResult(new ArrayList<>(page), total);
+        }
+
+        private long cellKey(double latitude, double longitude) {
+            return (long) row(latitude) * columns + Math.floorMod((int) Math.floor((longitude + 180) / cellSize), columns);
+        }
+
+        private int row(double latitude) {
+            return Math.min(rows - 1, Math.max(0, (int) Math.floor((latitude + 90) / cellSize)));
+        }
+    }
+}
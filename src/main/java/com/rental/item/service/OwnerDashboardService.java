@@ -0,0 +1,240 @@
+package com.rental.item.service;
+
+import com.rental.common.exception.BusinessException;
+import com.rental.common.exception.ResourceNotFoundException;
+import com.rental.item.DTO.OwnerDashboardResponse;
+import com.rental.item.DTO.OwnerDashboardSummary;
+import com.rental.item.model.Item;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 物品所有者看板
+ *
+ * 所有指标都由按物品或按所有者分组的聚合查询一次算出，只聚合当前页涉及的物品或所有者：
+ * 物品状态计数和评分取自 items 表上增量维护的评分汇总列，租赁数、租用天数和收入由
+ * items、order_items、orders 三表连接后分组得到。租用天数按订单租期（提前归还时以实际
+ * 归还日为准）与统计窗口的重叠天数乘以数量计算，窗口截至昨天。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OwnerDashboardService {
+
+    private static final int MAX_WINDOW_DAYS = 365;
+
+    // 参数依次为：今天、今天、今天、窗口结束日、窗口开始日
+    private static final String BOOKING_COLUMNS =
+        "SUM(CASE WHEN o.status = 'IN_USE' OR (o.status IN ('CONFIRMED', 'PAID') " +
+        "AND o.start_date <= ? AND o.end_date >= ?) THEN 1 ELSE 0 END) AS current_bookings, " +
+        "SUM(CASE WHEN o.status IN ('CONFIRMED', 'PAID') AND o.start_date > ? THEN 1 ELSE 0 END) AS upcoming_bookings, " +
+        "SUM(CASE WHEN o.status IN ('PAID', 'IN_USE', 'RETURNED') THEN GREATEST(0, DATEDIFF(" +
+        "LEAST(COALESCE(o.actual_return_date, o.end_date), ?), GREATEST(o.start_date, ?)) + 1) * oi.quantity " +
+        "ELSE 0 END) AS booked_days, " +
+        "SUM(CASE WHEN o.status IN ('PAID', 'IN_USE', 'RETURNED') THEN oi.total_amount ELSE 0 END) AS revenue ";
+
+    private static final String ITEM_BOOKINGS_SQL =
+        "SELECT oi.item_id AS group_id, " + BOOKING_COLUMNS +
+        "FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+        "WHERE oi.item_id IN (%s) AND o.status NOT IN ('PENDING', 'CANCELLED') GROUP BY oi.item_id";
+
+    private static final String OWNER_BOOKINGS_SQL =
+        "SELECT i.owner_id AS group_id, " + BOOKING_COLUMNS +
+        "FROM items i JOIN order_items oi ON oi.item_id = i.id JOIN orders o ON o.id = oi.order_id " +
+        "WHERE i.owner_id IN (%s) AND o.status NOT IN ('PENDING', 'CANCELLED') GROUP BY i.owner_id";
+
+    // 可出租物品：审核通过且未下架
+    private static final String OWNER_ITEMS_SQL =
+        "SELECT owner_id, status, COUNT(*) AS item_count, " +
+        "SUM(CASE WHEN approval_status = 'APPROVED' AND status <> 'OFFLINE' THEN 1 ELSE 0 END) AS rentable_count, " +
+        "COALESCE(SUM(rating_sum), 0) AS rating_sum, COALESCE(SUM(rating_count), 0) AS rating_count " +
+        "FROM items WHERE owner_id IN (%s) GROUP BY owner_id, status";
+
+    private static final String ITEM_PAGE_SQL =
+        "SELECT id, name, status, approval_status, price_per_day, average_rating, rating_count " +
+        "FROM items WHERE owner_id = ? ORDER BY id DESC LIMIT ? OFFSET ?";
+
+    private static final String OWNER_PAGE_SQL =
+        "SELECT u.id, u.username FROM users u JOIN (SELECT DISTINCT owner_id FROM items) o ON o.owner_id = u.id " +
+        "ORDER BY u.id LIMIT ? OFFSET ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 所有者看板：汇总指标和按物品分页的明细
+     *
+     * @param windowDays 租用天数和利用率的统计天数
+     */
+    @Transactional(readOnly = true)
+    public OwnerDashboardResponse getDashboard(Long ownerId, int windowDays, Pageable pageable) {
+        checkWindow(windowDays);
+        List<String> usernames = jdbcTemplate.queryForList("SELECT username FROM users WHERE id = ?", String.class, ownerId);
+        if (usernames.isEmpty()) {
+            throw new ResourceNotFoundException("用户不存在");
+        }
+        Window window = Window.endingYesterday(windowDays);
+
+        OwnerDashboardSummary summary = new OwnerDashboardSummary();
+        summary.setOwnerId(ownerId);
+        summary.setOwnerUsername(usernames.get(0));
+        summarize(Map.of(ownerId, summary), window);
+
+        List<OwnerDashboardResponse.ItemPerformance> items = jdbcTemplate.query(ITEM_PAGE_SQL, (rs, rowNum) -> {
+            OwnerDashboardResponse.ItemPerformance item = new OwnerDashboardResponse.ItemPerformance();
+            item.setItemId(rs.getLong("id"));
+            item.setName(rs.getString("name"));
+            item.setStatus(Item.ItemStatus.valueOf(rs.getString("status")));
+            item.setApprovalStatus(Item.ApprovalStatus.valueOf(rs.getString("approval_status")));
+            item.setPricePerDay(rs.getBigDecimal("price_per_day"));
+            item.setAverageRating(rs.getBigDecimal("average_rating"));
+            item.setRatingCount(rs.getLong("rating_count"));
+            item.setRevenue(BigDecimal.ZERO);
+            item.setUtilizationRate(BigDecimal.ZERO);
+            return item;
+        }, ownerId, pageable.getPageSize(), pageable.getOffset());
+
+        if (!items.isEmpty()) {
+            Map<Long, OwnerDashboardResponse.ItemPerformance> byId = new LinkedHashMap<>();
+            items.forEach(item -> byId.put(item.getItemId(), item));
+            queryBookings(ITEM_BOOKINGS_SQL, byId.keySet(), window, (groupId, bookings) -> {
+                OwnerDashboardResponse.ItemPerformance item = byId.get(groupId);
+                item.setCurrentBookings(bookings.current());
+                item.setUpcomingBookings(bookings.upcoming());
+                item.setBookedDays(bookings.bookedDays());
+                item.setRevenue(bookings.revenue());
+                item.setUtilizationRate(rate(bookings.bookedDays(), windowDays));
+            });
+        }
+
+        return new OwnerDashboardResponse(windowDays, summary,
+            new PageImpl<>(items, pageable, summary.getTotalItems()));
+    }
+
+    /**
+     * 按所有者分页的汇总指标，只包含拥有物品的用户
+     */
+    @Transactional(readOnly = true)
+    public Page<OwnerDashboardSummary> getOwnerSummaries(int windowDays, Pageable pageable) {
+        checkWindow(windowDays);
+        Long total = jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT owner_id) FROM items", Long.class);
+        Map<Long, OwnerDashboardSummary> owners = new LinkedHashMap<>();
+        jdbcTemplate.query(OWNER_PAGE_SQL, (RowCallbackHandler) rs -> {
+            OwnerDashboardSummary summary = new OwnerDashboardSummary();
+            summary.setOwnerId(rs.getLong("id"));
+            summary.setOwnerUsername(rs.getString("username"));
+            owners.put(summary.getOwnerId(), summary);
+        }, pageable.getPageSize(), pageable.getOffset());
+        if (!owners.isEmpty()) {
+            summarize(owners, Window.endingYesterday(windowDays));
+        }
+        return new PageImpl<>(new ArrayList<>(owners.values()), pageable, total != null ? total : 0);
+    }
+
+    /**
+     * 用两条分组查询填充一批所有者的汇总指标
+     */
+    private void summarize(Map<Long, OwnerDashboardSummary> owners, Window window) {
+        Map<Long, Long> rentableCounts = new LinkedHashMap<>();
+        Map<Long, Long> ratingSums = new LinkedHashMap<>();
+        owners.values().forEach(summary -> {
+            summary.setRevenue(BigDecimal.ZERO);
+            summary.setUtilizationRate(BigDecimal.ZERO);
+        });
+
+        String placeholders = String.join(",", Collections.nCopies(owners.size(), "?"));
+        jdbcTemplate.query(String.format(OWNER_ITEMS_SQL, placeholders), (RowCallbackHandler) rs -> {
+            long ownerId = rs.getLong("owner_id");
+            OwnerDashboardSummary summary = owners.get(ownerId);
+            long count = rs.getLong("item_count");
+            summary.getItemCountByStatus().put(Item.ItemStatus.valueOf(rs.getString("status")), count);
+            summary.setTotalItems(summary.getTotalItems() + count);
+            summary.setRatingCount(summary.getRatingCount() + rs.getLong("rating_count"));
+            rentableCounts.merge(ownerId, rs.getLong("rentable_count"), Long::sum);
+            ratingSums.merge(ownerId, rs.getLong("rating_sum"), Long::sum);
+        }, owners.keySet().toArray());
+
+        queryBookings(OWNER_BOOKINGS_SQL, owners.keySet(), window, (ownerId, bookings) -> {
+            OwnerDashboardSummary summary = owners.get(ownerId);
+            summary.setCurrentBookings(bookings.current());
+            summary.setUpcomingBookings(bookings.upcoming());
+            summary.setBookedDays(bookings.bookedDays());
+            summary.setRevenue(bookings.revenue());
+        });
+
+        owners.forEach((ownerId, summary) -> {
+            long capacity = rentableCounts.getOrDefault(ownerId, 0L) * window.days();
+            summary.setUtilizationRate(rate(summary.getBookedDays(), capacity));
+            summary.setAverageRating(summary.getRatingCount() > 0
+                ? BigDecimal.valueOf(ratingSums.getOrDefault(ownerId, 0L))
+                    .divide(BigDecimal.valueOf(summary.getRatingCount()), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO);
+        });
+    }
+
+    private void queryBookings(String sql, Iterable<Long> groupIds, Window window, BookingsConsumer consumer) {
+        List<Object> params = new ArrayList<>();
+        Date today = Date.valueOf(window.end().plusDays(1));
+        params.add(today);
+        params.add(today);
+        params.add(today);
+        params.add(Date.valueOf(window.end()));
+        params.add(Date.valueOf(window.start()));
+        groupIds.forEach(params::add);
+        String placeholders = String.join(",", Collections.nCopies(params.size() - 5, "?"));
+        jdbcTemplate.query(String.format(sql, placeholders), (RowCallbackHandler) rs -> consumer.accept(
+            rs.getLong("group_id"),
+            new Bookings(rs.getLong("current_bookings"), rs.getLong("upcoming_bookings"),
+                rs.getLong("booked_days"), rs.getBigDecimal("revenue"))), params.toArray());
+    }
+
+    private static BigDecimal rate(long bookedDays, long capacityDays) {
+        if (capacityDays <= 0) {
+            return BigDecimal.ZERO;
+        }
+        // 同一物品数量大于1或租期重叠时租用天数可能超过容量，利用率封顶为1
+        return BigDecimal.valueOf(Math.min(bookedDays, capacityDays))
+            .divide(BigDecimal.valueOf(capacityDays), 4, RoundingMode.HALF_UP);
+    }
+
+    private static void checkWindow(int windowDays) {
+        if (windowDays < 1 || windowDays > MAX_WINDOW_DAYS) {
+            throw new BusinessException("统计天数必须在1到" + MAX_WINDOW_DAYS + "之间");
+        }
+    }
+
+    /**
+     * 统计窗口 [start, end]，两端都包含
+     */
+    private record Window(LocalDate start, LocalDate end, int days) {
+
+        static Window endingYesterday(int days) {
+            LocalDate end = LocalDate.now().minusDays(1);
+            return new Window(end.minusDays(days - 1L), end, days);
+        }
+    }
+
+    private record Bookings(long current, long upcoming, long bookedDays, BigDecimal revenue) {
+    }
+
+    @FunctionalInterface
+    private interface BookingsConsumer {
+        void accept(Long groupId, Bookings bookings);
+    }
+}
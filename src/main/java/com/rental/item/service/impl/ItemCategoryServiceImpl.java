@@ -7,6 +7,7 @@ import com.rental.item.DTO.ItemCategoryDto;
 import com.rental.item.DTO.ItemCategoryUpdateRequest;
 import com.rental.item.model.ItemCategory;
 import com.rental.item.repository.ItemCategoryRepository;
+import com.rental.item.service.CategoryHierarchyService;
 import com.rental.item.service.ItemCategoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,7 +15,10 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,6 +27,7 @@ import java.util.stream.Collectors;
 public class ItemCategoryServiceImpl implements ItemCategoryService {
 
     private final ItemCategoryRepository categoryRepository;
+    private final CategoryHierarchyService categoryHierarchyService;
 
     @Override
     @Transactional
@@ -47,6 +52,7 @@ public class ItemCategoryServiceImpl implements ItemCategoryService {
         }
 
         ItemCategory savedCategory = categoryRepository.save(category);
+        categoryHierarchyService.attach(savedCategory.getId(), request.getParentId());
         log.info("分类创建成功，ID：{}", savedCategory.getId());
 
         return convertToDto(savedCategory);
@@ -65,6 +71,8 @@ public class ItemCategoryServiceImpl implements ItemCategoryService {
             throw new BusinessException("分类名称已存在");
         }
 
+        Long oldParentId = category.getParent() != null ? category.getParent().getId() : null;
+
         // 更新字段
         if (request.getName() != null) {
             category.setName(request.getName());
@@ -92,6 +100,10 @@ public class ItemCategoryServiceImpl implements ItemCategoryService {
         }
 
         ItemCategory savedCategory = categoryRepository.save(category);
+        Long newParentId = savedCategory.getParent() != null ? savedCategory.getParent().getId() : null;
+        if (!Objects.equals(oldParentId, newParentId)) {
+            categoryHierarchyService.move(savedCategory.getId(), newParentId);
+        }
         log.info("分类更新成功，ID：{}", savedCategory.getId());
 
         return convertToDto(savedCategory);
@@ -126,21 +138,33 @@ public class ItemCategoryServiceImpl implements ItemCategoryService {
     @Transactional(readOnly = true)
     public List<ItemCategoryDto> getAllCategories() {
         List<ItemCategory> categories = categoryRepository.findAll();
-        return categories.stream().map(this::convertToDto).collect(Collectors.toList());
+        return convertToDtos(categories);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ItemCategoryDto> getRootCategories() {
         List<ItemCategory> categories = categoryRepository.findByParentIsNullOrderBySortOrder();
-        return categories.stream().map(this::convertToDto).collect(Collectors.toList());
+        return convertToDtos(categories);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ItemCategoryDto> getSubCategories(Long parentId) {
         List<ItemCategory> categories = categoryRepository.findByParentIdOrderBySortOrder(parentId);
-        return categories.stream().map(this::convertToDto).collect(Collectors.toList());
+        return convertToDtos(categories);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemCategoryDto> getDescendants(Long id) {
+        return convertToDtos(categoryRepository.findAllSubCategories(id));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemCategoryDto> getAncestors(Long id) {
+        return convertToDtos(categoryRepository.findAncestors(id));
     }
 
     @Override
@@ -154,7 +178,7 @@ public class ItemCategoryServiceImpl implements ItemCategoryService {
     @Transactional(readOnly = true)
     public List<ItemCategoryDto> getCategoriesWithItems() {
         List<ItemCategory> categories = categoryRepository.findCategoriesWithItems();
-        return categories.stream().map(this::convertToDto).collect(Collectors.toList());
+        return convertToDtos(categories);
     }
 
     @Override
@@ -172,15 +196,8 @@ public class ItemCategoryServiceImpl implements ItemCategoryService {
     @Override
     @Transactional(readOnly = true)
     public boolean canDeleteCategory(Long id) {
-        // 检查是否有子分类
-        List<ItemCategory> subCategories = categoryRepository.findByParentIdOrderBySortOrder(id);
-        if (!subCategories.isEmpty()) {
-            return false;
-        }
-
-        // 检查是否有物品
-        long itemCount = categoryRepository.countItemsByCategoryId(id);
-        return itemCount == 0;
+        // 没有子分类且没有物品
+        return categoryRepository.countChildrenAndItems(id) == 0;
     }
 
     @Override
@@ -189,6 +206,13 @@ public class ItemCategoryServiceImpl implements ItemCategoryService {
         return categoryRepository.countItemsByCategoryId(categoryId);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public long getItemCountByCategory(Long categoryId, boolean includeDescendants) {
+        return includeDescendants ? categoryRepository.countItemsInSubtree(categoryId)
+            : categoryRepository.countItemsByCategoryId(categoryId);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public boolean isCategoryNameExists(String name) {
@@ -202,28 +226,15 @@ public class ItemCategoryServiceImpl implements ItemCategoryService {
     }
 
     private boolean wouldCreateCircularReference(Long categoryId, Long parentId) {
-        if (categoryId.equals(parentId)) {
-            return true;
-        }
-
-        ItemCategory parent = categoryRepository.findById(parentId).orElse(null);
-        while (parent != null) {
-            if (categoryId.equals(parent.getId())) {
-                return true;
-            }
-            parent = parent.getParent();
-        }
-
-        return false;
+        // 新父分类是自身或自身的后代时形成循环，闭包表一次主键查询即可判断
+        return categoryId.equals(parentId) || categoryRepository.isAncestorOf(categoryId, parentId);
     }
 
     private List<ItemCategoryDto> buildCategoryTree(List<ItemCategory> allCategories) {
         List<ItemCategoryDto> rootCategories = new ArrayList<>();
 
         // 先转换所有分类为DTO
-        List<ItemCategoryDto> allDtos = allCategories.stream()
-            .map(this::convertToDto)
-            .collect(Collectors.toList());
+        List<ItemCategoryDto> allDtos = convertToDtos(allCategories);
 
         // 构建树形结构
         for (ItemCategoryDto dto : allDtos) {
@@ -250,7 +261,40 @@ public class ItemCategoryServiceImpl implements ItemCategoryService {
         return children;
     }
 
+    /**
+     * 批量转换，物品数、含后代物品数和子分类数各用一次分组查询得到
+     */
+    private List<ItemCategoryDto> convertToDtos(List<ItemCategory> categories) {
+        if (categories.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Long> itemCounts = toCountMap(categoryRepository.countItemsPerCategory());
+        Map<Long, Long> subtreeCounts = toCountMap(categoryRepository.countItemsPerSubtree());
+        Map<Long, Long> childCounts = toCountMap(categoryRepository.countChildrenPerCategory());
+        return categories.stream()
+            .map(category -> convertToDto(category,
+                itemCounts.getOrDefault(category.getId(), 0L),
+                subtreeCounts.getOrDefault(category.getId(), 0L),
+                childCounts.getOrDefault(category.getId(), 0L) > 0))
+            .collect(Collectors.toList());
+    }
+
+    private Map<Long, Long> toCountMap(List<Object[]> rows) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
     private ItemCategoryDto convertToDto(ItemCategory category) {
+        return convertToDto(category,
+            categoryRepository.countItemsByCategoryId(category.getId()),
+            categoryRepository.countItemsInSubtree(category.getId()),
+            category.hasChildren());
+    }
+
+    private ItemCategoryDto convertToDto(ItemCategory category, long itemCount, long totalItemCount, boolean hasChildren) {
         ItemCategoryDto dto = new ItemCategoryDto();
         dto.setId(category.getId());
         dto.setName(category.getName());
@@ -259,7 +303,7 @@ public class ItemCategoryServiceImpl implements ItemCategoryService {
         dto.setCreatedAt(category.getCreatedAt());
         dto.setUpdatedAt(category.getUpdatedAt());
         dto.setRoot(category.isRoot());
-        dto.setHasChildren(category.hasChildren());
+        dto.setHasChildren(hasChildren);
 
         if (category.getParent() != null) {
             dto.setParentId(category.getParent().getId());
@@ -267,7 +311,8 @@ public class ItemCategoryServiceImpl implements ItemCategoryService {
         }
 
         // 设置物品数量
-        dto.setItemCount((int) getItemCountByCategory(category.getId()));
+        dto.setItemCount((int) itemCount);
+        dto.setTotalItemCount((int) totalItemCount);
 
         return dto;
     }
@@ -3,23 +3,48 @@ package com.rental.item.service.impl;
 import com.rental.common.exception.BusinessException;
 import com.rental.common.exception.ResourceNotFoundException;
 import com.rental.item.DTO.*;
+import com.rental.item.config.ItemCalendarConfig;
+import com.rental.item.config.ItemGeoConfig;
+import com.rental.item.config.ItemRecommendationConfig;
 import com.rental.item.model.Item;
 import com.rental.item.model.ItemCategory;
 import com.rental.item.repository.ItemRepository;
 import com.rental.item.repository.ItemCategoryRepository;
+import com.rental.item.service.AvailableItemCatalog;
+import com.rental.item.service.CategoryHierarchyService;
+import com.rental.item.service.ItemAvailabilityCalendar;
+import com.rental.item.service.ItemFacetIndex;
+import com.rental.item.service.ItemRecommendationIndex;
+import com.rental.item.service.ItemSearchIndex;
 import com.rental.item.service.ItemService;
+import com.rental.item.service.NearbyItemIndex;
 import com.rental.user.model.User;
 import com.rental.user.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,6 +55,16 @@ public class ItemServiceImpl implements ItemService {
     private final ItemRepository itemRepository;
     private final ItemCategoryRepository categoryRepository;
     private final UserRepository userRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemFacetIndex itemFacetIndex;
+    private final CategoryHierarchyService categoryHierarchyService;
+    private final AvailableItemCatalog availableItemCatalog;
+    private final NearbyItemIndex nearbyItemIndex;
+    private final ItemGeoConfig geoConfig;
+    private final ItemAvailabilityCalendar itemAvailabilityCalendar;
+    private final ItemCalendarConfig calendarConfig;
+    private final ItemRecommendationIndex itemRecommendationIndex;
+    private final ItemRecommendationConfig recommendationConfig;
 
     @Override
     @Transactional
@@ -46,6 +81,7 @@ public class ItemServiceImpl implements ItemService {
         item.setPricePerDay(request.getPricePerDay());
         item.setDeposit(request.getDeposit());
         item.setLocation(request.getLocation());
+        setCoordinates(item, request.getLatitude(), request.getLongitude());
         item.setImages(request.getImagesAsString()); // 使用辅助方法转换为字符串
         item.setSpecifications(request.getSpecifications());
 
@@ -57,6 +93,7 @@ public class ItemServiceImpl implements ItemService {
         }
 
         Item savedItem = itemRepository.save(item);
+        reindexAfterCommit(savedItem);
         log.info("物品创建成功，ID：{}", savedItem.getId());
 
         return convertToDto(savedItem);
@@ -99,6 +136,9 @@ public class ItemServiceImpl implements ItemService {
         if (request.getLocation() != null) {
             item.setLocation(request.getLocation());
         }
+        if (request.getLatitude() != null || request.getLongitude() != null) {
+            setCoordinates(item, request.getLatitude(), request.getLongitude());
+        }
         if (request.getImages() != null) {
         }
         if (request.getSpecifications() != null) {
@@ -106,6 +146,7 @@ public class ItemServiceImpl implements ItemService {
         }
 
         Item savedItem = itemRepository.save(item);
+        reindexAfterCommit(savedItem);
         log.info("物品更新成功，ID：{}", savedItem.getId());
 
         return convertToDto(savedItem);
@@ -138,14 +179,31 @@ public class ItemServiceImpl implements ItemService {
         }
 
         itemRepository.delete(item);
+        unindexAfterCommit(id);
         log.info("物品删除成功，ID：{}", id);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ItemDto> searchItems(ItemSearchRequest request, Pageable pageable) {
+        String keyword = StringUtils.hasText(request.getKeyword()) ? request.getKeyword() : request.getName();
+        // 评分由评价审核实时维护，不在检索索引中，带评分条件时走数据库查询
+        if (StringUtils.hasText(keyword) && request.getMinRating() == null && itemSearchIndex.isReady()) {
+            ItemSearchIndex.SearchResult result = itemSearchIndex.search(keyword,
+                new ItemSearchIndex.SearchFilter(
+                    request.getCategoryId() != null ? Set.copyOf(categoryRepository.findSubtreeIds(request.getCategoryId())) : null,
+                    request.getStatus(),
+                    request.getApprovalStatus(), request.getOwnerId(), request.getMinPrice(),
+                    request.getMaxPrice(), request.getLocation()),
+                toSortMode(pageable.getSort()), (int) Math.min(Integer.MAX_VALUE, pageable.getOffset()),
+                pageable.getPageSize());
+            if (result != null) {
+                return new PageImpl<>(loadInOrder(result.itemIds()), pageable, result.total());
+            }
+        }
+
         Page<Item> items = itemRepository.findBySearchCriteria(
-            request.getName(),
+            StringUtils.hasText(request.getName()) ? request.getName() : request.getKeyword(),
             request.getCategoryId(),
             request.getStatus(),
             request.getApprovalStatus(),
@@ -153,12 +211,175 @@ public class ItemServiceImpl implements ItemService {
             request.getMinPrice(),
             request.getMaxPrice(),
             request.getLocation(),
+            request.getMinRating(),
             pageable
         );
 
         return items.map(this::convertToDto);
     }
 
+    /**
+     * 物品变更后同步检索索引、分面索引和可租赁目录快照，均在事务提交后生效
+     */
+    private void reindexAfterCommit(Item item) {
+        itemSearchIndex.indexAfterCommit(item);
+        itemFacetIndex.indexAfterCommit(item);
+        availableItemCatalog.updateAfterCommit(item);
+        nearbyItemIndex.updateAfterCommit(item);
+    }
+
+    private void unindexAfterCommit(Long itemId) {
+        itemSearchIndex.removeAfterCommit(itemId);
+        itemFacetIndex.removeAfterCommit(itemId);
+        availableItemCatalog.removeAfterCommit(itemId);
+        nearbyItemIndex.removeAfterCommit(itemId);
+    }
+
+    private void setCoordinates(Item item, BigDecimal latitude, BigDecimal longitude) {
+        if ((latitude == null) != (longitude == null)) {
+            throw new BusinessException("纬度和经度需同时提供");
+        }
+        item.setLatitude(latitude);
+        item.setLongitude(longitude);
+    }
+
+    /**
+     * 按给定ID顺序加载物品，期间被删除的物品跳过
+     */
+    private List<ItemDto> loadInOrder(List<Long> itemIds) {
+        Map<Long, Item> loaded = itemRepository.findAllById(itemIds).stream()
+            .collect(Collectors.toMap(Item::getId, Function.identity()));
+        return itemIds.stream()
+            .map(loaded::get)
+            .filter(Objects::nonNull)
+            .map(this::convertToDto)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ItemFacetResponse getFacetedItems(Long categoryId, Item.ItemStatus status, String priceRange,
+                                             String location, Pageable pageable) {
+        Map<String, List<String>> filters = new HashMap<>();
+        if (categoryId != null) {
+            // 与数据库查询一致，选中分类时包含其所有后代分类
+            filters.put(ItemFacetIndex.CATEGORY, categoryHierarchyService.subtreeIds(categoryId).stream()
+                .map(String::valueOf)
+                .collect(Collectors.toList()));
+        }
+        if (status != null) {
+            filters.put(ItemFacetIndex.STATUS, List.of(status.name()));
+        }
+        if (StringUtils.hasText(priceRange)) {
+            filters.put(ItemFacetIndex.PRICE, List.of(priceRange));
+        }
+        if (StringUtils.hasText(location)) {
+            filters.put(ItemFacetIndex.LOCATION, List.of(location.trim()));
+        }
+
+        ItemFacetIndex.FacetResult result = itemFacetIndex.search(filters,
+            (int) Math.min(Integer.MAX_VALUE, pageable.getOffset()), pageable.getPageSize());
+        if (result == null) {
+            // 索引未就绪，按相同条件查数据库，不返回计数
+            BigDecimal[] range = StringUtils.hasText(priceRange) ? itemFacetIndex.priceRange(priceRange) : null;
+            Page<Item> items = itemRepository.findBySearchCriteria(null, categoryId, status,
+                Item.ApprovalStatus.APPROVED, null, range != null ? range[0] : null, range != null ? range[1] : null,
+                StringUtils.hasText(location) ? location.trim() : null, null, pageable);
+            return new ItemFacetResponse(items.map(this::convertToDto), Collections.emptyMap());
+        }
+
+        Map<String, String> categoryNames = new HashMap<>();
+        List<Long> categoryIds = result.facets().getOrDefault(ItemFacetIndex.CATEGORY, List.of()).stream()
+            .map(count -> Long.valueOf(count.value()))
+            .collect(Collectors.toList());
+        categoryRepository.findAllById(categoryIds)
+            .forEach(category -> categoryNames.put(String.valueOf(category.getId()), category.getName()));
+
+        Map<String, List<ItemFacetResponse.FacetValue>> facets = new LinkedHashMap<>();
+        result.facets().forEach((facet, counts) -> facets.put(facet, counts.stream()
+            .map(count -> new ItemFacetResponse.FacetValue(count.value(),
+                facetLabel(facet, count.value(), categoryNames), count.count()))
+            .collect(Collectors.toList())));
+
+        Page<ItemDto> items = new PageImpl<>(loadInOrder(result.itemIds()), pageable, result.total());
+        return new ItemFacetResponse(items, facets);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ItemDto> getNearbyItems(double latitude, double longitude, Double radiusKm, Long categoryId,
+                                        BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new BusinessException("经纬度超出范围");
+        }
+        double radius = radiusKm != null ? radiusKm : geoConfig.getDefaultRadiusKm();
+        if (radius <= 0 || radius > geoConfig.getMaxRadiusKm()) {
+            throw new BusinessException("搜索半径必须大于0且不超过" + geoConfig.getMaxRadiusKm() + "公里");
+        }
+
+        int offset = (int) Math.min(Integer.MAX_VALUE, pageable.getOffset());
+        NearbyItemIndex.NearbyResult result = null;
+        if (nearbyItemIndex.isReady()) {
+            Set<Long> categoryIds = categoryId != null ? Set.copyOf(categoryRepository.findSubtreeIds(categoryId)) : null;
+            result = nearbyItemIndex.search(latitude, longitude, radius,
+                new NearbyItemIndex.NearbyFilter(categoryIds, minPrice, maxPrice), offset, pageable.getPageSize());
+        }
+        if (result == null) {
+            result = searchNearbyInDatabase(latitude, longitude, radius, categoryId, minPrice, maxPrice,
+                offset, pageable.getPageSize());
+        }
+
+        Map<Long, Double> distances = new HashMap<>();
+        result.hits().forEach(hit -> distances.put(hit.itemId(), Math.round(hit.distanceKm() * 1000) / 1000.0));
+        List<ItemDto> content = loadInOrder(result.hits().stream().map(NearbyItemIndex.NearbyHit::itemId).toList());
+        content.forEach(dto -> dto.setDistanceKm(distances.get(dto.getId())));
+        return new PageImpl<>(content, pageable, result.total());
+    }
+
+    /**
+     * 网格索引未就绪时按经纬度外接矩形查询数据库，再按距离过滤排序；跨 180 度经线的部分不查询
+     */
+    private NearbyItemIndex.NearbyResult searchNearbyInDatabase(double latitude, double longitude, double radiusKm,
+                                                                Long categoryId, BigDecimal minPrice,
+                                                                BigDecimal maxPrice, int offset, int limit) {
+        double latSpan = NearbyItemIndex.latitudeSpan(radiusKm);
+        double lngSpan = NearbyItemIndex.longitudeSpan(Math.min(90, Math.abs(latitude) + latSpan), radiusKm);
+        List<NearbyItemIndex.NearbyHit> hits = itemRepository.findAvailableWithinBounds(
+                BigDecimal.valueOf(Math.max(-90, latitude - latSpan)), BigDecimal.valueOf(Math.min(90, latitude + latSpan)),
+                BigDecimal.valueOf(Math.max(-180, longitude - lngSpan)), BigDecimal.valueOf(Math.min(180, longitude + lngSpan)),
+                categoryId, minPrice, maxPrice).stream()
+            .map(item -> new NearbyItemIndex.NearbyHit(item.getId(), NearbyItemIndex.distanceKm(latitude, longitude,
+                item.getLatitude().doubleValue(), item.getLongitude().doubleValue())))
+            .filter(hit -> hit.distanceKm() <= radiusKm)
+            .sorted(Comparator.comparingDouble(NearbyItemIndex.NearbyHit::distanceKm)
+                .thenComparing(NearbyItemIndex.NearbyHit::itemId))
+            .collect(Collectors.toList());
+        List<NearbyItemIndex.NearbyHit> page = hits.stream().skip(offset).limit(limit).collect(Collectors.toList());
+        return new NearbyItemIndex.NearbyResult(page, hits.size());
+    }
+
+    private String facetLabel(String facet, String value, Map<String, String> categoryNames) {
+        if (ItemFacetIndex.CATEGORY.equals(facet)) {
+            return categoryNames.getOrDefault(value, value);
+        }
+        if (ItemFacetIndex.STATUS.equals(facet)) {
+            return Item.ItemStatus.valueOf(value).getDescription();
+        }
+        return value;
+    }
+
+    private ItemSearchIndex.SortMode toSortMode(Sort sort) {
+        Sort.Order createdAt = sort.getOrderFor("createdAt");
+        if (createdAt != null) {
+            return createdAt.isAscending() ? ItemSearchIndex.SortMode.CREATED_ASC : ItemSearchIndex.SortMode.CREATED_DESC;
+        }
+        Sort.Order price = sort.getOrderFor("pricePerDay");
+        if (price != null) {
+            return price.isAscending() ? ItemSearchIndex.SortMode.PRICE_ASC : ItemSearchIndex.SortMode.PRICE_DESC;
+        }
+        return ItemSearchIndex.SortMode.RELEVANCE;
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<ItemDto> getAvailableItems(Pageable pageable) {
@@ -166,6 +387,81 @@ public class ItemServiceImpl implements ItemService {
         return items.map(this::convertToDto);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ItemDto> getItemsAvailableBetween(LocalDate from, LocalDate to, Pageable pageable) {
+        validateCalendarRange(from, to);
+
+        // 日历覆盖该范围时在可租物品快照上逐个判断位图，否则由数据库排除有冲突订单的物品
+        if (itemAvailabilityCalendar.covers(from, to)) {
+            AvailableItemCatalog.CatalogPage cached = availableItemCatalog.page(pageable,
+                itemId -> itemAvailabilityCalendar.isFree(itemId, from, to));
+            if (cached != null) {
+                return cached.items();
+            }
+        }
+        return itemRepository.findAvailableBetween(from, to, pageable).map(this::convertToDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ItemCalendarResponse getItemCalendar(Long id, LocalDate from, LocalDate to) {
+        validateCalendarRange(from, to);
+        Item item = itemRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("物品不存在"));
+
+        List<ItemCalendarResponse.BookedRange> bookedRanges = itemAvailabilityCalendar.bookedRanges(id, from, to).stream()
+            .map(range -> new ItemCalendarResponse.BookedRange(range.start(), range.end()))
+            .collect(Collectors.toList());
+        boolean rentable = item.getStatus() == Item.ItemStatus.AVAILABLE
+            && item.getApprovalStatus() == Item.ApprovalStatus.APPROVED;
+        return new ItemCalendarResponse(id, from, to, rentable, bookedRanges);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ItemDto> getSimilarItems(Long id, int limit) {
+        int size = Math.max(1, Math.min(limit, recommendationConfig.getTopK()));
+
+        // 推荐索引按构建时的可租状态选取邻居，读取时再过滤掉之后不可租的物品；
+        // 取出全部 topK 个邻居再过滤，过滤后仍尽量凑满 limit 个
+        List<ItemRecommendationIndex.SimilarItem> similar = itemRecommendationIndex.similar(id, recommendationConfig.getTopK());
+        if (similar != null) {
+            List<Long> itemIds = similar.stream().map(ItemRecommendationIndex.SimilarItem::itemId).collect(Collectors.toList());
+            List<ItemDto> available = availableItemCatalog.lookup(itemIds);
+            if (available == null) {
+                available = loadInOrder(itemIds).stream()
+                    .filter(dto -> dto.getStatus() == Item.ItemStatus.AVAILABLE
+                        && dto.getApprovalStatus() == Item.ApprovalStatus.APPROVED)
+                    .collect(Collectors.toList());
+            }
+            return available.size() > size ? new ArrayList<>(available.subList(0, size)) : available;
+        }
+
+        Item item = itemRepository.findById(id)
+            .orElseThrow(() -> new ResourceNotFoundException("物品不存在"));
+        if (item.getCategory() == null) {
+            return List.of();
+        }
+        List<Long> categoryIds = categoryHierarchyService.subtreeIds(item.getCategory().getId());
+        return itemRepository.findAvailableInCategory(categoryIds, id, PageRequest.of(0, size)).stream()
+            .map(this::convertToDto)
+            .collect(Collectors.toList());
+    }
+
+    private void validateCalendarRange(LocalDate from, LocalDate to) {
+        LocalDate today = LocalDate.now();
+        if (from.isBefore(today)) {
+            throw new BusinessException("开始日期不能早于今天");
+        }
+        if (to.isBefore(from)) {
+            throw new BusinessException("结束日期不能早于开始日期");
+        }
+        if (to.isAfter(today.plusDays(calendarConfig.getHorizonDays()))) {
+            throw new BusinessException("只能查询今天起" + calendarConfig.getHorizonDays() + "天内的日期");
+        }
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<ItemDto> getItemsByOwner(Long ownerId) {
@@ -176,7 +472,7 @@ public class ItemServiceImpl implements ItemService {
     @Override
     @Transactional(readOnly = true)
     public List<ItemDto> getItemsByCategory(Long categoryId) {
-        List<Item> items = itemRepository.findByCategoryId(categoryId);
+        List<Item> items = itemRepository.findByCategoryIncludingDescendants(categoryId);
         return items.stream().map(this::convertToDto).collect(Collectors.toList());
     }
 
@@ -198,6 +494,7 @@ public class ItemServiceImpl implements ItemService {
         }
 
         Item savedItem = itemRepository.save(item);
+        reindexAfterCommit(savedItem);
         log.info("物品审核完成，ID：{}, 状态：{}", id, savedItem.getApprovalStatus());
 
         return convertToDto(savedItem);
@@ -224,6 +521,7 @@ public class ItemServiceImpl implements ItemService {
 
         item.setStatus(status);
         Item savedItem = itemRepository.save(item);
+        reindexAfterCommit(savedItem);
 
         return convertToDto(savedItem);
     }
@@ -366,6 +664,8 @@ public class ItemServiceImpl implements ItemService {
         dto.setDeposit(item.getDeposit());
         dto.setStatus(item.getStatus());
         dto.setLocation(item.getLocation());
+        dto.setLatitude(item.getLatitude());
+        dto.setLongitude(item.getLongitude());
         dto.setImages(item.getImages());
         dto.setSpecifications(item.getSpecifications());
         dto.setApprovalStatus(item.getApprovalStatus());
@@ -373,6 +673,8 @@ public class ItemServiceImpl implements ItemService {
         dto.setApprovedAt(item.getApprovedAt());
         dto.setCreatedAt(item.getCreatedAt());
         dto.setUpdatedAt(item.getUpdatedAt());
+        dto.setAverageRating(item.getAverageRating());
+        dto.setRatingCount(item.getRatingCount());
         dto.setAvailable(item.isAvailable());
         dto.setCanBeRented(item.canBeRented());
 
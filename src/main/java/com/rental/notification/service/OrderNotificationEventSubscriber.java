@@ -0,0 +1,68 @@
+package com.rental.notification.service;
+
+import com.rental.common.constant.DomainEventConstants;
+import com.rental.common.model.OutboxEvent;
+import com.rental.common.service.DomainEventSubscriber;
+import com.rental.notification.model.Notification;
+import com.rental.notification.repository.NotificationRepository;
+import com.rental.order.model.Order;
+import com.rental.order.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Set;
+
+/**
+ * 订单站内通知事件订阅者
+ *
+ * 通知与事件的已投递标记在同一事务中写入，重复投递只会发生在整条事件回滚之后。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OrderNotificationEventSubscriber implements DomainEventSubscriber {
+
+    private final NotificationRepository notificationRepository;
+    private final OrderRepository orderRepository;
+
+    @Override
+    public Set<String> eventTypes() {
+        return Set.of(DomainEventConstants.ORDER_PAID, DomainEventConstants.ORDER_RETURNED,
+            DomainEventConstants.REFUND_COMPLETED);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        Order order = orderRepository.findById(event.getAggregateId()).orElse(null);
+        if (order == null) {
+            log.warn("订单通知跳过，订单不存在，订单ID：{}", event.getAggregateId());
+            return;
+        }
+
+        Notification notification = new Notification();
+        notification.setUser(order.getUser());
+        notification.setType(Notification.NotificationType.SYSTEM);
+        switch (event.getEventType()) {
+            case DomainEventConstants.ORDER_PAID -> {
+                notification.setTitle("支付成功");
+                notification.setContent("订单 " + order.getOrderNo() + " 的" + paymentTypeName(event)
+                    + "已支付成功，支付单号：" + event.payloadString("paymentNo"));
+            }
+            case DomainEventConstants.ORDER_RETURNED -> {
+                notification.setTitle("订单已归还");
+                notification.setContent("订单 " + order.getOrderNo() + " 已完成归还，归还日期：" + event.payloadString("returnDate"));
+            }
+            default -> {
+                notification.setTitle("退款成功");
+                notification.setContent("订单 " + order.getOrderNo() + " 的退款 " + event.payloadString("amount")
+                    + " 元已退回原支付账户，退款单号：" + event.payloadString("refundNo"));
+            }
+        }
+        notificationRepository.save(notification);
+    }
+
+    private String paymentTypeName(OutboxEvent event) {
+        return "DEPOSIT".equals(event.payloadString("paymentType")) ? "押金" : "租金";
+    }
+}
@@ -4,12 +4,14 @@ import com.rental.order.model.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +23,15 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
      */
     Optional<Order> findByOrderNo(String orderNo);
 
+    /**
+     * 批量迁移订单状态，只更新仍处于预期状态的订单
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :newStatus WHERE o.id IN :ids AND o.status = :expectedStatus")
+    int updateStatusByIds(@Param("ids") Collection<Long> ids,
+                          @Param("expectedStatus") Order.OrderStatus expectedStatus,
+                          @Param("newStatus") Order.OrderStatus newStatus);
+
     /**
      * 根据用户ID查找订单
      */
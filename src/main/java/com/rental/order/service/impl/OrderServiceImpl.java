@@ -1,9 +1,12 @@
 package com.rental.order.service.impl;
 
+import com.rental.common.constant.DomainEventConstants;
 import com.rental.common.exception.BusinessException;
 import com.rental.common.exception.ResourceNotFoundException;
+import com.rental.common.service.DomainEventPublisher;
 import com.rental.item.model.Item;
 import com.rental.item.repository.ItemRepository;
+import com.rental.item.service.ItemAvailabilityCalendar;
 import com.rental.order.DTO.*;
 import com.rental.order.model.Order;
 import com.rental.order.model.OrderItem;
@@ -25,7 +28,9 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -37,6 +42,8 @@ public class OrderServiceImpl implements OrderService {
     private final OrderItemRepository orderItemRepository;
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
+    private final DomainEventPublisher domainEventPublisher;
+    private final ItemAvailabilityCalendar itemAvailabilityCalendar;
 
     @Override
     @Transactional
@@ -164,6 +171,9 @@ public class OrderServiceImpl implements OrderService {
         }
 
         Order savedOrder = orderRepository.save(order);
+        if (request.getStatus() != null && request.getStatus() != Order.OrderStatus.PENDING) {
+            refreshCalendarAfterCommit(savedOrder);
+        }
         log.info("订单更新成功，订单ID：{}", orderId);
 
         return convertToDto(savedOrder);
@@ -264,6 +274,7 @@ public class OrderServiceImpl implements OrderService {
 
         order.setStatus(Order.OrderStatus.CONFIRMED);
         Order savedOrder = orderRepository.save(order);
+        refreshCalendarAfterCommit(savedOrder);
 
         log.info("订单确认成功，订单号：{}", order.getOrderNo());
         return convertToDto(savedOrder);
@@ -295,6 +306,7 @@ public class OrderServiceImpl implements OrderService {
         }
 
         Order savedOrder = orderRepository.save(order);
+        refreshCalendarAfterCommit(savedOrder);
         log.info("订单取消成功，订单号：{}", order.getOrderNo());
 
         return convertToDto(savedOrder);
@@ -325,6 +337,7 @@ public class OrderServiceImpl implements OrderService {
         }
 
         Order savedOrder = orderRepository.save(order);
+        refreshCalendarAfterCommit(savedOrder);
         log.info("订单审核完成，订单号：{}, 状态：{}", order.getOrderNo(), order.getStatus());
 
         return convertToDto(savedOrder);
@@ -383,6 +396,17 @@ public class OrderServiceImpl implements OrderService {
         }
 
         Order savedOrder = orderRepository.save(order);
+        refreshCalendarAfterCommit(savedOrder);
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("orderId", savedOrder.getId());
+        payload.put("returnDate", String.valueOf(request.getReturnDate()));
+        payload.put("hasDamage", Boolean.TRUE.equals(request.getHasDamage()));
+        payload.put("itemIds", savedOrder.getOrderItems() == null ? List.of() :
+            savedOrder.getOrderItems().stream().map(orderItem -> orderItem.getItem().getId()).collect(Collectors.toList()));
+        domainEventPublisher.publish(DomainEventConstants.AGGREGATE_ORDER, savedOrder.getId(),
+            DomainEventConstants.ORDER_RETURNED, payload);
+
         log.info("订单归还处理完成，订单号：{}", order.getOrderNo());
 
         return convertToDto(savedOrder);
@@ -515,6 +539,17 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
+    /**
+     * 订单占用状态变化后，事务提交时刷新订单涉及物品的可租日历
+     */
+    private void refreshCalendarAfterCommit(Order order) {
+        if (order.getOrderItems() != null) {
+            itemAvailabilityCalendar.refreshAfterCommit(order.getOrderItems().stream()
+                .map(orderItem -> orderItem.getItem().getId())
+                .collect(Collectors.toList()));
+        }
+    }
+
     /**
      * 转换为DTO
      */
@@ -0,0 +1,22 @@
+package com.rental.payment.DTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "商家支付统计信息")
+public class MerchantPaymentStatistics {
+
+    @Schema(description = "商家ID", example = "3")
+    private Long merchantId;
+
+    @Schema(description = "商家用户名", example = "merchant01")
+    private String merchantName;
+
+    @Schema(description = "统计数据")
+    private PaymentStatistics statistics;
+}
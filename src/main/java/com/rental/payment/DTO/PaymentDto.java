@@ -47,6 +47,9 @@ public class PaymentDto {
     @Schema(description = "第三方交易ID")
     private String thirdPartyTransactionId;
 
+    @Schema(description = "原支付ID（仅退款记录）", example = "1")
+    private Long originalPaymentId;
+
     @Schema(description = "用户ID", example = "1")
     private Long userId;
 
@@ -0,0 +1,70 @@
+package com.rental.payment.DTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@Schema(description = "支付压测报告")
+public class PaymentLoadTestReport {
+
+    @Schema(description = "计划支付笔数", example = "200")
+    private int iterations;
+
+    @Schema(description = "并发数", example = "16")
+    private int concurrency;
+
+    @Schema(description = "完成全流程的笔数", example = "198")
+    private long succeeded;
+
+    @Schema(description = "失败笔数", example = "2")
+    private long failed;
+
+    @Schema(description = "等待异步通知超时的笔数", example = "1")
+    private long settleTimeouts;
+
+    @Schema(description = "总耗时（毫秒）", example = "5230")
+    private long elapsedMs;
+
+    @Schema(description = "吞吐量（笔/秒）", example = "38.2")
+    private double throughput;
+
+    @Schema(description = "各阶段耗时分布：create（下单）、settle（付款到通知落库）、query、refund、total")
+    private Map<String, LatencySummary> latencies = new LinkedHashMap<>();
+
+    @Schema(description = "模拟器通知投递统计")
+    private Map<String, Long> notifyStatistics = new LinkedHashMap<>();
+
+    @Schema(description = "失败原因及次数")
+    private Map<String, Long> errors = new LinkedHashMap<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "耗时分布（毫秒）")
+    public static class LatencySummary {
+
+        @Schema(description = "样本数", example = "198")
+        private int count;
+
+        @Schema(description = "平均值", example = "12.4")
+        private double mean;
+
+        @Schema(description = "P50", example = "10.2")
+        private double p50;
+
+        @Schema(description = "P90", example = "18.7")
+        private double p90;
+
+        @Schema(description = "P99", example = "41.3")
+        private double p99;
+
+        @Schema(description = "最大值", example = "65.0")
+        private double max;
+    }
+}
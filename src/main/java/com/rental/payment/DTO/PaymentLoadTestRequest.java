@@ -0,0 +1,45 @@
+package com.rental.payment.DTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@Schema(description = "支付压测请求（仅 alipay-simulator 环境）")
+public class PaymentLoadTestRequest {
+
+    @Schema(description = "付款用户ID", example = "2", required = true)
+    @NotNull(message = "付款用户ID不能为空")
+    private Long userId;
+
+    @Schema(description = "租赁物品ID，其所有者需已配置指向模拟器的支付参数", example = "1", required = true)
+    @NotNull(message = "物品ID不能为空")
+    private Long itemId;
+
+    @Schema(description = "支付笔数", example = "200")
+    @Min(value = 1, message = "支付笔数至少为1")
+    @Max(value = 100000, message = "支付笔数不能超过100000")
+    private int iterations = 100;
+
+    @Schema(description = "并发数", example = "16")
+    @Min(value = 1, message = "并发数至少为1")
+    @Max(value = 256, message = "并发数不能超过256")
+    private int concurrency = 8;
+
+    @Schema(description = "单笔支付金额", example = "0.01")
+    private BigDecimal amount = new BigDecimal("0.01");
+
+    @Schema(description = "支付成功后是否调用交易查询", example = "true")
+    private boolean includeQuery = true;
+
+    @Schema(description = "支付成功后是否发起全额退款", example = "false")
+    private boolean includeRefund = false;
+
+    @Schema(description = "等待异步通知落库的超时时间（毫秒）", example = "30000")
+    @Min(value = 100, message = "超时时间至少为100毫秒")
+    private long settleTimeoutMs = 30000;
+}
@@ -0,0 +1,29 @@
+package com.rental.payment.DTO;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@Schema(description = "支付对账结果汇总")
+public class ReconciliationSummary {
+
+    @Schema(description = "扫描的待支付记录数", example = "120")
+    private long scanned;
+
+    @Schema(description = "与网关一致的记录数", example = "100")
+    private long matched;
+
+    @Schema(description = "按网关结果修正的记录数", example = "18")
+    private long corrected;
+
+    @Schema(description = "网关结果未知的记录数", example = "2")
+    private long unknown;
+
+    @Schema(description = "耗时（毫秒）", example = "3120")
+    private long elapsedMs;
+
+    @Schema(description = "本次是否因已有对账在运行而跳过", example = "false")
+    private boolean skipped;
+}
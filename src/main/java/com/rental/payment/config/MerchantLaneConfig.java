@@ -0,0 +1,29 @@
+package com.rental.payment.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 商家分区处理通道配置类
+ */
+@ConfigurationProperties(prefix = "payment.lanes")
+@Data
+@Component
+public class MerchantLaneConfig {
+
+    /**
+     * 通道数量，每个通道一个线程，默认等于处理器核数
+     */
+    private int laneCount = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 一致性哈希环上每个通道的虚拟节点数
+     */
+    private int virtualNodes = 64;
+
+    /**
+     * 单个商家在通道中排队的任务上限，超过后拒绝，由各业务的补偿扫描兜底
+     */
+    private int merchantQueueCapacity = 500;
+}
@@ -0,0 +1,29 @@
+package com.rental.payment.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 支付回调收件箱配置类
+ */
+@ConfigurationProperties(prefix = "payment.callback")
+@Data
+@Component
+public class PaymentCallbackConfig {
+
+    /**
+     * 单条通知的最大处理次数，超过后标记为失败
+     */
+    private int maxAttempts = 5;
+
+    /**
+     * 补偿扫描只处理接收超过该秒数仍未处理的通知，避免与实时分发重复
+     */
+    private int recoveryDelaySeconds = 30;
+
+    /**
+     * 每次补偿扫描的支付单号数量
+     */
+    private int recoveryBatchSize = 200;
+}
@@ -0,0 +1,39 @@
+package com.rental.payment.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 支付超时关闭配置类
+ */
+@ConfigurationProperties(prefix = "payment.expiry")
+@Data
+@Component
+public class PaymentExpiryConfig {
+
+    /**
+     * 支付有效期（分钟），与下单时传给支付宝的 timeout_express 保持一致
+     */
+    private int timeoutMinutes = 15;
+
+    /**
+     * 到期后额外等待的秒数，留给在途的支付通知
+     */
+    private int graceSeconds = 60;
+
+    /**
+     * 关闭本地支付前是否先在支付宝关闭交易
+     */
+    private boolean closeAtGateway = true;
+
+    /**
+     * 每批关闭的支付数量
+     */
+    private int batchSize = 200;
+
+    /**
+     * 网关关闭失败后重新排队的等待秒数
+     */
+    private int retryDelaySeconds = 60;
+}
@@ -0,0 +1,49 @@
+package com.rental.payment.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 支付对账配置类
+ */
+@ConfigurationProperties(prefix = "payment.reconciliation")
+@Data
+@Component
+public class PaymentReconciliationConfig {
+
+    /**
+     * 是否启用定时对账
+     */
+    private boolean enabled = true;
+
+    /**
+     * 待支付超过该分钟数仍未收到通知的支付参与对账
+     */
+    private int staleAfterMinutes = 10;
+
+    /**
+     * 只对账创建时间在该小时数以内的支付，更早的由过期关闭处理
+     */
+    private int maxAgeHours = 48;
+
+    /**
+     * 每批读取的支付数量（按ID游标分页）
+     */
+    private int batchSize = 200;
+
+    /**
+     * 查询线程数
+     */
+    private int threads = 8;
+
+    /**
+     * 同时在途的网关查询上限
+     */
+    private int maxInFlight = 32;
+
+    /**
+     * 单个商家每秒最多发起的查询次数
+     */
+    private double merchantQueriesPerSecond = 5.0;
+}
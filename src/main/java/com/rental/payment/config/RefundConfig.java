@@ -0,0 +1,39 @@
+package com.rental.payment.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 退款编排配置类
+ */
+@ConfigurationProperties(prefix = "payment.refund")
+@Data
+@Component
+public class RefundConfig {
+
+    /**
+     * 单笔退款最大调用次数，超过后标记为失败
+     */
+    private int maxAttempts = 6;
+
+    /**
+     * 首次重试等待（毫秒），之后每次翻倍
+     */
+    private long initialBackoffMs = 2000;
+
+    /**
+     * 重试等待上限（毫秒）
+     */
+    private long maxBackoffMs = 300000;
+
+    /**
+     * 退款超过该秒数仍未完成时由补偿扫描重新入队
+     */
+    private int recoveryDelaySeconds = 120;
+
+    /**
+     * 补偿扫描每批数量
+     */
+    private int recoveryBatchSize = 200;
+}
@@ -3,6 +3,9 @@ package com.rental.payment.controller;
 import com.rental.common.response.ApiResponse;
 import com.rental.payment.DTO.*;
 import com.rental.payment.model.Payment;
+import com.rental.payment.service.PaymentAnalyticsService;
+import com.rental.payment.service.PaymentCallbackInboxService;
+import com.rental.payment.service.PaymentReconciliationService;
 import com.rental.payment.service.PaymentService;
 import com.rental.security.userdetails.CustomUserDetails;
 import io.swagger.v3.oas.annotations.Operation;
@@ -40,6 +43,9 @@ import java.util.*;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentCallbackInboxService callbackInboxService;
+    private final PaymentReconciliationService reconciliationService;
+    private final PaymentAnalyticsService paymentAnalyticsService;
 
     @PostMapping
     @PreAuthorize("hasAuthority('PAYMENT_CREATE')")
@@ -114,8 +120,8 @@ public class PaymentController {
 
     @PostMapping("/{id}/refund")
     @PreAuthorize("hasAuthority('PAYMENT_REFUND')")
-    @Operation(summary = "处理退款", description = "为支付记录处理退款")
-    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "退款处理完成")
+    @Operation(summary = "处理退款", description = "为支付记录申请退款，支持多次部分退款；退款异步提交支付宝，通过退款记录状态查询结果")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "退款已受理")
     @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "退款条件不满足")
     @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "支付记录不存在")
     public ResponseEntity<ApiResponse<PaymentDto>> processRefund(
@@ -141,7 +147,7 @@ public class PaymentController {
 
         request.setPaymentId(id); // 确保路径参数和请求体中的ID一致
         PaymentDto result = paymentService.processRefund(request, userDetails.getUserId());
-        return ResponseEntity.ok(ApiResponse.success("退款处理完成", result));
+        return ResponseEntity.ok(ApiResponse.success("退款已受理", result));
     }
 
     @GetMapping("/{id}")
@@ -251,6 +257,15 @@ public class PaymentController {
         return ResponseEntity.ok(ApiResponse.success("支付状态查询完成", result));
     }
 
+    @PostMapping("/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "执行支付对账", description = "立即对超时未收到通知的待支付记录与支付宝对账，已有对账运行时跳过")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "对账完成")
+    public ResponseEntity<ApiResponse<ReconciliationSummary>> reconcilePayments() {
+        ReconciliationSummary result = reconciliationService.reconcile();
+        return ResponseEntity.ok(ApiResponse.success(result.isSkipped() ? "已有对账正在运行" : "对账完成", result));
+    }
+
     @PostMapping("/{id}/cancel")
     @PreAuthorize("hasAuthority('PAYMENT_PROCESS')")
     @Operation(summary = "取消支付", description = "取消待支付状态的支付记录")
@@ -293,6 +308,45 @@ public class PaymentController {
         return ResponseEntity.ok(ApiResponse.success(statistics));
     }
 
+    @GetMapping("/statistics/merchants")
+    @PreAuthorize("hasAuthority('PAYMENT_VIEW')")
+    @Operation(summary = "获取商家支付统计", description = "按商家分组的支付统计，按成功金额倒序")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "获取成功")
+    public ResponseEntity<ApiResponse<List<MerchantPaymentStatistics>>> getMerchantPaymentStatistics(
+            @Parameter(description = "开始日期") @RequestParam(required = false) LocalDate startDate,
+            @Parameter(description = "结束日期") @RequestParam(required = false) LocalDate endDate) {
+
+        if (startDate == null) {
+            startDate = LocalDate.now().withDayOfMonth(1); // 当月第一天
+        }
+        if (endDate == null) {
+            endDate = LocalDate.now(); // 今天
+        }
+
+        List<MerchantPaymentStatistics> statistics = paymentAnalyticsService.getMerchantStatistics(startDate, endDate);
+        return ResponseEntity.ok(ApiResponse.success(statistics));
+    }
+
+    @GetMapping("/statistics/merchants/{merchantId}")
+    @PreAuthorize("hasAuthority('PAYMENT_VIEW')")
+    @Operation(summary = "获取单个商家支付统计", description = "获取指定商家的支付统计数据")
+    @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "获取成功")
+    public ResponseEntity<ApiResponse<PaymentStatistics>> getSingleMerchantPaymentStatistics(
+            @Parameter(description = "商家ID", example = "3") @PathVariable Long merchantId,
+            @Parameter(description = "开始日期") @RequestParam(required = false) LocalDate startDate,
+            @Parameter(description = "结束日期") @RequestParam(required = false) LocalDate endDate) {
+
+        if (startDate == null) {
+            startDate = LocalDate.now().withDayOfMonth(1); // 当月第一天
+        }
+        if (endDate == null) {
+            endDate = LocalDate.now(); // 今天
+        }
+
+        PaymentStatistics statistics = paymentAnalyticsService.getStatistics(startDate, endDate, merchantId);
+        return ResponseEntity.ok(ApiResponse.success(statistics));
+    }
+
     @GetMapping("/check-exists")
     @PreAuthorize("hasAuthority('PAYMENT_VIEW')")
     @Operation(summary = "检查支付是否存在", description = "根据支付单号检查支付记录是否存在")
@@ -321,11 +375,11 @@ public class PaymentController {
                 log.debug("支付宝回调参数：{} = {}", paramName, paramValue);
             }
 
-            // 直接调用 PaymentService 处理回调
-            paymentService.handleAlipayCallback(parseAlipayCallback(params));
+            // 验签并写入回调收件箱后立即应答，状态变更由后台异步处理
+            boolean accepted = callbackInboxService.receiveAlipayNotify(null, params);
 
-            // 返回success告诉支付宝处理成功
-            return ResponseEntity.ok("success");
+            // 返回success告诉支付宝已接收，failure则由支付宝重试
+            return ResponseEntity.ok(accepted ? "success" : "failure");
             
         } catch (Exception e) {
             log.error("处理支付宝回调失败", e);
@@ -361,12 +415,12 @@ public class PaymentController {
                 validateMerchantCallback(merchantId, outTradeNo);
             }
 
-            // 调用 PaymentService 处理回调
-            paymentService.handleAlipayCallback(parseAlipayCallback(params));
+            // 使用商家密钥验签并写入回调收件箱后立即应答
+            boolean accepted = callbackInboxService.receiveAlipayNotify(merchantId, params);
 
-            // 返回success告诉支付宝处理成功
-            log.info("商家支付宝回调处理成功，商家ID：{}，订单号：{}", merchantId, outTradeNo);
-            return ResponseEntity.ok("success");
+            // 返回success告诉支付宝已接收，failure则由支付宝重试
+            log.info("商家支付宝回调接收{}，商家ID：{}，订单号：{}", accepted ? "成功" : "失败", merchantId, outTradeNo);
+            return ResponseEntity.ok(accepted ? "success" : "failure");
             
         } catch (Exception e) {
             log.error("处理商家支付宝回调失败，商家ID：{}", merchantId, e);
@@ -383,41 +437,4 @@ public class PaymentController {
         // 当前的验证逻辑在PaymentService的签名验证中已经处理
         log.debug("验证商家回调合法性，商家ID：{}，支付单号：{}", merchantId, paymentNo);
     }
-
-    /**
-     * 解析支付宝回调参数
-     */
-    private PaymentCallbackRequest parseAlipayCallback(Map<String, String> params) {
-        PaymentCallbackRequest request = new PaymentCallbackRequest();
-        request.setPaymentNo(params.get("out_trade_no"));
-        request.setThirdPartyTransactionId(params.get("trade_no"));
-        request.setStatus(convertAlipayTradeStatus(params.get("trade_status")));
-        Map<String, Object> rawData = new java.util.HashMap<>();
-        for (Map.Entry<String, String> entry : params.entrySet()) {
-            rawData.put(entry.getKey(), entry.getValue());
-        }
-        request.setRawData(rawData);
-        return request;
-    }
-
-    /**
-     * 转换支付宝交易状态
-     */
-    private String convertAlipayTradeStatus(String tradeStatus) {
-        if (tradeStatus == null) {
-            return "PENDING";
-        }
-        
-        switch (tradeStatus.toUpperCase()) {
-            case "TRADE_SUCCESS":
-            case "TRADE_FINISHED":
-                return "SUCCESS";
-            case "TRADE_CLOSED":
-                return "FAILED";
-            case "WAIT_BUYER_PAY":
-                return "PENDING";
-            default:
-                return "PENDING";
-        }
-    }
 }
@@ -5,7 +5,6 @@ import com.alipay.api.AlipayClient;
 import com.alipay.api.domain.AlipayTradePagePayModel;
 import com.alipay.api.domain.AlipayTradeQueryModel;
 import com.alipay.api.domain.AlipayTradeRefundModel;
-import com.alipay.api.internal.util.AlipaySignature;
 import com.alipay.api.request.AlipayTradePagePayRequest;
 import com.alipay.api.request.AlipayTradeQueryRequest;
 import com.alipay.api.request.AlipayTradeRefundRequest;
@@ -22,7 +21,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
+import java.security.PublicKey;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -32,6 +33,9 @@ public class AlipayService {
 
     private final AlipayClient alipayClient;
     private final AlipayConfig alipayConfig;
+    private final NotifySignatureVerifier signatureVerifier;
+
+    private volatile PublicKey alipayPublicKey;
 
     public PaymentResponse createPayment(Payment payment, PaymentCreateRequest request) {
         log.info("创建支付宝支付，支付单号：{}", payment.getPaymentNo());
@@ -181,17 +185,28 @@ public class AlipayService {
      * 验证支付宝回调签名
      */
     public boolean verifyNotifySign(Map<String, String> params) {
-        try {
-            return AlipaySignature.rsaCheckV1(
-                params, 
-                alipayConfig.getAlipayPublicKey(), 
-                alipayConfig.getCharset(), 
-                alipayConfig.getSignType()
-            );
-        } catch (AlipayApiException e) {
-            log.error("支付宝回调签名验证失败", e);
-            return false;
+        return signatureVerifier.verify(params, getAlipayPublicKey(),
+            alipayConfig.getCharset(), alipayConfig.getSignType());
+    }
+
+    /**
+     * 批量验证支付宝回调签名（对账重放使用），结果与输入顺序一致
+     */
+    public boolean[] verifyNotifySigns(List<Map<String, String>> notifications) {
+        return signatureVerifier.verifyAll(notifications, getAlipayPublicKey(),
+            alipayConfig.getCharset(), alipayConfig.getSignType());
+    }
+
+    /**
+     * 支付宝公钥只解析一次
+     */
+    private PublicKey getAlipayPublicKey() {
+        PublicKey publicKey = alipayPublicKey;
+        if (publicKey == null) {
+            publicKey = signatureVerifier.parsePublicKey(alipayConfig.getAlipayPublicKey());
+            alipayPublicKey = publicKey;
         }
+        return publicKey;
     }
 
     /**
@@ -0,0 +1,212 @@
+package com.rental.payment.integration.alipay;
+
+import com.alipay.api.AlipayClient;
+import com.alipay.api.DefaultAlipayClient;
+import com.rental.common.exception.BusinessException;
+import com.rental.common.service.EncryptionService;
+import com.rental.payment.model.MerchantPaymentConfig;
+import com.rental.payment.repository.MerchantPaymentConfigRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商家支付凭证注册表
+ *
+ * 每个商家的私钥只在加载时解密一次，连同解析后的密钥对象和支付宝客户端缓存为不可变的
+ * {@link MerchantCredentials}。缓存按 LRU 淘汰，启动时为启用的商家预热，
+ * 商家配置保存、启用、禁用或删除时失效。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MerchantCredentialRegistry {
+
+    private final MerchantPaymentConfigRepository configRepository;
+    private final EncryptionService encryptionService;
+
+    @Value("${payment.merchant-credentials.max-size:1000}")
+    private int maxSize;
+
+    // 配置后所有商家客户端都指向该网关（如本地支付宝模拟器），为空时按应用ID选择正式或沙箱环境
+    @Value("${payment.alipay.merchant-gateway-url:}")
+    private String merchantGatewayUrl;
+
+    // 访问顺序的 LinkedHashMap 实现 LRU，所有访问都在 this 上同步
+    private final LinkedHashMap<Long, MerchantCredentials> cache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, MerchantCredentials> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    // 每次失效递增；加载期间发生过失效的结果不写入缓存，避免回填旧凭证
+    private long invalidationVersion;
+
+    /**
+     * 获取商家凭证
+     *
+     * @param merchantId 商家ID
+     * @return 商家凭证，配置不存在或未启用时返回 null
+     */
+    public MerchantCredentials get(Long merchantId) {
+        long version;
+        synchronized (this) {
+            MerchantCredentials cached = cache.get(merchantId);
+            if (cached != null) {
+                return cached;
+            }
+            version = invalidationVersion;
+        }
+
+        MerchantPaymentConfig config = configRepository.findActiveMerchantConfig(merchantId).orElse(null);
+        if (config == null) {
+            return null;
+        }
+        MerchantCredentials credentials = build(config);
+
+        synchronized (this) {
+            if (version == invalidationVersion) {
+                MerchantCredentials existing = cache.putIfAbsent(merchantId, credentials);
+                if (existing != null) {
+                    return existing;
+                }
+            }
+        }
+        return credentials;
+    }
+
+    /**
+     * 使商家凭证失效。处于事务中时在提交后再失效一次，防止并发请求在提交前回填旧配置。
+     */
+    public void invalidate(Long merchantId) {
+        evict(merchantId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(merchantId);
+                }
+            });
+        }
+    }
+
+    /**
+     * 清空全部凭证
+     */
+    public synchronized void invalidateAll() {
+        invalidationVersion++;
+        cache.clear();
+        log.info("已清空所有商家支付凭证缓存");
+    }
+
+    /**
+     * 启动后为启用的商家预热凭证
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preWarm() {
+        try {
+            List<MerchantPaymentConfig> configs = configRepository
+                .findByStatus(MerchantPaymentConfig.ConfigStatus.ACTIVE, PageRequest.of(0, maxSize))
+                .getContent();
+            int loaded = 0;
+            for (MerchantPaymentConfig config : configs) {
+                try {
+                    MerchantCredentials credentials = build(config);
+                    synchronized (this) {
+                        cache.putIfAbsent(config.getMerchantId(), credentials);
+                    }
+                    loaded++;
+                } catch (RuntimeException e) {
+                    log.warn("预热商家支付凭证失败，商家ID：{}: {}", config.getMerchantId(), e.getMessage());
+                }
+            }
+            log.info("商家支付凭证预热完成，共 {} 个商家", loaded);
+        } catch (RuntimeException e) {
+            log.warn("商家支付凭证预热失败，将在首次使用时加载: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void evict(Long merchantId) {
+        invalidationVersion++;
+        if (cache.remove(merchantId) != null) {
+            log.info("商家支付凭证已失效，商家ID：{}", merchantId);
+        }
+    }
+
+    private MerchantCredentials build(MerchantPaymentConfig config) {
+        Long merchantId = config.getMerchantId();
+        String privateKey;
+        PrivateKey merchantPrivateKey;
+        PublicKey alipayPublicKey;
+        try {
+            privateKey = encryptionService.decrypt(config.getEncryptedPrivateKey());
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            merchantPrivateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decodeKey(privateKey)));
+            alipayPublicKey = keyFactory.generatePublic(new X509EncodedKeySpec(decodeKey(config.getAlipayPublicKey())));
+        } catch (Exception e) {
+            log.error("加载商家支付凭证失败，商家ID：{}", merchantId, e);
+            throw new BusinessException("配置信息异常，请重新配置");
+        }
+
+        log.info("创建商家支付宝客户端，商家ID：{}，应用ID：{}", merchantId, config.getAlipayAppId());
+        AlipayClient client = new DefaultAlipayClient(
+            determineGatewayUrl(config.getAlipayAppId()),
+            config.getAlipayAppId(),
+            privateKey,
+            "json",
+            "UTF-8",
+            config.getAlipayPublicKey(),
+            "RSA2"
+        );
+
+        return new MerchantCredentials(
+            merchantId,
+            config.getAlipayAppId(),
+            privateKey,
+            config.getAlipayPublicKey(),
+            merchantPrivateKey,
+            alipayPublicKey,
+            config.getNotifyUrlWithMerchant(),
+            config.getReturnUrlWithMerchant(),
+            client
+        );
+    }
+
+    private byte[] decodeKey(String key) {
+        return Base64.getMimeDecoder().decode(key.replaceAll("-----[A-Z ]+-----", ""));
+    }
+
+    /**
+     * 确定支付宝网关地址
+     */
+    private String determineGatewayUrl(String appId) {
+        if (StringUtils.hasText(merchantGatewayUrl)) {
+            return merchantGatewayUrl;
+        }
+        // 这里可以根据应用ID或配置决定使用正式环境还是沙箱环境
+        // 沙箱环境的应用ID通常有特定格式，这里简化处理
+        if (appId.startsWith("2016") || appId.startsWith("2021")) {
+            return "https://openapi.alipay.com/gateway.do"; // 正式环境
+        } else {
+            return "https://openapi.alipaydev.com/gateway.do"; // 沙箱环境
+        }
+    }
+}
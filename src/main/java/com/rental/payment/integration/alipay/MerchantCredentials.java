@@ -0,0 +1,43 @@
+package com.rental.payment.integration.alipay;
+
+import com.alipay.api.AlipayClient;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+/**
+ * 商家支付凭证（不可变）
+ *
+ * 持有解密后的商家私钥、解析好的密钥对象和可直接使用的支付宝客户端，
+ * 配置变更时整体替换而不是修改，调用方拿到的实例始终是一致的。
+ *
+ * @param merchantId         商家ID
+ * @param appId              支付宝应用ID
+ * @param privateKey         解密后的商家私钥（Base64）
+ * @param alipayPublicKey    支付宝公钥（Base64）
+ * @param merchantPrivateKey 解析后的商家私钥
+ * @param alipayPublicKeyObj 解析后的支付宝公钥
+ * @param notifyUrl          商家专属异步通知地址
+ * @param returnUrl          商家专属同步返回地址
+ * @param client             支付宝客户端
+ */
+public record MerchantCredentials(
+    Long merchantId,
+    String appId,
+    String privateKey,
+    String alipayPublicKey,
+    PrivateKey merchantPrivateKey,
+    PublicKey alipayPublicKeyObj,
+    String notifyUrl,
+    String returnUrl,
+    AlipayClient client
+) {
+
+    /**
+     * 避免在日志中输出私钥
+     */
+    @Override
+    public String toString() {
+        return "MerchantCredentials[merchantId=" + merchantId + ", appId=" + appId + "]";
+    }
+}
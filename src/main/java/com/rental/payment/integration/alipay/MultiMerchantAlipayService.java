@@ -2,41 +2,41 @@ package com.rental.payment.integration.alipay;
 
 import com.alipay.api.AlipayApiException;
 import com.alipay.api.AlipayClient;
-import com.alipay.api.DefaultAlipayClient;
+import com.alipay.api.domain.AlipayTradeCloseModel;
+import com.alipay.api.domain.AlipayTradeFastpayRefundQueryModel;
 import com.alipay.api.domain.AlipayTradePagePayModel;
 import com.alipay.api.domain.AlipayTradeQueryModel;
 import com.alipay.api.domain.AlipayTradeRefundModel;
-import com.alipay.api.internal.util.AlipaySignature;
+import com.alipay.api.request.AlipayTradeCloseRequest;
+import com.alipay.api.request.AlipayTradeFastpayRefundQueryRequest;
 import com.alipay.api.request.AlipayTradePagePayRequest;
 import com.alipay.api.request.AlipayTradeQueryRequest;
 import com.alipay.api.request.AlipayTradeRefundRequest;
+import com.alipay.api.response.AlipayTradeCloseResponse;
+import com.alipay.api.response.AlipayTradeFastpayRefundQueryResponse;
 import com.alipay.api.response.AlipayTradePagePayResponse;
 import com.alipay.api.response.AlipayTradeQueryResponse;
 import com.alipay.api.response.AlipayTradeRefundResponse;
 import com.rental.common.exception.BusinessException;
 import com.rental.payment.DTO.PaymentCreateRequest;
 import com.rental.payment.DTO.PaymentResponse;
-import com.rental.payment.model.MerchantPaymentConfig;
 import com.rental.payment.model.Payment;
-import com.rental.payment.service.MerchantPaymentConfigService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class MultiMerchantAlipayService {
 
-    private final MerchantPaymentConfigService merchantConfigService;
-    
-    // 缓存支付宝客户端，避免重复创建
-    private final Map<Long, AlipayClient> clientCache = new ConcurrentHashMap<>();
+    private final MerchantCredentialRegistry credentialRegistry;
+    private final NotifySignatureVerifier signatureVerifier;
 
     /**
      * 为商家创建支付宝支付
@@ -44,8 +44,8 @@ public class MultiMerchantAlipayService {
     public PaymentResponse createPayment(Long merchantId, Payment payment, PaymentCreateRequest request) {
         log.info("为商家创建支付宝支付，商家ID：{}，支付单号：{}", merchantId, payment.getPaymentNo());
 
-        MerchantPaymentConfig config = getMerchantConfig(merchantId);
-        AlipayClient alipayClient = getOrCreateAlipayClient(merchantId, config);
+        MerchantCredentials credentials = getMerchantCredentials(merchantId);
+        AlipayClient alipayClient = credentials.client();
 
         PaymentResponse response = new PaymentResponse();
 
@@ -54,11 +54,11 @@ public class MultiMerchantAlipayService {
             AlipayTradePagePayRequest pagePayRequest = new AlipayTradePagePayRequest();
             
             // 设置商家专属的回调地址
-            pagePayRequest.setNotifyUrl(config.getNotifyUrlWithMerchant());
-            pagePayRequest.setReturnUrl(config.getReturnUrlWithMerchant());
+            pagePayRequest.setNotifyUrl(credentials.notifyUrl());
+            pagePayRequest.setReturnUrl(credentials.returnUrl());
 
             // 构建请求参数
-            AlipayTradePagePayModel model = buildPaymentModel(payment, request, config);
+            AlipayTradePagePayModel model = buildPaymentModel(payment, request, credentials);
             pagePayRequest.setBizModel(model);
 
             // 调用支付宝API
@@ -110,8 +110,7 @@ public class MultiMerchantAlipayService {
         log.info("处理商家支付宝退款，商家ID：{}，原支付单号：{}，退款单号：{}，退款金额：{}",
                 merchantId, originalPayment.getPaymentNo(), refundPayment.getPaymentNo(), refundAmount);
 
-        MerchantPaymentConfig config = getMerchantConfig(merchantId);
-        AlipayClient alipayClient = getOrCreateAlipayClient(merchantId, config);
+        AlipayClient alipayClient = getMerchantCredentials(merchantId).client();
 
         try {
             AlipayTradeRefundRequest alipayRequest = new AlipayTradeRefundRequest();
@@ -150,8 +149,7 @@ public class MultiMerchantAlipayService {
     public String queryPaymentStatus(Long merchantId, Payment payment) {
         log.info("查询商家支付宝支付状态，商家ID：{}，支付单号：{}", merchantId, payment.getPaymentNo());
 
-        MerchantPaymentConfig config = getMerchantConfig(merchantId);
-        AlipayClient alipayClient = getOrCreateAlipayClient(merchantId, config);
+        AlipayClient alipayClient = getMerchantCredentials(merchantId).client();
 
         try {
             AlipayTradeQueryRequest alipayRequest = new AlipayTradeQueryRequest();
@@ -183,6 +181,65 @@ public class MultiMerchantAlipayService {
         }
     }
 
+    /**
+     * 查询商家交易详情（供对账使用），调用异常直接抛出，由调用方区分未知结果
+     */
+    public AlipayTradeQueryResponse queryTrade(Long merchantId, String outTradeNo) throws AlipayApiException {
+        AlipayTradeQueryRequest alipayRequest = new AlipayTradeQueryRequest();
+
+        AlipayTradeQueryModel model = new AlipayTradeQueryModel();
+        model.setOutTradeNo(outTradeNo);
+        alipayRequest.setBizModel(model);
+
+        return getMerchantCredentials(merchantId).client().execute(alipayRequest);
+    }
+
+    /**
+     * 发起商家退款（退款编排使用），以退款单号作为 out_request_no，重复提交不会重复退款。
+     * 调用异常直接抛出，由调用方决定是否重试。
+     */
+    public AlipayTradeRefundResponse refundTrade(Long merchantId, String outTradeNo, String outRequestNo,
+                                                 BigDecimal refundAmount, String refundReason) throws AlipayApiException {
+        AlipayTradeRefundRequest alipayRequest = new AlipayTradeRefundRequest();
+
+        AlipayTradeRefundModel model = new AlipayTradeRefundModel();
+        model.setOutTradeNo(outTradeNo);
+        model.setOutRequestNo(outRequestNo);
+        model.setRefundAmount(refundAmount.toPlainString());
+        model.setRefundReason(StringUtils.hasText(refundReason) ? refundReason : "订单退款");
+        alipayRequest.setBizModel(model);
+
+        return getMerchantCredentials(merchantId).client().execute(alipayRequest);
+    }
+
+    /**
+     * 按 out_request_no 查询商家退款结果（退款编排在结果未知时使用），调用异常直接抛出
+     */
+    public AlipayTradeFastpayRefundQueryResponse queryRefund(Long merchantId, String outTradeNo, String outRequestNo)
+            throws AlipayApiException {
+        AlipayTradeFastpayRefundQueryRequest alipayRequest = new AlipayTradeFastpayRefundQueryRequest();
+
+        AlipayTradeFastpayRefundQueryModel model = new AlipayTradeFastpayRefundQueryModel();
+        model.setOutTradeNo(outTradeNo);
+        model.setOutRequestNo(outRequestNo);
+        alipayRequest.setBizModel(model);
+
+        return getMerchantCredentials(merchantId).client().execute(alipayRequest);
+    }
+
+    /**
+     * 关闭商家未付款的交易（支付超时使用），调用异常直接抛出
+     */
+    public AlipayTradeCloseResponse closeTrade(Long merchantId, String outTradeNo) throws AlipayApiException {
+        AlipayTradeCloseRequest alipayRequest = new AlipayTradeCloseRequest();
+
+        AlipayTradeCloseModel model = new AlipayTradeCloseModel();
+        model.setOutTradeNo(outTradeNo);
+        alipayRequest.setBizModel(model);
+
+        return getMerchantCredentials(merchantId).client().execute(alipayRequest);
+    }
+
     /**
      * 验证商家支付宝回调签名
      */
@@ -190,17 +247,8 @@ public class MultiMerchantAlipayService {
         log.debug("验证商家支付宝回调签名，商家ID：{}", merchantId);
         
         try {
-            MerchantPaymentConfig config = getMerchantConfig(merchantId);
-            
-            return AlipaySignature.rsaCheckV1(
-                params, 
-                config.getAlipayPublicKey(), 
-                "UTF-8", 
-                "RSA2"
-            );
-        } catch (AlipayApiException e) {
-            log.error("商家支付宝回调签名验证失败，商家ID：{}", merchantId, e);
-            return false;
+            MerchantCredentials credentials = getMerchantCredentials(merchantId);
+            return signatureVerifier.verify(params, credentials.alipayPublicKeyObj(), "UTF-8", "RSA2");
         } catch (Exception e) {
             log.error("验证商家支付宝回调签名异常，商家ID：{}", merchantId, e);
             return false;
@@ -208,67 +256,38 @@ public class MultiMerchantAlipayService {
     }
 
     /**
-     * 获取或创建支付宝客户端
+     * 批量验证商家支付宝回调签名（对账重放使用），结果与输入顺序一致
      */
-    private AlipayClient getOrCreateAlipayClient(Long merchantId, MerchantPaymentConfig config) {
-        // 先从缓存获取
-        AlipayClient cachedClient = clientCache.get(merchantId);
-        if (cachedClient != null) {
-            return cachedClient;
-        }
-
-        // 创建新的客户端
-        synchronized (this) {
-            // 双重检查
-            cachedClient = clientCache.get(merchantId);
-            if (cachedClient != null) {
-                return cachedClient;
-            }
-
-            log.info("创建商家支付宝客户端，商家ID：{}，应用ID：{}", merchantId, config.getAlipayAppId());
-            
-            AlipayClient newClient = new DefaultAlipayClient(
-                determineGatewayUrl(config.getAlipayAppId()),
-                config.getAlipayAppId(),
-                config.getEncryptedPrivateKey(), // 这里应该是已解密的私钥
-                "json",
-                "UTF-8",
-                config.getAlipayPublicKey(),
-                "RSA2"
-            );
-            
-            clientCache.put(merchantId, newClient);
-            log.info("商家支付宝客户端创建成功，商家ID：{}", merchantId);
-            
-            return newClient;
-        }
+    public boolean[] verifyNotifySigns(Long merchantId, List<Map<String, String>> notifications) {
+        MerchantCredentials credentials = getMerchantCredentials(merchantId);
+        return signatureVerifier.verifyAll(notifications, credentials.alipayPublicKeyObj(), "UTF-8", "RSA2");
     }
 
     /**
-     * 获取商家配置
+     * 获取商家凭证
      */
-    private MerchantPaymentConfig getMerchantConfig(Long merchantId) {
-        MerchantPaymentConfig config = merchantConfigService.getActiveMerchantConfig(merchantId);
-        if (config == null) {
+    private MerchantCredentials getMerchantCredentials(Long merchantId) {
+        MerchantCredentials credentials = credentialRegistry.get(merchantId);
+        if (credentials == null) {
             throw new BusinessException("商家支付配置不存在或未启用，商家ID：" + merchantId);
         }
-        return config;
+        return credentials;
     }
 
     /**
      * 构建支付宝支付请求参数
      */
     private AlipayTradePagePayModel buildPaymentModel(Payment payment, PaymentCreateRequest request, 
-                                                     MerchantPaymentConfig config) {
+                                                     MerchantCredentials credentials) {
         AlipayTradePagePayModel model = new AlipayTradePagePayModel();
         
         model.setOutTradeNo(payment.getPaymentNo());
         model.setProductCode("FAST_INSTANT_TRADE_PAY");
         model.setTotalAmount(formatAmount(payment.getAmount()));
         model.setSubject(buildPaymentSubject(payment));
-        model.setBody(buildPaymentBody(payment, config));
+        model.setBody(buildPaymentBody(payment, credentials));
         model.setTimeoutExpress("15m");
-        model.setPassbackParams("merchant_" + config.getMerchantId()); // 添加商家标识
+        model.setPassbackParams("merchant_" + credentials.merchantId()); // 添加商家标识
         
         return model;
     }
@@ -302,9 +321,9 @@ public class MultiMerchantAlipayService {
     /**
      * 构建支付描述
      */
-    private String buildPaymentBody(Payment payment, MerchantPaymentConfig config) {
+    private String buildPaymentBody(Payment payment, MerchantCredentials credentials) {
         StringBuilder body = new StringBuilder();
-        body.append("商家ID: ").append(config.getMerchantId());
+        body.append("商家ID: ").append(credentials.merchantId());
         body.append(", 订单编号: ").append(payment.getOrder().getOrderNo());
         body.append(", 支付类型: ").append(buildPaymentSubject(payment));
         body.append(", 支付金额: ").append(payment.getAmount()).append("元");
@@ -345,32 +364,17 @@ public class MultiMerchantAlipayService {
         return amount.setScale(2, BigDecimal.ROUND_HALF_UP).toString();
     }
 
-    /**
-     * 确定支付宝网关地址
-     */
-    private String determineGatewayUrl(String appId) {
-        // 这里可以根据应用ID或配置决定使用正式环境还是沙箱环境
-        // 沙箱环境的应用ID通常有特定格式，这里简化处理
-        if (appId.startsWith("2016") || appId.startsWith("2021")) {
-            return "https://openapi.alipay.com/gateway.do"; // 正式环境
-        } else {
-            return "https://openapi.alipaydev.com/gateway.do"; // 沙箱环境
-        }
-    }
-
     /**
      * 清理缓存的客户端（商家配置更新时调用）
      */
     public void clearClientCache(Long merchantId) {
-        log.info("清理商家支付宝客户端缓存，商家ID：{}", merchantId);
-        clientCache.remove(merchantId);
+        credentialRegistry.invalidate(merchantId);
     }
 
     /**
      * 清理所有缓存
      */
     public void clearAllClientCache() {
-        log.info("清理所有商家支付宝客户端缓存");
-        clientCache.clear();
+        credentialRegistry.invalidateAll();
     }
 }
\ No newline at end of file
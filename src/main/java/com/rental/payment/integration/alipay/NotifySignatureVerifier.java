@@ -0,0 +1,133 @@
+package com.rental.payment.integration.alipay;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * 支付宝异步通知验签组件
+ *
+ * 与 {@code AlipaySignature.rsaCheckV1} 的规则一致（去掉 sign、sign_type 和空值，按参数名排序后以 & 拼接），
+ * 但公钥由调用方预先解析，{@link Signature} 实例按线程复用，不再在每次通知时解码和解析 X.509 公钥。
+ */
+@Component
+@Slf4j
+public class NotifySignatureVerifier {
+
+    /**
+     * 批量验签时启用并行的最小数量
+     */
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private static final ThreadLocal<Signature> SHA256_WITH_RSA = ThreadLocal.withInitial(() -> newSignature("SHA256WithRSA"));
+    private static final ThreadLocal<Signature> SHA1_WITH_RSA = ThreadLocal.withInitial(() -> newSignature("SHA1WithRSA"));
+
+    /**
+     * 解析 Base64 编码的 X.509 公钥
+     */
+    public PublicKey parsePublicKey(String base64Key) {
+        try {
+            byte[] encoded = Base64.getMimeDecoder().decode(base64Key.replaceAll("-----[A-Z ]+-----", ""));
+            return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(encoded));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("支付宝公钥格式错误", e);
+        }
+    }
+
+    /**
+     * 验证单条通知签名
+     *
+     * @param params    通知参数
+     * @param publicKey 支付宝公钥
+     * @param charset   参数编码
+     * @param signType  签名方式（RSA2 或 RSA）
+     * @return 签名是否有效
+     */
+    public boolean verify(Map<String, String> params, PublicKey publicKey, String charset, String signType) {
+        String sign = params.get("sign");
+        if (!StringUtils.hasText(sign)) {
+            return false;
+        }
+        try {
+            Signature signature = signatureFor(signType);
+            signature.initVerify(publicKey);
+            signature.update(canonicalize(params).getBytes(resolveCharset(charset)));
+            return signature.verify(Base64.getMimeDecoder().decode(sign));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            log.warn("支付宝通知验签异常: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 批量验证同一公钥下的通知签名（用于对账重放），结果与输入顺序一致
+     */
+    public boolean[] verifyAll(List<Map<String, String>> notifications, PublicKey publicKey,
+                               String charset, String signType) {
+        boolean[] results = new boolean[notifications.size()];
+        IntStream indexes = IntStream.range(0, notifications.size());
+        if (notifications.size() >= PARALLEL_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> results[i] = verify(notifications.get(i), publicKey, charset, signType));
+        return results;
+    }
+
+    /**
+     * 生成待验签字符串
+     */
+    private String canonicalize(Map<String, String> params) {
+        String[] keys = new String[params.size()];
+        int count = 0;
+        int length = 0;
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            if (!StringUtils.hasLength(key) || !StringUtils.hasLength(value)
+                || "sign".equals(key) || "sign_type".equals(key)) {
+                continue;
+            }
+            keys[count++] = key;
+            length += key.length() + value.length() + 2;
+        }
+        Arrays.sort(keys, 0, count);
+
+        StringBuilder content = new StringBuilder(length);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                content.append('&');
+            }
+            content.append(keys[i]).append('=').append(params.get(keys[i]));
+        }
+        return content.toString();
+    }
+
+    private Signature signatureFor(String signType) {
+        return "RSA".equalsIgnoreCase(signType) ? SHA1_WITH_RSA.get() : SHA256_WITH_RSA.get();
+    }
+
+    private Charset resolveCharset(String charset) {
+        return StringUtils.hasText(charset) ? Charset.forName(charset) : StandardCharsets.UTF_8;
+    }
+
+    private static Signature newSignature(String algorithm) {
+        try {
+            return Signature.getInstance(algorithm);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("不支持的签名算法：" + algorithm, e);
+        }
+    }
+}
@@ -23,7 +23,10 @@ import java.util.List;
     @Index(name = "idx_merchant_id", columnList = "merchant_id"),
     @Index(name = "idx_status", columnList = "status"),
     @Index(name = "idx_created_at", columnList = "created_at"),
-    @Index(name = "idx_merchant_status", columnList = "merchant_id, status")
+    @Index(name = "idx_merchant_status", columnList = "merchant_id, status"),
+    @Index(name = "idx_status_id", columnList = "status, id"),
+    @Index(name = "idx_updated_at", columnList = "updated_at"),
+    @Index(name = "idx_original_payment_id", columnList = "original_payment_id")
 })
 @Getter
 @Setter
@@ -68,6 +71,13 @@ public class Payment {
     @Column(name = "third_party_transaction_id")
     private String thirdPartyTransactionId;
 
+    // 退款记录对应的原支付ID，非退款记录为空
+    @Column(name = "original_payment_id")
+    private Long originalPaymentId;
+
+    @Column(name = "refund_reason")
+    private String refundReason;
+
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -115,7 +125,8 @@ public class Payment {
         PENDING("待支付"),
         SUCCESS("支付成功"),
         FAILED("支付失败"),
-        CANCELLED("已取消");
+        CANCELLED("已取消"),
+        MANUAL_REVIEW("待人工核实");
 
         private final String description;
 
@@ -0,0 +1,92 @@
+package com.rental.payment.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * 支付回调收件箱
+ *
+ * 验签通过的原始通知先落库再异步处理，(merchant_id, out_trade_no, notify_id) 唯一，
+ * 第三方重复推送的同一通知只会被记录和处理一次。
+ */
+@Entity
+@Table(name = "payment_callback_inbox",
+    uniqueConstraints = @UniqueConstraint(name = "uk_merchant_trade_notify",
+        columnNames = {"merchant_id", "out_trade_no", "notify_id"}),
+    indexes = {
+        @Index(name = "idx_status_id", columnList = "status, id"),
+        @Index(name = "idx_out_trade_no_status", columnList = "out_trade_no, status")
+    })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentCallbackInbox {
+
+    /**
+     * 统一配置（非商家专属回调地址）的通知使用的商家ID占位值
+     */
+    public static final long UNIFIED_MERCHANT_ID = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "merchant_id", nullable = false)
+    private Long merchantId;
+
+    @Column(name = "out_trade_no", nullable = false, length = 64)
+    private String outTradeNo;
+
+    @Column(name = "notify_id", nullable = false, length = 128)
+    private String notifyId;
+
+    @Column(name = "trade_no", length = 64)
+    private String tradeNo;
+
+    @Column(name = "trade_status", length = 32)
+    private String tradeStatus;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "raw_params", columnDefinition = "JSON", nullable = false)
+    private String rawParams;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private InboxStatus status = InboxStatus.RECEIVED;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "received_at", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    public enum InboxStatus {
+        RECEIVED("待处理"),
+        PROCESSED("已处理"),
+        FAILED("处理失败");
+
+        private final String description;
+
+        InboxStatus(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+}
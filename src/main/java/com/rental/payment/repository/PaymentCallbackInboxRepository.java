@@ -0,0 +1,35 @@
+package com.rental.payment.repository;
+
+import com.rental.payment.model.PaymentCallbackInbox;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PaymentCallbackInboxRepository extends JpaRepository<PaymentCallbackInbox, Long> {
+
+    // 加锁读取，防止多个实例并发处理同一条通知
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM PaymentCallbackInbox i WHERE i.id = :id")
+    Optional<PaymentCallbackInbox> findByIdForUpdate(@Param("id") Long id);
+
+    // 某个支付单号下的待处理通知，按接收顺序
+    @Query("SELECT i.id FROM PaymentCallbackInbox i WHERE i.outTradeNo = :outTradeNo AND i.status = :status ORDER BY i.id")
+    List<Long> findIdsByOutTradeNoAndStatus(@Param("outTradeNo") String outTradeNo,
+                                            @Param("status") PaymentCallbackInbox.InboxStatus status);
+
+    // 补偿扫描：存在滞留通知的 (商家ID, 支付单号)，按最早通知排序
+    @Query("SELECT i.merchantId, i.outTradeNo FROM PaymentCallbackInbox i WHERE i.status = :status AND i.receivedAt < :before " +
+           "GROUP BY i.merchantId, i.outTradeNo ORDER BY MIN(i.id)")
+    List<Object[]> findStaleMerchantTrades(@Param("status") PaymentCallbackInbox.InboxStatus status,
+                                           @Param("before") LocalDateTime before,
+                                           Pageable pageable);
+}
@@ -2,15 +2,19 @@ package com.rental.payment.repository;
 
 import com.rental.order.model.Order;
 import com.rental.payment.model.Payment;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,8 +26,32 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     boolean existsByPaymentNo(String paymentNo);
 
+    // 加锁读取，串行化同一支付的并发状态变更
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.paymentNo = :paymentNo")
+    Optional<Payment> findByPaymentNoForUpdate(@Param("paymentNo") String paymentNo);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.id = :id")
+    Optional<Payment> findByIdForUpdate(@Param("id") Long id);
+
+    // 原支付已占用的退款金额（处理中、已成功和结果待人工核实的退款）
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM Payment p WHERE p.originalPaymentId = :originalPaymentId " +
+           "AND p.paymentType = com.rental.payment.model.Payment.PaymentType.REFUND " +
+           "AND p.status IN (com.rental.payment.model.Payment.PaymentStatus.PENDING, com.rental.payment.model.Payment.PaymentStatus.SUCCESS, " +
+           "com.rental.payment.model.Payment.PaymentStatus.MANUAL_REVIEW)")
+    BigDecimal sumActiveRefundAmount(@Param("originalPaymentId") Long originalPaymentId);
+
     Optional<Payment> findByThirdPartyTransactionId(String thirdPartyTransactionId);
 
+    // 批量状态迁移：先锁定仍处于指定状态的记录，再只迁移这些记录，与回调并发时不会覆盖已变更的状态
+    @Query(value = "SELECT id FROM payments WHERE id IN (:ids) AND status = :status FOR UPDATE", nativeQuery = true)
+    List<Long> lockIdsByStatus(@Param("ids") Collection<Long> ids, @Param("status") String status);
+
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :status WHERE p.id IN :ids")
+    int updateStatusByIds(@Param("ids") Collection<Long> ids, @Param("status") Payment.PaymentStatus status);
+
     // 订单支付查询
     List<Payment> findByOrderId(Long orderId);
 
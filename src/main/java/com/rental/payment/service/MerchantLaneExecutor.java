@@ -0,0 +1,210 @@
+package com.rental.payment.service;
+
+import com.rental.payment.config.MerchantLaneConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 商家分区处理通道
+ *
+ * 商家ID经一致性哈希固定映射到若干单线程通道之一，同一商家的任务始终按提交顺序串行执行，
+ * 不同通道并行处理。通道内每个商家有独立的队列和排队上限，工作线程在有任务的商家之间
+ * 轮转取任务，单个商家的回调风暴只会让自己排队，不会拖慢同通道的其他商家。
+ * 每个通道的排队数、活跃商家数、完成/拒绝/失败次数以及排队和执行耗时通过 Micrometer 暴露。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MerchantLaneExecutor {
+
+    private final MerchantLaneConfig laneConfig;
+    private final MeterRegistry meterRegistry;
+
+    // 哈希环：虚拟节点哈希值 -> 通道下标
+    private final TreeMap<Long, Integer> ring = new TreeMap<>();
+    private Lane[] lanes;
+
+    @PostConstruct
+    public void startLanes() {
+        int laneCount = Math.max(1, laneConfig.getLaneCount());
+        int virtualNodes = Math.max(1, laneConfig.getVirtualNodes());
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i);
+            for (int v = 0; v < virtualNodes; v++) {
+                ring.put(mix(((long) i << 32) | v), i);
+            }
+        }
+        for (Lane lane : lanes) {
+            lane.thread.start();
+        }
+        log.info("商家分区处理通道已启动，通道数：{}", laneCount);
+    }
+
+    @PreDestroy
+    public void stopLanes() {
+        for (Lane lane : lanes) {
+            lane.thread.interrupt();
+        }
+    }
+
+    /**
+     * 提交商家任务
+     *
+     * @param merchantId 商家ID，为空时归入统一配置分区
+     * @return 商家排队任务已达上限时返回 false，调用方依赖持久化状态和补偿扫描重试
+     */
+    public boolean execute(Long merchantId, Runnable task) {
+        long key = merchantId != null ? merchantId : 0L;
+        return lanes[laneOf(key)].offer(key, task);
+    }
+
+    /**
+     * 商家所在的通道下标
+     */
+    public int laneOf(long merchantId) {
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(mix(merchantId));
+        return (entry != null ? entry : ring.firstEntry()).getValue();
+    }
+
+    /**
+     * 64 位哈希混淆（MurmurHash3 finalizer），让相邻的商家ID在环上均匀分布
+     */
+    private static long mix(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private record QueuedTask(Runnable task, long enqueuedNanos) {
+    }
+
+    /**
+     * 单线程通道，通道内按商家轮转
+     */
+    private final class Lane implements Runnable {
+
+        private final int index;
+        private final Thread thread;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+        // 商家 -> 待执行任务；队列为空的商家会被移除
+        private final Map<Long, ArrayDeque<QueuedTask>> queues = new HashMap<>();
+        // 有待执行任务的商家，按轮转顺序
+        private final ArrayDeque<Long> ready = new ArrayDeque<>();
+        private int queued;
+
+        private final Counter completed;
+        private final Counter rejected;
+        private final Counter failed;
+        private final Timer waitTimer;
+        private final Timer executionTimer;
+
+        Lane(int index) {
+            this.index = index;
+            String lane = String.valueOf(index);
+            this.thread = new Thread(this, "merchant-lane-" + index);
+            this.thread.setDaemon(true);
+
+            Gauge.builder("payment.lane.queued", this, l -> l.snapshot(false))
+                .tag("lane", lane).description("通道中排队的任务数").register(meterRegistry);
+            Gauge.builder("payment.lane.merchants", this, l -> l.snapshot(true))
+                .tag("lane", lane).description("通道中有排队任务的商家数").register(meterRegistry);
+            completed = Counter.builder("payment.lane.completed").tag("lane", lane).register(meterRegistry);
+            rejected = Counter.builder("payment.lane.rejected").tag("lane", lane)
+                .description("商家排队达到上限被拒绝的任务数").register(meterRegistry);
+            failed = Counter.builder("payment.lane.failed").tag("lane", lane).register(meterRegistry);
+            waitTimer = Timer.builder("payment.lane.wait").tag("lane", lane)
+                .description("任务从提交到开始执行的排队时间").register(meterRegistry);
+            executionTimer = Timer.builder("payment.lane.execution").tag("lane", lane).register(meterRegistry);
+        }
+
+        boolean offer(long merchantId, Runnable task) {
+            lock.lock();
+            try {
+                ArrayDeque<QueuedTask> queue = queues.get(merchantId);
+                if (queue == null) {
+                    queue = new ArrayDeque<>();
+                    queues.put(merchantId, queue);
+                    ready.addLast(merchantId);
+                } else if (queue.size() >= Math.max(1, laneConfig.getMerchantQueueCapacity())) {
+                    rejected.increment();
+                    return false;
+                }
+                queue.addLast(new QueuedTask(task, System.nanoTime()));
+                queued++;
+                notEmpty.signal();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                QueuedTask next;
+                lock.lock();
+                try {
+                    while (ready.isEmpty()) {
+                        notEmpty.await();
+                    }
+                    Long merchantId = ready.pollFirst();
+                    ArrayDeque<QueuedTask> queue = queues.get(merchantId);
+                    next = queue.pollFirst();
+                    queued--;
+                    if (queue.isEmpty()) {
+                        queues.remove(merchantId);
+                    } else {
+                        ready.addLast(merchantId);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    lock.unlock();
+                }
+
+                long start = System.nanoTime();
+                waitTimer.record(start - next.enqueuedNanos(), TimeUnit.NANOSECONDS);
+                try {
+                    next.task().run();
+                    completed.increment();
+                } catch (RuntimeException e) {
+                    failed.increment();
+                    log.error("商家通道任务执行失败，通道：{}", index, e);
+                } finally {
+                    executionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+
+        private double snapshot(boolean merchants) {
+            lock.lock();
+            try {
+                return merchants ? queues.size() : queued;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.rental.payment.service;
+
+import com.rental.payment.DTO.MerchantPaymentStatistics;
+import com.rental.payment.DTO.PaymentStatistics;
+import com.rental.payment.model.Payment;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 支付统计服务
+ *
+ * 统计按 (商家, 状态, 类型) 一次分组查询得到全部指标。历史日期读取日汇总表，
+ * 只有当天的数据实时分组查询支付表。日汇总由定时任务增量刷新：按支付更新时间
+ * 找出有变化的创建日期，逐日重算这些日期的汇总行。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentAnalyticsService {
+
+    private static final Timestamp INITIAL_WATERMARK = Timestamp.valueOf("2000-01-01 00:00:00");
+
+    private static final String STATE_INIT_SQL =
+        "INSERT IGNORE INTO payment_stats_rollup_state (id, watermark) VALUES (1, ?)";
+
+    private static final String STATE_SQL =
+        "SELECT watermark FROM payment_stats_rollup_state WHERE id = 1";
+
+    private static final String DIRTY_DAYS_SQL =
+        "SELECT DISTINCT DATE(created_at) FROM payments WHERE updated_at >= ?";
+
+    private static final String DELETE_DAY_SQL =
+        "DELETE FROM payment_daily_stats WHERE stat_date = ?";
+
+    private static final String ROLLUP_DAY_SQL =
+        "INSERT INTO payment_daily_stats (stat_date, merchant_id, status, payment_type, payment_count, total_amount) " +
+        "SELECT ?, merchant_id, status, payment_type, COUNT(*), COALESCE(SUM(amount), 0) FROM payments " +
+        "WHERE created_at >= ? AND created_at < ? GROUP BY merchant_id, status, payment_type";
+
+    private static final String ROLLUP_QUERY_SQL =
+        "SELECT %s status, payment_type, SUM(payment_count) AS cnt, SUM(total_amount) AS amount " +
+        "FROM payment_daily_stats WHERE stat_date >= ? AND stat_date <= ? %s GROUP BY %s status, payment_type";
+
+    private static final String LIVE_QUERY_SQL =
+        "SELECT %s status, payment_type, COUNT(*) AS cnt, COALESCE(SUM(amount), 0) AS amount " +
+        "FROM payments WHERE created_at >= ? AND created_at < ? %s GROUP BY %s status, payment_type";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    // 水位回退的分钟数，覆盖应用与数据库之间的时钟和时区差异
+    @Value("${payment.statistics.watermark-overlap-minutes:1440}")
+    private int watermarkOverlapMinutes;
+
+    private volatile boolean rollupReady;
+
+    /**
+     * 统计日期范围内的支付
+     *
+     * @param merchantId 商家ID，为空时统计全部商家
+     */
+    public PaymentStatistics getStatistics(LocalDate startDate, LocalDate endDate, Long merchantId) {
+        Accumulator accumulator = new Accumulator();
+        aggregate(startDate, endDate, merchantId, false, (rowMerchantId, status, type, count, amount) ->
+            accumulator.add(status, type, count, amount));
+        return accumulator.toStatistics();
+    }
+
+    /**
+     * 按商家统计日期范围内的支付，按成功金额倒序
+     */
+    public List<MerchantPaymentStatistics> getMerchantStatistics(LocalDate startDate, LocalDate endDate) {
+        Map<Long, Accumulator> byMerchant = new HashMap<>();
+        aggregate(startDate, endDate, null, true, (rowMerchantId, status, type, count, amount) ->
+            byMerchant.computeIfAbsent(rowMerchantId, id -> new Accumulator()).add(status, type, count, amount));
+        if (byMerchant.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Long, String> names = loadMerchantNames(byMerchant.keySet());
+        List<MerchantPaymentStatistics> result = new ArrayList<>(byMerchant.size());
+        byMerchant.forEach((merchantId, accumulator) ->
+            result.add(new MerchantPaymentStatistics(merchantId, names.get(merchantId), accumulator.toStatistics())));
+        result.sort(Comparator.comparing((MerchantPaymentStatistics m) -> m.getStatistics().getSuccessAmount()).reversed());
+        return result;
+    }
+
+    /**
+     * 定时刷新日汇总
+     */
+    @Scheduled(fixedDelayString = "${payment.statistics.rollup-interval-ms:60000}",
+               initialDelayString = "${payment.statistics.rollup-initial-delay-ms:30000}")
+    public void scheduledRefresh() {
+        try {
+            refreshRollups();
+        } catch (RuntimeException e) {
+            log.warn("支付日汇总刷新失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 重算水位之后有支付变化的日期。每天单独提交，中途失败时水位不前移，下次整体重做。
+     */
+    public void refreshRollups() {
+        jdbcTemplate.update(STATE_INIT_SQL, INITIAL_WATERMARK);
+        Timestamp watermark = jdbcTemplate.queryForObject(STATE_SQL, Timestamp.class);
+        Timestamp now = jdbcTemplate.queryForObject("SELECT NOW()", Timestamp.class);
+
+        Timestamp since = watermark.after(INITIAL_WATERMARK)
+            ? Timestamp.valueOf(watermark.toLocalDateTime().minusMinutes(watermarkOverlapMinutes))
+            : INITIAL_WATERMARK;
+        List<Date> dirtyDays = jdbcTemplate.queryForList(DIRTY_DAYS_SQL, Date.class, since);
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (Date day : dirtyDays) {
+            LocalDate date = day.toLocalDate();
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update(DELETE_DAY_SQL, day);
+                jdbcTemplate.update(ROLLUP_DAY_SQL, day,
+                    Timestamp.valueOf(date.atStartOfDay()), Timestamp.valueOf(date.plusDays(1).atStartOfDay()));
+            });
+        }
+
+        jdbcTemplate.update("UPDATE payment_stats_rollup_state SET watermark = ? WHERE id = 1", now);
+        rollupReady = true;
+        if (!dirtyDays.isEmpty()) {
+            log.debug("支付日汇总已刷新 {} 天", dirtyDays.size());
+        }
+    }
+
+    /**
+     * 汇总历史日期和当天实时数据
+     */
+    private void aggregate(LocalDate startDate, LocalDate endDate, Long merchantId, boolean byMerchant, CellHandler handler) {
+        LocalDate today = LocalDate.now();
+        LocalDate liveStart = startDate;
+        if (isRollupReady() && startDate.isBefore(today)) {
+            LocalDate rollupEnd = endDate.isBefore(today) ? endDate : today.minusDays(1);
+            query(ROLLUP_QUERY_SQL, byMerchant, merchantId, handler, Date.valueOf(startDate), Date.valueOf(rollupEnd));
+            liveStart = today;
+        }
+        if (!liveStart.isAfter(endDate)) {
+            query(LIVE_QUERY_SQL, byMerchant, merchantId, handler,
+                Timestamp.valueOf(liveStart.atStartOfDay()), Timestamp.valueOf(endDate.plusDays(1).atStartOfDay()));
+        }
+    }
+
+    private void query(String template, boolean byMerchant, Long merchantId, CellHandler handler, Object from, Object to) {
+        String sql = String.format(template,
+            byMerchant ? "merchant_id," : "",
+            merchantId != null ? "AND merchant_id = ?" : "",
+            byMerchant ? "merchant_id," : "");
+        Object[] args = merchantId != null ? new Object[]{from, to, merchantId} : new Object[]{from, to};
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> handler.accept(
+            byMerchant ? rs.getLong("merchant_id") : null,
+            Payment.PaymentStatus.valueOf(rs.getString("status")),
+            Payment.PaymentType.valueOf(rs.getString("payment_type")),
+            rs.getLong("cnt"),
+            rs.getBigDecimal("amount")), args);
+    }
+
+    private boolean isRollupReady() {
+        if (!rollupReady) {
+            try {
+                List<Timestamp> watermarks = jdbcTemplate.queryForList(STATE_SQL, Timestamp.class);
+                rollupReady = !watermarks.isEmpty() && watermarks.get(0).after(INITIAL_WATERMARK);
+            } catch (RuntimeException e) {
+                log.debug("读取支付统计水位失败: {}", e.getMessage());
+            }
+        }
+        return rollupReady;
+    }
+
+    private Map<Long, String> loadMerchantNames(Set<Long> merchantIds) {
+        Map<Long, String> names = new LinkedHashMap<>();
+        String placeholders = String.join(",", Collections.nCopies(merchantIds.size(), "?"));
+        jdbcTemplate.query("SELECT id, username FROM users WHERE id IN (" + placeholders + ")",
+            (RowCallbackHandler) rs -> names.put(rs.getLong("id"), rs.getString("username")),
+            merchantIds.toArray());
+        return names;
+    }
+
+    @FunctionalInterface
+    private interface CellHandler {
+        void accept(Long merchantId, Payment.PaymentStatus status, Payment.PaymentType type, long count, BigDecimal amount);
+    }
+
+    /**
+     * 把分组结果累加为统计指标，口径与原逐项统计一致
+     */
+    private static final class Accumulator {
+
+        private long totalPayments;
+        private long successPayments;
+        private long failedPayments;
+        private long pendingPayments;
+        private long refundCount;
+        private BigDecimal totalAmount = BigDecimal.ZERO;
+        private BigDecimal successAmount = BigDecimal.ZERO;
+        private BigDecimal refundAmount = BigDecimal.ZERO;
+
+        void add(Payment.PaymentStatus status, Payment.PaymentType type, long count, BigDecimal amount) {
+            BigDecimal value = amount != null ? amount : BigDecimal.ZERO;
+            totalPayments += count;
+            totalAmount = totalAmount.add(value);
+            switch (status) {
+                case SUCCESS -> {
+                    successPayments += count;
+                    successAmount = successAmount.add(value);
+                }
+                case FAILED -> failedPayments += count;
+                case PENDING -> pendingPayments += count;
+                default -> {
+                }
+            }
+            if (type == Payment.PaymentType.REFUND) {
+                refundCount += count;
+                refundAmount = refundAmount.add(value);
+            }
+        }
+
+        PaymentStatistics toStatistics() {
+            double successRate = totalPayments > 0 ? (double) successPayments / totalPayments * 100 : 0.0;
+            return new PaymentStatistics(
+                totalPayments, successPayments, failedPayments, pendingPayments,
+                totalAmount, successAmount, refundCount, refundAmount,
+                BigDecimal.valueOf(successRate).setScale(2, RoundingMode.HALF_UP).doubleValue()
+            );
+        }
+    }
+}
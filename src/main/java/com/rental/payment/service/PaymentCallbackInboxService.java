@@ -0,0 +1,224 @@
+package com.rental.payment.service;
+
+import com.rental.common.util.JsonUtil;
+import com.rental.payment.DTO.PaymentCallbackRequest;
+import com.rental.payment.config.PaymentCallbackConfig;
+import com.rental.payment.integration.alipay.AlipayService;
+import com.rental.payment.integration.alipay.MultiMerchantAlipayService;
+import com.rental.payment.model.PaymentCallbackInbox;
+import com.rental.payment.repository.PaymentCallbackInboxRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 支付回调收件箱服务
+ *
+ * 回调请求线程只做验签和一次幂等插入，随即应答第三方；状态变更由后台通道异步执行。
+ * 通知按商家分区进入固定的单线程通道，同一支付单号按接收顺序处理，每条通知的处理与其
+ * 已处理标记在同一事务中提交，重复推送、并发重试都不会产生重复的业务效果。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentCallbackInboxService {
+
+    private static final String INSERT_SQL =
+        "INSERT IGNORE INTO payment_callback_inbox (merchant_id, out_trade_no, notify_id, trade_no, trade_status, raw_params) " +
+        "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String FAILURE_SQL =
+        "UPDATE payment_callback_inbox SET attempts = attempts + 1, last_error = ?, " +
+        "status = IF(attempts >= ?, 'FAILED', status) WHERE id = ? AND status = 'RECEIVED'";
+
+    private final PaymentCallbackInboxRepository inboxRepository;
+    private final PaymentService paymentService;
+    private final AlipayService alipayService;
+    private final MultiMerchantAlipayService multiMerchantAlipayService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final PaymentCallbackConfig callbackConfig;
+    private final MerchantLaneExecutor merchantLaneExecutor;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 接收支付宝异步通知
+     *
+     * @param merchantId 商家ID，统一配置回调为 null
+     * @param params     通知参数
+     * @return 验签通过且已落库（包括重复通知）返回 true；返回 false 时应答失败，由支付宝重试
+     */
+    public boolean receiveAlipayNotify(Long merchantId, Map<String, String> params) {
+        String outTradeNo = params.get("out_trade_no");
+        if (!StringUtils.hasText(outTradeNo) || outTradeNo.length() > 64) {
+            log.warn("支付宝回调缺少有效的商户订单号，商家ID：{}", merchantId);
+            return false;
+        }
+
+        boolean signValid = merchantId != null
+            ? multiMerchantAlipayService.verifyNotifySign(merchantId, params)
+            : alipayService.verifyNotifySign(params);
+        if (!signValid) {
+            log.warn("支付宝回调签名验证失败，商家ID：{}，支付单号：{}", merchantId, outTradeNo);
+            return false;
+        }
+
+        long inboxMerchantId = merchantId != null ? merchantId : PaymentCallbackInbox.UNIFIED_MERCHANT_ID;
+        int inserted = jdbcTemplate.update(INSERT_SQL,
+            inboxMerchantId,
+            outTradeNo,
+            resolveNotifyId(params),
+            truncate(params.get("trade_no"), 64),
+            truncate(params.get("trade_status"), 32),
+            JsonUtil.toJson(params));
+
+        if (inserted == 0) {
+            log.info("支付宝重复通知已忽略，商家ID：{}，支付单号：{}", merchantId, outTradeNo);
+        } else {
+            dispatch(inboxMerchantId, outTradeNo);
+        }
+        return true;
+    }
+
+    /**
+     * 补偿扫描：处理实时分发丢失（队列满、进程重启）或处理失败待重试的通知
+     */
+    @Scheduled(fixedDelayString = "${payment.callback.recovery-interval-ms:30000}")
+    public void recoverStaleNotifications() {
+        LocalDateTime before = LocalDateTime.now().minusSeconds(callbackConfig.getRecoveryDelaySeconds());
+        List<Object[]> staleTrades;
+        try {
+            staleTrades = inboxRepository.findStaleMerchantTrades(PaymentCallbackInbox.InboxStatus.RECEIVED,
+                before, PageRequest.of(0, callbackConfig.getRecoveryBatchSize()));
+        } catch (RuntimeException e) {
+            log.error("扫描滞留的支付回调失败: {}", e.getMessage());
+            return;
+        }
+        if (!staleTrades.isEmpty()) {
+            log.info("重新分发 {} 个支付单号的滞留回调通知", staleTrades.size());
+            staleTrades.forEach(row -> dispatch((Long) row[0], (String) row[1]));
+        }
+    }
+
+    /**
+     * 按商家分区分发，同一商家（含统一配置分区）的通知在同一通道中按序处理。
+     * 商家排队已满时丢弃：通知已持久化，由补偿扫描兜底，不阻塞回调应答。
+     */
+    private void dispatch(Long merchantId, String outTradeNo) {
+        if (!merchantLaneExecutor.execute(merchantId, () -> drain(outTradeNo))) {
+            log.warn("商家回调排队已满，等待补偿扫描处理，商家ID：{}，支付单号：{}", merchantId, outTradeNo);
+        }
+    }
+
+    /**
+     * 按接收顺序处理某个支付单号下的全部待处理通知，遇到失败即停止，保证后续通知不会越过前序通知
+     */
+    private void drain(String outTradeNo) {
+        List<Long> inboxIds;
+        try {
+            inboxIds = inboxRepository.findIdsByOutTradeNoAndStatus(outTradeNo, PaymentCallbackInbox.InboxStatus.RECEIVED);
+        } catch (RuntimeException e) {
+            log.error("读取待处理支付回调失败，支付单号：{}: {}", outTradeNo, e.getMessage());
+            return;
+        }
+        for (Long inboxId : inboxIds) {
+            if (!process(inboxId)) {
+                return;
+            }
+        }
+    }
+
+    private boolean process(Long inboxId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                PaymentCallbackInbox entry = inboxRepository.findByIdForUpdate(inboxId).orElse(null);
+                if (entry == null || entry.getStatus() != PaymentCallbackInbox.InboxStatus.RECEIVED) {
+                    return;
+                }
+                paymentService.handlePaymentCallbackWithoutSignVerification(toCallbackRequest(entry));
+                entry.setStatus(PaymentCallbackInbox.InboxStatus.PROCESSED);
+                entry.setAttempts(entry.getAttempts() + 1);
+                entry.setLastError(null);
+                entry.setProcessedAt(LocalDateTime.now());
+            });
+            return true;
+        } catch (RuntimeException e) {
+            log.error("支付回调处理失败，收件箱ID：{}", inboxId, e);
+            try {
+                jdbcTemplate.update(FAILURE_SQL, truncate(e.getMessage(), 500), callbackConfig.getMaxAttempts(), inboxId);
+            } catch (RuntimeException updateError) {
+                log.error("记录支付回调失败次数异常，收件箱ID：{}: {}", inboxId, updateError.getMessage());
+            }
+            return false;
+        }
+    }
+
+    private PaymentCallbackRequest toCallbackRequest(PaymentCallbackInbox entry) {
+        @SuppressWarnings("unchecked")
+        Map<String, Object> rawData = JsonUtil.fromJson(entry.getRawParams(), HashMap.class);
+
+        PaymentCallbackRequest request = new PaymentCallbackRequest();
+        request.setPaymentNo(entry.getOutTradeNo());
+        request.setThirdPartyTransactionId(entry.getTradeNo());
+        request.setStatus(convertAlipayTradeStatus(entry.getTradeStatus()));
+        request.setRawData(rawData);
+        return request;
+    }
+
+    /**
+     * 通知ID缺失时以排序后的参数摘要代替，同一通知的重复推送仍能命中唯一键
+     */
+    private String resolveNotifyId(Map<String, String> params) {
+        String notifyId = params.get("notify_id");
+        if (StringUtils.hasText(notifyId) && notifyId.length() <= 128) {
+            return notifyId;
+        }
+        return DigestUtils.sha256Hex(new TreeMap<>(params).toString());
+    }
+
+    /**
+     * 转换支付宝交易状态
+     */
+    private String convertAlipayTradeStatus(String tradeStatus) {
+        if (tradeStatus == null) {
+            return "PENDING";
+        }
+
+        switch (tradeStatus.toUpperCase()) {
+            case "TRADE_SUCCESS":
+            case "TRADE_FINISHED":
+                return "SUCCESS";
+            case "TRADE_CLOSED":
+                return "FAILED";
+            default:
+                return "PENDING";
+        }
+    }
+
+    private String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        return value.substring(0, maxLength);
+    }
+}
@@ -0,0 +1,303 @@
+package com.rental.payment.service;
+
+import com.alipay.api.response.AlipayTradeCloseResponse;
+import com.alipay.api.response.AlipayTradeQueryResponse;
+import com.rental.common.exception.BusinessException;
+import com.rental.common.util.JsonUtil;
+import com.rental.payment.config.PaymentExpiryConfig;
+import com.rental.payment.integration.alipay.MultiMerchantAlipayService;
+import com.rental.payment.model.Payment;
+import com.rental.payment.repository.PaymentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 支付超时关闭服务
+ *
+ * 每笔待支付记录按“创建时间 + 有效期 + 宽限期”放入延迟队列，到期后由单个后台线程成批取出：
+ * 先在支付宝关闭交易（已付款的交易保留给回调和对账处理），再在一个事务内把仍待支付的记录
+ * 批量改为已取消并写入支付记录。启动时和定时扫描会把库中的待支付记录补入队列，
+ * 覆盖进程重启和其他实例创建的支付。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentExpiryService {
+
+    private static final String PENDING_SQL =
+        "SELECT id, created_at FROM payments WHERE status = 'PENDING' AND payment_type <> 'REFUND' AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String CANDIDATE_SQL =
+        "SELECT id, payment_no, merchant_id FROM payments WHERE status = 'PENDING' AND payment_type <> 'REFUND' AND id IN (%s)";
+
+    private static final String RECORD_SQL =
+        "INSERT INTO payment_records (payment_id, status, response_data, error_message) VALUES (?, ?, ?, ?)";
+
+    private final PaymentRepository paymentRepository;
+    private final MultiMerchantAlipayService multiMerchantAlipayService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final PaymentExpiryConfig expiryConfig;
+
+    private final DelayQueue<ExpiryTask> queue = new DelayQueue<>();
+    // 已在队列中的支付ID，避免扫描重复入队
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    private Thread worker;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void startWorker() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        worker = new Thread(this::runWorker, "payment-expiry");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stopWorker() {
+        worker.interrupt();
+    }
+
+    /**
+     * 登记新建支付的超时时间；处于事务中时在提交后登记，回滚的支付不会入队
+     */
+    public void register(Long paymentId, LocalDateTime createdAt) {
+        LocalDateTime created = createdAt != null ? createdAt : LocalDateTime.now();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(paymentId, deadlineOf(created));
+                }
+            });
+        } else {
+            enqueue(paymentId, deadlineOf(created));
+        }
+    }
+
+    /**
+     * 启动后加载库中的待支付记录
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPendingOnStartup() {
+        try {
+            int loaded = loadPending();
+            log.info("支付超时队列加载完成，待支付：{}", loaded);
+        } catch (RuntimeException e) {
+            log.warn("支付超时队列加载失败，等待定时扫描补入: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时扫描补入遗漏的待支付记录
+     */
+    @Scheduled(fixedDelayString = "${payment.expiry.sweep-interval-ms:60000}",
+               initialDelayString = "${payment.expiry.sweep-interval-ms:60000}")
+    public void sweep() {
+        try {
+            loadPending();
+        } catch (RuntimeException e) {
+            log.warn("支付超时扫描失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 当前排队等待超时关闭的支付数量
+     */
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    private int loadPending() {
+        int batchSize = Math.max(1, expiryConfig.getBatchSize());
+        int loaded = 0;
+        long lastId = 0;
+        while (true) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(PENDING_SQL, lastId, batchSize);
+            for (Map<String, Object> row : rows) {
+                Long paymentId = ((Number) row.get("id")).longValue();
+                Object createdAt = row.get("created_at");
+                LocalDateTime created = createdAt instanceof Timestamp timestamp
+                    ? timestamp.toLocalDateTime()
+                    : createdAt instanceof LocalDateTime dateTime ? dateTime : LocalDateTime.now();
+                if (enqueue(paymentId, deadlineOf(created))) {
+                    loaded++;
+                }
+                lastId = paymentId;
+            }
+            if (rows.size() < batchSize) {
+                return loaded;
+            }
+        }
+    }
+
+    private boolean enqueue(Long paymentId, long deadlineNanos) {
+        if (!queued.add(paymentId)) {
+            return false;
+        }
+        queue.offer(new ExpiryTask(paymentId, deadlineNanos));
+        return true;
+    }
+
+    private long deadlineOf(LocalDateTime createdAt) {
+        LocalDateTime deadline = createdAt
+            .plusMinutes(expiryConfig.getTimeoutMinutes())
+            .plusSeconds(expiryConfig.getGraceSeconds());
+        return System.nanoTime() + Duration.between(LocalDateTime.now(), deadline).toNanos();
+    }
+
+    private void runWorker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<ExpiryTask> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, Math.max(1, expiryConfig.getBatchSize()) - 1);
+            List<Long> paymentIds = new ArrayList<>(batch.size());
+            for (ExpiryTask task : batch) {
+                queued.remove(task.paymentId());
+                paymentIds.add(task.paymentId());
+            }
+
+            try {
+                expire(paymentIds);
+            } catch (RuntimeException e) {
+                log.error("关闭超时支付失败，{} 笔稍后重试", paymentIds.size(), e);
+                paymentIds.forEach(this::retryLater);
+            }
+        }
+    }
+
+    /**
+     * 关闭一批到期的支付
+     */
+    private void expire(List<Long> paymentIds) {
+        String placeholders = String.join(",", Collections.nCopies(paymentIds.size(), "?"));
+        List<Map<String, Object>> candidates = jdbcTemplate.queryForList(
+            String.format(CANDIDATE_SQL, placeholders), paymentIds.toArray());
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        List<Long> closable = new ArrayList<>(candidates.size());
+        for (Map<String, Object> candidate : candidates) {
+            Long paymentId = ((Number) candidate.get("id")).longValue();
+            if (!expiryConfig.isCloseAtGateway()) {
+                closable.add(paymentId);
+                continue;
+            }
+            String paymentNo = (String) candidate.get("payment_no");
+            Long merchantId = ((Number) candidate.get("merchant_id")).longValue();
+            switch (closeAtGateway(merchantId, paymentNo)) {
+                case CLOSED -> closable.add(paymentId);
+                case PAID -> log.info("超时支付在支付宝已付款，等待回调或对账处理，支付单号：{}", paymentNo);
+                case RETRY -> retryLater(paymentId);
+            }
+        }
+        if (closable.isEmpty()) {
+            return;
+        }
+
+        Integer cancelled = transactionTemplate.execute(status -> {
+            List<Long> locked = paymentRepository.lockIdsByStatus(closable, Payment.PaymentStatus.PENDING.name());
+            if (locked.isEmpty()) {
+                return 0;
+            }
+            paymentRepository.updateStatusByIds(locked, Payment.PaymentStatus.CANCELLED);
+            String responseData = JsonUtil.toJson(Map.of(
+                "source", "expiry",
+                "message", "支付超时自动关闭",
+                "timeoutMinutes", expiryConfig.getTimeoutMinutes()));
+            List<Object[]> recordArgs = new ArrayList<>(locked.size());
+            for (Long paymentId : locked) {
+                recordArgs.add(new Object[]{paymentId, Payment.PaymentStatus.CANCELLED.name(), responseData, null});
+            }
+            jdbcTemplate.batchUpdate(RECORD_SQL, recordArgs);
+            return locked.size();
+        });
+        log.info("已关闭超时支付 {} 笔", cancelled);
+    }
+
+    /**
+     * 在支付宝关闭交易。关闭被拒绝时查询交易状态，区分已付款和已关闭。
+     */
+    private CloseResult closeAtGateway(Long merchantId, String paymentNo) {
+        try {
+            AlipayTradeCloseResponse response = multiMerchantAlipayService.closeTrade(merchantId, paymentNo);
+            if (response.isSuccess() || "ACQ.TRADE_NOT_EXIST".equals(response.getSubCode())) {
+                // 买家未打开收银台时支付宝侧没有交易，直接关闭本地记录
+                return CloseResult.CLOSED;
+            }
+            if (!"ACQ.TRADE_STATUS_ERROR".equals(response.getSubCode())) {
+                log.warn("支付宝关闭交易失败，支付单号：{}，错误：{}", paymentNo, response.getSubMsg());
+                return CloseResult.RETRY;
+            }
+
+            AlipayTradeQueryResponse query = multiMerchantAlipayService.queryTrade(merchantId, paymentNo);
+            String tradeStatus = query.isSuccess() ? query.getTradeStatus() : null;
+            if ("TRADE_CLOSED".equals(tradeStatus)) {
+                return CloseResult.CLOSED;
+            }
+            if ("TRADE_SUCCESS".equals(tradeStatus) || "TRADE_FINISHED".equals(tradeStatus)) {
+                return CloseResult.PAID;
+            }
+            return CloseResult.RETRY;
+        } catch (BusinessException e) {
+            // 商家支付配置已停用，无法再通过该商家收款，只关闭本地记录
+            log.warn("商家支付配置不可用，仅关闭本地支付，支付单号：{}：{}", paymentNo, e.getMessage());
+            return CloseResult.CLOSED;
+        } catch (Exception e) {
+            log.warn("支付宝关闭交易异常，支付单号：{}：{}", paymentNo, e.getMessage());
+            return CloseResult.RETRY;
+        }
+    }
+
+    private void retryLater(Long paymentId) {
+        enqueue(paymentId, System.nanoTime() + TimeUnit.SECONDS.toNanos(expiryConfig.getRetryDelaySeconds()));
+    }
+
+    private enum CloseResult {
+        CLOSED, PAID, RETRY
+    }
+
+    private record ExpiryTask(Long paymentId, long deadlineNanos) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineNanos, ((ExpiryTask) other).deadlineNanos);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.rental.payment.service;
+
+import com.alipay.api.response.AlipayTradeQueryResponse;
+import com.rental.common.constant.DomainEventConstants;
+import com.rental.common.service.DomainEventPublisher;
+import com.rental.common.util.JsonUtil;
+import com.rental.order.model.Order;
+import com.rental.order.repository.OrderRepository;
+import com.rental.payment.DTO.ReconciliationSummary;
+import com.rental.payment.config.PaymentReconciliationConfig;
+import com.rental.payment.integration.alipay.MultiMerchantAlipayService;
+import com.rental.payment.model.Payment;
+import com.rental.payment.repository.PaymentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 支付对账服务
+ *
+ * 定时按ID游标分批读取超时仍待支付的记录，并发向支付宝查询交易状态：每个商家按固定速率
+ * 限流，全局在途查询数量有上限。每批查询完成后在一个事务内批量迁移支付和订单状态，
+ * 并为每笔支付写入一条对账记录（一致、已修正、未知）。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentReconciliationService {
+
+    private static final String CANDIDATE_SQL =
+        "SELECT id, payment_no, merchant_id, order_id, payment_type FROM payments " +
+        "WHERE status = 'PENDING' AND payment_type <> 'REFUND' AND id > ? AND created_at < ? AND created_at >= ? ORDER BY id LIMIT ?";
+
+    private static final String TRADE_NO_SQL =
+        "UPDATE payments SET third_party_transaction_id = ? WHERE id = ? AND third_party_transaction_id IS NULL";
+
+    private static final String RECORD_SQL =
+        "INSERT INTO payment_records (payment_id, status, response_data, error_message) VALUES (?, ?, ?, ?)";
+
+    private final PaymentRepository paymentRepository;
+    private final OrderRepository orderRepository;
+    private final DomainEventPublisher domainEventPublisher;
+    private final MultiMerchantAlipayService multiMerchantAlipayService;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final PaymentReconciliationConfig reconciliationConfig;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private ScheduledThreadPoolExecutor queryExecutor;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void initExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        queryExecutor = new ScheduledThreadPoolExecutor(Math.max(1, reconciliationConfig.getThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "payment-reconcile-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    public void shutdownExecutor() {
+        queryExecutor.shutdownNow();
+    }
+
+    /**
+     * 定时对账
+     */
+    @Scheduled(fixedDelayString = "${payment.reconciliation.interval-ms:300000}",
+               initialDelayString = "${payment.reconciliation.initial-delay-ms:60000}")
+    public void scheduledReconcile() {
+        if (!reconciliationConfig.isEnabled()) {
+            return;
+        }
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.error("支付对账执行失败", e);
+        }
+    }
+
+    /**
+     * 执行一轮对账，已有对账在运行时直接返回跳过结果
+     */
+    public ReconciliationSummary reconcile() {
+        ReconciliationSummary summary = new ReconciliationSummary();
+        if (!running.compareAndSet(false, true)) {
+            summary.setSkipped(true);
+            return summary;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Timestamp staleBefore = Timestamp.valueOf(now.minusMinutes(reconciliationConfig.getStaleAfterMinutes()));
+            Timestamp createdAfter = Timestamp.valueOf(now.minusHours(reconciliationConfig.getMaxAgeHours()));
+            int batchSize = Math.max(1, reconciliationConfig.getBatchSize());
+            Semaphore inFlight = new Semaphore(Math.max(1, reconciliationConfig.getMaxInFlight()));
+            Map<Long, MerchantThrottle> throttles = new ConcurrentHashMap<>();
+
+            long lastId = 0;
+            while (true) {
+                List<Candidate> batch = jdbcTemplate.query(CANDIDATE_SQL, (rs, rowNum) -> new Candidate(
+                        rs.getLong("id"),
+                        rs.getString("payment_no"),
+                        rs.getLong("merchant_id"),
+                        rs.getLong("order_id"),
+                        Payment.PaymentType.valueOf(rs.getString("payment_type"))),
+                    lastId, staleBefore, createdAfter, batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                lastId = batch.get(batch.size() - 1).id();
+
+                List<Outcome> outcomes = queryBatch(batch, inFlight, throttles);
+                applyOutcomes(outcomes, summary);
+                summary.setScanned(summary.getScanned() + batch.size());
+
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("支付对账被中断");
+        } finally {
+            running.set(false);
+        }
+
+        summary.setElapsedMs(System.currentTimeMillis() - start);
+        if (summary.getScanned() > 0) {
+            log.info("支付对账完成，扫描：{}，一致：{}，修正：{}，未知：{}，耗时：{}ms",
+                    summary.getScanned(), summary.getMatched(), summary.getCorrected(),
+                    summary.getUnknown(), summary.getElapsedMs());
+        }
+        return summary;
+    }
+
+    /**
+     * 并发查询一批支付，在途查询数受信号量约束，同一商家的查询按速率错开执行
+     */
+    private List<Outcome> queryBatch(List<Candidate> batch, Semaphore inFlight,
+                                     Map<Long, MerchantThrottle> throttles) throws InterruptedException {
+        List<CompletableFuture<Outcome>> futures = new ArrayList<>(batch.size());
+        for (Candidate candidate : batch) {
+            inFlight.acquire();
+            long delayNanos = throttles
+                .computeIfAbsent(candidate.merchantId(), id -> new MerchantThrottle(reconciliationConfig.getMerchantQueriesPerSecond()))
+                .reserve();
+            CompletableFuture<Outcome> future = new CompletableFuture<>();
+            try {
+                queryExecutor.schedule(() -> {
+                    try {
+                        future.complete(queryGateway(candidate));
+                    } finally {
+                        inFlight.release();
+                    }
+                }, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) {
+                inFlight.release();
+                future.complete(Outcome.unknown(candidate, "提交查询失败：" + e.getMessage()));
+            }
+            futures.add(future);
+        }
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    /**
+     * 查询网关并判定对账结果
+     */
+    private Outcome queryGateway(Candidate candidate) {
+        try {
+            AlipayTradeQueryResponse response = multiMerchantAlipayService.queryTrade(candidate.merchantId(), candidate.paymentNo());
+            if (!response.isSuccess()) {
+                // 买家未打开收银台时支付宝侧没有交易，与本地待支付状态一致
+                if ("ACQ.TRADE_NOT_EXIST".equals(response.getSubCode())) {
+                    return Outcome.matched(candidate, null, null);
+                }
+                return Outcome.unknown(candidate, response.getSubCode() + ": " + response.getSubMsg());
+            }
+
+            String tradeStatus = response.getTradeStatus();
+            Payment.PaymentStatus gatewayStatus = mapTradeStatus(tradeStatus);
+            if (gatewayStatus == null) {
+                return Outcome.unknown(candidate, "未知的交易状态：" + tradeStatus);
+            }
+            if (gatewayStatus == Payment.PaymentStatus.PENDING) {
+                return Outcome.matched(candidate, tradeStatus, response.getTradeNo());
+            }
+            return Outcome.corrected(candidate, gatewayStatus, tradeStatus, response.getTradeNo());
+        } catch (Exception e) {
+            return Outcome.unknown(candidate, e.getMessage());
+        }
+    }
+
+    /**
+     * 在一个事务内批量迁移支付和订单状态，并写入对账记录
+     */
+    private void applyOutcomes(List<Outcome> outcomes, ReconciliationSummary summary) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Long> correctedIds = outcomes.stream()
+                .filter(outcome -> outcome.result() == Result.CORRECTED)
+                .map(outcome -> outcome.candidate().id())
+                .collect(Collectors.toList());
+            // 查询期间已被回调处理的支付不再迁移，按一致记录
+            Set<Long> transitionable = correctedIds.isEmpty()
+                ? Set.of()
+                : new HashSet<>(paymentRepository.lockIdsByStatus(correctedIds, Payment.PaymentStatus.PENDING.name()));
+
+            Map<Payment.PaymentStatus, List<Long>> idsByTarget = new LinkedHashMap<>();
+            List<Long> paidOrderIds = new ArrayList<>();
+            List<DomainEventPublisher.PendingEvent> paidEvents = new ArrayList<>();
+            List<Object[]> tradeNoArgs = new ArrayList<>();
+            List<Object[]> recordArgs = new ArrayList<>(outcomes.size());
+
+            for (Outcome outcome : outcomes) {
+                Candidate candidate = outcome.candidate();
+                Outcome effective = outcome;
+                if (outcome.result() == Result.CORRECTED && !transitionable.contains(candidate.id())) {
+                    effective = Outcome.matched(candidate, outcome.tradeStatus(), outcome.tradeNo());
+                }
+
+                Payment.PaymentStatus recordStatus = Payment.PaymentStatus.PENDING;
+                switch (effective.result()) {
+                    case CORRECTED -> {
+                        recordStatus = effective.targetStatus();
+                        idsByTarget.computeIfAbsent(recordStatus, key -> new ArrayList<>()).add(candidate.id());
+                        if (StringUtils.hasText(effective.tradeNo())) {
+                            tradeNoArgs.add(new Object[]{effective.tradeNo(), candidate.id()});
+                        }
+                        if (recordStatus == Payment.PaymentStatus.SUCCESS) {
+                            if (candidate.paymentType() == Payment.PaymentType.RENTAL) {
+                                paidOrderIds.add(candidate.orderId());
+                            }
+                            paidEvents.add(new DomainEventPublisher.PendingEvent(candidate.orderId(), orderPaidPayload(candidate)));
+                        }
+                        summary.setCorrected(summary.getCorrected() + 1);
+                    }
+                    case MATCHED -> summary.setMatched(summary.getMatched() + 1);
+                    case UNKNOWN -> summary.setUnknown(summary.getUnknown() + 1);
+                }
+                recordArgs.add(new Object[]{candidate.id(), recordStatus.name(), reportJson(effective), effective.error()});
+            }
+
+            idsByTarget.forEach((target, ids) -> paymentRepository.updateStatusByIds(ids, target));
+            if (!tradeNoArgs.isEmpty()) {
+                jdbcTemplate.batchUpdate(TRADE_NO_SQL, tradeNoArgs);
+            }
+            if (!paidOrderIds.isEmpty()) {
+                orderRepository.updateStatusByIds(paidOrderIds, Order.OrderStatus.CONFIRMED, Order.OrderStatus.PAID);
+            }
+            domainEventPublisher.publishAll(DomainEventConstants.AGGREGATE_ORDER, DomainEventConstants.ORDER_PAID, paidEvents);
+            jdbcTemplate.batchUpdate(RECORD_SQL, recordArgs);
+        });
+    }
+
+    private Map<String, Object> orderPaidPayload(Candidate candidate) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("orderId", candidate.orderId());
+        payload.put("paymentId", candidate.id());
+        payload.put("paymentNo", candidate.paymentNo());
+        payload.put("paymentType", candidate.paymentType().name());
+        return payload;
+    }
+
+    private String reportJson(Outcome outcome) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("source", "reconciliation");
+        report.put("result", outcome.result().name());
+        report.put("tradeStatus", outcome.tradeStatus());
+        report.put("tradeNo", outcome.tradeNo());
+        return JsonUtil.toJson(report);
+    }
+
+    private Payment.PaymentStatus mapTradeStatus(String tradeStatus) {
+        if (!StringUtils.hasText(tradeStatus)) {
+            return null;
+        }
+        switch (tradeStatus) {
+            case "WAIT_BUYER_PAY":
+                return Payment.PaymentStatus.PENDING;
+            case "TRADE_SUCCESS":
+            case "TRADE_FINISHED":
+                return Payment.PaymentStatus.SUCCESS;
+            case "TRADE_CLOSED":
+                return Payment.PaymentStatus.FAILED;
+            default:
+                return null;
+        }
+    }
+
+    private enum Result {
+        MATCHED, CORRECTED, UNKNOWN
+    }
+
+    private record Candidate(long id, String paymentNo, long merchantId, long orderId, Payment.PaymentType paymentType) {
+    }
+
+    private record Outcome(Candidate candidate, Result result, Payment.PaymentStatus targetStatus,
+                           String tradeStatus, String tradeNo, String error) {
+
+        static Outcome matched(Candidate candidate, String tradeStatus, String tradeNo) {
+            return new Outcome(candidate, Result.MATCHED, null, tradeStatus, tradeNo, null);
+        }
+
+        static Outcome corrected(Candidate candidate, Payment.PaymentStatus targetStatus, String tradeStatus, String tradeNo) {
+            return new Outcome(candidate, Result.CORRECTED, targetStatus, tradeStatus, tradeNo, null);
+        }
+
+        static Outcome unknown(Candidate candidate, String error) {
+            String message = error == null ? "未知错误" : error;
+            return new Outcome(candidate, Result.UNKNOWN, null, null, null,
+                message.length() > 500 ? message.substring(0, 500) : message);
+        }
+    }
+
+    /**
+     * 单个商家的查询节流器：按固定间隔为每次查询预约执行时间，返回需要等待的纳秒数
+     */
+    private static final class MerchantThrottle {
+
+        private final long intervalNanos;
+        private long nextFreeNanos;
+
+        MerchantThrottle(double permitsPerSecond) {
+            this.intervalNanos = permitsPerSecond > 0 ? (long) (1_000_000_000L / permitsPerSecond) : 0;
+            this.nextFreeNanos = System.nanoTime();
+        }
+
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            long scheduled = Math.max(now, nextFreeNanos);
+            nextFreeNanos = scheduled + intervalNanos;
+            return scheduled - now;
+        }
+    }
+}
@@ -26,6 +26,11 @@ public interface PaymentService {
      */
     void handleAlipayCallback(PaymentCallbackRequest request);
 
+    /**
+     * 处理已验签的支付回调（由回调收件箱按支付单号顺序调用）
+     */
+    void handlePaymentCallbackWithoutSignVerification(PaymentCallbackRequest request);
+
     /**
      * 处理退款
      */
@@ -0,0 +1,396 @@
+package com.rental.payment.service;
+
+import com.alipay.api.response.AlipayTradeFastpayRefundQueryResponse;
+import com.alipay.api.response.AlipayTradeRefundResponse;
+import com.rental.common.constant.DomainEventConstants;
+import com.rental.common.exception.BusinessException;
+import com.rental.common.service.DomainEventPublisher;
+import com.rental.common.util.JsonUtil;
+import com.rental.payment.config.RefundConfig;
+import com.rental.payment.integration.alipay.MultiMerchantAlipayService;
+import com.rental.payment.model.Payment;
+import com.rental.payment.model.PaymentRecord;
+import com.rental.payment.repository.PaymentRecordRepository;
+import com.rental.payment.repository.PaymentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 退款编排服务
+ *
+ * 退款申请只在事务内创建待处理的退款记录，提交后按商家分区交给处理通道调用支付宝：退款单号作为
+ * out_request_no 保证重复调用不会重复退款，网络异常和网关繁忙按指数退避重试，
+ * 业务拒绝时标记失败。调用异常或网关繁忙时退款可能已在支付宝执行，超过最大次数后先按 out_request_no
+ * 查询退款结果：已退款则按成功处理，确认未退款才标记失败，查询也失败时转为待人工核实（仍占用可退金额）。
+ * 退款成功后发布退款完成事件，由财务等订阅者处理。进程重启或入队丢失的退款由补偿扫描重新入队。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RefundOrchestrationService {
+
+    private static final String PENDING_REFUND_SQL =
+        "SELECT id, merchant_id FROM payments WHERE status = 'PENDING' AND payment_type = 'REFUND' " +
+        "AND created_at < ? AND id > ? ORDER BY id LIMIT ?";
+
+    // 可重试的网关错误：服务不可用、系统繁忙
+    private static final Set<String> RETRYABLE_SUB_CODES = Set.of(
+        "ACQ.SYSTEM_ERROR", "aop.ACQ.SYSTEM_ERROR", "isp.unknow-error", "ACQ.REASON_TRADE_REFUND_FEE_ERR_NOT_READY");
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentRecordRepository paymentRecordRepository;
+    private final MultiMerchantAlipayService multiMerchantAlipayService;
+    private final DomainEventPublisher domainEventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final RefundConfig refundConfig;
+    private final MerchantLaneExecutor merchantLaneExecutor;
+
+    private static final long LANE_FULL_DELAY_MS = 1000;
+
+    private final DelayQueue<RefundTask> queue = new DelayQueue<>();
+    // 已在队列或处理中的退款ID，避免补偿扫描重复入队
+    private final Set<Long> inProgress = ConcurrentHashMap.newKeySet();
+
+    private Thread scheduler;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void startScheduler() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        scheduler = new Thread(this::runScheduler, "refund-scheduler");
+        scheduler.setDaemon(true);
+        scheduler.start();
+    }
+
+    @PreDestroy
+    public void stopScheduler() {
+        scheduler.interrupt();
+    }
+
+    /**
+     * 提交退款，处于事务中时在提交后入队
+     */
+    public void submit(Long refundId, Long merchantId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(new RefundTask(refundId, merchantId, 0, false, System.nanoTime()));
+                }
+            });
+        } else {
+            enqueue(new RefundTask(refundId, merchantId, 0, false, System.nanoTime()));
+        }
+    }
+
+    /**
+     * 启动后恢复未完成的退款
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverOnStartup() {
+        recoverPendingRefunds();
+    }
+
+    /**
+     * 补偿扫描：重新入队超时仍处于待处理的退款
+     */
+    @Scheduled(fixedDelayString = "${payment.refund.recovery-interval-ms:60000}",
+               initialDelayString = "${payment.refund.recovery-interval-ms:60000}")
+    public void recoverPendingRefunds() {
+        try {
+            Timestamp before = Timestamp.valueOf(LocalDateTime.now().minusSeconds(refundConfig.getRecoveryDelaySeconds()));
+            int batchSize = Math.max(1, refundConfig.getRecoveryBatchSize());
+            int recovered = 0;
+            long lastId = 0;
+            while (true) {
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(PENDING_REFUND_SQL, before, lastId, batchSize);
+                for (Map<String, Object> row : rows) {
+                    Long id = ((Number) row.get("id")).longValue();
+                    Long merchantId = ((Number) row.get("merchant_id")).longValue();
+                    if (enqueue(new RefundTask(id, merchantId, 0, false, System.nanoTime()))) {
+                        recovered++;
+                    }
+                    lastId = id;
+                }
+                if (rows.size() < batchSize) {
+                    break;
+                }
+            }
+            if (recovered > 0) {
+                log.info("重新入队未完成的退款 {} 笔", recovered);
+            }
+        } catch (RuntimeException e) {
+            log.warn("退款补偿扫描失败: {}", e.getMessage());
+        }
+    }
+
+    private boolean enqueue(RefundTask task) {
+        if (task.attempt() == 0 && !inProgress.add(task.refundId())) {
+            return false;
+        }
+        queue.offer(task);
+        return true;
+    }
+
+    /**
+     * 取出到期的退款交给商家通道；商家排队已满时稍后再投，不计入重试次数
+     */
+    private void runScheduler() {
+        while (!Thread.currentThread().isInterrupted()) {
+            RefundTask task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!merchantLaneExecutor.execute(task.merchantId(), () -> run(task))) {
+                queue.offer(task.delayedBy(LANE_FULL_DELAY_MS));
+            }
+        }
+    }
+
+    private void run(RefundTask task) {
+        try {
+            process(task);
+        } catch (RuntimeException e) {
+            log.error("退款处理异常，退款ID：{}", task.refundId(), e);
+            // 异常可能发生在网关调用之后（如写入成功结果时），按结果未知处理
+            retryOrFail(task.ambiguous(), e.getMessage());
+        }
+    }
+
+    /**
+     * 调用网关执行一次退款
+     */
+    private void process(RefundTask task) {
+        Payment refund = paymentRepository.findById(task.refundId()).orElse(null);
+        if (refund == null || refund.getStatus() != Payment.PaymentStatus.PENDING) {
+            inProgress.remove(task.refundId());
+            return;
+        }
+        Payment original = refund.getOriginalPaymentId() != null
+            ? paymentRepository.findById(refund.getOriginalPaymentId()).orElse(null)
+            : null;
+        if (original == null) {
+            fail(refund.getId(), "原支付记录不存在");
+            return;
+        }
+
+        AlipayTradeRefundResponse response;
+        try {
+            response = multiMerchantAlipayService.refundTrade(original.getMerchantId(), original.getPaymentNo(),
+                refund.getPaymentNo(), refund.getAmount(), refund.getRefundReason());
+        } catch (BusinessException e) {
+            // 商家支付配置不可用，等待配置恢复后重试
+            retryOrFail(task, e.getMessage());
+            return;
+        } catch (Exception e) {
+            log.warn("退款网关调用异常，退款单号：{}，第 {} 次：{}", refund.getPaymentNo(), task.attempt() + 1, e.getMessage());
+            retryOrFail(task.ambiguous(), e.getMessage());
+            return;
+        }
+
+        if (response.isSuccess()) {
+            complete(refund.getId(), response.getTradeNo(), refundResponseData(response));
+        } else if ("20000".equals(response.getCode()) || RETRYABLE_SUB_CODES.contains(response.getSubCode())) {
+            retryOrFail(task.ambiguous(), response.getSubCode() + ": " + response.getSubMsg());
+        } else {
+            fail(refund.getId(), response.getSubCode() + ": " + response.getSubMsg());
+        }
+    }
+
+    private void retryOrFail(RefundTask task, String error) {
+        int nextAttempt = task.attempt() + 1;
+        if (nextAttempt >= refundConfig.getMaxAttempts()) {
+            String reason = "重试 " + nextAttempt + " 次后仍失败：" + error;
+            if (task.outcomeUnknown()) {
+                resolveUnknownOutcome(task.refundId(), reason);
+            } else {
+                fail(task.refundId(), reason);
+            }
+            return;
+        }
+        long backoff = Math.min(refundConfig.getMaxBackoffMs(),
+            refundConfig.getInitialBackoffMs() << Math.min(task.attempt(), 20));
+        enqueue(new RefundTask(task.refundId(), task.merchantId(), nextAttempt, task.outcomeUnknown(),
+            System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff)));
+    }
+
+    /**
+     * 之前的调用结果未知，标记失败前按 out_request_no 查询退款是否已执行
+     */
+    private void resolveUnknownOutcome(Long refundId, String reason) {
+        try {
+            Payment refund = paymentRepository.findById(refundId).orElse(null);
+            if (refund == null || refund.getStatus() != Payment.PaymentStatus.PENDING) {
+                inProgress.remove(refundId);
+                return;
+            }
+            Payment original = paymentRepository.findById(refund.getOriginalPaymentId()).orElseThrow();
+
+            AlipayTradeFastpayRefundQueryResponse response;
+            try {
+                response = multiMerchantAlipayService.queryRefund(original.getMerchantId(), original.getPaymentNo(),
+                    refund.getPaymentNo());
+            } catch (Exception e) {
+                manualReview(refundId, reason + "；查询退款结果失败：" + e.getMessage());
+                return;
+            }
+
+            if (response.isSuccess() && "REFUND_SUCCESS".equals(response.getRefundStatus())) {
+                log.info("退款结果查询为已退款，退款单号：{}", refund.getPaymentNo());
+                Map<String, Object> responseData = new LinkedHashMap<>();
+                responseData.put("tradeNo", response.getTradeNo());
+                responseData.put("refundAmount", response.getRefundAmount());
+                responseData.put("refundStatus", response.getRefundStatus());
+                complete(refundId, response.getTradeNo(), responseData);
+            } else if (response.isSuccess()) {
+                // 查询成功但未返回退款成功状态，说明支付宝未受理或退款未执行
+                fail(refundId, reason);
+            } else {
+                manualReview(refundId, reason + "；查询退款结果失败：" + response.getSubCode() + ": " + response.getSubMsg());
+            }
+        } catch (RuntimeException e) {
+            log.error("查询退款结果异常，退款ID：{}", refundId, e);
+            manualReview(refundId, reason + "；查询退款结果异常：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 退款成功：更新退款状态、写入支付记录并发布退款完成事件
+     */
+    private void complete(Long refundId, String tradeNo, Map<String, Object> responseData) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Payment refund = paymentRepository.findByIdForUpdate(refundId).orElse(null);
+                if (refund == null || refund.getStatus() != Payment.PaymentStatus.PENDING) {
+                    return;
+                }
+                refund.setStatus(Payment.PaymentStatus.SUCCESS);
+                refund.setThirdPartyTransactionId(tradeNo);
+                paymentRepository.save(refund);
+
+                saveRecord(refund, Payment.PaymentStatus.SUCCESS, JsonUtil.toJson(responseData), null);
+
+                Map<String, Object> payload = new HashMap<>();
+                payload.put("orderId", refund.getOrder().getId());
+                payload.put("refundId", refund.getId());
+                payload.put("refundNo", refund.getPaymentNo());
+                payload.put("originalPaymentId", refund.getOriginalPaymentId());
+                payload.put("amount", refund.getAmount());
+                domainEventPublisher.publish(DomainEventConstants.AGGREGATE_ORDER, refund.getOrder().getId(),
+                    DomainEventConstants.REFUND_COMPLETED, payload);
+            });
+            log.info("退款成功，退款ID：{}", refundId);
+        } finally {
+            inProgress.remove(refundId);
+        }
+    }
+
+    private Map<String, Object> refundResponseData(AlipayTradeRefundResponse response) {
+        Map<String, Object> responseData = new LinkedHashMap<>();
+        responseData.put("tradeNo", response.getTradeNo());
+        responseData.put("refundFee", response.getRefundFee());
+        responseData.put("fundChange", response.getFundChange());
+        return responseData;
+    }
+
+    private void fail(Long refundId, String error) {
+        finish(refundId, Payment.PaymentStatus.FAILED, error);
+        log.warn("退款失败，退款ID：{}，原因：{}", refundId, error);
+    }
+
+    /**
+     * 无法确认支付宝是否已退款：转为待人工核实，不再自动重试，也不释放可退金额
+     */
+    private void manualReview(Long refundId, String error) {
+        finish(refundId, Payment.PaymentStatus.MANUAL_REVIEW, error);
+        log.error("退款结果无法确认，转人工核实，退款ID：{}，原因：{}", refundId, error);
+    }
+
+    private void finish(Long refundId, Payment.PaymentStatus targetStatus, String error) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Payment refund = paymentRepository.findByIdForUpdate(refundId).orElse(null);
+                if (refund == null || refund.getStatus() != Payment.PaymentStatus.PENDING) {
+                    return;
+                }
+                refund.setStatus(targetStatus);
+                paymentRepository.save(refund);
+                saveRecord(refund, targetStatus, null,
+                    error != null && error.length() > 500 ? error.substring(0, 500) : error);
+            });
+        } finally {
+            inProgress.remove(refundId);
+        }
+    }
+
+    private void saveRecord(Payment refund, Payment.PaymentStatus status, String responseData, String errorMessage) {
+        PaymentRecord record = new PaymentRecord();
+        record.setPayment(refund);
+        record.setStatus(status);
+        record.setResponseData(responseData);
+        record.setErrorMessage(errorMessage);
+        paymentRecordRepository.save(record);
+    }
+
+    /**
+     * 原支付剩余可退金额
+     */
+    public BigDecimal getRefundableAmount(Payment original) {
+        BigDecimal refunded = paymentRepository.sumActiveRefundAmount(original.getId());
+        return original.getAmount().subtract(refunded != null ? refunded : BigDecimal.ZERO);
+    }
+
+    /**
+     * @param outcomeUnknown 之前是否有调用结果未知（网关异常、繁忙），退款可能已在支付宝执行
+     */
+    private record RefundTask(Long refundId, Long merchantId, int attempt, boolean outcomeUnknown, long dueNanos)
+            implements Delayed {
+
+        RefundTask delayedBy(long delayMs) {
+            return new RefundTask(refundId, merchantId, attempt, outcomeUnknown,
+                System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs));
+        }
+
+        RefundTask ambiguous() {
+            return new RefundTask(refundId, merchantId, attempt, true, dueNanos);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((RefundTask) other).dueNanos);
+        }
+    }
+}
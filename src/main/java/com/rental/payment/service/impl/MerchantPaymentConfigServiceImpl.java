@@ -10,6 +10,7 @@ import com.rental.common.exception.ResourceNotFoundException;
 import com.rental.common.service.EncryptionService;
 import com.rental.payment.DTO.MerchantPaymentConfigDTO;
 import com.rental.payment.DTO.MerchantPaymentConfigRequest;
+import com.rental.payment.integration.alipay.MerchantCredentialRegistry;
 import com.rental.payment.model.MerchantPaymentConfig;
 import com.rental.payment.repository.MerchantPaymentConfigRepository;
 import com.rental.payment.service.MerchantPaymentConfigService;
@@ -33,6 +34,7 @@ public class MerchantPaymentConfigServiceImpl implements MerchantPaymentConfigSe
 
     private final MerchantPaymentConfigRepository configRepository;
     private final EncryptionService encryptionService;
+    private final MerchantCredentialRegistry credentialRegistry;
 
     @Override
     public MerchantPaymentConfigDTO saveOrUpdateConfig(Long merchantId, MerchantPaymentConfigRequest request) {
@@ -80,6 +82,7 @@ public class MerchantPaymentConfigServiceImpl implements MerchantPaymentConfigSe
 
         // 保存配置
         MerchantPaymentConfig savedConfig = configRepository.save(config);
+        credentialRegistry.invalidate(merchantId);
         
         log.info("商家支付配置保存成功，配置ID：{}，商家ID：{}", savedConfig.getId(), merchantId);
         
@@ -110,17 +113,8 @@ public class MerchantPaymentConfigServiceImpl implements MerchantPaymentConfigSe
             return null;
         }
         
-        // 解密私钥
-        MerchantPaymentConfig result = config.get();
-        try {
-            String decryptedPrivateKey = encryptionService.decrypt(result.getEncryptedPrivateKey());
-            result.setEncryptedPrivateKey(decryptedPrivateKey); // 临时存储解密后的私钥
-        } catch (Exception e) {
-            log.error("解密商家私钥失败，商家ID：{}", merchantId, e);
-            throw new BusinessException("配置信息异常，请重新配置");
-        }
-        
-        return result;
+        // 私钥保持加密形式，解密后的凭证由 MerchantCredentialRegistry 统一持有
+        return config.get();
     }
 
     @Override
@@ -132,6 +126,7 @@ public class MerchantPaymentConfigServiceImpl implements MerchantPaymentConfigSe
         }
         
         configRepository.deleteByMerchantId(merchantId);
+        credentialRegistry.invalidate(merchantId);
         log.info("商家支付配置删除成功，商家ID：{}", merchantId);
     }
 
@@ -148,6 +143,7 @@ public class MerchantPaymentConfigServiceImpl implements MerchantPaymentConfigSe
         config.setStatus(MerchantPaymentConfig.ConfigStatus.ACTIVE);
         
         MerchantPaymentConfig savedConfig = configRepository.save(config);
+        credentialRegistry.invalidate(merchantId);
         log.info("商家支付配置启用成功，商家ID：{}", merchantId);
         
         return convertToDTO(savedConfig);
@@ -166,6 +162,7 @@ public class MerchantPaymentConfigServiceImpl implements MerchantPaymentConfigSe
         config.setStatus(MerchantPaymentConfig.ConfigStatus.INACTIVE);
         
         MerchantPaymentConfig savedConfig = configRepository.save(config);
+        credentialRegistry.invalidate(merchantId);
         log.info("商家支付配置禁用成功，商家ID：{}", merchantId);
         
         return convertToDTO(savedConfig);
@@ -255,19 +252,8 @@ public class MerchantPaymentConfigServiceImpl implements MerchantPaymentConfigSe
     public List<MerchantPaymentConfig> getBatchMerchantConfigs(List<Long> merchantIds) {
         log.debug("批量获取商家支付配置，商家数量：{}", merchantIds.size());
         
-        List<MerchantPaymentConfig> configs = configRepository.findByMerchantIds(merchantIds);
-        
-        // 解密私钥
-        configs.forEach(config -> {
-            try {
-                String decryptedPrivateKey = encryptionService.decrypt(config.getEncryptedPrivateKey());
-                config.setEncryptedPrivateKey(decryptedPrivateKey);
-            } catch (Exception e) {
-                log.error("解密商家私钥失败，商家ID：{}", config.getMerchantId(), e);
-            }
-        });
-        
-        return configs;
+        // 私钥保持加密形式，不再把明文写回实体字段
+        return configRepository.findByMerchantIds(merchantIds);
     }
 
     @Override
@@ -285,7 +271,7 @@ public class MerchantPaymentConfigServiceImpl implements MerchantPaymentConfigSe
             AlipayClient alipayClient = new DefaultAlipayClient(
                 "https://openapi.alipaydev.com/gateway.do", // 沙箱环境
                 config.getAlipayAppId(),
-                config.getEncryptedPrivateKey(), // 已解密的私钥
+                encryptionService.decrypt(config.getEncryptedPrivateKey()),
                 "json",
                 "UTF-8",
                 config.getAlipayPublicKey(),
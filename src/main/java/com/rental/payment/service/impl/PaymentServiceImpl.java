@@ -1,7 +1,10 @@
 package com.rental.payment.service.impl;
 
+import com.rental.common.constant.DomainEventConstants;
 import com.rental.common.exception.BusinessException;
 import com.rental.common.exception.ResourceNotFoundException;
+import com.rental.common.service.DomainEventPublisher;
+import com.rental.item.service.ItemAvailabilityCalendar;
 import com.rental.order.model.Order;
 import com.rental.order.repository.OrderRepository;
 import com.rental.payment.DTO.*;
@@ -11,7 +14,10 @@ import com.rental.payment.model.Payment;
 import com.rental.payment.model.PaymentRecord;
 import com.rental.payment.repository.PaymentRepository;
 import com.rental.payment.repository.PaymentRecordRepository;
+import com.rental.payment.service.PaymentAnalyticsService;
+import com.rental.payment.service.PaymentExpiryService;
 import com.rental.payment.service.PaymentService;
+import com.rental.payment.service.RefundOrchestrationService;
 import com.rental.user.model.User;
 import com.rental.user.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -22,7 +28,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -42,6 +47,11 @@ public class PaymentServiceImpl implements PaymentService {
     private final UserRepository userRepository;
     private final AlipayService alipayService;
     private final MultiMerchantAlipayService multiMerchantAlipayService;
+    private final PaymentExpiryService paymentExpiryService;
+    private final PaymentAnalyticsService paymentAnalyticsService;
+    private final RefundOrchestrationService refundOrchestrationService;
+    private final DomainEventPublisher domainEventPublisher;
+    private final ItemAvailabilityCalendar itemAvailabilityCalendar;
 
     @Override
     @Transactional
@@ -93,6 +103,9 @@ public class PaymentServiceImpl implements PaymentService {
         // 创建支付记录
         createPaymentRecord(savedPayment, Payment.PaymentStatus.PENDING, "支付创建", null);
 
+        // 登记超时关闭，事务提交后生效
+        paymentExpiryService.register(savedPayment.getId(), savedPayment.getCreatedAt());
+
         // 调用第三方支付
         PaymentResponse response = processThirdPartyPayment(savedPayment, request);
         response.setPaymentId(savedPayment.getId());
@@ -153,21 +166,28 @@ public class PaymentServiceImpl implements PaymentService {
 
     /**
      * 处理支付回调（跳过签名验证）
-     * 注意：此方法不是接口方法，不需要 @Override 注解
      */
+    @Override
     @Transactional
     public void handlePaymentCallbackWithoutSignVerification(PaymentCallbackRequest request) {
         log.info("处理支付回调业务逻辑，支付单号：{}", request.getPaymentNo());
 
-        Payment payment = paymentRepository.findByPaymentNo(request.getPaymentNo())
+        // 行锁保证并发重试时状态判断与更新的原子性
+        Payment payment = paymentRepository.findByPaymentNoForUpdate(request.getPaymentNo())
             .orElseThrow(() -> new ResourceNotFoundException("支付记录不存在"));
 
         Payment.PaymentStatus newStatus = parsePaymentStatus(request.getStatus());
         Payment.PaymentStatus oldStatus = payment.getStatus();
 
         // 防止重复处理
-        if (oldStatus == newStatus && newStatus == Payment.PaymentStatus.SUCCESS) {
-            log.info("支付状态未变化且已成功，跳过处理，支付单号：{}", request.getPaymentNo());
+        if (oldStatus == newStatus) {
+            log.info("支付状态未变化，跳过处理，支付单号：{}，状态：{}", request.getPaymentNo(), oldStatus);
+            return;
+        }
+
+        // 已结束的支付只接受到账通知，避免迟到的通知覆盖最终状态
+        if (oldStatus != Payment.PaymentStatus.PENDING && newStatus != Payment.PaymentStatus.SUCCESS) {
+            log.info("支付已处于终态，忽略回调，支付单号：{}，状态：{} -> {}", request.getPaymentNo(), oldStatus, newStatus);
             return;
         }
 
@@ -193,44 +213,43 @@ public class PaymentServiceImpl implements PaymentService {
     public PaymentDto processRefund(RefundRequest request, Long operatorId) {
         log.info("处理退款，支付ID：{}, 操作员ID：{}", request.getPaymentId(), operatorId);
 
-        Payment originalPayment = paymentRepository.findById(request.getPaymentId())
+        // 锁定原支付，串行化同一笔支付的并发退款申请
+        Payment originalPayment = paymentRepository.findByIdForUpdate(request.getPaymentId())
             .orElseThrow(() -> new ResourceNotFoundException("支付记录不存在"));
 
         // 验证支付状态
-        if (originalPayment.getStatus() != Payment.PaymentStatus.SUCCESS) {
+        if (originalPayment.getStatus() != Payment.PaymentStatus.SUCCESS
+                || originalPayment.getPaymentType() == Payment.PaymentType.REFUND) {
             throw new BusinessException("只有支付成功的记录才能退款");
         }
+        if (originalPayment.getPaymentMethod() != Payment.PaymentMethod.ALIPAY) {
+            throw new BusinessException("目前只支持支付宝退款");
+        }
 
-        // 验证退款金额
-        if (request.getRefundAmount().compareTo(originalPayment.getAmount()) > 0) {
-            throw new BusinessException("退款金额不能超过原支付金额");
+        // 验证退款金额：已成功和处理中的退款合计不能超过原支付金额，支持多次部分退款
+        BigDecimal refundable = refundOrchestrationService.getRefundableAmount(originalPayment);
+        if (request.getRefundAmount().compareTo(refundable) > 0) {
+            throw new BusinessException("退款金额超过可退金额，剩余可退：" + refundable);
         }
 
-        // 创建退款记录
+        // 创建退款记录，由退款编排服务在事务提交后异步调用支付宝
         Payment refundPayment = new Payment();
         refundPayment.setPaymentNo(generatePaymentNo());
         refundPayment.setOrder(originalPayment.getOrder());
+        refundPayment.setMerchantId(originalPayment.getMerchantId());
+        refundPayment.setOriginalPaymentId(originalPayment.getId());
         refundPayment.setAmount(request.getRefundAmount());
         refundPayment.setPaymentMethod(originalPayment.getPaymentMethod());
         refundPayment.setPaymentType(Payment.PaymentType.REFUND);
         refundPayment.setStatus(Payment.PaymentStatus.PENDING);
+        String reason = request.getRefundReason();
+        refundPayment.setRefundReason(reason != null && reason.length() > 255 ? reason.substring(0, 255) : reason);
 
         Payment savedRefund = paymentRepository.save(refundPayment);
+        createPaymentRecord(savedRefund, Payment.PaymentStatus.PENDING, "退款已受理", null);
+        refundOrchestrationService.submit(savedRefund.getId(), savedRefund.getMerchantId());
 
-        // 调用第三方退款接口
-        boolean refundResult = processThirdPartyRefund(originalPayment, savedRefund, request);
-
-        if (refundResult) {
-            savedRefund.setStatus(Payment.PaymentStatus.SUCCESS);
-            createPaymentRecord(savedRefund, Payment.PaymentStatus.SUCCESS, "退款成功", null);
-        } else {
-            savedRefund.setStatus(Payment.PaymentStatus.FAILED);
-            createPaymentRecord(savedRefund, Payment.PaymentStatus.FAILED, "退款失败", "第三方退款接口调用失败");
-        }
-
-        paymentRepository.save(savedRefund);
-
-        log.info("退款处理完成，退款单号：{}, 结果：{}", savedRefund.getPaymentNo(), refundResult ? "成功" : "失败");
+        log.info("退款已受理，退款单号：{}, 金额：{}", savedRefund.getPaymentNo(), savedRefund.getAmount());
         return convertToDto(savedRefund);
     }
 
@@ -341,37 +360,7 @@ public class PaymentServiceImpl implements PaymentService {
     @Override
     @Transactional(readOnly = true)
     public PaymentStatistics getPaymentStatistics(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-
-        long totalPayments = paymentRepository.countByCreatedAtBetween(startDateTime, endDateTime);
-        long successPayments = paymentRepository.countByStatusAndCreatedAtBetween(
-            Payment.PaymentStatus.SUCCESS, startDateTime, endDateTime);
-        long failedPayments = paymentRepository.countByStatusAndCreatedAtBetween(
-            Payment.PaymentStatus.FAILED, startDateTime, endDateTime);
-        long pendingPayments = paymentRepository.countByStatusAndCreatedAtBetween(
-            Payment.PaymentStatus.PENDING, startDateTime, endDateTime);
-
-        BigDecimal totalAmount = paymentRepository.sumAmountByCreatedAtBetween(startDateTime, endDateTime);
-        BigDecimal successAmount = paymentRepository.sumAmountByStatusAndCreatedAtBetween(
-            Payment.PaymentStatus.SUCCESS, startDateTime, endDateTime);
-
-        long refundCount = paymentRepository.countByPaymentTypeAndCreatedAtBetween(
-            Payment.PaymentType.REFUND, startDateTime, endDateTime);
-        BigDecimal refundAmount = paymentRepository.sumAmountByPaymentTypeAndCreatedAtBetween(
-            Payment.PaymentType.REFUND, startDateTime, endDateTime);
-
-        double successRate = totalPayments > 0 ?
-            (double) successPayments / totalPayments * 100 : 0.0;
-
-        return new PaymentStatistics(
-            totalPayments, successPayments, failedPayments, pendingPayments,
-            totalAmount != null ? totalAmount : BigDecimal.ZERO,
-            successAmount != null ? successAmount : BigDecimal.ZERO,
-            refundCount,
-            refundAmount != null ? refundAmount : BigDecimal.ZERO,
-            BigDecimal.valueOf(successRate).setScale(2, RoundingMode.HALF_UP).doubleValue()
-        );
+        return paymentAnalyticsService.getStatistics(startDate, endDate, null);
     }
 
     @Override
@@ -484,19 +473,26 @@ public class PaymentServiceImpl implements PaymentService {
         if (payment.getPaymentType() == Payment.PaymentType.RENTAL) {
             order.setStatus(Order.OrderStatus.PAID);
             orderRepository.save(order);
+            if (order.getOrderItems() != null) {
+                itemAvailabilityCalendar.refreshAfterCommit(order.getOrderItems().stream()
+                    .map(orderItem -> orderItem.getItem().getId())
+                    .collect(Collectors.toList()));
+            }
             log.info("订单支付成功，订单号：{}", order.getOrderNo());
         }
-    }
-
-    private boolean processThirdPartyRefund(Payment originalPayment, Payment refundPayment, RefundRequest request) {
-        // 只支持支付宝退款，删除其他模拟的退款方式
-        if (originalPayment.getPaymentMethod() != Payment.PaymentMethod.ALIPAY) {
-            throw new BusinessException("目前只支持支付宝退款");
+        if (payment.getPaymentType() != Payment.PaymentType.REFUND) {
+            domainEventPublisher.publish(DomainEventConstants.AGGREGATE_ORDER, order.getId(),
+                DomainEventConstants.ORDER_PAID, orderPaidPayload(payment));
         }
+    }
 
-        // 使用真正的支付宝退款服务
-        return alipayService.refund(originalPayment, refundPayment,
-                                  request.getRefundAmount(), request.getRefundReason());
+    private Map<String, Object> orderPaidPayload(Payment payment) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("orderId", payment.getOrder().getId());
+        payload.put("paymentId", payment.getId());
+        payload.put("paymentNo", payment.getPaymentNo());
+        payload.put("paymentType", payment.getPaymentType().name());
+        return payload;
     }
 
     private Payment.PaymentStatus queryThirdPartyPaymentStatus(Payment payment) {
@@ -588,6 +584,7 @@ public class PaymentServiceImpl implements PaymentService {
         dto.setStatus(payment.getStatus());
         dto.setStatusDesc(payment.getStatus().getDescription());
         dto.setThirdPartyTransactionId(payment.getThirdPartyTransactionId());
+        dto.setOriginalPaymentId(payment.getOriginalPaymentId());
         dto.setCreatedAt(payment.getCreatedAt());
         dto.setUpdatedAt(payment.getUpdatedAt());
 
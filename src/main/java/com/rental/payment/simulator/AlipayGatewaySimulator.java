@@ -0,0 +1,615 @@
+package com.rental.payment.simulator;
+
+import com.alipay.api.internal.util.AlipaySignature;
+import com.rental.common.util.JsonUtil;
+import com.rental.payment.integration.alipay.AlipayConfig;
+import com.rental.payment.integration.alipay.MerchantCredentialRegistry;
+import com.rental.payment.integration.alipay.MerchantCredentials;
+import com.rental.payment.model.MerchantPaymentConfig;
+import com.rental.payment.repository.MerchantPaymentConfigRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本地支付宝网关模拟器
+ *
+ * 在内存中维护交易状态，实现 alipay.trade.page.pay / query / refund / fastpay.refund.query / close 五个接口，
+ * 请求按应用公钥验签，响应与异步通知均使用模拟网关私钥做 RSA2 签名，应用侧的 SDK 验签流程与真实网关一致。
+ * 异步通知的延迟、投递失败率和重复率可配置，用于离线压测和回调链路的浸泡测试。
+ */
+@Service
+@Profile(AlipaySimulatorConfig.PROFILE)
+@RequiredArgsConstructor
+@Slf4j
+public class AlipayGatewaySimulator {
+
+    public static final String PAGE_PAY = "alipay.trade.page.pay";
+    public static final String TRADE_QUERY = "alipay.trade.query";
+    public static final String TRADE_REFUND = "alipay.trade.refund";
+    public static final String REFUND_QUERY = "alipay.trade.fastpay.refund.query";
+    public static final String TRADE_CLOSE = "alipay.trade.close";
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter TRADE_NO_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final AlipaySimulatorConfig config;
+    private final AlipayConfig alipayConfig;
+    private final MerchantPaymentConfigRepository merchantConfigRepository;
+    private final MerchantCredentialRegistry credentialRegistry;
+
+    private final ConcurrentHashMap<String, SimulatedTrade> trades = new ConcurrentHashMap<>();
+    private final AtomicLong tradeSequence = new AtomicLong();
+    // 应用ID -> 商家ID，用于查找请求方的商家私钥推导应用公钥
+    private final ConcurrentHashMap<String, Long> merchantByAppId = new ConcurrentHashMap<>();
+
+    private final AtomicLong notifyDelivered = new AtomicLong();
+    private final AtomicLong notifyFailed = new AtomicLong();
+    private final AtomicLong notifyDuplicated = new AtomicLong();
+    private final AtomicLong notifyAbandoned = new AtomicLong();
+
+    private PrivateKey privateKey;
+    private PublicKey publicKey;
+    private PublicKey configuredAppPublicKey;
+    private PublicKey platformAppPublicKey;
+    private ThreadLocal<Signature> signer;
+    private Charset charset;
+    private HttpClient httpClient;
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @PostConstruct
+    public void init() {
+        if (!StringUtils.hasText(config.getPrivateKey())) {
+            throw new IllegalArgumentException("支付宝模拟网关私钥不能为空（alipay.simulator.private-key）");
+        }
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            privateKey = keyFactory.generatePrivate(
+                new PKCS8EncodedKeySpec(Base64.getMimeDecoder().decode(config.getPrivateKey())));
+            publicKey = AlipaySimulatorKeyPostProcessor.derivePublicKey(keyFactory, privateKey);
+        } catch (GeneralSecurityException | IllegalArgumentException | ClassCastException e) {
+            throw new IllegalArgumentException("支付宝模拟网关私钥格式错误", e);
+        }
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            if (StringUtils.hasText(config.getAppPublicKey())) {
+                configuredAppPublicKey = keyFactory.generatePublic(
+                    new X509EncodedKeySpec(Base64.getMimeDecoder().decode(config.getAppPublicKey())));
+            }
+            if (StringUtils.hasText(alipayConfig.getPrivateKey())) {
+                platformAppPublicKey = AlipaySimulatorKeyPostProcessor.derivePublicKey(keyFactory, keyFactory.generatePrivate(
+                    new PKCS8EncodedKeySpec(Base64.getMimeDecoder().decode(alipayConfig.getPrivateKey()))));
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException | ClassCastException e) {
+            throw new IllegalArgumentException("支付宝模拟网关应用公钥格式错误", e);
+        }
+        signer = ThreadLocal.withInitial(() -> {
+            try {
+                Signature signature = Signature.getInstance("SHA256WithRSA");
+                signature.initSign(privateKey);
+                return signature;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("初始化模拟网关签名失败", e);
+            }
+        });
+        charset = Charset.forName(config.getCharset());
+        httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(config.getNotifyTimeoutMs()))
+            .build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        scheduler = new ScheduledThreadPoolExecutor(Math.max(1, config.getNotifyThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "alipay-simulator-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        log.warn("支付宝网关模拟器已启用，所有支付请求不会发往真实网关，模拟器公钥：{}",
+            Base64.getEncoder().encodeToString(publicKey.getEncoded()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 模拟网关的公钥，应用侧的支付宝公钥需配置为该值
+     */
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    /**
+     * 处理网关请求
+     *
+     * @param params 请求参数（查询串与表单合并）
+     * @return 页面支付返回 HTML，其余接口返回带签名的 JSON
+     */
+    public String handle(Map<String, String> params) {
+        String method = params.getOrDefault("method", "");
+        if (!verifyRequestSign(params)) {
+            return signedResponse(method, error("40002", "Invalid Arguments", "isv.invalid-signature", "验签出错"));
+        }
+
+        Map<String, Object> bizContent = parseBizContent(params.get("biz_content"));
+        switch (method) {
+            case PAGE_PAY:
+                return pagePay(params, bizContent);
+            case TRADE_QUERY:
+                simulateLatency();
+                return signedResponse(method, query(bizContent));
+            case TRADE_REFUND:
+                simulateLatency();
+                return signedResponse(method, refund(bizContent));
+            case REFUND_QUERY:
+                simulateLatency();
+                return signedResponse(method, refundQuery(bizContent));
+            case TRADE_CLOSE:
+                simulateLatency();
+                return signedResponse(method, close(bizContent));
+            default:
+                return signedResponse(method, error("40004", "Business Failed", "isv.invalid-method", "不支持的接口：" + method));
+        }
+    }
+
+    /**
+     * 通知投递统计
+     */
+    public Map<String, Long> getNotifyStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("trades", (long) trades.size());
+        statistics.put("delivered", notifyDelivered.get());
+        statistics.put("failed", notifyFailed.get());
+        statistics.put("duplicated", notifyDuplicated.get());
+        statistics.put("abandoned", notifyAbandoned.get());
+        return statistics;
+    }
+
+    /**
+     * 清空模拟交易和统计（长时间浸泡测试时释放内存）
+     */
+    public void reset() {
+        trades.clear();
+        merchantByAppId.clear();
+        notifyDelivered.set(0);
+        notifyFailed.set(0);
+        notifyDuplicated.set(0);
+        notifyAbandoned.set(0);
+    }
+
+    private String pagePay(Map<String, String> params, Map<String, Object> bizContent) {
+        String outTradeNo = stringValue(bizContent.get("out_trade_no"));
+        BigDecimal totalAmount = decimalValue(bizContent.get("total_amount"));
+        if (!StringUtils.hasText(outTradeNo) || totalAmount == null) {
+            return "<html><body>参数错误：缺少商户订单号或金额</body></html>";
+        }
+
+        SimulatedTrade trade = trades.computeIfAbsent(outTradeNo, key -> new SimulatedTrade(
+            key, nextTradeNo(), totalAmount, params.get("app_id"), params.get("notify_url"),
+            stringValue(bizContent.get("passback_params"))));
+
+        synchronized (trade) {
+            if (!"WAIT_BUYER_PAY".equals(trade.status)) {
+                return "<html><body>交易状态：" + trade.status + "，商户订单号：" + outTradeNo + "</body></html>";
+            }
+        }
+        if (config.isAutoPay()) {
+            scheduler.schedule(() -> pay(trade), config.getPayDelayMs(), TimeUnit.MILLISECONDS);
+        }
+        return "<html><body>模拟收银台：商户订单号 " + outTradeNo + "，金额 " + totalAmount + "</body></html>";
+    }
+
+    private void pay(SimulatedTrade trade) {
+        synchronized (trade) {
+            if (!"WAIT_BUYER_PAY".equals(trade.status)) {
+                return;
+            }
+            trade.status = "TRADE_SUCCESS";
+            trade.gmtPayment = LocalDateTime.now();
+        }
+        sendNotify(trade, null);
+    }
+
+    private Map<String, Object> query(Map<String, Object> bizContent) {
+        SimulatedTrade trade = findTrade(bizContent);
+        if (trade == null) {
+            return error("40004", "Business Failed", "ACQ.TRADE_NOT_EXIST", "交易不存在");
+        }
+        synchronized (trade) {
+            Map<String, Object> node = success();
+            node.put("trade_no", trade.tradeNo);
+            node.put("out_trade_no", trade.outTradeNo);
+            node.put("buyer_logon_id", "sim***@example.com");
+            node.put("trade_status", trade.status);
+            node.put("total_amount", trade.totalAmount.toPlainString());
+            if (trade.gmtPayment != null) {
+                node.put("send_pay_date", trade.gmtPayment.format(TIME_FORMAT));
+            }
+            return node;
+        }
+    }
+
+    private Map<String, Object> refund(Map<String, Object> bizContent) {
+        SimulatedTrade trade = findTrade(bizContent);
+        BigDecimal refundAmount = decimalValue(bizContent.get("refund_amount"));
+        String outRequestNo = stringValue(bizContent.get("out_request_no"));
+        if (trade == null) {
+            return error("40004", "Business Failed", "ACQ.TRADE_NOT_EXIST", "交易不存在");
+        }
+        if (refundAmount == null || refundAmount.signum() <= 0) {
+            return error("40004", "Business Failed", "ACQ.INVALID_PARAMETER", "退款金额无效");
+        }
+        if (!StringUtils.hasText(outRequestNo)) {
+            outRequestNo = trade.outTradeNo;
+        }
+
+        boolean closed = false;
+        Map<String, Object> node;
+        synchronized (trade) {
+            BigDecimal previous = trade.refunds.get(outRequestNo);
+            boolean fundChange = false;
+            if (previous == null) {
+                if (!"TRADE_SUCCESS".equals(trade.status)) {
+                    return error("40004", "Business Failed", "ACQ.TRADE_STATUS_ERROR", "交易状态不合法");
+                }
+                if (trade.refundedTotal.add(refundAmount).compareTo(trade.totalAmount) > 0) {
+                    return error("40004", "Business Failed", "ACQ.REFUND_AMT_NOT_EQUAL_TOTAL", "退款金额超限");
+                }
+                // 同一退款请求号重复提交只返回原结果，不重复退款
+                trade.refunds.put(outRequestNo, refundAmount);
+                trade.refundedTotal = trade.refundedTotal.add(refundAmount);
+                fundChange = true;
+                if (trade.refundedTotal.compareTo(trade.totalAmount) == 0) {
+                    trade.status = "TRADE_CLOSED";
+                    closed = true;
+                }
+            }
+            node = success();
+            node.put("trade_no", trade.tradeNo);
+            node.put("out_trade_no", trade.outTradeNo);
+            node.put("fund_change", fundChange ? "Y" : "N");
+            node.put("refund_fee", trade.refundedTotal.toPlainString());
+            node.put("gmt_refund_pay", LocalDateTime.now().format(TIME_FORMAT));
+        }
+        if (closed) {
+            sendNotify(trade, trade.refundedTotal);
+        }
+        return node;
+    }
+
+    /**
+     * 按退款请求号查询退款，与真实网关一致：退款不存在时仍返回成功，但不带 refund_status
+     */
+    private Map<String, Object> refundQuery(Map<String, Object> bizContent) {
+        SimulatedTrade trade = findTrade(bizContent);
+        if (trade == null) {
+            return error("40004", "Business Failed", "ACQ.TRADE_NOT_EXIST", "交易不存在");
+        }
+        String outRequestNo = stringValue(bizContent.get("out_request_no"));
+        if (!StringUtils.hasText(outRequestNo)) {
+            outRequestNo = trade.outTradeNo;
+        }
+        synchronized (trade) {
+            Map<String, Object> node = success();
+            node.put("trade_no", trade.tradeNo);
+            node.put("out_trade_no", trade.outTradeNo);
+            node.put("out_request_no", outRequestNo);
+            node.put("total_amount", trade.totalAmount.toPlainString());
+            BigDecimal refundAmount = trade.refunds.get(outRequestNo);
+            if (refundAmount != null) {
+                node.put("refund_amount", refundAmount.toPlainString());
+                node.put("refund_status", "REFUND_SUCCESS");
+            }
+            return node;
+        }
+    }
+
+    private Map<String, Object> close(Map<String, Object> bizContent) {
+        SimulatedTrade trade = findTrade(bizContent);
+        if (trade == null) {
+            return error("40004", "Business Failed", "ACQ.TRADE_NOT_EXIST", "交易不存在");
+        }
+        synchronized (trade) {
+            if (!"WAIT_BUYER_PAY".equals(trade.status)) {
+                return error("40004", "Business Failed", "ACQ.TRADE_STATUS_ERROR", "交易状态不合法");
+            }
+            trade.status = "TRADE_CLOSED";
+            Map<String, Object> node = success();
+            node.put("trade_no", trade.tradeNo);
+            node.put("out_trade_no", trade.outTradeNo);
+            return node;
+        }
+    }
+
+    /**
+     * 生成并投递异步通知
+     */
+    private void sendNotify(SimulatedTrade trade, BigDecimal refundFee) {
+        if (!StringUtils.hasText(trade.notifyUrl)) {
+            return;
+        }
+        Map<String, String> params = new HashMap<>();
+        synchronized (trade) {
+            params.put("notify_time", LocalDateTime.now().format(TIME_FORMAT));
+            params.put("notify_type", "trade_status_sync");
+            params.put("notify_id", Long.toHexString(ThreadLocalRandom.current().nextLong()) + trade.tradeNo);
+            params.put("app_id", trade.appId);
+            params.put("charset", config.getCharset());
+            params.put("version", "1.0");
+            params.put("trade_no", trade.tradeNo);
+            params.put("out_trade_no", trade.outTradeNo);
+            params.put("trade_status", trade.status);
+            params.put("total_amount", trade.totalAmount.toPlainString());
+            params.put("receipt_amount", trade.totalAmount.toPlainString());
+            params.put("buyer_id", "2088000000000000");
+            if (trade.gmtPayment != null) {
+                params.put("gmt_payment", trade.gmtPayment.format(TIME_FORMAT));
+            }
+            if (refundFee != null) {
+                params.put("refund_fee", refundFee.toPlainString());
+            }
+            if (StringUtils.hasText(trade.passbackParams)) {
+                params.put("passback_params", trade.passbackParams);
+            }
+        }
+        params.values().removeIf(value -> value == null);
+        params.put("sign", sign(AlipaySignature.getSignCheckContentV1(params)));
+        params.put("sign_type", "RSA2");
+
+        String body = encodeForm(params);
+        long delay = randomDelay();
+        scheduler.schedule(() -> deliver(trade.notifyUrl, body, 1), delay, TimeUnit.MILLISECONDS);
+        if (ThreadLocalRandom.current().nextDouble() < config.getNotifyDuplicateRate()) {
+            notifyDuplicated.incrementAndGet();
+            scheduler.schedule(() -> deliver(trade.notifyUrl, body, 1), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void deliver(String notifyUrl, String body, int attempt) {
+        boolean acknowledged = false;
+        if (ThreadLocalRandom.current().nextDouble() < config.getNotifyFailureRate()) {
+            notifyFailed.incrementAndGet();
+        } else {
+            try {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(notifyUrl))
+                    .timeout(Duration.ofMillis(config.getNotifyTimeoutMs()))
+                    .header("Content-Type", "application/x-www-form-urlencoded; charset=" + config.getCharset())
+                    .POST(HttpRequest.BodyPublishers.ofString(body, charset))
+                    .build();
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                acknowledged = response.statusCode() == 200 && "success".equals(response.body().trim());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.debug("模拟网关通知投递失败，地址：{}: {}", notifyUrl, e.getMessage());
+            }
+        }
+
+        if (acknowledged) {
+            notifyDelivered.incrementAndGet();
+        } else if (attempt < config.getNotifyMaxAttempts()) {
+            scheduler.schedule(() -> deliver(notifyUrl, body, attempt + 1),
+                config.getNotifyRetryIntervalMs() * attempt, TimeUnit.MILLISECONDS);
+        } else {
+            notifyAbandoned.incrementAndGet();
+            log.warn("模拟网关通知超过最大投递次数，已放弃，地址：{}", notifyUrl);
+        }
+    }
+
+    /**
+     * 按 SDK 的请求签名规则（除 sign 外的非空参数排序拼接）校验签名，找不到应用公钥时拒绝
+     */
+    private boolean verifyRequestSign(Map<String, String> params) {
+        String sign = params.get("sign");
+        PublicKey appPublicKey = resolveAppPublicKey(params.get("app_id"));
+        if (!StringUtils.hasText(sign) || appPublicKey == null) {
+            return false;
+        }
+        try {
+            Signature signature = Signature.getInstance(
+                "RSA".equalsIgnoreCase(params.get("sign_type")) ? "SHA1WithRSA" : "SHA256WithRSA");
+            signature.initVerify(appPublicKey);
+            signature.update(AlipaySignature.getSignCheckContentV2(params).getBytes(charset));
+            return signature.verify(Base64.getMimeDecoder().decode(sign));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 请求方的应用公钥：优先使用配置的 app-public-key，否则按 app_id 匹配平台或商家支付配置，由其私钥推导
+     */
+    private PublicKey resolveAppPublicKey(String appId) {
+        if (configuredAppPublicKey != null) {
+            return configuredAppPublicKey;
+        }
+        if (!StringUtils.hasText(appId)) {
+            return null;
+        }
+        if (appId.equals(alipayConfig.getAppId())) {
+            return platformAppPublicKey;
+        }
+        try {
+            Long merchantId = merchantByAppId.computeIfAbsent(appId, key -> merchantConfigRepository.findByAlipayAppId(key)
+                .map(MerchantPaymentConfig::getMerchantId)
+                .orElse(null));
+            // 每次从凭证缓存取私钥，商家更换密钥后立即生效
+            MerchantCredentials credentials = merchantId != null ? credentialRegistry.get(merchantId) : null;
+            return credentials != null
+                ? AlipaySimulatorKeyPostProcessor.derivePublicKey(KeyFactory.getInstance("RSA"), credentials.merchantPrivateKey())
+                : null;
+        } catch (GeneralSecurityException | RuntimeException e) {
+            log.debug("模拟网关查找应用公钥失败，应用ID：{}: {}", appId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 组装与真实网关一致的响应：对 xxx_response 节点原文签名，签名与节点并列
+     */
+    private String signedResponse(String method, Map<String, Object> node) {
+        String rootName = (StringUtils.hasText(method) ? method.replace('.', '_') : "error") + "_response";
+        String content = JsonUtil.toJson(node);
+        return "{\"" + rootName + "\":" + content + ",\"sign\":\"" + sign(content) + "\"}";
+    }
+
+    private String sign(String content) {
+        try {
+            Signature signature = signer.get();
+            signature.update(content.getBytes(charset));
+            return Base64.getEncoder().encodeToString(signature.sign());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("模拟网关签名失败", e);
+        }
+    }
+
+    private SimulatedTrade findTrade(Map<String, Object> bizContent) {
+        String outTradeNo = stringValue(bizContent.get("out_trade_no"));
+        if (StringUtils.hasText(outTradeNo)) {
+            return trades.get(outTradeNo);
+        }
+        String tradeNo = stringValue(bizContent.get("trade_no"));
+        if (StringUtils.hasText(tradeNo)) {
+            return trades.values().stream().filter(t -> tradeNo.equals(t.tradeNo)).findFirst().orElse(null);
+        }
+        return null;
+    }
+
+    private Map<String, Object> success() {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("code", "10000");
+        node.put("msg", "Success");
+        return node;
+    }
+
+    private Map<String, Object> error(String code, String msg, String subCode, String subMsg) {
+        Map<String, Object> node = new LinkedHashMap<>();
+        node.put("code", code);
+        node.put("msg", msg);
+        node.put("sub_code", subCode);
+        node.put("sub_msg", subMsg);
+        return node;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> parseBizContent(String bizContent) {
+        if (!StringUtils.hasText(bizContent)) {
+            return Map.of();
+        }
+        try {
+            Map<String, Object> parsed = JsonUtil.fromJson(bizContent, Map.class);
+            return parsed != null ? parsed : Map.of();
+        } catch (RuntimeException e) {
+            return Map.of();
+        }
+    }
+
+    private String nextTradeNo() {
+        return LocalDateTime.now().format(TRADE_NO_DATE) + String.format("%022d", tradeSequence.incrementAndGet());
+    }
+
+    private long randomDelay() {
+        long min = Math.max(0, config.getNotifyDelayMinMs());
+        long max = Math.max(min, config.getNotifyDelayMaxMs());
+        return min == max ? min : ThreadLocalRandom.current().nextLong(min, max + 1);
+    }
+
+    private void simulateLatency() {
+        if (config.getGatewayLatencyMs() <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(config.getGatewayLatencyMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String encodeForm(Map<String, String> params) {
+        StringBuilder body = new StringBuilder(512);
+        for (Map.Entry<String, String> entry : params.entrySet()) {
+            if (body.length() > 0) {
+                body.append('&');
+            }
+            body.append(URLEncoder.encode(entry.getKey(), charset))
+                .append('=')
+                .append(URLEncoder.encode(entry.getValue(), charset));
+        }
+        return body.toString();
+    }
+
+    private static String stringValue(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static BigDecimal decimalValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 模拟交易（所有字段修改都在实例锁内进行）
+     */
+    private static final class SimulatedTrade {
+        private final String outTradeNo;
+        private final String tradeNo;
+        private final BigDecimal totalAmount;
+        private final String appId;
+        private final String notifyUrl;
+        private final String passbackParams;
+        private final Map<String, BigDecimal> refunds = new HashMap<>();
+        private String status = "WAIT_BUYER_PAY";
+        private BigDecimal refundedTotal = BigDecimal.ZERO;
+        private LocalDateTime gmtPayment;
+
+        private SimulatedTrade(String outTradeNo, String tradeNo, BigDecimal totalAmount,
+                               String appId, String notifyUrl, String passbackParams) {
+            this.outTradeNo = outTradeNo;
+            this.tradeNo = tradeNo;
+            this.totalAmount = totalAmount;
+            this.appId = appId;
+            this.notifyUrl = notifyUrl;
+            this.passbackParams = passbackParams;
+        }
+    }
+}
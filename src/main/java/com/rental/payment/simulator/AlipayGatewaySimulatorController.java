@@ -0,0 +1,81 @@
+package com.rental.payment.simulator;
+
+import com.rental.common.response.ApiResponse;
+import com.rental.payment.DTO.PaymentLoadTestReport;
+import com.rental.payment.DTO.PaymentLoadTestRequest;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 本地支付宝网关模拟器接口（仅 alipay-simulator 环境）
+ */
+@RestController
+@RequestMapping("/simulator/alipay")
+@Profile(AlipaySimulatorConfig.PROFILE)
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "支付宝网关模拟器", description = "本地压测和浸泡测试用的支付宝网关模拟及压测驱动")
+public class AlipayGatewaySimulatorController {
+
+    private final AlipayGatewaySimulator simulator;
+    private final PaymentLoadTestDriver loadTestDriver;
+
+    /**
+     * 模拟网关入口，SDK 把公共参数放在查询串、业务参数放在表单中，这里合并处理
+     */
+    @RequestMapping(value = "/gateway.do", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<String> gateway(HttpServletRequest request) {
+        Map<String, String> params = new HashMap<>();
+        request.getParameterMap().forEach((key, values) -> {
+            if (values != null && values.length > 0) {
+                params.put(key, values[0]);
+            }
+        });
+
+        String body = simulator.handle(params);
+        MediaType contentType = AlipayGatewaySimulator.PAGE_PAY.equals(params.get("method"))
+            ? MediaType.TEXT_HTML : MediaType.APPLICATION_JSON;
+        return ResponseEntity.ok()
+            .contentType(new MediaType(contentType, StandardCharsets.UTF_8))
+            .body(body);
+    }
+
+    @PostMapping("/load-test")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    @Operation(summary = "执行支付压测", description = "通过模拟网关跑完整的下单、付款、通知、查询和退款链路，返回吞吐量和各阶段耗时分位数")
+    public ResponseEntity<ApiResponse<PaymentLoadTestReport>> runLoadTest(@Valid @RequestBody PaymentLoadTestRequest request) {
+        return ResponseEntity.ok(ApiResponse.success("压测完成", loadTestDriver.run(request)));
+    }
+
+    @GetMapping("/statistics")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    @Operation(summary = "模拟器通知统计")
+    public ResponseEntity<ApiResponse<Map<String, Long>>> getStatistics() {
+        return ResponseEntity.ok(ApiResponse.success(simulator.getNotifyStatistics()));
+    }
+
+    @PostMapping("/reset")
+    @PreAuthorize("hasRole('ADMIN')")
+    @SecurityRequirement(name = "bearerAuth")
+    @Operation(summary = "清空模拟交易和统计")
+    public ResponseEntity<ApiResponse<Void>> reset() {
+        simulator.reset();
+        return ResponseEntity.ok(ApiResponse.success("模拟器已重置", null));
+    }
+}
@@ -0,0 +1,88 @@
+package com.rental.payment.simulator;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地支付宝网关模拟器配置类（仅 alipay-simulator 环境）
+ */
+@ConfigurationProperties(prefix = "alipay.simulator")
+@Data
+@Component
+@Profile(AlipaySimulatorConfig.PROFILE)
+public class AlipaySimulatorConfig {
+
+    public static final String PROFILE = "alipay-simulator";
+
+    /**
+     * 模拟网关的签名私钥（PKCS8，Base64），对应应用配置中的支付宝公钥；未配置时启动时生成
+     */
+    private String privateKey;
+
+    /**
+     * 校验请求签名的应用公钥（Base64），为空时按请求的 app_id 由平台或商家支付配置的私钥推导
+     */
+    private String appPublicKey;
+
+    /**
+     * 字符编码
+     */
+    private String charset = "UTF-8";
+
+    /**
+     * 查询、退款、关闭接口的模拟处理延迟（毫秒）
+     */
+    private long gatewayLatencyMs = 0;
+
+    /**
+     * 提交支付表单后是否自动模拟买家付款
+     */
+    private boolean autoPay = true;
+
+    /**
+     * 模拟买家付款耗时（毫秒）
+     */
+    private long payDelayMs = 50;
+
+    /**
+     * 异步通知最小延迟（毫秒）
+     */
+    private long notifyDelayMinMs = 20;
+
+    /**
+     * 异步通知最大延迟（毫秒）
+     */
+    private long notifyDelayMaxMs = 200;
+
+    /**
+     * 通知投递失败率（0~1），失败的投递按重试间隔重新发送
+     */
+    private double notifyFailureRate = 0.0;
+
+    /**
+     * 通知重复率（0~1），命中时额外并发投递一次相同的通知
+     */
+    private double notifyDuplicateRate = 0.0;
+
+    /**
+     * 通知重试间隔（毫秒），第 n 次重试等待 n 倍间隔
+     */
+    private long notifyRetryIntervalMs = 1000;
+
+    /**
+     * 单条通知最大投递次数
+     */
+    private int notifyMaxAttempts = 8;
+
+    /**
+     * 通知投递线程数
+     */
+    private int notifyThreads = 8;
+
+    /**
+     * 通知请求超时（毫秒）
+     */
+    private long notifyTimeoutMs = 5000;
+}
@@ -0,0 +1,90 @@
+package com.rental.payment.simulator;
+
+import org.apache.commons.logging.Log;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.config.ConfigDataEnvironmentPostProcessor;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.boot.logging.DeferredLogFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.Profiles;
+import org.springframework.util.StringUtils;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 模拟网关签名密钥准备（仅 alipay-simulator 环境）
+ *
+ * 私钥从环境变量 ALIPAY_SIMULATOR_PRIVATE_KEY 读取，未提供时在启动时生成一对 RSA 密钥，只保存在本次进程内存中。
+ * 未单独配置平台的支付宝公钥时用模拟网关私钥推导，保证平台客户端能验证模拟网关的响应签名。
+ */
+public class AlipaySimulatorKeyPostProcessor implements EnvironmentPostProcessor, Ordered {
+
+    static final String PRIVATE_KEY_PROPERTY = "alipay.simulator.private-key";
+    static final String ALIPAY_PUBLIC_KEY_PROPERTY = "payment.alipay.alipay-public-key";
+
+    private static final String PROPERTY_SOURCE_NAME = "alipaySimulatorKeys";
+
+    private final Log log;
+
+    public AlipaySimulatorKeyPostProcessor(DeferredLogFactory logFactory) {
+        this.log = logFactory.getLog(AlipaySimulatorKeyPostProcessor.class);
+    }
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!environment.acceptsProfiles(Profiles.of(AlipaySimulatorConfig.PROFILE))) {
+            return;
+        }
+        Map<String, Object> properties = new HashMap<>();
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance("RSA");
+            String privateKey = environment.getProperty(PRIVATE_KEY_PROPERTY);
+            PublicKey publicKey;
+            if (StringUtils.hasText(privateKey)) {
+                publicKey = derivePublicKey(keyFactory, keyFactory.generatePrivate(
+                    new PKCS8EncodedKeySpec(Base64.getMimeDecoder().decode(privateKey))));
+            } else {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(2048);
+                KeyPair keyPair = generator.generateKeyPair();
+                publicKey = keyPair.getPublic();
+                properties.put(PRIVATE_KEY_PROPERTY, Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+                log.info("未配置 ALIPAY_SIMULATOR_PRIVATE_KEY，已为支付宝模拟网关生成临时签名密钥");
+            }
+            if (!StringUtils.hasText(environment.getProperty(ALIPAY_PUBLIC_KEY_PROPERTY))) {
+                properties.put(ALIPAY_PUBLIC_KEY_PROPERTY, Base64.getEncoder().encodeToString(publicKey.getEncoded()));
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException | ClassCastException e) {
+            // 私钥格式错误时保持原配置，由模拟器初始化时报错
+            log.warn("准备支付宝模拟网关签名密钥失败: " + e.getMessage());
+            return;
+        }
+        if (!properties.isEmpty()) {
+            environment.getPropertySources().addFirst(new MapPropertySource(PROPERTY_SOURCE_NAME, properties));
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        // 需在配置文件加载、profile 确定之后执行
+        return ConfigDataEnvironmentPostProcessor.ORDER + 1;
+    }
+
+    static PublicKey derivePublicKey(KeyFactory keyFactory, PrivateKey privateKey) throws GeneralSecurityException {
+        RSAPrivateCrtKey crtKey = (RSAPrivateCrtKey) privateKey;
+        return keyFactory.generatePublic(new RSAPublicKeySpec(crtKey.getModulus(), crtKey.getPublicExponent()));
+    }
+}
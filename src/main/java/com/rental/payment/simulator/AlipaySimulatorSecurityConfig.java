@@ -0,0 +1,31 @@
+package com.rental.payment.simulator;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.SecurityFilterChain;
+
+/**
+ * 模拟网关入口的安全配置（仅 alipay-simulator 环境）
+ *
+ * 网关入口供支付宝 SDK 直接调用，不带登录凭证，由模拟器校验请求签名保证来源合法；
+ * 其他环境不注册该过滤链，路径按全局规则要求认证。
+ */
+@Configuration
+@Profile(AlipaySimulatorConfig.PROFILE)
+public class AlipaySimulatorSecurityConfig {
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public SecurityFilterChain alipaySimulatorGatewayFilterChain(HttpSecurity http) throws Exception {
+        http.securityMatcher("/simulator/alipay/gateway.do")
+            .csrf(csrf -> csrf.disable())
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .authorizeHttpRequests(auth -> auth.anyRequest().permitAll());
+        return http.build();
+    }
+}
@@ -0,0 +1,328 @@
+package com.rental.payment.simulator;
+
+import com.rental.common.exception.BusinessException;
+import com.rental.common.exception.ResourceNotFoundException;
+import com.rental.item.model.Item;
+import com.rental.item.repository.ItemRepository;
+import com.rental.order.model.Order;
+import com.rental.order.model.OrderItem;
+import com.rental.order.repository.OrderRepository;
+import com.rental.payment.DTO.PaymentCreateRequest;
+import com.rental.payment.DTO.PaymentLoadTestReport;
+import com.rental.payment.DTO.PaymentLoadTestRequest;
+import com.rental.payment.DTO.PaymentResponse;
+import com.rental.payment.DTO.PaymentDto;
+import com.rental.payment.DTO.RefundRequest;
+import com.rental.payment.integration.alipay.MerchantCredentialRegistry;
+import com.rental.payment.integration.alipay.MerchantCredentials;
+import com.rental.payment.integration.alipay.MultiMerchantAlipayService;
+import com.rental.payment.model.Payment;
+import com.rental.payment.repository.PaymentRepository;
+import com.rental.payment.service.PaymentService;
+import com.rental.user.model.User;
+import com.rental.user.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 支付全链路压测驱动（仅 alipay-simulator 环境）
+ *
+ * 每笔压测依次执行：创建已确认订单 → 创建支付 → 提交支付表单到模拟网关 → 等待异步通知落库为成功
+ * → 可选的交易查询和全额退款，按阶段统计耗时分布和吞吐量。
+ */
+@Service
+@Profile(AlipaySimulatorConfig.PROFILE)
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentLoadTestDriver {
+
+    private static final Pattern FORM_ACTION = Pattern.compile("action=\"([^\"]*)\"");
+    private static final Pattern FORM_BIZ_CONTENT = Pattern.compile("name=\"biz_content\" value=\"([^\"]*)\"");
+    private static final long SETTLE_POLL_INTERVAL_MS = 10;
+
+    private final AlipayGatewaySimulator simulator;
+    private final MerchantCredentialRegistry credentialRegistry;
+    private final MultiMerchantAlipayService multiMerchantAlipayService;
+    private final PaymentService paymentService;
+    private final PaymentRepository paymentRepository;
+    private final OrderRepository orderRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+    private final AtomicLong orderSequence = new AtomicLong();
+
+    /**
+     * 执行压测
+     */
+    public PaymentLoadTestReport run(PaymentLoadTestRequest request) {
+        Long merchantId = validateTarget(request);
+        log.info("开始支付压测，商家ID：{}，笔数：{}，并发：{}", merchantId, request.getIterations(), request.getConcurrency());
+
+        Map<String, Queue<Long>> samples = new ConcurrentHashMap<>();
+        Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong settleTimeouts = new AtomicLong();
+
+        ExecutorService executor = Executors.newFixedThreadPool(request.getConcurrency());
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>(request.getIterations());
+            for (int i = 0; i < request.getIterations(); i++) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        if (runOnce(request, merchantId, samples)) {
+                            succeeded.incrementAndGet();
+                        } else {
+                            settleTimeouts.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        String reason = e.getClass().getSimpleName() + ": " + e.getMessage();
+                        errors.computeIfAbsent(reason, k -> new AtomicLong()).incrementAndGet();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException("压测被中断");
+        } catch (Exception e) {
+            throw new BusinessException("压测执行失败：" + e.getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        PaymentLoadTestReport report = new PaymentLoadTestReport();
+        report.setIterations(request.getIterations());
+        report.setConcurrency(request.getConcurrency());
+        report.setSucceeded(succeeded.get());
+        report.setSettleTimeouts(settleTimeouts.get());
+        report.setFailed(request.getIterations() - succeeded.get());
+        report.setElapsedMs(elapsedMs);
+        report.setThroughput(elapsedMs == 0 ? 0 : succeeded.get() * 1000.0 / elapsedMs);
+        for (String stage : List.of("create", "settle", "query", "refund", "total")) {
+            Queue<Long> stageSamples = samples.get(stage);
+            if (stageSamples != null) {
+                report.getLatencies().put(stage, summarize(stageSamples));
+            }
+        }
+        errors.forEach((reason, count) -> report.getErrors().put(reason, count.get()));
+        report.setNotifyStatistics(simulator.getNotifyStatistics());
+
+        log.info("支付压测完成，成功：{}，失败：{}，耗时：{}ms，吞吐量：{}/s",
+                report.getSucceeded(), report.getFailed(), elapsedMs, String.format("%.1f", report.getThroughput()));
+        return report;
+    }
+
+    /**
+     * 校验压测目标：物品所有者必须已启用支付配置，且支付宝公钥就是模拟器的公钥，避免压测请求发往真实网关
+     */
+    private Long validateTarget(PaymentLoadTestRequest request) {
+        userRepository.findById(request.getUserId())
+            .orElseThrow(() -> new ResourceNotFoundException("用户不存在"));
+        Long merchantId = transactionTemplate.execute(status -> itemRepository.findById(request.getItemId())
+            .orElseThrow(() -> new ResourceNotFoundException("物品不存在"))
+            .getOwner().getId());
+
+        MerchantCredentials credentials = credentialRegistry.get(merchantId);
+        if (credentials == null) {
+            throw new BusinessException("物品所有者未启用支付配置，商家ID：" + merchantId);
+        }
+        if (!credentials.alipayPublicKeyObj().equals(simulator.getPublicKey())) {
+            throw new BusinessException("商家配置的支付宝公钥不是模拟器公钥，拒绝压测");
+        }
+        return merchantId;
+    }
+
+    /**
+     * 执行单笔压测
+     *
+     * @return 支付成功并完成后续阶段返回 true，等待通知超时返回 false
+     */
+    private boolean runOnce(PaymentLoadTestRequest request, Long merchantId,
+                            Map<String, Queue<Long>> samples) throws IOException, InterruptedException {
+        long begin = System.nanoTime();
+        Long orderId = createConfirmedOrder(request);
+
+        long stageStart = System.nanoTime();
+        PaymentCreateRequest createRequest = new PaymentCreateRequest();
+        createRequest.setOrderId(orderId);
+        createRequest.setAmount(request.getAmount());
+        createRequest.setPaymentMethod(Payment.PaymentMethod.ALIPAY);
+        createRequest.setPaymentType(Payment.PaymentType.RENTAL);
+        createRequest.setRemark("支付压测");
+        PaymentResponse response = paymentService.createPayment(createRequest, request.getUserId());
+        record(samples, "create", stageStart);
+
+        stageStart = System.nanoTime();
+        submitPaymentForm(response.getPaymentForm());
+        Payment payment = awaitSuccess(response.getPaymentNo(), request.getSettleTimeoutMs());
+        if (payment == null) {
+            return false;
+        }
+        record(samples, "settle", stageStart);
+
+        if (request.isIncludeQuery()) {
+            stageStart = System.nanoTime();
+            String status = multiMerchantAlipayService.queryPaymentStatus(merchantId, payment);
+            if (!Payment.PaymentStatus.SUCCESS.name().equals(status)) {
+                throw new BusinessException("交易查询状态不一致：" + status);
+            }
+            record(samples, "query", stageStart);
+        }
+
+        if (request.isIncludeRefund()) {
+            stageStart = System.nanoTime();
+            RefundRequest refundRequest = new RefundRequest();
+            refundRequest.setPaymentId(payment.getId());
+            refundRequest.setRefundAmount(payment.getAmount());
+            refundRequest.setRefundReason("支付压测退款");
+            // 退款异步执行，等待退款记录变为成功
+            PaymentDto refund = paymentService.processRefund(refundRequest, request.getUserId());
+            if (awaitSuccess(refund.getPaymentNo(), request.getSettleTimeoutMs()) == null) {
+                return false;
+            }
+            record(samples, "refund", stageStart);
+        }
+
+        record(samples, "total", begin);
+        return true;
+    }
+
+    /**
+     * 创建已确认的单物品订单
+     */
+    private Long createConfirmedOrder(PaymentLoadTestRequest request) {
+        return transactionTemplate.execute(status -> {
+            User user = userRepository.getReferenceById(request.getUserId());
+            Item item = itemRepository.getReferenceById(request.getItemId());
+
+            Order order = new Order();
+            // 订单服务的编号基于总数生成，并发下会冲突，压测订单使用独立前缀
+            order.setOrderNo("LT" + System.currentTimeMillis() + String.format("%06d", orderSequence.incrementAndGet()));
+            order.setUser(user);
+            order.setTotalAmount(request.getAmount());
+            order.setStatus(Order.OrderStatus.CONFIRMED);
+            order.setStartDate(LocalDate.now());
+            order.setEndDate(LocalDate.now().plusDays(1));
+            order.setRemark("支付压测订单");
+
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrder(order);
+            orderItem.setItem(item);
+            orderItem.setQuantity(1);
+            orderItem.setPricePerDay(request.getAmount());
+            orderItem.setTotalAmount(request.getAmount());
+            order.setOrderItems(new ArrayList<>(List.of(orderItem)));
+
+            return orderRepository.save(order).getId();
+        });
+    }
+
+    /**
+     * 像浏览器一样把支付表单提交到网关
+     */
+    private void submitPaymentForm(String form) throws IOException, InterruptedException {
+        Matcher action = FORM_ACTION.matcher(form);
+        Matcher bizContent = FORM_BIZ_CONTENT.matcher(form);
+        if (!action.find() || !bizContent.find()) {
+            throw new BusinessException("无法解析支付表单");
+        }
+        String body = "biz_content=" + URLEncoder.encode(unescapeHtml(bizContent.group(1)), StandardCharsets.UTF_8);
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(unescapeHtml(action.group(1))))
+            .timeout(Duration.ofSeconds(10))
+            .header("Content-Type", "application/x-www-form-urlencoded;charset=UTF-8")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        HttpResponse<Void> httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.discarding());
+        if (httpResponse.statusCode() != 200) {
+            throw new BusinessException("提交支付表单失败，HTTP " + httpResponse.statusCode());
+        }
+    }
+
+    /**
+     * 轮询等待异步通知把支付更新为成功
+     */
+    private Payment awaitSuccess(String paymentNo, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (System.currentTimeMillis() < deadline) {
+            Payment payment = paymentRepository.findByPaymentNo(paymentNo).orElse(null);
+            if (payment != null && payment.getStatus() == Payment.PaymentStatus.SUCCESS) {
+                return payment;
+            }
+            Thread.sleep(SETTLE_POLL_INTERVAL_MS);
+        }
+        log.warn("等待支付完成超时，支付单号：{}", paymentNo);
+        return null;
+    }
+
+    private void record(Map<String, Queue<Long>> samples, String stage, long startNanos) {
+        samples.computeIfAbsent(stage, k -> new ConcurrentLinkedQueue<>()).add(System.nanoTime() - startNanos);
+    }
+
+    private PaymentLoadTestReport.LatencySummary summarize(Queue<Long> nanos) {
+        long[] sorted = nanos.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        double sum = 0;
+        for (long value : sorted) {
+            sum += value;
+        }
+        return new PaymentLoadTestReport.LatencySummary(
+            sorted.length,
+            toMillis(sum / sorted.length),
+            toMillis(percentile(sorted, 0.50)),
+            toMillis(percentile(sorted, 0.90)),
+            toMillis(percentile(sorted, 0.99)),
+            toMillis(sorted[sorted.length - 1])
+        );
+    }
+
+    /**
+     * 最近秩法计算分位数
+     */
+    private long percentile(long[] sorted, double quantile) {
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private double toMillis(double nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
+    }
+
+    private String unescapeHtml(String value) {
+        return value.replace("&quot;", "\"").replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+    }
+}
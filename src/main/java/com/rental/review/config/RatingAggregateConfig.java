@@ -0,0 +1,24 @@
+package com.rental.review.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 物品评分汇总配置类
+ */
+@ConfigurationProperties(prefix = "review.rating")
+@Data
+@Component
+public class RatingAggregateConfig {
+
+    /**
+     * 校验任务的并行线程数
+     */
+    private int verifyThreads = 4;
+
+    /**
+     * 校验任务每个分片覆盖的物品ID范围
+     */
+    private int verifyRangeSize = 5000;
+}
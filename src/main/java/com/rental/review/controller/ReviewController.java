@@ -175,8 +175,7 @@ public class ReviewController {
 
         log.info("Admin {} moderating review {} to status {}", userDetails.getUserId(), id, status);
 
-        // 这里可以添加审核逻辑
-        ReviewDTO review = reviewService.getReviewById(id);
+        ReviewDTO review = reviewService.moderateReview(id, status);
         return ApiResponse.success("评价审核成功", review);
     }
 
@@ -0,0 +1,197 @@
+package com.rental.review.service;
+
+import com.rental.review.config.RatingAggregateConfig;
+import com.rental.review.model.Review;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 物品评分汇总
+ *
+ * items 表保存已通过评价的评分总和与数量（总评分及质量、服务、配送三项子评分），
+ * 评价进入或离开已通过状态时用一条 UPDATE 对汇总做增量加减并同步重算平均分，
+ * 与评价状态变更在同一事务中提交。按评分排序和过滤直接走 average_rating 索引。
+ * 定时任务按物品ID分片并行地从评价表重新聚合，与汇总列比对，发现偏差即以重算结果修正。
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ItemRatingAggregator {
+
+    // MySQL 按顺序执行 SET，平均分计算中使用的是已更新的总和与数量
+    private static final String APPLY_SQL =
+        "UPDATE items SET rating_count = rating_count + ?, rating_sum = rating_sum + ?, " +
+        "quality_rating_count = quality_rating_count + ?, quality_rating_sum = quality_rating_sum + ?, " +
+        "service_rating_count = service_rating_count + ?, service_rating_sum = service_rating_sum + ?, " +
+        "delivery_rating_count = delivery_rating_count + ?, delivery_rating_sum = delivery_rating_sum + ?, " +
+        "average_rating = IF(rating_count > 0, ROUND(rating_sum / rating_count, 2), 0) WHERE id = ?";
+
+    private static final String RANGE_AGGREGATE_SQL =
+        "SELECT i.id, i.rating_count, i.rating_sum, i.quality_rating_count, i.quality_rating_sum, " +
+        "i.service_rating_count, i.service_rating_sum, i.delivery_rating_count, i.delivery_rating_sum, " +
+        "COALESCE(r.cnt, 0) AS cnt, COALESCE(r.total, 0) AS total, COALESCE(r.qc, 0) AS qc, COALESCE(r.qs, 0) AS qs, " +
+        "COALESCE(r.sc, 0) AS sc, COALESCE(r.ss, 0) AS ss, COALESCE(r.dc, 0) AS dc, COALESCE(r.ds, 0) AS ds " +
+        "FROM items i LEFT JOIN (" +
+        "SELECT item_id, COUNT(*) AS cnt, SUM(rating) AS total, COUNT(quality_rating) AS qc, SUM(quality_rating) AS qs, " +
+        "COUNT(service_rating) AS sc, SUM(service_rating) AS ss, COUNT(delivery_rating) AS dc, SUM(delivery_rating) AS ds " +
+        "FROM reviews WHERE status = 'APPROVED' AND item_id BETWEEN ? AND ? GROUP BY item_id) r ON r.item_id = i.id " +
+        "WHERE i.id BETWEEN ? AND ?";
+
+    // 修正时在同一条语句中重新聚合，避免用比对时读到的旧值覆盖期间发生的增量更新
+    private static final String RECOMPUTE_SQL =
+        "UPDATE items i LEFT JOIN (" +
+        "SELECT item_id, COUNT(*) AS cnt, SUM(rating) AS total, COUNT(quality_rating) AS qc, SUM(quality_rating) AS qs, " +
+        "COUNT(service_rating) AS sc, SUM(service_rating) AS ss, COUNT(delivery_rating) AS dc, SUM(delivery_rating) AS ds " +
+        "FROM reviews WHERE status = 'APPROVED' AND item_id = ? GROUP BY item_id) r ON r.item_id = i.id " +
+        "SET i.rating_count = COALESCE(r.cnt, 0), i.rating_sum = COALESCE(r.total, 0), " +
+        "i.quality_rating_count = COALESCE(r.qc, 0), i.quality_rating_sum = COALESCE(r.qs, 0), " +
+        "i.service_rating_count = COALESCE(r.sc, 0), i.service_rating_sum = COALESCE(r.ss, 0), " +
+        "i.delivery_rating_count = COALESCE(r.dc, 0), i.delivery_rating_sum = COALESCE(r.ds, 0), " +
+        "i.average_rating = IF(COALESCE(r.cnt, 0) > 0, ROUND(r.total / r.cnt, 2), 0) WHERE i.id = ?";
+
+    private static final String[][] COLUMN_PAIRS = {
+        {"rating_count", "cnt"}, {"rating_sum", "total"},
+        {"quality_rating_count", "qc"}, {"quality_rating_sum", "qs"},
+        {"service_rating_count", "sc"}, {"service_rating_sum", "ss"},
+        {"delivery_rating_count", "dc"}, {"delivery_rating_sum", "ds"}
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RatingAggregateConfig ratingConfig;
+    private final MeterRegistry meterRegistry;
+
+    private Counter driftCounter;
+
+    @PostConstruct
+    public void init() {
+        driftCounter = Counter.builder("review.rating.drift")
+            .description("校验任务发现并修正的评分汇总偏差物品数").register(meterRegistry);
+    }
+
+    /**
+     * 评价状态或评分变化后更新物品汇总，需在修改评价的事务内调用
+     *
+     * @param before 变化前的评价快照，之前未计入汇总时传 null
+     * @param after  变化后的评价，不再计入汇总时传 null
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Long itemId, RatingSnapshot before, RatingSnapshot after) {
+        RatingSnapshot removed = before != null ? before : RatingSnapshot.EMPTY;
+        RatingSnapshot added = after != null ? after : RatingSnapshot.EMPTY;
+        if (removed.equals(added)) {
+            return;
+        }
+        jdbcTemplate.update(APPLY_SQL,
+            added.count() - removed.count(), value(added.rating()) - value(removed.rating()),
+            count(added.quality()) - count(removed.quality()), value(added.quality()) - value(removed.quality()),
+            count(added.service()) - count(removed.service()), value(added.service()) - value(removed.service()),
+            count(added.delivery()) - count(removed.delivery()), value(added.delivery()) - value(removed.delivery()),
+            itemId);
+    }
+
+    /**
+     * 定时校验：按物品ID分片并行重新聚合并修正偏差
+     */
+    @Scheduled(cron = "${review.rating.verify-cron:0 40 3 * * ?}")
+    public void verify() {
+        long begin = System.currentTimeMillis();
+        Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM items");
+        if (bounds.get("min_id") == null) {
+            return;
+        }
+        long minId = ((Number) bounds.get("min_id")).longValue();
+        long maxId = ((Number) bounds.get("max_id")).longValue();
+        int rangeSize = Math.max(1, ratingConfig.getVerifyRangeSize());
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, ratingConfig.getVerifyThreads()), runnable -> {
+            Thread thread = new Thread(runnable, "rating-verify");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger corrected = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (long start = minId; start <= maxId; start += rangeSize) {
+                long from = start;
+                long to = Math.min(maxId, start + rangeSize - 1);
+                futures.add(executor.submit(() -> corrected.addAndGet(verifyRange(from, to))));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.error("评分汇总校验分片失败", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+        log.info("评分汇总校验完成，物品ID范围：{}-{}，修正：{}，耗时：{}ms",
+            minId, maxId, corrected.get(), System.currentTimeMillis() - begin);
+    }
+
+    private int verifyRange(long from, long to) {
+        List<Long> drifted = new ArrayList<>();
+        jdbcTemplate.query(RANGE_AGGREGATE_SQL, (RowCallbackHandler) rs -> {
+            for (String[] pair : COLUMN_PAIRS) {
+                if (rs.getLong(pair[0]) != rs.getLong(pair[1])) {
+                    drifted.add(rs.getLong("id"));
+                    return;
+                }
+            }
+        }, from, to, from, to);
+        for (Long itemId : drifted) {
+            jdbcTemplate.update(RECOMPUTE_SQL, itemId, itemId);
+            log.warn("物品评分汇总与评价不一致，已重新计算，物品ID：{}", itemId);
+        }
+        driftCounter.increment(drifted.size());
+        return drifted.size();
+    }
+
+    private static long value(Integer rating) {
+        return rating != null ? rating : 0;
+    }
+
+    private static int count(Integer rating) {
+        return rating != null ? 1 : 0;
+    }
+
+    /**
+     * 单条评价计入汇总的评分
+     */
+    public record RatingSnapshot(int count, Integer rating, Integer quality, Integer service, Integer delivery) {
+
+        static final RatingSnapshot EMPTY = new RatingSnapshot(0, null, null, null, null);
+
+        /**
+         * 已通过的评价返回其评分，其余状态不计入汇总返回 null
+         */
+        public static RatingSnapshot of(Review review) {
+            if (review.getStatus() != Review.ReviewStatus.APPROVED) {
+                return null;
+            }
+            return new RatingSnapshot(1, review.getRating(), review.getQualityRating(),
+                review.getServiceRating(), review.getDeliveryRating());
+        }
+    }
+}
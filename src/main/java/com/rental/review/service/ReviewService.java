@@ -37,6 +37,7 @@ public class ReviewService {
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
     private final OrderRepository orderRepository;
+    private final ItemRatingAggregator itemRatingAggregator;
 
     /**
      * 创建评价
@@ -144,8 +145,9 @@ public class ReviewService {
     public ReviewDTO updateReview(Long id, ReviewUpdateRequest request, Long userId) {
         log.info("Updating review ID: {} by user: {}", id, userId);
 
-        Review review = reviewRepository.findById(id)
+        Review review = reviewRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new ResourceNotFoundException("评价不存在"));
+        ItemRatingAggregator.RatingSnapshot before = ItemRatingAggregator.RatingSnapshot.of(review);
 
         // 验证权限：只有评价者本人可以修改评价
         if (!review.getReviewerId().equals(userId)) {
@@ -187,6 +189,7 @@ public class ReviewService {
         }
 
         review = reviewRepository.save(review);
+        itemRatingAggregator.apply(review.getItemId(), before, ItemRatingAggregator.RatingSnapshot.of(review));
 
         log.info("Review updated successfully: {}", id);
         return convertToDTO(review);
@@ -199,7 +202,7 @@ public class ReviewService {
     public void deleteReview(Long id, Long userId) {
         log.info("Deleting review ID: {} by user: {}", id, userId);
 
-        Review review = reviewRepository.findById(id)
+        Review review = reviewRepository.findByIdForUpdate(id)
                 .orElseThrow(() -> new ResourceNotFoundException("评价不存在"));
 
         // 验证权限：只有评价者本人可以删除评价
@@ -212,10 +215,35 @@ public class ReviewService {
             throw new BusinessException("只有待审核的评价可以删除");
         }
 
+        itemRatingAggregator.apply(review.getItemId(), ItemRatingAggregator.RatingSnapshot.of(review), null);
         reviewRepository.delete(review);
         log.info("Review deleted successfully: {}", id);
     }
 
+    /**
+     * 审核评价
+     *
+     * 评价进入或离开已通过状态时，在同一事务内增量更新物品评分汇总
+     */
+    @Transactional
+    public ReviewDTO moderateReview(Long id, Review.ReviewStatus status) {
+        log.info("Moderating review ID: {} to status: {}", id, status);
+
+        Review review = reviewRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new ResourceNotFoundException("评价不存在"));
+        if (review.getStatus() == status) {
+            return convertToDTO(review);
+        }
+
+        ItemRatingAggregator.RatingSnapshot before = ItemRatingAggregator.RatingSnapshot.of(review);
+        review.setStatus(status);
+        review = reviewRepository.save(review);
+        itemRatingAggregator.apply(review.getItemId(), before, ItemRatingAggregator.RatingSnapshot.of(review));
+
+        log.info("Review moderated successfully: {}", id);
+        return convertToDTO(review);
+    }
+
     /**
      * 获取物品评价
      */
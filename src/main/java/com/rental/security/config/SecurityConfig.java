@@ -51,7 +51,7 @@ public class SecurityConfig {
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
                 // 公开的认证端点
-                .requestMatchers("/api/auth/login", "/api/auth/register", "/api/auth/refresh", "/api/items/available").permitAll()
+                .requestMatchers("/api/auth/login", "/api/auth/register", "/api/auth/refresh", "/api/items/available", "/api/items/facets", "/api/items/nearby", "/api/items/available-between", "/api/items/*/calendar", "/api/items/*/similar").permitAll()
 
                 // Swagger UI 相关端点 - 允许公开访问（修复版本）
                 .requestMatchers(
@@ -66,6 +66,9 @@ public class SecurityConfig {
                 // 健康检查端点
                 .requestMatchers("/actuator/health").permitAll()
 
+                // 支付宝异步通知（由签名验证保证来源合法）
+                .requestMatchers("/api/payments/callback/alipay", "/api/payments/callback/alipay/*").permitAll()
+
                 // 用户检查端点（注册时需要）
                 .requestMatchers("/api/users/check/**").permitAll()
 
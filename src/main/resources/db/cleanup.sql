@@ -8,6 +8,7 @@ SET FOREIGN_KEY_CHECKS = 0;
 
 -- 删除所有可能存在的表（包括旧的表）
 DROP TABLE IF EXISTS rental_orders;
+DROP TABLE IF EXISTS outbox_events;
 DROP TABLE IF EXISTS review_helpfulness;
 DROP TABLE IF EXISTS review_replies;
 DROP TABLE IF EXISTS reviews;
@@ -18,6 +19,11 @@ DROP TABLE IF EXISTS user_sessions;
 DROP TABLE IF EXISTS refresh_tokens;
 DROP TABLE IF EXISTS user_profiles;
 DROP TABLE IF EXISTS notifications;
+DROP TABLE IF EXISTS file_info;
+DROP TABLE IF EXISTS file_category;
+DROP TABLE IF EXISTS payment_callback_inbox;
+DROP TABLE IF EXISTS payment_daily_stats;
+DROP TABLE IF EXISTS payment_stats_rollup_state;
 DROP TABLE IF EXISTS payment_records;
 DROP TABLE IF EXISTS merchant_payment_configs;
 DROP TABLE IF EXISTS payments;
@@ -28,6 +34,7 @@ DROP TABLE IF EXISTS contract_templates;
 DROP TABLE IF EXISTS order_items;
 DROP TABLE IF EXISTS orders;
 DROP TABLE IF EXISTS items;
+DROP TABLE IF EXISTS item_category_closure;
 DROP TABLE IF EXISTS item_categories;
 DROP TABLE IF EXISTS permissions;
 DROP TABLE IF EXISTS roles;
@@ -141,6 +141,18 @@ CREATE TABLE IF NOT EXISTS item_categories (
     INDEX idx_name (name)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='物品分类表';
 
+-- 物品分类闭包表（每对祖先-后代一行，含自身，depth 为层级差）
+CREATE TABLE IF NOT EXISTS item_category_closure (
+    ancestor_id BIGINT NOT NULL COMMENT '祖先分类ID',
+    descendant_id BIGINT NOT NULL COMMENT '后代分类ID',
+    depth INT NOT NULL COMMENT '层级差，自身为0',
+    PRIMARY KEY (ancestor_id, descendant_id),
+    FOREIGN KEY (ancestor_id) REFERENCES item_categories(id) ON DELETE CASCADE,
+    FOREIGN KEY (descendant_id) REFERENCES item_categories(id) ON DELETE CASCADE,
+    INDEX idx_descendant_depth (descendant_id, depth),
+    INDEX idx_ancestor_depth (ancestor_id, depth)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='物品分类闭包表';
+
 -- 物品表
 CREATE TABLE IF NOT EXISTS items (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -152,6 +164,8 @@ CREATE TABLE IF NOT EXISTS items (
     deposit DECIMAL(10, 2) DEFAULT 0 COMMENT '押金',
     status ENUM('PENDING', 'AVAILABLE', 'RENTED', 'MAINTENANCE', 'UNAVAILABLE', 'OFFLINE') DEFAULT 'PENDING' COMMENT '物品状态',
     location VARCHAR(255) COMMENT '物品位置',
+    latitude DECIMAL(9, 6) COMMENT '纬度',
+    longitude DECIMAL(9, 6) COMMENT '经度',
     images TEXT COMMENT '物品图片',
     brand VARCHAR(100) COMMENT '品牌',
     model VARCHAR(100) COMMENT '型号',
@@ -167,6 +181,13 @@ CREATE TABLE IF NOT EXISTS items (
     approved_at TIMESTAMP NULL COMMENT '审核时间',
     average_rating DECIMAL(3, 2) DEFAULT 0.00 COMMENT '平均评分',
     rating_count INT DEFAULT 0 COMMENT '评价数量',
+    rating_sum BIGINT DEFAULT 0 COMMENT '评分总和',
+    quality_rating_sum BIGINT DEFAULT 0 COMMENT '物品质量评分总和',
+    quality_rating_count INT DEFAULT 0 COMMENT '物品质量评分数量',
+    service_rating_sum BIGINT DEFAULT 0 COMMENT '服务评分总和',
+    service_rating_count INT DEFAULT 0 COMMENT '服务评分数量',
+    delivery_rating_sum BIGINT DEFAULT 0 COMMENT '配送评分总和',
+    delivery_rating_count INT DEFAULT 0 COMMENT '配送评分数量',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     FOREIGN KEY (category_id) REFERENCES item_categories(id) ON DELETE SET NULL,
@@ -178,7 +199,8 @@ CREATE TABLE IF NOT EXISTS items (
     INDEX idx_status (status),
     INDEX idx_approval_status (approval_status),
     INDEX idx_price (price_per_day),
-    INDEX idx_average_rating (average_rating)
+    INDEX idx_average_rating (average_rating),
+    INDEX idx_lat_lng (latitude, longitude)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='物品表';
 
 -- ================================
@@ -234,8 +256,10 @@ CREATE TABLE IF NOT EXISTS payments (
     amount DECIMAL(12, 2) NOT NULL COMMENT '支付金额',
     payment_method ENUM('ALIPAY', 'WECHAT', 'CASH', 'BANK_TRANSFER') NOT NULL COMMENT '支付方式',
     payment_type ENUM('RENTAL', 'DEPOSIT', 'REFUND') NOT NULL COMMENT '支付类型',
-    status ENUM('PENDING', 'SUCCESS', 'FAILED', 'CANCELLED') DEFAULT 'PENDING' COMMENT '支付状态',
+    status ENUM('PENDING', 'SUCCESS', 'FAILED', 'CANCELLED', 'MANUAL_REVIEW') DEFAULT 'PENDING' COMMENT '支付状态',
     third_party_transaction_id VARCHAR(255) COMMENT '第三方交易ID',
+    original_payment_id BIGINT COMMENT '原支付ID（仅退款记录）',
+    refund_reason VARCHAR(255) COMMENT '退款原因',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE RESTRICT,
@@ -245,14 +269,17 @@ CREATE TABLE IF NOT EXISTS payments (
     INDEX idx_merchant_id (merchant_id),
     INDEX idx_status (status),
     INDEX idx_created_at (created_at),
-    INDEX idx_merchant_status (merchant_id, status)
+    INDEX idx_merchant_status (merchant_id, status),
+    INDEX idx_status_id (status, id),
+    INDEX idx_updated_at (updated_at),
+    INDEX idx_original_payment_id (original_payment_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='支付表';
 
 -- 支付记录表
 CREATE TABLE IF NOT EXISTS payment_records (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     payment_id BIGINT NOT NULL COMMENT '支付ID',
-    status ENUM('PENDING', 'SUCCESS', 'FAILED', 'CANCELLED') NOT NULL COMMENT '支付状态',
+    status ENUM('PENDING', 'SUCCESS', 'FAILED', 'CANCELLED', 'MANUAL_REVIEW') NOT NULL COMMENT '支付状态',
     response_data JSON COMMENT '响应数据',
     error_message TEXT COMMENT '错误信息',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
@@ -261,6 +288,43 @@ CREATE TABLE IF NOT EXISTS payment_records (
     INDEX idx_status (status)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='支付记录表';
 
+-- 支付日统计汇总表（按创建日期、商家、状态、类型汇总，由统计服务增量刷新）
+CREATE TABLE IF NOT EXISTS payment_daily_stats (
+    stat_date DATE NOT NULL COMMENT '统计日期（支付创建日期）',
+    merchant_id BIGINT NOT NULL COMMENT '商家ID',
+    status ENUM('PENDING', 'SUCCESS', 'FAILED', 'CANCELLED', 'MANUAL_REVIEW') NOT NULL COMMENT '支付状态',
+    payment_type ENUM('RENTAL', 'DEPOSIT', 'REFUND') NOT NULL COMMENT '支付类型',
+    payment_count BIGINT NOT NULL DEFAULT 0 COMMENT '支付笔数',
+    total_amount DECIMAL(16, 2) NOT NULL DEFAULT 0 COMMENT '支付金额合计',
+    PRIMARY KEY (stat_date, merchant_id, status, payment_type),
+    INDEX idx_merchant_date (merchant_id, stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='支付日统计汇总表';
+
+-- 支付统计刷新水位表（单行）
+CREATE TABLE IF NOT EXISTS payment_stats_rollup_state (
+    id TINYINT PRIMARY KEY COMMENT '固定为1',
+    watermark TIMESTAMP NOT NULL COMMENT '已汇总到的支付更新时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='支付统计刷新水位表';
+
+-- 支付回调收件箱表
+CREATE TABLE IF NOT EXISTS payment_callback_inbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    merchant_id BIGINT NOT NULL DEFAULT 0 COMMENT '商家ID（0 表示统一配置回调）',
+    out_trade_no VARCHAR(64) NOT NULL COMMENT '商户订单号（支付单号）',
+    notify_id VARCHAR(128) NOT NULL COMMENT '通知ID',
+    trade_no VARCHAR(64) COMMENT '第三方交易号',
+    trade_status VARCHAR(32) COMMENT '第三方交易状态',
+    raw_params JSON NOT NULL COMMENT '原始通知参数',
+    status ENUM('RECEIVED', 'PROCESSED', 'FAILED') NOT NULL DEFAULT 'RECEIVED' COMMENT '处理状态',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '处理次数',
+    last_error VARCHAR(500) COMMENT '最近一次处理错误',
+    received_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '接收时间',
+    processed_at TIMESTAMP NULL COMMENT '处理完成时间',
+    UNIQUE KEY uk_merchant_trade_notify (merchant_id, out_trade_no, notify_id),
+    INDEX idx_status_id (status, id),
+    INDEX idx_out_trade_no_status (out_trade_no, status)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='支付回调收件箱表';
+
 -- 商家支付配置表
 CREATE TABLE IF NOT EXISTS merchant_payment_configs (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -397,7 +461,8 @@ CREATE TABLE IF NOT EXISTS reviews (
     INDEX idx_owner_id (owner_id),
     INDEX idx_rating (rating),
     INDEX idx_status (status),
-    INDEX idx_created_at (created_at)
+    INDEX idx_created_at (created_at),
+    INDEX idx_item_status (item_id, status)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='评价表';
 
 -- 评价回复表
@@ -524,6 +589,7 @@ CREATE TABLE IF NOT EXISTS file_info (
     related_entity_id BIGINT COMMENT '关联实体ID',
     access_level VARCHAR(20) DEFAULT 'PRIVATE' COMMENT '访问级别(PUBLIC/PRIVATE)',
     download_count INT DEFAULT 0 COMMENT '下载次数',
+    preview_count INT DEFAULT 0 COMMENT '预览次数',
     is_active BOOLEAN DEFAULT TRUE COMMENT '是否有效',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
@@ -537,3 +603,25 @@ CREATE TABLE IF NOT EXISTS file_info (
     INDEX idx_path (file_path),
     INDEX idx_active (is_active)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='文件信息表';
+
+-- ================================
+-- 13. 领域事件发件箱
+-- ================================
+
+-- 发件箱事件表
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    aggregate_type VARCHAR(32) NOT NULL COMMENT '聚合类型',
+    aggregate_id BIGINT NOT NULL COMMENT '聚合ID',
+    event_type VARCHAR(64) NOT NULL COMMENT '事件类型',
+    payload JSON NOT NULL COMMENT '事件内容',
+    status ENUM('PENDING', 'DELIVERED', 'FAILED') NOT NULL DEFAULT 'PENDING' COMMENT '投递状态',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '投递次数',
+    last_error VARCHAR(500) COMMENT '最近一次投递错误',
+    next_attempt_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '下次投递时间',
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '创建时间',
+    delivered_at TIMESTAMP(3) NULL COMMENT '投递完成时间',
+    INDEX idx_status_next_attempt (status, next_attempt_at, id),
+    INDEX idx_aggregate_status (aggregate_type, aggregate_id, status, id),
+    INDEX idx_status_delivered_at (status, delivered_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='领域事件发件箱表';
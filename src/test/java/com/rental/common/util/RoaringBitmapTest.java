@@ -0,0 +1,126 @@
+package com.rental.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoaringBitmapTest {
+
+    @Test
+    void arrayContainerConvertsToBitmapAndBack() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        BitSet expected = new BitSet();
+        // 同一个桶内超过 4096 个元素时转为位图容器
+        for (int value = 0; value < 5000; value++) {
+            bitmap.add(value * 2);
+            expected.set(value * 2);
+        }
+        assertSame(expected, bitmap);
+
+        // 删到 4096 个以下转回数组容器，之后仍可继续增删
+        for (int value = 0; value < 3000; value++) {
+            bitmap.remove(value * 2);
+            expected.clear(value * 2);
+        }
+        assertSame(expected, bitmap);
+        bitmap.add(1);
+        expected.set(1);
+        assertSame(expected, bitmap);
+    }
+
+    @Test
+    void removingLastElementDropsContainer() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.add(70_000);
+        bitmap.remove(70_000);
+        bitmap.remove(-1);
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.cardinality());
+        assertFalse(bitmap.contains(70_000));
+    }
+
+    @Test
+    void rejectsNegativeValues() {
+        assertThrows(IllegalArgumentException.class, () -> new RoaringBitmap().add(-1));
+    }
+
+    @Test
+    void setOperationsMatchBitSetAcrossContainerTypes() {
+        Random random = new Random(42);
+        // 稀疏、稠密两种分布组合，覆盖数组与数组、数组与位图、位图与位图容器之间的运算
+        int[] densities = {50, 6000, 30_000};
+        for (int leftDensity : densities) {
+            for (int rightDensity : densities) {
+                BitSet leftExpected = new BitSet();
+                BitSet rightExpected = new BitSet();
+                RoaringBitmap left = randomBitmap(random, leftDensity, leftExpected);
+                RoaringBitmap right = randomBitmap(random, rightDensity, rightExpected);
+
+                BitSet and = (BitSet) leftExpected.clone();
+                and.and(rightExpected);
+                assertSame(and, left.and(right));
+                assertEquals(and.cardinality(), left.andCardinality(right));
+
+                BitSet or = (BitSet) leftExpected.clone();
+                or.or(rightExpected);
+                assertSame(or, left.or(right));
+
+                BitSet andNot = (BitSet) leftExpected.clone();
+                andNot.andNot(rightExpected);
+                assertSame(andNot, left.andNot(right));
+
+                // 运算返回新位图，不修改参与运算的位图
+                assertSame(leftExpected, left);
+                assertSame(rightExpected, right);
+            }
+        }
+    }
+
+    @Test
+    void andNotOfItselfIsEmpty() {
+        BitSet expected = new BitSet();
+        RoaringBitmap bitmap = randomBitmap(new Random(7), 20_000, expected);
+        assertTrue(bitmap.andNot(bitmap).isEmpty());
+        assertTrue(bitmap.and(new RoaringBitmap()).isEmpty());
+        assertSame(expected, bitmap.or(new RoaringBitmap()));
+        assertSame(expected, bitmap.andNot(new RoaringBitmap()));
+    }
+
+    @Test
+    void copyIsIndependent() {
+        BitSet expected = new BitSet();
+        RoaringBitmap bitmap = randomBitmap(new Random(3), 8000, expected);
+        RoaringBitmap copy = bitmap.copy();
+        copy.add(1_000_000);
+        bitmap.forEach(copy::remove);
+        assertSame(expected, bitmap);
+        assertArrayEquals(new int[] {1_000_000}, copy.toArray());
+    }
+
+    /**
+     * 在 0 ~ 3 个桶（每桶 65536）范围内随机取 count 个元素
+     */
+    private static RoaringBitmap randomBitmap(Random random, int count, BitSet expected) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < count; i++) {
+            int value = random.nextInt(3 << 16);
+            bitmap.add(value);
+            expected.set(value);
+        }
+        return bitmap;
+    }
+
+    private static void assertSame(BitSet expected, RoaringBitmap actual) {
+        assertArrayEquals(expected.stream().toArray(), actual.toArray());
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        expected.stream().limit(100).forEach(value -> assertTrue(actual.contains(value)));
+    }
+}
@@ -0,0 +1,52 @@
+package com.rental.item.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalIndexSupportTest {
+
+    private final IncrementalIndexSupport<String> support = new IncrementalIndexSupport<>();
+
+    @Test
+    void replaysChangesRecordedDuringRebuildInOrderKeepingTheLatest() {
+        List<String> replayed = new ArrayList<>();
+        support.record(1L, Optional.of("before"));
+
+        assertTrue(support.rebuild(() -> {
+            support.record(2L, Optional.of("a"));
+            support.record(3L, Optional.empty());
+            support.record(2L, Optional.of("b"));
+            support.replay((itemId, change) -> replayed.add(itemId + "=" + change.orElse("-")));
+            // 已发布新索引，之后的变更直接作用于新索引
+            support.record(4L, Optional.of("after"));
+            assertFalse(support.isRebuilding());
+        }));
+
+        assertEquals(List.of("2=b", "3=-"), replayed);
+    }
+
+    @Test
+    void ignoresConcurrentRebuildAndClearsLogWhenRebuildFails() {
+        assertThrows(IllegalStateException.class, () -> support.rebuild(() -> {
+            assertTrue(support.isRebuilding());
+            assertFalse(support.rebuild(() -> {
+                throw new AssertionError("不应同时重建");
+            }));
+            support.record(1L, Optional.of("lost"));
+            throw new IllegalStateException("load failed");
+        }));
+        assertFalse(support.isRebuilding());
+
+        List<Long> replayed = new ArrayList<>();
+        assertTrue(support.rebuild(() -> support.replay((itemId, change) -> replayed.add(itemId))));
+        assertEquals(List.of(), replayed);
+    }
+}
@@ -0,0 +1,82 @@
+package com.rental.item.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ItemRecommendationIndexTest {
+
+    @Test
+    void mergeSumsCountsOfSharedPairsAndKeepsKeysSorted() {
+        ItemRecommendationIndex.PairCounts left = pairs(new long[] {pair(0, 1), pair(0, 3), pair(2, 5)}, new int[] {1, 2, 3});
+        ItemRecommendationIndex.PairCounts right = pairs(new long[] {pair(0, 2), pair(0, 3), pair(4, 5)}, new int[] {4, 5, 6});
+
+        ItemRecommendationIndex.PairCounts merged = ItemRecommendationIndex.PairCounts.merge(left, right);
+
+        assertEquals(5, merged.size());
+        assertArrayEquals(new long[] {pair(0, 1), pair(0, 2), pair(0, 3), pair(2, 5), pair(4, 5)},
+            Arrays.copyOf(merged.keys(), merged.size()));
+        assertArrayEquals(new int[] {1, 4, 7, 3, 6}, Arrays.copyOf(merged.counts(), merged.size()));
+    }
+
+    @Test
+    void mergeOnlyReadsTheFilledPrefix() {
+        // size 之后的槽位是未使用的缓冲区，不应参与归并
+        ItemRecommendationIndex.PairCounts left = new ItemRecommendationIndex.PairCounts(
+            new long[] {pair(1, 2), pair(0, 1)}, new int[] {2, 99}, 1);
+        ItemRecommendationIndex.PairCounts empty = pairs(new long[0], new int[0]);
+
+        ItemRecommendationIndex.PairCounts merged = ItemRecommendationIndex.PairCounts.merge(empty, left);
+
+        assertEquals(1, merged.size());
+        assertEquals(pair(1, 2), merged.keys()[0]);
+        assertEquals(2, merged.counts()[0]);
+        assertEquals(0, ItemRecommendationIndex.PairCounts.merge(empty, empty).size());
+    }
+
+    @Test
+    void offerKeepsHighestScoresInDescendingOrder() {
+        int[] indexes = new int[3];
+        float[] scores = new float[3];
+        int size = 0;
+        size = ItemRecommendationIndex.TopKTask.offer(indexes, scores, size, 10, 0.2f);
+        size = ItemRecommendationIndex.TopKTask.offer(indexes, scores, size, 11, 0.5f);
+        size = ItemRecommendationIndex.TopKTask.offer(indexes, scores, size, 12, 0.1f);
+        assertEquals(3, size);
+        assertArrayEquals(new int[] {11, 10, 12}, indexes);
+        assertArrayEquals(new float[] {0.5f, 0.2f, 0.1f}, scores);
+
+        // 缓冲区已满：更高的得分挤掉最低的，更低或相等的得分被丢弃
+        size = ItemRecommendationIndex.TopKTask.offer(indexes, scores, size, 13, 0.3f);
+        size = ItemRecommendationIndex.TopKTask.offer(indexes, scores, size, 14, 0.2f);
+        size = ItemRecommendationIndex.TopKTask.offer(indexes, scores, size, 15, 0.05f);
+        assertEquals(3, size);
+        assertArrayEquals(new int[] {11, 13, 10}, indexes);
+        assertArrayEquals(new float[] {0.5f, 0.3f, 0.2f}, scores);
+
+        size = ItemRecommendationIndex.TopKTask.offer(indexes, scores, size, 16, 0.9f);
+        assertArrayEquals(new int[] {16, 11, 13}, indexes);
+        assertArrayEquals(new float[] {0.9f, 0.5f, 0.3f}, scores);
+    }
+
+    @Test
+    void offerIgnoresNonPositiveScores() {
+        int[] indexes = new int[2];
+        float[] scores = new float[2];
+        assertEquals(0, ItemRecommendationIndex.TopKTask.offer(indexes, scores, 0, 1, 0f));
+        assertEquals(0, ItemRecommendationIndex.TopKTask.offer(indexes, scores, 0, 2, -1f));
+        assertEquals(1, ItemRecommendationIndex.TopKTask.offer(indexes, scores, 0, 3, 0.4f));
+        assertEquals(3, indexes[0]);
+    }
+
+    private static ItemRecommendationIndex.PairCounts pairs(long[] keys, int[] counts) {
+        return new ItemRecommendationIndex.PairCounts(keys, counts, keys.length);
+    }
+
+    private static long pair(int smaller, int larger) {
+        return ((long) smaller << 32) | larger;
+    }
+}
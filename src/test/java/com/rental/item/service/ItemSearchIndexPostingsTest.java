@@ -0,0 +1,56 @@
+package com.rental.item.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ItemSearchIndexPostingsTest {
+
+    @Test
+    void roundTripsDocumentGapsAndFrequencies() {
+        // 覆盖 1~5 字节的变长整数：差值和词频分别落在 7、14、21、28 位边界两侧
+        int[][] postings = {
+            {0, 1}, {1, 127}, {129, 128}, {16_513, 16_383}, {16_514, 16_384},
+            {2_113_665, 2_097_151}, {4_210_817, 2_097_152}, {272_646_273, 268_435_455},
+            {541_081_729, 268_435_456}, {Integer.MAX_VALUE, Integer.MAX_VALUE}
+        };
+        ItemSearchIndex.Postings encoded = new ItemSearchIndex.Postings();
+        for (int[] posting : postings) {
+            encoded.add(posting[0], posting[1]);
+        }
+        encoded.trim();
+
+        assertEquals(postings.length, encoded.liveDocs);
+        assertEquals(encoded.size, encoded.data.length);
+        assertEquals(Arrays.stream(postings).map(posting -> List.of(posting[0], posting[1])).toList(), decode(encoded));
+    }
+
+    @Test
+    void roundTripsDenseDocumentsAcrossBufferGrowth() {
+        ItemSearchIndex.Postings encoded = new ItemSearchIndex.Postings();
+        List<List<Integer>> expected = new ArrayList<>();
+        for (int doc = 0; doc < 10_000; doc += 3) {
+            int frequency = doc % 200 + 1;
+            encoded.add(doc, frequency);
+            expected.add(List.of(doc, frequency));
+        }
+        assertEquals(expected, decode(encoded));
+    }
+
+    @Test
+    void emptyPostingsDecodeToNothing() {
+        ItemSearchIndex.Postings encoded = new ItemSearchIndex.Postings();
+        encoded.trim();
+        assertEquals(List.of(), decode(encoded));
+    }
+
+    private static List<List<Integer>> decode(ItemSearchIndex.Postings postings) {
+        List<List<Integer>> decoded = new ArrayList<>();
+        postings.forEach((doc, frequency) -> decoded.add(List.of(doc, frequency)));
+        return decoded;
+    }
+}
@@ -0,0 +1,110 @@
+package com.rental.payment.integration.alipay;
+
+import com.alipay.api.AlipayApiException;
+import com.alipay.api.internal.util.AlipaySignature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通知验签基准：NotifySignatureVerifier 与 AlipaySignature.rsaCheckV1 的单条吞吐量及批量验签耗时
+ *
+ * 不在单元测试中执行，先 mvn test-compile 生成 JMH 代码，再以测试类路径运行 main 方法。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class NotifySignatureVerifierBenchmark {
+
+    private static final String CHARSET = "UTF-8";
+
+    @Param({"RSA2", "RSA"})
+    private String signType;
+
+    private final NotifySignatureVerifier verifier = new NotifySignatureVerifier();
+    private String publicKeyBase64;
+    private PublicKey publicKey;
+    private Map<String, String> notification;
+    private List<Map<String, String>> batch;
+
+    @Setup
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        String privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+        publicKeyBase64 = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+        publicKey = verifier.parsePublicKey(publicKeyBase64);
+
+        batch = new ArrayList<>(256);
+        for (int i = 0; i < 256; i++) {
+            Map<String, String> params = new HashMap<>();
+            params.put("notify_time", "2026-10-19 10:00:00");
+            params.put("notify_type", "trade_status_sync");
+            params.put("notify_id", "ac05099524730693a8b330c5ecf72da" + i);
+            params.put("app_id", "2021000000000000");
+            params.put("charset", CHARSET);
+            params.put("version", "1.0");
+            params.put("trade_no", "20261019220014000000000" + String.format("%05d", i));
+            params.put("out_trade_no", "PAY2026101900" + String.format("%05d", i));
+            params.put("trade_status", "TRADE_SUCCESS");
+            params.put("total_amount", "128.50");
+            params.put("subject", "相机租赁 3 天");
+            params.put("gmt_payment", "2026-10-19 09:59:58");
+            params.put("sign", AlipaySignature.rsaSign(AlipaySignature.getSignCheckContentV1(params), privateKey, CHARSET, signType));
+            params.put("sign_type", signType);
+            batch.add(params);
+        }
+        notification = batch.get(0);
+    }
+
+    @Benchmark
+    public boolean rsaCheckV1() throws AlipayApiException {
+        return AlipaySignature.rsaCheckV1(new HashMap<>(notification), publicKeyBase64, CHARSET, signType);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return verifier.verify(notification, publicKey, CHARSET, signType);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public boolean[] verifyAll() {
+        return verifier.verifyAll(batch, publicKey, CHARSET, signType);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(NotifySignatureVerifierBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,147 @@
+package com.rental.payment.integration.alipay;
+
+import com.alipay.api.AlipayApiException;
+import com.alipay.api.internal.util.AlipaySignature;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 与 AlipaySignature.rsaCheckV1 逐项对照，保证替换后的验签结果完全一致
+ */
+class NotifySignatureVerifierTest {
+
+    private static final String CHARSET = "UTF-8";
+
+    private static String privateKey;
+    private static String publicKeyBase64;
+    private static PublicKey publicKey;
+
+    private final NotifySignatureVerifier verifier = new NotifySignatureVerifier();
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        privateKey = Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded());
+        publicKeyBase64 = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+        publicKey = new NotifySignatureVerifier().parsePublicKey(publicKeyBase64);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"RSA", "RSA2"})
+    void acceptsValidSignature(String signType) throws Exception {
+        assertParity(signed(notification(), signType), signType, true);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"RSA", "RSA2"})
+    void rejectsTamperedPayload(String signType) throws Exception {
+        Map<String, String> params = signed(notification(), signType);
+        params.put("total_amount", "0.01");
+        assertParity(params, signType, false);
+
+        Map<String, String> extra = signed(notification(), signType);
+        extra.put("refund_fee", "88.00");
+        assertParity(extra, signType, false);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"RSA", "RSA2"})
+    void ignoresEmptyValues(String signType) throws Exception {
+        Map<String, String> params = signed(notification(), signType);
+        // 空串和 null 不参与签名，通知中出现或缺失都不影响结果
+        params.put("passback_params", "");
+        params.put("body", null);
+        assertParity(params, signType, true);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"RSA", "RSA2"})
+    void ignoresSignTypeParameter(String signType) throws Exception {
+        Map<String, String> params = signed(notification(), signType);
+        params.put("sign_type", signType);
+        assertParity(params, signType, true);
+
+        // sign_type 不参与签名，被改写也不影响结果
+        params.put("sign_type", "RSA".equals(signType) ? "RSA2" : "RSA");
+        assertParity(params, signType, true);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"RSA", "RSA2"})
+    void rejectsSignatureOfOtherAlgorithm(String signType) throws Exception {
+        String otherType = "RSA".equals(signType) ? "RSA2" : "RSA";
+        assertParity(signed(notification(), otherType), signType, false);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"RSA", "RSA2"})
+    void verifyAllMatchesSingleVerification(String signType) throws Exception {
+        Map<String, String> tampered = signed(notification(), signType);
+        tampered.put("trade_status", "TRADE_CLOSED");
+        List<Map<String, String>> notifications = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            notifications.add(i % 3 == 0 ? tampered : signed(notification(), signType));
+        }
+
+        boolean[] results = verifier.verifyAll(notifications, publicKey, CHARSET, signType);
+        boolean[] expected = new boolean[notifications.size()];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = rsaCheckV1(notifications.get(i), signType);
+        }
+        assertArrayEquals(expected, results);
+    }
+
+    private void assertParity(Map<String, String> params, String signType, boolean expected) {
+        assertEquals(expected, rsaCheckV1(params, signType));
+        assertEquals(expected, verifier.verify(params, publicKey, CHARSET, signType));
+    }
+
+    /**
+     * 原调用方的写法：rsaCheckV1 抛出 AlipayApiException 时按验签失败处理
+     */
+    private static boolean rsaCheckV1(Map<String, String> params, String signType) {
+        try {
+            // rsaCheckV1 会移除参数中的 sign，传入副本
+            return AlipaySignature.rsaCheckV1(new HashMap<>(params), publicKeyBase64, CHARSET, signType);
+        } catch (AlipayApiException e) {
+            return false;
+        }
+    }
+
+    private static Map<String, String> notification() {
+        Map<String, String> params = new HashMap<>();
+        params.put("notify_time", "2026-10-19 10:00:00");
+        params.put("notify_type", "trade_status_sync");
+        params.put("notify_id", "ac05099524730693a8b330c5ecf72da9786");
+        params.put("app_id", "2021000000000000");
+        params.put("charset", CHARSET);
+        params.put("version", "1.0");
+        params.put("trade_no", "2026101922001400000000000001");
+        params.put("out_trade_no", "PAY202610190001");
+        params.put("trade_status", "TRADE_SUCCESS");
+        params.put("total_amount", "128.50");
+        params.put("subject", "相机租赁 3 天");
+        params.put("gmt_payment", "2026-10-19 09:59:58");
+        return params;
+    }
+
+    private static Map<String, String> signed(Map<String, String> params, String signType) throws AlipayApiException {
+        params.put("sign", AlipaySignature.rsaSign(AlipaySignature.getSignCheckContentV1(params), privateKey, CHARSET, signType));
+        return params;
+    }
+}